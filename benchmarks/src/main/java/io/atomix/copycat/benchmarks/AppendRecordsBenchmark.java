@@ -0,0 +1,142 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.copycat.benchmarks;
+
+import io.atomix.catalyst.buffer.HeapBuffer;
+import io.atomix.catalyst.serializer.Serializer;
+import io.atomix.catalyst.serializer.ServiceLoaderTypeResolver;
+import io.atomix.copycat.server.request.AppendRequest;
+import io.atomix.copycat.server.storage.Log;
+import io.atomix.copycat.server.storage.Storage;
+import io.atomix.copycat.server.storage.StorageLevel;
+import io.atomix.copycat.server.storage.entry.Entry;
+import io.atomix.copycat.server.storage.entry.KeepAliveEntry;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Append request replication benchmark.
+ * <p>
+ * Measures building, writing and reading back an {@link AppendRequest} carrying a full batch of committed entries from
+ * a sealed segment, either copied as serialized records or read from the log and serialized again.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class AppendRecordsBenchmark {
+  private static final int MAX_BATCH_SIZE = 1024 * 28;
+  private static final int ENTRIES_PER_SEGMENT = 1024;
+
+  @Param({"MAPPED", "DISK"})
+  public StorageLevel storageLevel;
+
+  private Log log;
+  private Serializer serializer;
+  private HeapBuffer records;
+  private HeapBuffer buffer;
+
+  @Setup
+  public void setup() throws IOException {
+    Storage storage = Storage.builder()
+      .withDirectory(Files.createTempDirectory("copycat-benchmark").toFile())
+      .withStorageLevel(storageLevel)
+      .withMaxEntriesPerSegment(ENTRIES_PER_SEGMENT)
+      .build();
+    storage.serializer().resolve(new ServiceLoaderTypeResolver());
+    log = storage.open("benchmark");
+
+    // Fill the first segment and start the next so that the first segment is sealed once committed.
+    for (int i = 1; i <= ENTRIES_PER_SEGMENT + 1; i++) {
+      try (KeepAliveEntry entry = log.create(KeepAliveEntry.class)) {
+        entry.setTerm(1)
+          .setSession(1)
+          .setTimestamp(System.currentTimeMillis())
+          .setCommandSequence(i)
+          .setEventVersion(i);
+        log.append(entry);
+      }
+    }
+    log.commit(ENTRIES_PER_SEGMENT + 1);
+
+    serializer = new Serializer(new ServiceLoaderTypeResolver());
+    records = HeapBuffer.allocate(MAX_BATCH_SIZE * 2);
+    buffer = HeapBuffer.allocate(MAX_BATCH_SIZE * 2);
+  }
+
+  @TearDown
+  public void teardown() {
+    records.close();
+    buffer.close();
+    log.delete();
+  }
+
+  @Benchmark
+  public Object records() {
+    int count = log.copyTo(1, MAX_BATCH_SIZE, records.clear());
+    return roundTrip(builder().withRecords(count, records.array(), (int) records.position()).build());
+  }
+
+  @Benchmark
+  public Object entries() {
+    AppendRequest.Builder builder = builder();
+    int size = 0;
+    for (long index = 1; index <= ENTRIES_PER_SEGMENT; index++) {
+      Entry entry = log.get(index);
+      if (size + entry.size() > MAX_BATCH_SIZE) {
+        entry.release();
+        break;
+      }
+      size += entry.size();
+      builder.addEntry(entry);
+    }
+
+    AppendRequest request = builder.build();
+    Object result = roundTrip(request);
+    request.entries().forEach(Entry::release);
+    return result;
+  }
+
+  /**
+   * Returns a request builder with the batch header.
+   */
+  private AppendRequest.Builder builder() {
+    return AppendRequest.builder()
+      .withTerm(1)
+      .withLeader(1)
+      .withLogIndex(0)
+      .withLogTerm(0)
+      .withCommitIndex(ENTRIES_PER_SEGMENT)
+      .withGlobalIndex(0);
+  }
+
+  /**
+   * Writes the given request to the buffer and reads it back.
+   */
+  private Object roundTrip(AppendRequest request) {
+    buffer.clear();
+    serializer.writeObject(request, buffer);
+    return serializer.readObject(buffer.flip());
+  }
+
+}
@@ -0,0 +1,422 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.copycat.benchmarks;
+
+import io.atomix.catalyst.transport.Address;
+import io.atomix.catalyst.transport.LocalServerRegistry;
+import io.atomix.catalyst.transport.LocalTransport;
+import io.atomix.copycat.client.Command;
+import io.atomix.copycat.client.CopycatClient;
+import io.atomix.copycat.client.Query;
+import io.atomix.copycat.server.CopycatServer;
+import io.atomix.copycat.server.storage.Storage;
+import io.atomix.copycat.server.storage.StorageLevel;
+import io.atomix.copycat.server.util.LatencyHistogram;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+/**
+ * In-JVM end-to-end cluster load generator.
+ * <p>
+ * The load generator boots a cluster of {@link CopycatServer}s and a set of {@link CopycatClient}s in a single JVM,
+ * connected over the local transport, and drives a configurable mix of commands and queries against a
+ * {@link LoadStateMachine}. Load can be generated in one of two modes:
+ * <ul>
+ *   <li>Closed loop, where each client keeps a fixed number of operations outstanding and submits a new operation
+ *   as soon as one completes</li>
+ *   <li>Open loop, where operations are submitted at a fixed aggregate rate regardless of how quickly they complete.
+ *   Latencies are measured from the time at which each operation was scheduled to be submitted, so queueing delay
+ *   is included when the cluster cannot keep up.</li>
+ * </ul>
+ * Operations are sampled by the time at which they were scheduled to be submitted. Sampled operations that are still
+ * outstanding when the run ends are recorded with the time they have been outstanding so far, so slow operations
+ * are never dropped from the reported latencies.
+ * <p>
+ * When the run completes, throughput and p50/p99/p999 latencies are reported for each operation type. If thresholds
+ * are configured, the process exits with a non-zero status when they are not met, so the generator can be used as a
+ * regression gate:
+ * <pre>
+ *   {@code
+ *   java -cp benchmarks.jar io.atomix.copycat.benchmarks.LoadGenerator --servers=3 --clients=8 --duration=30 \
+ *     --mix=command:LINEARIZABLE:50,query:LINEARIZABLE:25,query:SEQUENTIAL:25 --max-p99=20000
+ *   }
+ * </pre>
+ * Supported options and their defaults are:
+ * <ul>
+ *   <li>{@code --servers=3} the number of servers</li>
+ *   <li>{@code --clients=4} the number of clients</li>
+ *   <li>{@code --storage=MEMORY} the server {@link StorageLevel}</li>
+ *   <li>{@code --mix=command:LINEARIZABLE:1} comma separated {@code type:consistency:weight} operation mix</li>
+ *   <li>{@code --keys=1024} the number of distinct keys written and read</li>
+ *   <li>{@code --concurrency=16} outstanding operations per client in closed loop mode</li>
+ *   <li>{@code --rate=0} aggregate operations per second; a positive rate enables open loop mode</li>
+ *   <li>{@code --warmup=5} seconds of load to run before recording</li>
+ *   <li>{@code --duration=30} seconds of load to record</li>
+ *   <li>{@code --min-throughput=0} minimum operations per second</li>
+ *   <li>{@code --max-p99=0} maximum p99 latency of any operation type in microseconds</li>
+ * </ul>
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+public class LoadGenerator {
+  private static final int BASE_PORT = 5000;
+
+  public static void main(String[] args) throws Exception {
+    Map<String, String> options = new HashMap<>();
+    for (String arg : args) {
+      if (!arg.startsWith("--") || !arg.contains("="))
+        throw new IllegalArgumentException("invalid option: " + arg);
+      options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+    }
+
+    LoadGenerator generator = new LoadGenerator(
+      Integer.parseInt(options.getOrDefault("servers", "3")),
+      Integer.parseInt(options.getOrDefault("clients", "4")),
+      StorageLevel.valueOf(options.getOrDefault("storage", "MEMORY").toUpperCase()),
+      parseMix(options.getOrDefault("mix", "command:LINEARIZABLE:1")),
+      Integer.parseInt(options.getOrDefault("keys", "1024")),
+      Integer.parseInt(options.getOrDefault("concurrency", "16")),
+      Integer.parseInt(options.getOrDefault("rate", "0")));
+
+    double throughput;
+    try {
+      generator.open();
+      throughput = generator.run(Integer.parseInt(options.getOrDefault("warmup", "5")), Integer.parseInt(options.getOrDefault("duration", "30")));
+    } finally {
+      generator.close();
+    }
+
+    generator.report(System.out, throughput);
+
+    boolean failed = false;
+    double minThroughput = Double.parseDouble(options.getOrDefault("min-throughput", "0"));
+    if (minThroughput > 0 && throughput < minThroughput) {
+      System.out.printf("FAILED: throughput %.1f ops/s is below the minimum of %.1f ops/s%n", throughput, minThroughput);
+      failed = true;
+    }
+
+    long maxP99 = Long.parseLong(options.getOrDefault("max-p99", "0"));
+    if (maxP99 > 0) {
+      for (OperationType type : generator.mix) {
+        long p99 = TimeUnit.NANOSECONDS.toMicros(type.latency.percentile(.99));
+        if (p99 > maxP99) {
+          System.out.printf("FAILED: %s p99 latency %dus exceeds the maximum of %dus%n", type, p99, maxP99);
+          failed = true;
+        }
+      }
+    }
+    System.exit(failed ? 1 : 0);
+  }
+
+  /**
+   * Parses an operation mix.
+   */
+  private static List<OperationType> parseMix(String mix) {
+    List<OperationType> types = new ArrayList<>();
+    for (String spec : mix.split(",")) {
+      String[] parts = spec.trim().split(":");
+      if (parts.length != 3)
+        throw new IllegalArgumentException("invalid operation type: " + spec);
+      boolean command;
+      if (parts[0].equalsIgnoreCase("command")) {
+        command = true;
+        Command.ConsistencyLevel.valueOf(parts[1].toUpperCase());
+      } else if (parts[0].equalsIgnoreCase("query")) {
+        command = false;
+        Query.ConsistencyLevel.valueOf(parts[1].toUpperCase());
+      } else {
+        throw new IllegalArgumentException("unknown operation type: " + parts[0]);
+      }
+      types.add(new OperationType(command, parts[1].toUpperCase(), Integer.parseInt(parts[2])));
+    }
+    return types;
+  }
+
+  private final int serverCount;
+  private final int clientCount;
+  private final StorageLevel storageLevel;
+  private final List<OperationType> mix;
+  private final int totalWeight;
+  private final int keys;
+  private final int concurrency;
+  private final int rate;
+  private final LocalServerRegistry registry = new LocalServerRegistry();
+  private final List<Address> members = new ArrayList<>();
+  private final List<CopycatServer> servers = new ArrayList<>();
+  private final List<CopycatClient> clients = new ArrayList<>();
+  private final Set<PendingOperation> outstanding = ConcurrentHashMap.newKeySet();
+  private final AtomicLong completed = new AtomicLong();
+  private File directory;
+  private volatile long recordStart;
+  private volatile long recordEnd;
+  private volatile long stop;
+
+  public LoadGenerator(int servers, int clients, StorageLevel storageLevel, List<OperationType> mix, int keys, int concurrency, int rate) {
+    if (servers <= 0 || clients <= 0 || keys <= 0 || concurrency <= 0 || rate < 0)
+      throw new IllegalArgumentException("servers, clients, keys and concurrency must be positive");
+    if (mix.isEmpty())
+      throw new IllegalArgumentException("operation mix cannot be empty");
+    this.serverCount = servers;
+    this.clientCount = clients;
+    this.storageLevel = storageLevel;
+    this.mix = mix;
+    this.totalWeight = mix.stream().mapToInt(t -> t.weight).sum();
+    this.keys = keys;
+    this.concurrency = concurrency;
+    this.rate = rate;
+  }
+
+  /**
+   * Starts the cluster and connects all clients.
+   */
+  public void open() throws Exception {
+    directory = Files.createTempDirectory("copycat-load").toFile();
+    for (int i = 0; i < serverCount; i++) {
+      members.add(new Address("localhost", BASE_PORT + i));
+    }
+
+    List<CompletableFuture<?>> futures = new ArrayList<>();
+    for (Address member : members) {
+      CopycatServer server = CopycatServer.builder(member, members)
+        .withTransport(new LocalTransport(registry))
+        .withStorage(Storage.builder()
+          .withStorageLevel(storageLevel)
+          .withDirectory(new File(directory, String.valueOf(member.port())))
+          .build())
+        .withStateMachine(new LoadStateMachine())
+        .build();
+      servers.add(server);
+      futures.add(server.open());
+    }
+    CompletableFuture.allOf(futures.toArray(new CompletableFuture[futures.size()])).join();
+
+    for (int i = 0; i < clientCount; i++) {
+      CopycatClient client = CopycatClient.builder(members)
+        .withTransport(new LocalTransport(registry))
+        .build();
+      client.open().join();
+      clients.add(client);
+    }
+  }
+
+  /**
+   * Runs the load for the given warmup and measurement periods and returns the measured throughput.
+   *
+   * @param warmup The warmup period in seconds.
+   * @param duration The measurement period in seconds.
+   * @return The throughput in operations per second.
+   */
+  public double run(int warmup, int duration) throws InterruptedException {
+    long start = System.nanoTime();
+    recordStart = start + TimeUnit.SECONDS.toNanos(warmup);
+    recordEnd = recordStart + TimeUnit.SECONDS.toNanos(duration);
+    stop = recordEnd;
+
+    if (rate > 0) {
+      runOpenLoop(start);
+    } else {
+      for (CopycatClient client : clients) {
+        for (int i = 0; i < concurrency; i++) {
+          submitClosedLoop(client);
+        }
+      }
+      LockSupport.parkNanos(stop - System.nanoTime());
+    }
+
+    // Allow outstanding operations to complete before shutting down the cluster.
+    long drain = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (!outstanding.isEmpty() && System.nanoTime() < drain) {
+      Thread.sleep(10);
+    }
+
+    // Record operations that never completed with the time they've been outstanding as a lower bound on their latency.
+    long now = System.nanoTime();
+    for (PendingOperation operation : outstanding) {
+      if (operation.complete() && isRecorded(operation.intendedStart)) {
+        operation.type.latency.record(now - operation.intendedStart);
+      }
+    }
+    return completed.get() / (double) duration;
+  }
+
+  /**
+   * Submits operations at a fixed rate, spreading them over all clients.
+   */
+  private void runOpenLoop(long start) {
+    long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+    long next = start;
+    int client = 0;
+    long now;
+    while ((now = System.nanoTime()) < stop) {
+      while (next <= now) {
+        submit(clients.get(client++ % clientCount), next);
+        next += interval;
+      }
+      LockSupport.parkNanos(Math.min(next - now, TimeUnit.MILLISECONDS.toNanos(1)));
+    }
+  }
+
+  /**
+   * Submits an operation and submits another once it completes.
+   */
+  private void submitClosedLoop(CopycatClient client) {
+    long now = System.nanoTime();
+    if (now < stop) {
+      submit(client, now).whenComplete((result, error) -> submitClosedLoop(client));
+    }
+  }
+
+  /**
+   * Submits a random operation from the mix, recording its latency from the given intended start time.
+   */
+  private CompletableFuture<Long> submit(CopycatClient client, long intendedStart) {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    OperationType type = select(random.nextInt(totalWeight));
+    long key = random.nextInt(keys);
+
+    CompletableFuture<Long> future;
+    if (type.command) {
+      future = client.submit(new LoadStateMachine.Put(key, random.nextLong(), Command.ConsistencyLevel.valueOf(type.consistency)));
+    } else {
+      future = client.submit(new LoadStateMachine.Get(key, Query.ConsistencyLevel.valueOf(type.consistency)));
+    }
+
+    PendingOperation operation = new PendingOperation(type, intendedStart);
+    outstanding.add(operation);
+    return future.whenComplete((result, error) -> {
+      long end = System.nanoTime();
+      outstanding.remove(operation);
+      if (operation.complete() && isRecorded(intendedStart)) {
+        if (error == null) {
+          type.latency.record(end - intendedStart);
+          completed.incrementAndGet();
+        } else {
+          type.errors.incrementAndGet();
+        }
+      }
+    });
+  }
+
+  /**
+   * Returns a boolean indicating whether an operation scheduled at the given time is sampled.
+   */
+  private boolean isRecorded(long intendedStart) {
+    return intendedStart >= recordStart && intendedStart < recordEnd;
+  }
+
+  /**
+   * Selects the operation type for the given weight.
+   */
+  private OperationType select(int weight) {
+    for (OperationType type : mix) {
+      weight -= type.weight;
+      if (weight < 0)
+        return type;
+    }
+    return mix.get(mix.size() - 1);
+  }
+
+  /**
+   * Prints a report of the run.
+   */
+  public void report(java.io.PrintStream out, double throughput) {
+    out.printf("servers=%d clients=%d storage=%s mode=%s%n", serverCount, clientCount, storageLevel,
+      rate > 0 ? "open(" + rate + " ops/s)" : "closed(" + concurrency + " per client)");
+    out.printf("%-30s %10s %8s %10s %10s %10s %10s%n", "operation", "ops", "errors", "p50(us)", "p99(us)", "p999(us)", "max(us)");
+    for (OperationType type : mix) {
+      out.printf("%-30s %10d %8d %10d %10d %10d %10d%n", type, type.latency.count(), type.errors.get(),
+        TimeUnit.NANOSECONDS.toMicros(type.latency.percentile(.5)),
+        TimeUnit.NANOSECONDS.toMicros(type.latency.percentile(.99)),
+        TimeUnit.NANOSECONDS.toMicros(type.latency.percentile(.999)),
+        TimeUnit.NANOSECONDS.toMicros(type.latency.max()));
+    }
+    out.printf("throughput: %.1f ops/s%n", throughput);
+  }
+
+  /**
+   * Closes all clients and servers.
+   */
+  public void close() throws IOException {
+    clients.forEach(c -> c.close().join());
+    servers.forEach(s -> {
+      s.close().join();
+      s.delete().join();
+    });
+    if (directory != null) {
+      try (Stream<Path> paths = Files.walk(directory.toPath())) {
+        paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+      }
+    }
+  }
+
+  /**
+   * Operation that has been submitted but not yet recorded.
+   */
+  private static class PendingOperation {
+    private final OperationType type;
+    private final long intendedStart;
+    private final AtomicBoolean complete = new AtomicBoolean();
+
+    private PendingOperation(OperationType type, long intendedStart) {
+      this.type = type;
+      this.intendedStart = intendedStart;
+    }
+
+    /**
+     * Marks the operation complete, returning false if it was already completed.
+     */
+    private boolean complete() {
+      return complete.compareAndSet(false, true);
+    }
+  }
+
+  /**
+   * Operation type.
+   */
+  public static class OperationType {
+    private final boolean command;
+    private final String consistency;
+    private final int weight;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final AtomicLong errors = new AtomicLong();
+
+    public OperationType(boolean command, String consistency, int weight) {
+      if (weight <= 0)
+        throw new IllegalArgumentException("weight must be positive");
+      this.command = command;
+      this.consistency = consistency;
+      this.weight = weight;
+    }
+
+    @Override
+    public String toString() {
+      return (command ? "command" : "query") + ":" + consistency;
+    }
+  }
+
+}
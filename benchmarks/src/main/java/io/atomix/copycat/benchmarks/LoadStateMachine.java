@@ -0,0 +1,115 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.copycat.benchmarks;
+
+import io.atomix.copycat.client.Command;
+import io.atomix.copycat.client.Query;
+import io.atomix.copycat.server.Commit;
+import io.atomix.copycat.server.StateMachine;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Key-value state machine driven by the {@link LoadGenerator}.
+ * <p>
+ * Each key retains only the most recent {@link Put} commit, so overwritten commits are cleaned and load runs
+ * exercise log compaction in the same way a real state machine would.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+public class LoadStateMachine extends StateMachine {
+  private final Map<Long, Commit<Put>> values = new HashMap<>();
+
+  /**
+   * Sets a value.
+   */
+  public long put(Commit<Put> commit) {
+    Commit<Put> previous = values.put(commit.operation().key(), commit);
+    if (previous != null) {
+      previous.clean();
+    }
+    return commit.index();
+  }
+
+  /**
+   * Gets a value.
+   */
+  public long get(Commit<Get> commit) {
+    try {
+      Commit<Put> value = values.get(commit.operation().key());
+      return value != null ? value.operation().value() : 0;
+    } finally {
+      commit.close();
+    }
+  }
+
+  /**
+   * Put command.
+   */
+  public static class Put implements Command<Long> {
+    private long key;
+    private long value;
+    private ConsistencyLevel consistency;
+
+    public Put(long key, long value, ConsistencyLevel consistency) {
+      this.key = key;
+      this.value = value;
+      this.consistency = consistency;
+    }
+
+    @Override
+    public ConsistencyLevel consistency() {
+      return consistency;
+    }
+
+    @Override
+    public PersistenceLevel persistence() {
+      return PersistenceLevel.PERSISTENT;
+    }
+
+    public long key() {
+      return key;
+    }
+
+    public long value() {
+      return value;
+    }
+  }
+
+  /**
+   * Get query.
+   */
+  public static class Get implements Query<Long> {
+    private long key;
+    private ConsistencyLevel consistency;
+
+    public Get(long key, ConsistencyLevel consistency) {
+      this.key = key;
+      this.consistency = consistency;
+    }
+
+    @Override
+    public ConsistencyLevel consistency() {
+      return consistency;
+    }
+
+    public long key() {
+      return key;
+    }
+  }
+
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.copycat.benchmarks;
+
+import io.atomix.catalyst.buffer.BufferInput;
+import io.atomix.catalyst.buffer.BufferOutput;
+import io.atomix.catalyst.buffer.HeapBuffer;
+import io.atomix.catalyst.serializer.CatalystSerializable;
+import io.atomix.catalyst.serializer.Serializer;
+import io.atomix.catalyst.serializer.ServiceLoaderTypeResolver;
+import io.atomix.copycat.client.Command;
+import io.atomix.copycat.client.request.CommandRequest;
+import io.atomix.copycat.server.request.AppendRequest;
+import io.atomix.copycat.server.storage.entry.Entry;
+import io.atomix.copycat.server.storage.entry.KeepAliveEntry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request serialization benchmark.
+ * <p>
+ * Measures the cost of writing and reading back the two requests that dominate the write path: the client's
+ * {@link CommandRequest} and the leader's {@link AppendRequest} carrying a batch of entries.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class SerializationBenchmark {
+
+  @Param({"1", "64"})
+  public int entries;
+
+  private Serializer serializer;
+  private HeapBuffer buffer;
+  private CommandRequest commandRequest;
+  private AppendRequest appendRequest;
+
+  @Setup
+  public void setup() {
+    serializer = new Serializer(new ServiceLoaderTypeResolver());
+    serializer.register(BenchmarkCommand.class, 2000);
+    buffer = HeapBuffer.allocate(1024 * 64);
+
+    commandRequest = CommandRequest.builder()
+      .withSession(1)
+      .withSequence(1)
+      .withCommand(new BenchmarkCommand(1))
+      .build();
+
+    List<Entry> batch = new ArrayList<>(entries);
+    for (int i = 1; i <= entries; i++) {
+      batch.add(new KeepAliveEntry()
+        .setIndex(i)
+        .setTerm(1)
+        .setSession(1)
+        .setTimestamp(System.currentTimeMillis())
+        .setCommandSequence(i)
+        .setEventVersion(i));
+    }
+
+    appendRequest = AppendRequest.builder()
+      .withTerm(1)
+      .withLeader(1)
+      .withLogIndex(0)
+      .withLogTerm(0)
+      .withEntries(batch)
+      .withCommitIndex(0)
+      .withGlobalIndex(0)
+      .build();
+  }
+
+  @TearDown
+  public void teardown() {
+    buffer.close();
+  }
+
+  @Benchmark
+  public Object commandRequest() {
+    buffer.clear();
+    serializer.writeObject(commandRequest, buffer);
+    return serializer.readObject(buffer.flip());
+  }
+
+  @Benchmark
+  public Object appendRequest() {
+    buffer.clear();
+    serializer.writeObject(appendRequest, buffer);
+    return serializer.readObject(buffer.flip());
+  }
+
+  /**
+   * Benchmark command.
+   */
+  public static class BenchmarkCommand implements Command<Long>, CatalystSerializable {
+    private long value;
+
+    public BenchmarkCommand() {
+    }
+
+    public BenchmarkCommand(long value) {
+      this.value = value;
+    }
+
+    @Override
+    public void writeObject(BufferOutput<?> buffer, Serializer serializer) {
+      buffer.writeLong(value);
+    }
+
+    @Override
+    public void readObject(BufferInput<?> buffer, Serializer serializer) {
+      value = buffer.readLong();
+    }
+  }
+
+}
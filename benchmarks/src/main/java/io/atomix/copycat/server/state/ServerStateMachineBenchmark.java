@@ -0,0 +1,145 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.copycat.server.state;
+
+import io.atomix.catalyst.serializer.Serializer;
+import io.atomix.catalyst.transport.LocalServerRegistry;
+import io.atomix.catalyst.transport.LocalTransport;
+import io.atomix.catalyst.util.concurrent.SingleThreadContext;
+import io.atomix.catalyst.util.concurrent.ThreadContext;
+import io.atomix.copycat.client.Command;
+import io.atomix.copycat.server.Commit;
+import io.atomix.copycat.server.StateMachine;
+import io.atomix.copycat.server.StateMachineExecutor;
+import io.atomix.copycat.server.storage.entry.CommandEntry;
+import io.atomix.copycat.server.storage.entry.RegisterEntry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Server state machine apply benchmark.
+ * <p>
+ * Measures the cost of applying committed {@link CommandEntry commands} to a trivial state machine, which
+ * covers session sequencing, operation dispatch and result handling in the {@link ServerStateMachine}.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class ServerStateMachineBenchmark {
+  private static final int BATCH = 1024;
+
+  private ThreadContext callerContext;
+  private ThreadContext stateContext;
+  private ServerStateMachine stateMachine;
+  private long timestamp;
+  private long index;
+  private long sequence;
+
+  @Setup
+  public void setup() throws Exception {
+    callerContext = new SingleThreadContext("caller", new Serializer());
+    stateContext = new SingleThreadContext("state", new Serializer());
+    LocalServerRegistry registry = new LocalServerRegistry();
+    stateMachine = new ServerStateMachine(new BenchmarkStateMachine(), new ServerStateMachineContext(new ConnectionManager(new LocalTransport(registry).client()), new ServerSessionManager()), index -> {}, stateContext);
+    timestamp = System.currentTimeMillis();
+
+    CompletableFuture<Object> future = new CompletableFuture<>();
+    callerContext.execute(() -> {
+      RegisterEntry entry = new RegisterEntry()
+        .setIndex(++index)
+        .setTerm(1)
+        .setTimestamp(timestamp)
+        .setTimeout(5000)
+        .setClient(UUID.randomUUID());
+      stateMachine.apply(entry).whenComplete((result, error) -> complete(future, result, error));
+    });
+    future.join();
+  }
+
+  @TearDown
+  public void teardown() {
+    stateMachine.close();
+    callerContext.close();
+    stateContext.close();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH)
+  public Object apply() {
+    CompletableFuture<Object> future = new CompletableFuture<>();
+    callerContext.execute(() -> {
+      CompletableFuture<?> last = null;
+      for (int i = 0; i < BATCH; i++) {
+        CommandEntry entry = new CommandEntry()
+          .setIndex(++index)
+          .setTerm(1)
+          .setSession(1)
+          .setSequence(++sequence)
+          .setTimestamp(timestamp)
+          .setCommand(new BenchmarkCommand());
+        last = stateMachine.apply(entry);
+      }
+      last.whenComplete((result, error) -> complete(future, result, error));
+    });
+    return future.join();
+  }
+
+  /**
+   * Completes the given future.
+   */
+  private static void complete(CompletableFuture<Object> future, Object result, Throwable error) {
+    if (error == null) {
+      future.complete(result);
+    } else {
+      future.completeExceptionally(error);
+    }
+  }
+
+  /**
+   * Benchmark state machine.
+   */
+  public static class BenchmarkStateMachine extends StateMachine {
+    private long value;
+
+    @Override
+    protected void configure(StateMachineExecutor executor) {
+      executor.register(BenchmarkCommand.class, this::increment);
+    }
+
+    private long increment(Commit<BenchmarkCommand> commit) {
+      try {
+        return ++value;
+      } finally {
+        commit.close();
+      }
+    }
+  }
+
+  /**
+   * Benchmark command.
+   */
+  public static class BenchmarkCommand implements Command<Long> {
+  }
+
+}
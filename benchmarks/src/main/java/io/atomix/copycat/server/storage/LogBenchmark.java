@@ -0,0 +1,100 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.copycat.server.storage;
+
+import io.atomix.catalyst.serializer.Serializer;
+import io.atomix.catalyst.serializer.ServiceLoaderTypeResolver;
+import io.atomix.copycat.server.storage.entry.KeepAliveEntry;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Log read benchmark.
+ * <p>
+ * Measures {@link Log#get(long)} when reads are spread across many segments, which includes the cost of
+ * resolving the segment for each index in addition to reading the entry from the segment.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class LogBenchmark {
+  private static final int ENTRIES = 1024 * 32;
+
+  @Param({"MEMORY", "MAPPED", "DISK"})
+  public StorageLevel level;
+
+  @Param({"128", "4096"})
+  public int entriesPerSegment;
+
+  private File directory;
+  private Log log;
+  private long index;
+  private long stride;
+
+  @Setup
+  public void setup() throws Exception {
+    directory = Files.createTempDirectory("copycat-benchmark").toFile();
+    log = Storage.builder()
+      .withStorageLevel(level)
+      .withDirectory(directory)
+      .withMaxEntriesPerSegment(entriesPerSegment)
+      .withSerializer(new Serializer(new ServiceLoaderTypeResolver()))
+      .build()
+      .open("benchmark");
+
+    for (int i = 0; i < ENTRIES; i++) {
+      try (KeepAliveEntry entry = log.create(KeepAliveEntry.class)) {
+        entry.setTerm(1)
+          .setSession(1)
+          .setTimestamp(System.currentTimeMillis())
+          .setCommandSequence(entry.getIndex())
+          .setEventVersion(entry.getIndex());
+        log.append(entry);
+      }
+    }
+
+    // Step through the log by slightly more than a segment so consecutive reads land in different segments.
+    stride = entriesPerSegment + 1;
+    index = log.firstIndex();
+  }
+
+  @TearDown
+  public void teardown() {
+    log.close();
+    log.delete();
+    directory.delete();
+  }
+
+  @Benchmark
+  public long get() {
+    index += stride;
+    if (index > log.lastIndex()) {
+      index = log.firstIndex() + (index - log.lastIndex()) % stride;
+    }
+    try (KeepAliveEntry entry = log.get(index)) {
+      return entry.getCommandSequence();
+    }
+  }
+
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.copycat.server.storage;
+
+import io.atomix.catalyst.serializer.Serializer;
+import io.atomix.catalyst.serializer.ServiceLoaderTypeResolver;
+import io.atomix.copycat.server.storage.compaction.Compaction;
+import io.atomix.copycat.server.storage.entry.KeepAliveEntry;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Major compaction benchmark.
+ * <p>
+ * Fills a log with a number of full segments, cleans every other entry, and measures the time taken to rewrite
+ * and combine all committed segments in a single {@link Compaction#MAJOR} compaction.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+public class MajorCompactionBenchmark {
+  private static final int SEGMENTS = 16;
+
+  @Param({"MEMORY", "MAPPED", "DISK"})
+  public StorageLevel level;
+
+  @Param({"1024"})
+  public int entriesPerSegment;
+
+  private File directory;
+  private Log log;
+
+  @Setup(Level.Invocation)
+  public void setup() throws Exception {
+    directory = Files.createTempDirectory("copycat-benchmark").toFile();
+    log = Storage.builder()
+      .withStorageLevel(level)
+      .withDirectory(directory)
+      .withMaxEntriesPerSegment(entriesPerSegment)
+      .withSerializer(new Serializer(new ServiceLoaderTypeResolver()))
+      .build()
+      .open("benchmark");
+
+    // Write one more entry than fits in the segments so the last cleanable segment is followed by a non-empty segment.
+    long lastIndex = 0;
+    for (int i = 0; i < SEGMENTS * entriesPerSegment + 1; i++) {
+      try (KeepAliveEntry entry = log.create(KeepAliveEntry.class)) {
+        entry.setTerm(1)
+          .setSession(1)
+          .setTimestamp(System.currentTimeMillis())
+          .setCommandSequence(entry.getIndex())
+          .setEventVersion(entry.getIndex());
+        lastIndex = log.append(entry);
+      }
+    }
+
+    for (long index = log.firstIndex(); index < lastIndex; index += 2) {
+      log.clean(index);
+    }
+    log.commit(lastIndex).compactor().minorIndex(lastIndex).majorIndex(lastIndex);
+  }
+
+  @TearDown(Level.Invocation)
+  public void teardown() {
+    log.close();
+    log.delete();
+    directory.delete();
+  }
+
+  @Benchmark
+  public void compact() {
+    log.compactor().compact(Compaction.MAJOR).join();
+  }
+
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.copycat.server.storage;
+
+import io.atomix.catalyst.buffer.HeapBuffer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Offset index lookup benchmark.
+ * <p>
+ * Measures {@link OffsetIndex#find(long)} for random offsets. In a dense index every offset is present and lookups
+ * are resolved directly, while in a sparse index (as after compaction) every other offset is missing and lookups
+ * require a binary search.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class OffsetIndexBenchmark {
+  private static final int ENTRIES = 1024 * 64;
+  private static final int LOOKUPS = 1024;
+
+  @Param({"true", "false"})
+  public boolean sparse;
+
+  private OffsetIndex index;
+  private long[] offsets;
+  private int next;
+
+  @Setup
+  public void setup() {
+    index = new OffsetIndex(HeapBuffer.allocate(OffsetIndex.size(ENTRIES * 2)));
+    int step = sparse ? 2 : 1;
+    for (int i = 0; i < ENTRIES; i++) {
+      index.index(i * step, i * 64);
+    }
+
+    Random random = new Random(0);
+    offsets = new long[LOOKUPS];
+    for (int i = 0; i < LOOKUPS; i++) {
+      offsets[i] = random.nextInt(ENTRIES) * step;
+    }
+  }
+
+  @TearDown
+  public void teardown() {
+    index.close();
+  }
+
+  @Benchmark
+  public long find() {
+    return index.find(offsets[next++ & (LOOKUPS - 1)]);
+  }
+
+}
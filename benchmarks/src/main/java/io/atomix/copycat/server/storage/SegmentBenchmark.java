@@ -0,0 +1,106 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.copycat.server.storage;
+
+import io.atomix.catalyst.serializer.Serializer;
+import io.atomix.catalyst.serializer.ServiceLoaderTypeResolver;
+import io.atomix.copycat.server.storage.entry.KeepAliveEntry;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Segment append and read benchmark.
+ * <p>
+ * Measures the cost of serializing an entry into the current {@link Segment} and of reading an entry back
+ * out of a segment through its {@link OffsetIndex} for each {@link StorageLevel}.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class SegmentBenchmark {
+  private static final int ENTRIES = 1024 * 32;
+
+  @Param({"MEMORY", "MAPPED", "DISK"})
+  public StorageLevel level;
+
+  private File directory;
+  private Log log;
+  private Segment segment;
+  private long index;
+
+  @Setup(Level.Iteration)
+  public void setup() throws Exception {
+    directory = Files.createTempDirectory("copycat-benchmark").toFile();
+    log = Storage.builder()
+      .withStorageLevel(level)
+      .withDirectory(directory)
+      .withMaxEntriesPerSegment(ENTRIES * 2)
+      .withSerializer(new Serializer(new ServiceLoaderTypeResolver()))
+      .build()
+      .open("benchmark");
+
+    for (int i = 0; i < ENTRIES; i++) {
+      appendEntry();
+    }
+    segment = log.segments.currentSegment();
+    index = segment.firstIndex();
+  }
+
+  @TearDown(Level.Iteration)
+  public void teardown() {
+    log.close();
+    log.delete();
+    directory.delete();
+  }
+
+  /**
+   * Appends an entry to the current segment, rolling over to a new segment when the current segment is full.
+   */
+  private long appendEntry() {
+    try (KeepAliveEntry entry = log.create(KeepAliveEntry.class)) {
+      entry.setTerm(1)
+        .setSession(1)
+        .setTimestamp(System.currentTimeMillis())
+        .setCommandSequence(entry.getIndex())
+        .setEventVersion(entry.getIndex());
+      return log.segments.currentSegment().append(entry);
+    }
+  }
+
+  @Benchmark
+  public long append() {
+    return appendEntry();
+  }
+
+  @Benchmark
+  public long get() {
+    if (index > segment.lastIndex()) {
+      index = segment.firstIndex();
+    }
+    try (KeepAliveEntry entry = segment.get(index++)) {
+      return entry.getCommandSequence();
+    }
+  }
+
+}
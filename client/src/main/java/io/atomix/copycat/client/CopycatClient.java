@@ -117,17 +117,21 @@ public class CopycatClient implements RaftClient {
   private final Serializer serializer;
   private final ConnectionStrategy connectionStrategy;
   private final RecoveryStrategy recoveryStrategy;
+  private final int maxOutstandingOperations;
+  private final boolean failFast;
   private ClientSession session;
   private CompletableFuture<RaftClient> openFuture;
   private CompletableFuture<Void> closeFuture;
 
-  protected CopycatClient(Transport transport, Collection<Address> members, Serializer serializer, ConnectionStrategy connectionStrategy, RecoveryStrategy recoveryStrategy) {
+  protected CopycatClient(Transport transport, Collection<Address> members, Serializer serializer, ConnectionStrategy connectionStrategy, RecoveryStrategy recoveryStrategy, int maxOutstandingOperations, boolean failFast) {
     serializer.resolve(new ServiceLoaderTypeResolver());
     this.transport = Assert.notNull(transport, "transport");
     this.members = Assert.notNull(members, "members");
     this.serializer = Assert.notNull(serializer, "serializer");
     this.connectionStrategy = Assert.notNull(connectionStrategy, "connectionStrategy");
     this.recoveryStrategy = Assert.notNull(recoveryStrategy, "recoveryStrategy");
+    this.maxOutstandingOperations = maxOutstandingOperations;
+    this.failFast = failFast;
   }
 
   @Override
@@ -174,7 +178,7 @@ public class CopycatClient implements RaftClient {
     if (openFuture == null) {
       synchronized (this) {
         if (openFuture == null) {
-          ClientSession session = new ClientSession(id, transport, members, serializer, connectionStrategy);
+          ClientSession session = new ClientSession(id, transport, members, serializer, connectionStrategy, maxOutstandingOperations, failFast);
           if (closeFuture == null) {
             openFuture = session.open().thenApply(s -> {
               synchronized (this) {
@@ -268,11 +272,15 @@ public class CopycatClient implements RaftClient {
    * </pre>
    */
   public static class Builder extends io.atomix.catalyst.util.Builder<CopycatClient> {
+    private static final int DEFAULT_MAX_OUTSTANDING_OPERATIONS = 1024;
+
     private Transport transport;
     private Serializer serializer;
     private Set<Address> members;
     private ConnectionStrategy connectionStrategy = ConnectionStrategies.FOLLOWERS;
     private RecoveryStrategy recoveryStrategy = RecoveryStrategies.CLOSE;
+    private int maxOutstandingOperations = DEFAULT_MAX_OUTSTANDING_OPERATIONS;
+    private boolean failFast;
 
     private Builder(Collection<Address> members) {
       this.members = new HashSet<>(Assert.notNull(members, "members"));
@@ -329,6 +337,37 @@ public class CopycatClient implements RaftClient {
       return this;
     }
 
+    /**
+     * Sets the maximum number of operations the client may have outstanding.
+     * <p>
+     * Operations submitted while the client has the maximum number of operations outstanding are queued until
+     * an outstanding operation completes unless the client is configured to {@link #withFailFast(boolean) fail fast}.
+     * When the cluster signals that it's overloaded, the client temporarily reduces the number of operations it
+     * keeps outstanding below this limit.
+     *
+     * @param maxOutstandingOperations The maximum number of outstanding operations.
+     * @return The client builder.
+     * @throws IllegalArgumentException if {@code maxOutstandingOperations} is not positive
+     */
+    public Builder withMaxOutstandingOperations(int maxOutstandingOperations) {
+      this.maxOutstandingOperations = Assert.arg(maxOutstandingOperations, maxOutstandingOperations > 0, "maxOutstandingOperations must be positive");
+      return this;
+    }
+
+    /**
+     * Sets whether to fail operations submitted while the client has too many outstanding operations.
+     * <p>
+     * If fail fast is enabled, operations submitted while the client has the maximum number of operations outstanding
+     * are immediately failed with an {@link io.atomix.copycat.client.error.OverloadedException} rather than queued.
+     *
+     * @param failFast Whether to fail operations when the client has too many outstanding operations.
+     * @return The client builder.
+     */
+    public Builder withFailFast(boolean failFast) {
+      this.failFast = failFast;
+      return this;
+    }
+
     /**
      * @throws ConfigurationException if transport is not configured and {@code io.atomix.catalyst.transport.NettyTransport}
      * is not found on the classpath
@@ -348,7 +387,7 @@ public class CopycatClient implements RaftClient {
       if (serializer == null) {
         serializer = new Serializer();
       }
-      return new CopycatClient(transport, members, serializer, connectionStrategy, recoveryStrategy);
+      return new CopycatClient(transport, members, serializer, connectionStrategy, recoveryStrategy, maxOutstandingOperations, failFast);
     }
   }
 
@@ -0,0 +1,429 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.copycat.client.session;
+
+import io.atomix.catalyst.util.Assert;
+import io.atomix.catalyst.util.Listener;
+import io.atomix.catalyst.util.Listeners;
+import io.atomix.catalyst.util.concurrent.Futures;
+import io.atomix.catalyst.util.concurrent.ThreadContext;
+import io.atomix.copycat.client.Command;
+import io.atomix.copycat.client.Query;
+import io.atomix.copycat.client.request.CommandRequest;
+import io.atomix.copycat.client.request.PublishRequest;
+import io.atomix.copycat.client.request.QueryRequest;
+import io.atomix.copycat.client.response.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.function.Consumer;
+
+/**
+ * Base class for sessions that submit operations to the cluster.
+ * <p>
+ * The abstract session handles sequencing of {@link Command commands}, {@link Query queries}, their responses, and
+ * events published to the session by the cluster. Implementations are responsible for sending requests to the
+ * cluster and for managing the session's lifecycle. All sequencing is performed on the session's {@link #context()}.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+abstract class AbstractSession implements Session {
+  private static final Logger LOGGER = LoggerFactory.getLogger(AbstractSession.class);
+  private final Map<String, Listeners<Object>> eventListeners = new ConcurrentHashMap<>();
+  private final Set<Consumer<Session>> closeListeners = new CopyOnWriteArraySet<>();
+  private final Map<Long, Runnable> responses = new ConcurrentHashMap<>();
+  private long commandRequest;
+  private long commandResponse;
+  private long requestSequence;
+  private long responseSequence;
+  private long responseVersion;
+  private long eventVersion;
+  private long completeVersion;
+
+  /**
+   * Returns the context on which the session sequences operations and events.
+   *
+   * @return The session context.
+   */
+  abstract ThreadContext context();
+
+  /**
+   * Sends a command request to the cluster.
+   *
+   * @param request The command request to send.
+   * @return A completable future to be completed with the command response.
+   */
+  abstract CompletableFuture<CommandResponse> sendCommand(CommandRequest request);
+
+  /**
+   * Sends a query request to the cluster.
+   *
+   * @param request The query request to send.
+   * @return A completable future to be completed with the query response.
+   */
+  abstract CompletableFuture<QueryResponse> sendQuery(QueryRequest request);
+
+  /**
+   * Returns the highest command sequence number for which a response has been received.
+   */
+  long commandSequence() {
+    return commandResponse;
+  }
+
+  /**
+   * Returns the highest event version for which event callbacks have completed.
+   */
+  long eventVersion() {
+    return completeVersion;
+  }
+
+  /**
+   * Resets the event version to the initial version for the given session ID.
+   */
+  void resetEventVersion(long id) {
+    this.eventVersion = id;
+  }
+
+  /**
+   * Submits a command via the session.
+   *
+   * @param command The command to submit.
+   * @param <T> The command output type.
+   * @return A completable future to be completed with the command output.
+   */
+  public <T> CompletableFuture<T> submit(Command<T> command) {
+    if (!isOpen())
+      return Futures.exceptionalFuture(new IllegalStateException("session not open"));
+
+    CompletableFuture<T> future = new CompletableFuture<>();
+    context().executor().execute(() -> admit(() -> {
+      CommandRequest request;
+      if (command.consistency() == Command.ConsistencyLevel.NONE) {
+        request = CommandRequest.builder()
+          .withSession(id())
+          .withSequence(0)
+          .withCommand(command)
+          .build();
+      } else {
+        request = CommandRequest.builder()
+          .withSession(id())
+          .withSequence(++commandRequest)
+          .withCommand(command)
+          .build();
+      }
+
+      submit(request, future);
+    }, future));
+    return future;
+  }
+
+  /**
+   * Recursively submits a command.
+   */
+  private <T> CompletableFuture<T> submit(CommandRequest request, CompletableFuture<T> future) {
+    if (!isOpen()) {
+      future.completeExceptionally(new IllegalStateException("session not open"));
+      return future;
+    }
+
+    long sequence = ++requestSequence;
+
+    sendCommand(request).whenComplete((response, error) -> {
+      if (error == null) {
+        long responseSequence = request.sequence();
+        sequenceResponse(sequence, () -> {
+          commandResponse = responseSequence;
+          completeResponse(response, future);
+        });
+      } else {
+        future.completeExceptionally(error);
+      }
+    });
+    return future;
+  }
+
+  /**
+   * Submits a query via the session.
+   *
+   * @param query The query to submit.
+   * @param <T> The query output type.
+   * @return A completable future to be completed with the query output.
+   */
+  public <T> CompletableFuture<T> submit(Query<T> query) {
+    if (!isOpen())
+      return Futures.exceptionalFuture(new IllegalStateException("session not open"));
+
+    CompletableFuture<T> future = new CompletableFuture<>();
+    context().executor().execute(() -> admit(() -> {
+      QueryRequest request;
+      if (query.consistency() == Query.ConsistencyLevel.CAUSAL) {
+        request = QueryRequest.builder()
+          .withSession(id())
+          .withSequence(commandResponse)
+          .withVersion(responseVersion)
+          .withQuery(query)
+          .build();
+      } else {
+        request = QueryRequest.builder()
+          .withSession(id())
+          .withSequence(commandRequest)
+          .withVersion(responseVersion)
+          .withQuery(query)
+          .build();
+      }
+
+      submit(request, future);
+    }, future));
+    return future;
+  }
+
+  /**
+   * Recursively submits a query.
+   */
+  private <T> CompletableFuture<T> submit(QueryRequest request, CompletableFuture<T> future) {
+    if (!isOpen()) {
+      future.completeExceptionally(new IllegalStateException("session not open"));
+      return future;
+    }
+
+    long sequence = ++requestSequence;
+
+    sendQuery(request).whenComplete((response, error) -> {
+      if (error == null) {
+        // If the query consistency level is CAUSAL, we can simply complete queries in sequential order.
+        if (request.query().consistency() == Query.ConsistencyLevel.CAUSAL) {
+          sequenceResponse(sequence, () -> {
+            responseVersion = Math.max(responseVersion, response.version());
+            completeResponse(response, future);
+          });
+        }
+        // If the query consistency level is strong, the query must be executed sequentially. In order to ensure responses
+        // are received in a sequential manner, we compare the response version number with the highest version for which
+        // we've received a response and resubmit queries with output resulting from stale (prior) versions.
+        else {
+          sequenceResponse(sequence, () -> {
+            if (response.version() > 0 && response.version() < responseVersion) {
+              submit(request, future);
+            } else {
+              responseVersion = Math.max(responseVersion, response.version());
+              completeResponse(response, future);
+            }
+          });
+        }
+      } else {
+        future.completeExceptionally(error);
+      }
+    });
+    return future;
+  }
+
+  /**
+   * Admits an operation to the session.
+   * <p>
+   * By default, operations are run immediately. Sessions that bound the number of outstanding operations
+   * override this method to queue or fail operations.
+   *
+   * @param operation The operation to admit.
+   * @param future The operation future.
+   */
+  void admit(Runnable operation, CompletableFuture<?> future) {
+    operation.run();
+  }
+
+  /**
+   * Sequences a response.
+   */
+  private void sequenceResponse(long sequence, Runnable callback) {
+    // If the response is for the next sequence number (the response is received in order),
+    // complete the future as appropriate. Note that some prior responses may have been received
+    // out of order, so once this response is completed, complete any following responses that
+    // are in sequence.
+    if (sequence == responseSequence + 1) {
+      responseSequence++;
+
+      callback.run();
+
+      // Iterate through responses in sequence if available and trigger completion callbacks that are in sequence.
+      while (responses.containsKey(responseSequence + 1)) {
+        responses.remove(++responseSequence).run();
+      }
+    } else {
+      responses.put(sequence, callback);
+    }
+  }
+
+  /**
+   * Completes the given operation response.
+   */
+  @SuppressWarnings("unchecked")
+  void completeResponse(OperationResponse response, CompletableFuture future) {
+    if (response.status() == Response.Status.OK) {
+      future.complete(response.result());
+    } else {
+      future.completeExceptionally(response.error().createException());
+    }
+  }
+
+  /**
+   * Handles a publish request.
+   *
+   * @param request The publish request to handle.
+   * @return A completable future to be completed with the publish response.
+   */
+  CompletableFuture<PublishResponse> handlePublish(PublishRequest request) {
+    LOGGER.debug("{} - Received {}", id(), request);
+
+    // If the request's previous event version doesn't equal the previous received event version,
+    // respond with an undefined error and the last version received. This will cause the cluster
+    // to resend events starting at eventVersion + 1.
+    if (request.previousVersion() != eventVersion) {
+      LOGGER.debug("{} - Inconsistent event version: {}", id(), request.previousVersion());
+      return CompletableFuture.completedFuture(PublishResponse.builder()
+        .withStatus(Response.Status.ERROR)
+        .withVersion(eventVersion)
+        .build());
+    }
+
+    // Store the event version. This will be used to verify that events are received in sequential order.
+    eventVersion = request.eventVersion();
+
+    // For each event in the events batch, call the appropriate event listener and create a CompletableFuture
+    // to be called once the event callback is complete. Futures will ensure that an event is not acknowledged
+    // until all event callbacks have completed.
+    List<CompletableFuture<Void>> futures = new ArrayList<>(request.events().size());
+    for (Event<?> event : request.events()) {
+      Listeners<Object> listeners = eventListeners.get(event.name());
+      if (listeners != null) {
+        futures.add(listeners.accept(event.message()));
+      }
+    }
+
+    // Wait for all event listeners to complete and then respond to the event message. This ensures that
+    // linearizable events are completed between their invocation and response. If the async queue is backed
+    // up and we don't wait for callbacks to complete, the cluster will believe an event to have been received
+    // and handled before it has indeed been received and handled.
+    return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[futures.size()]))
+      .handleAsync((result, error) -> {
+        // Store the highest version for which event callbacks have completed.
+        completeVersion = Math.max(completeVersion, request.eventVersion());
+
+        return PublishResponse.builder()
+          .withStatus(Response.Status.OK)
+          .withVersion(eventVersion)
+          .build();
+      }, context().executor());
+  }
+
+  @Override
+  public Session publish(String event) {
+    return publish(event, null);
+  }
+
+  @Override
+  public Session publish(String event, Object message) {
+    Assert.notNull(event, "event");
+    context().executor().execute(() -> {
+      Listeners<Object> listeners = eventListeners.get(event);
+      if (listeners != null) {
+        listeners.accept(message);
+      }
+    });
+    return this;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public Listener<Void> onEvent(String event, Runnable callback) {
+    return onEvent(event, v -> callback.run());
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public Listener onEvent(String event, Consumer listener) {
+    return eventListeners.computeIfAbsent(Assert.notNull(event, "event"), e -> new Listeners<>())
+      .add(Assert.notNull(listener, "listener"));
+  }
+
+  @Override
+  public Listener<Session> onClose(Consumer<Session> listener) {
+    return addListener(closeListeners, listener);
+  }
+
+  /**
+   * Calls the session's close listeners.
+   */
+  void notifyClose() {
+    closeListeners.forEach(l -> l.accept(this));
+  }
+
+  /**
+   * Adds a session listener to the given set of listeners.
+   */
+  Listener<Session> addListener(Set<Consumer<Session>> listeners, Consumer<Session> listener) {
+    Listener<Session> wrapper = new SessionListener(listeners, Assert.notNull(listener, "listener"));
+    listeners.add(wrapper);
+    return wrapper;
+  }
+
+  @Override
+  public int hashCode() {
+    long id = id();
+    int hashCode = 23;
+    hashCode = 37 * hashCode + (int)(id ^ (id >>> 32));
+    return hashCode;
+  }
+
+  @Override
+  public boolean equals(Object object) {
+    return object instanceof Session && ((Session) object).id() == id();
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s[id=%d]", getClass().getSimpleName(), id());
+  }
+
+  /**
+   * Session listener holder.
+   */
+  private static class SessionListener implements Listener<Session> {
+    private final Set<Consumer<Session>> listeners;
+    private final Consumer<Session> listener;
+
+    private SessionListener(Set<Consumer<Session>> listeners, Consumer<Session> listener) {
+      this.listeners = listeners;
+      this.listener = listener;
+    }
+
+    @Override
+    public void accept(Session event) {
+      listener.accept(event);
+    }
+
+    @Override
+    public void close() {
+      listeners.remove(this);
+    }
+  }
+
+}
@@ -0,0 +1,619 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.copycat.client.session;
+
+import io.atomix.catalyst.transport.Address;
+import io.atomix.catalyst.transport.Client;
+import io.atomix.catalyst.transport.Connection;
+import io.atomix.catalyst.util.Assert;
+import io.atomix.catalyst.util.concurrent.Futures;
+import io.atomix.catalyst.util.concurrent.Scheduled;
+import io.atomix.catalyst.util.concurrent.ThreadContext;
+import io.atomix.copycat.client.ConnectionStrategy;
+import io.atomix.copycat.client.error.RaftError;
+import io.atomix.copycat.client.request.Request;
+import io.atomix.copycat.client.response.CommandResponse;
+import io.atomix.copycat.client.response.KeepAliveResponse;
+import io.atomix.copycat.client.response.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Manages a client's connections to the cluster.
+ * <p>
+ * Requests are sent over a connection to a server selected by the {@link ConnectionStrategy}, and writes are sent
+ * directly to the leader over a separate connection once the leader is known. If a server fails to handle a request,
+ * the request is retried on the next server. Once all servers have been tried, requests are retried periodically
+ * until the cluster responds or no leader has been found for longer than the session timeout.
+ * <p>
+ * Both {@link ClientSession} and {@link SessionMultiplexer} send their requests through a client connection.
+ * Changes in the state of their sessions are reported to the connection's {@link Handler}.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+final class ClientConnection {
+  private static final Logger LOGGER = LoggerFactory.getLogger(ClientConnection.class);
+  private static final Duration OVERLOAD_BACKOFF = Duration.ofMillis(100);
+
+  /**
+   * Handles changes in the state of the sessions sending requests through the connection.
+   */
+  interface Handler {
+
+    /**
+     * Returns a boolean indicating whether requests may be sent on behalf of the given session.
+     *
+     * @param session The session on behalf of which the request is sent, or {@code null} if the request is
+     *                not sent on behalf of a single session.
+     * @return Indicates whether the request may be sent.
+     */
+    boolean isOpen(Session session);
+
+    /**
+     * Called when a session expires.
+     *
+     * @param session The expired session, or {@code null} if all sessions expired because the cluster could not
+     *                be reached within a session timeout.
+     */
+    void onExpire(Session session);
+
+    /**
+     * Called when the cluster signals that it's overloaded.
+     */
+    void onOverload();
+
+    /**
+     * Called when a new connection to a server is established.
+     *
+     * @param connection The new connection.
+     * @return A future to be completed once sessions have been connected via the connection.
+     */
+    CompletableFuture<Void> onConnect(Connection connection);
+  }
+
+  private final Random random = new Random(System.currentTimeMillis());
+  private final Client client;
+  private final ThreadContext context;
+  private final ConnectionStrategy connectionStrategy;
+  private final Handler handler;
+  private Address leader;
+  private Set<Address> members;
+  private List<Address> connectMembers;
+  private Connection connection;
+  private Address connectionMember;
+  private CompletableFuture<Connection> connectFuture;
+  private Connection leaderConnection;
+  private CompletableFuture<Connection> leaderConnectFuture;
+  private Scheduled retryFuture;
+  private final List<Runnable> retries = new ArrayList<>();
+  private long timeout;
+  private long failureTime;
+
+  ClientConnection(Client client, ThreadContext context, Collection<Address> members, ConnectionStrategy connectionStrategy, Handler handler) {
+    this.client = Assert.notNull(client, "client");
+    this.context = Assert.notNull(context, "context");
+    this.members = new HashSet<>(Assert.notNull(members, "members"));
+    this.connectionStrategy = Assert.notNull(connectionStrategy, "connectionStrategy");
+    this.handler = Assert.notNull(handler, "handler");
+    this.connectMembers = new ArrayList<>(connectionStrategy.getConnections(leader, new ArrayList<>(members)));
+  }
+
+  /**
+   * Returns the current connection.
+   *
+   * @return The current connection or {@code null} if no server is connected.
+   */
+  Connection connection() {
+    return connection;
+  }
+
+  /**
+   * Sets the leader.
+   *
+   * @param leader The leader address or {@code null} if the leader is not known.
+   * @return Indicates whether the leader changed.
+   */
+  boolean setLeader(Address leader) {
+    if (!Objects.equals(this.leader, leader)) {
+      this.leader = leader;
+      resetLeaderConnection();
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Sets the cluster members.
+   *
+   * @param members The cluster members.
+   */
+  void setMembers(Collection<Address> members) {
+    this.members = new HashSet<>(members);
+    this.connectMembers = new ArrayList<>(connectionStrategy.getConnections(leader, new ArrayList<>(this.members)));
+  }
+
+  /**
+   * Sets the session timeout after which sessions are expired if the cluster can't be reached.
+   *
+   * @param timeout The session timeout in milliseconds.
+   */
+  void setTimeout(long timeout) {
+    this.timeout = timeout;
+  }
+
+  /**
+   * Sends a request to register a session.
+   * <p>
+   * Registration requests are not retried once all servers have failed to handle the request.
+   *
+   * @param request The request to send.
+   * @param <T> The request type.
+   * @param <U> The response type.
+   * @return A completable future to be completed once the response is received.
+   */
+  <T extends Request<T>, U extends Response<U>> CompletableFuture<U> register(T request) {
+    return request(request, null, new CompletableFuture<U>(), false, true);
+  }
+
+  /**
+   * Sends a request on behalf of the given session.
+   *
+   * @param request The request to send.
+   * @param session The session on behalf of which to send the request, or {@code null} if the request is not sent
+   *                on behalf of a single session.
+   * @param <T> The request type.
+   * @param <U> The response type.
+   * @return A completable future to be completed once the response is received.
+   */
+  <T extends Request<T>, U extends Response<U>> CompletableFuture<U> request(T request, Session session) {
+    if (!handler.isOpen(session))
+      return Futures.exceptionalFutureAsync(new IllegalStateException("session not open"), context.executor());
+    return request(request, session, new CompletableFuture<U>(), true, true);
+  }
+
+  /**
+   * Sends a request, connecting to a server if necessary.
+   *
+   * @param request The request to send.
+   * @param session The session on behalf of which to send the request.
+   * @param future The future to complete once the response is received.
+   * @param checkOpen Whether to check if the session is open.
+   * @param recordFailures Whether to record a failure to find a leader towards the session timeout.
+   * @param <T> The request type.
+   * @param <U> The response type.
+   * @return The provided future to be completed once the response is received.
+   */
+  private <T extends Request<T>, U extends Response<U>> CompletableFuture<U> request(T request, Session session, CompletableFuture<U> future, boolean checkOpen, boolean recordFailures) {
+    context.checkThread();
+
+    // If the session already expired, immediately fail the future.
+    if (checkOpen && !handler.isOpen(session)) {
+      future.completeExceptionally(new IllegalStateException("session not open"));
+      return future;
+    }
+
+    // If we're already connected to a server, use the existing connection. The connection will be reset in the event
+    // of an error on any connection, or callers can reset connections as well.
+    if (connection != null) {
+      return request(request, connection, session, future, checkOpen, recordFailures);
+    }
+
+    // If we've run out of servers to which to attempt to connect, determine whether we should expire the
+    // session based on the responses from servers with which we did successfully communicate and the
+    // time we were last able to successfully communicate with a correct server process. The failureTime
+    // indicates the first time we received a NO_LEADER_ERROR from a server.
+    if (connectMembers.isEmpty()) {
+      // If open checks are not being performed, don't retry connecting to the servers. Simply fail.
+      if (!checkOpen) {
+        LOGGER.warn("Failed to connect to cluster");
+        future.completeExceptionally(new IllegalStateException("session not open"));
+      }
+      // If retries have already been scheduled, queue a callback to be called to retry the request.
+      else if (retryFuture != null) {
+        retries.add(() -> {
+          LOGGER.debug("Retrying: {}", request);
+          request(request, session, future, true, true);
+        });
+      }
+      // If all servers indicated that no leader could be found and a session timeout has elapsed, time out the sessions.
+      else if (failureTime > 0 && timeout > 0 && failureTime + timeout < System.currentTimeMillis()) {
+        LOGGER.warn("Lost session");
+        resetConnection();
+        handler.onExpire(null);
+        future.completeExceptionally(new IllegalStateException("session expired"));
+      }
+      // If not all servers responded with a NO_LEADER_EXCEPTION or less than a session timeout has expired,
+      // schedule a retry to attempt to connect to servers again.
+      else {
+        LOGGER.warn("Failed to communicate with cluster. Retrying");
+        retryFuture = context.schedule(Duration.ofMillis(200), this::retryRequests);
+        retries.add(() -> request(request, session, future, true, true));
+      }
+      return future;
+    }
+
+    // Remove the next random member from the members list.
+    Address member = connectMembers.remove(random.nextInt(connectMembers.size()));
+
+    // Connect to the server. If the connection fails, recursively attempt to connect to the next server,
+    // otherwise setup the connection and send the request.
+    if (connectFuture == null) {
+      // If there's no existing connect future, create a new one.
+      LOGGER.info("Connecting: {}", member.socketAddress());
+      connectFuture = client.connect(member).thenCompose(connection -> {
+        connectionMember = member;
+        return setupConnection(connection);
+      }).whenComplete((connection, error) -> {
+        connectFuture = null;
+        if (!checkOpen || handler.isOpen(session)) {
+          if (error == null) {
+            request(request, connection, session, future, checkOpen, recordFailures);
+          } else {
+            LOGGER.info("Failed to connect: {}", member.socketAddress());
+            resetConnection().request(request, session, future, checkOpen, recordFailures);
+          }
+        } else {
+          future.completeExceptionally(new IllegalStateException("session not open"));
+        }
+      });
+    } else {
+      // We don't want concurrent requests to attempt to connect to the same server at the same time, so
+      // if the connection is already being attempted, piggyback on the existing connect future.
+      connectFuture.whenComplete((connection, error) -> {
+        if (!checkOpen || handler.isOpen(session)) {
+          if (error == null) {
+            request(request, connection, session, future, checkOpen, recordFailures);
+          } else {
+            request(request, session, future, checkOpen, recordFailures);
+          }
+        } else {
+          future.completeExceptionally(new IllegalStateException("session not open"));
+        }
+      });
+    }
+    return future;
+  }
+
+  /**
+   * Sends a request to the given connection.
+   *
+   * @param request The request to send.
+   * @param connection The connection to which to send the request.
+   * @param session The session on behalf of which to send the request.
+   * @param future The future to complete once the response is received.
+   * @param checkOpen Whether to check if the session is open.
+   * @param recordFailures Whether to record a failure to find a leader towards the session timeout.
+   * @param <T> The request type.
+   * @param <U> The response type.
+   * @return The provided future to be completed once the response is received.
+   */
+  private <T extends Request<T>, U extends Response<U>> CompletableFuture<U> request(T request, Connection connection, Session session, CompletableFuture<U> future, boolean checkOpen, boolean recordFailures) {
+    LOGGER.debug("Sending: {}", request);
+    connection.<T, U>send(request).whenComplete((response, error) -> {
+      if (!checkOpen || handler.isOpen(session)) {
+        if (error == null) {
+          LOGGER.debug("Received: {}", response);
+
+          // If the response is an error response, check if the session state has changed.
+          if (response.status() == Response.Status.ERROR) {
+            // If the response error is a no leader error, reset the connection and send another request.
+            // If this is the first time we've received a response from a server in this iteration,
+            // set the failure time to keep track of whether the session timed out.
+            if (response.error() == RaftError.Type.NO_LEADER_ERROR) {
+              if (recordFailures)
+                setFailureTime();
+              resetConnection().request(request, session, future, checkOpen, false);
+            }
+            // If the server is overloaded, notify the handler and resend the request after a backoff.
+            else if (response.error() == RaftError.Type.OVERLOADED_ERROR) {
+              handler.onOverload();
+              context.schedule(OVERLOAD_BACKOFF, () -> request(request, session, future, checkOpen, false));
+            }
+            // If the server redirected the request to the leader, send the request directly to the leader.
+            else if (response.error() == RaftError.Type.ILLEGAL_MEMBER_STATE_ERROR && checkOpen && redirect(response) != null) {
+              setLeader(redirect(response));
+              resetFailureTime().leaderRequest(request, session, future);
+            }
+            // If the response error is an unknown session error, immediately expire the session.
+            else if (response.error() == RaftError.Type.UNKNOWN_SESSION_ERROR && session != null) {
+              handler.onExpire(session);
+              future.completeExceptionally(new IllegalStateException("session expired"));
+            }
+            // If the response error is an application or internal error, immediately complete the future.
+            else if (response.error() == RaftError.Type.APPLICATION_ERROR
+              || response.error() == RaftError.Type.INTERNAL_ERROR) {
+              resetFailureTime();
+              future.completeExceptionally(response.error().createException());
+            }
+            // If we've made it this far, for all other error types attempt to resend the request.
+            else {
+              resetFailureTime().resetConnection().request(request, session, future, checkOpen, false);
+            }
+          }
+          // If the response status is OK, reset the failure time and complete the future.
+          else {
+            resetFailureTime();
+            future.complete(response);
+          }
+        }
+        // If an error occurred, attempt to contact the next server recursively.
+        else {
+          LOGGER.debug("Request failed: {}", request);
+          LOGGER.debug("{}", error.getMessage());
+          resetConnection().request(request, session, future, checkOpen, recordFailures);
+        }
+      } else {
+        future.completeExceptionally(new IllegalStateException("session not open"));
+      }
+    });
+    return future;
+  }
+
+  /**
+   * Sends a request directly to the cluster leader on behalf of the given session.
+   *
+   * @param request The request to send.
+   * @param session The session on behalf of which to send the request.
+   * @param <T> The request type.
+   * @param <U> The response type.
+   * @return A completable future to be completed once the response is received.
+   */
+  <T extends Request<T>, U extends Response<U>> CompletableFuture<U> leaderRequest(T request, Session session) {
+    if (!handler.isOpen(session))
+      return Futures.exceptionalFutureAsync(new IllegalStateException("session not open"), context.executor());
+    return leaderRequest(request, session, new CompletableFuture<U>());
+  }
+
+  /**
+   * Sends a request directly to the cluster leader.
+   * <p>
+   * If the leader is not known or the current connection is already with the leader, the request is sent
+   * over the current connection. Otherwise, a separate connection to the leader is used.
+   *
+   * @param request The request to send.
+   * @param session The session on behalf of which to send the request.
+   * @param future The future to complete once the response is received.
+   * @param <T> The request type.
+   * @param <U> The response type.
+   * @return The provided future to be completed once the response is received.
+   */
+  private <T extends Request<T>, U extends Response<U>> CompletableFuture<U> leaderRequest(T request, Session session, CompletableFuture<U> future) {
+    context.checkThread();
+
+    if (!handler.isOpen(session)) {
+      future.completeExceptionally(new IllegalStateException("session not open"));
+      return future;
+    }
+
+    if (leader == null || (connection != null && leader.equals(connectionMember))) {
+      return request(request, session, future, true, true);
+    }
+
+    if (leaderConnection != null) {
+      return leaderRequest(request, leaderConnection, session, future);
+    }
+
+    if (leaderConnectFuture == null) {
+      Address member = leader;
+      LOGGER.debug("Connecting to leader: {}", member.socketAddress());
+      leaderConnectFuture = client.connect(member).thenApply(this::setupLeaderConnection);
+    }
+
+    // Piggyback on the existing connect future to avoid concurrently connecting to the leader.
+    leaderConnectFuture.whenComplete((connection, error) -> {
+      leaderConnectFuture = null;
+      if (!handler.isOpen(session)) {
+        future.completeExceptionally(new IllegalStateException("session not open"));
+      } else if (error == null) {
+        leaderRequest(request, connection, session, future);
+      } else {
+        // If the leader could not be reached, fall back to sending the request via the current connection.
+        setLeader(null);
+        request(request, session, future, true, true);
+      }
+    });
+    return future;
+  }
+
+  /**
+   * Sends a request to the given leader connection.
+   *
+   * @param request The request to send.
+   * @param connection The leader connection to which to send the request.
+   * @param session The session on behalf of which to send the request.
+   * @param future The future to complete once the response is received.
+   * @param <T> The request type.
+   * @param <U> The response type.
+   * @return The provided future to be completed once the response is received.
+   */
+  private <T extends Request<T>, U extends Response<U>> CompletableFuture<U> leaderRequest(T request, Connection connection, Session session, CompletableFuture<U> future) {
+    LOGGER.debug("Sending to leader: {}", request);
+    connection.<T, U>send(request).whenComplete((response, error) -> {
+      if (!handler.isOpen(session)) {
+        future.completeExceptionally(new IllegalStateException("session not open"));
+      } else if (error == null) {
+        LOGGER.debug("Received: {}", response);
+        if (response.status() == Response.Status.OK) {
+          resetFailureTime();
+          future.complete(response);
+        }
+        // If the server is no longer the leader, follow the redirect to the new leader if it's known. Otherwise,
+        // fall back to sending the request via the current connection.
+        else if (response.error() == RaftError.Type.NO_LEADER_ERROR
+          || response.error() == RaftError.Type.ILLEGAL_MEMBER_STATE_ERROR) {
+          Address redirect = redirect(response);
+          if (redirect != null && !redirect.equals(leader)) {
+            setLeader(redirect);
+            leaderRequest(request, session, future);
+          } else {
+            setLeader(null);
+            request(request, session, future, true, true);
+          }
+        } else if (response.error() == RaftError.Type.OVERLOADED_ERROR) {
+          handler.onOverload();
+          context.schedule(OVERLOAD_BACKOFF, () -> leaderRequest(request, session, future));
+        } else if (response.error() == RaftError.Type.UNKNOWN_SESSION_ERROR && session != null) {
+          handler.onExpire(session);
+          future.completeExceptionally(new IllegalStateException("session expired"));
+        } else if (response.error() == RaftError.Type.APPLICATION_ERROR
+          || response.error() == RaftError.Type.INTERNAL_ERROR) {
+          resetFailureTime();
+          future.completeExceptionally(response.error().createException());
+        } else {
+          resetFailureTime().resetLeaderConnection().request(request, session, future, true, false);
+        }
+      } else {
+        LOGGER.debug("Leader request failed: {}", request);
+        setLeader(null);
+        request(request, session, future, true, true);
+      }
+    });
+    return future;
+  }
+
+  /**
+   * Returns the leader to which a response redirects the request.
+   */
+  private static Address redirect(Response<?> response) {
+    if (response instanceof CommandResponse) {
+      return ((CommandResponse) response).leader();
+    } else if (response instanceof KeepAliveResponse) {
+      return ((KeepAliveResponse) response).leader();
+    }
+    return null;
+  }
+
+  /**
+   * Sets up the given leader connection.
+   */
+  private Connection setupLeaderConnection(Connection connection) {
+    this.leaderConnection = connection;
+    connection.closeListener(c -> {
+      if (c.equals(this.leaderConnection)) {
+        this.leaderConnection = null;
+      }
+    });
+    connection.exceptionListener(c -> {
+      if (c.equals(this.leaderConnection)) {
+        this.leaderConnection = null;
+      }
+    });
+    return connection;
+  }
+
+  /**
+   * Sets up the given connection.
+   */
+  private CompletableFuture<Connection> setupConnection(Connection connection) {
+    this.connection = connection;
+    connection.closeListener(c -> {
+      if (c.equals(this.connection)) {
+        this.connection = null;
+      }
+    });
+    connection.exceptionListener(c -> {
+      if (c.equals(this.connection)) {
+        this.connection = null;
+      }
+    });
+    return handler.onConnect(connection).thenApply(v -> connection);
+  }
+
+  /**
+   * Retries sending requests.
+   */
+  private void retryRequests() {
+    retryFuture = null;
+    List<Runnable> retries = new ArrayList<>(this.retries);
+    this.retries.clear();
+    resetMembers();
+    for (Runnable retry : retries) {
+      retry.run();
+    }
+  }
+
+  /**
+   * Resets the current connection.
+   *
+   * @return The client connection.
+   */
+  ClientConnection resetConnection() {
+    connection = null;
+    return this;
+  }
+
+  /**
+   * Resets the current leader connection.
+   */
+  private ClientConnection resetLeaderConnection() {
+    if (leaderConnection != null) {
+      leaderConnection.close();
+      leaderConnection = null;
+    }
+    return this;
+  }
+
+  /**
+   * Resets the members to which to connect.
+   *
+   * @return The client connection.
+   */
+  ClientConnection resetMembers() {
+    if (connectMembers.isEmpty() || connectMembers.size() < members.size() - 1) {
+      connectMembers = new ArrayList<>(connectionStrategy.getConnections(leader, new ArrayList<>(members)));
+    }
+    return this;
+  }
+
+  /**
+   * Sets the failure time if not already set.
+   */
+  private ClientConnection setFailureTime() {
+    if (failureTime == 0) {
+      failureTime = System.currentTimeMillis();
+    }
+    return this;
+  }
+
+  /**
+   * Resets the failure timeout.
+   */
+  private ClientConnection resetFailureTime() {
+    failureTime = 0;
+    return this;
+  }
+
+  /**
+   * Closes the connections to the cluster and cancels any pending retries.
+   */
+  void close() {
+    if (retryFuture != null) {
+      retryFuture.cancel();
+    }
+    if (connection != null) {
+      connection.close();
+    }
+    if (leaderConnection != null) {
+      leaderConnection.close();
+    }
+    client.close();
+  }
+
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.copycat.client.session;
+
+import io.atomix.catalyst.util.Assert;
+import io.atomix.catalyst.util.Listener;
+import io.atomix.catalyst.util.concurrent.ThreadContext;
+import io.atomix.copycat.client.request.CommandRequest;
+import io.atomix.copycat.client.request.QueryRequest;
+import io.atomix.copycat.client.response.CommandResponse;
+import io.atomix.copycat.client.response.QueryResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Logical session hosted by a {@link SessionMultiplexer}.
+ * <p>
+ * Multiplexed sessions provide the same consistency guarantees as a {@link ClientSession}, but they do not own
+ * a thread, connection, or keep-alive timer. All multiplexed sessions created by the same multiplexer share the
+ * multiplexer's event loop and connection, and are kept alive together via batched keep-alive requests. Events
+ * published to the session by the cluster are demultiplexed by session ID and delivered to the session's listeners.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+public class MultiplexedSession extends AbstractSession {
+  private static final Logger LOGGER = LoggerFactory.getLogger(MultiplexedSession.class);
+
+  /**
+   * Multiplexed session state.
+   */
+  private enum State {
+    OPEN,
+    CLOSED,
+    EXPIRED
+  }
+
+  private final SessionMultiplexer multiplexer;
+  private final long id;
+  private volatile State state = State.OPEN;
+
+  MultiplexedSession(SessionMultiplexer multiplexer, long id) {
+    this.multiplexer = Assert.notNull(multiplexer, "multiplexer");
+    this.id = id;
+    resetEventVersion(id);
+  }
+
+  @Override
+  public long id() {
+    return id;
+  }
+
+  @Override
+  ThreadContext context() {
+    return multiplexer.context();
+  }
+
+  @Override
+  CompletableFuture<CommandResponse> sendCommand(CommandRequest request) {
+    return multiplexer.leaderRequest(request, this);
+  }
+
+  @Override
+  CompletableFuture<QueryResponse> sendQuery(QueryRequest request) {
+    return multiplexer.request(request, this);
+  }
+
+  @Override
+  public boolean isOpen() {
+    return state == State.OPEN;
+  }
+
+  @Override
+  public Listener<Session> onOpen(Consumer<Session> listener) {
+    // Multiplexed sessions are only exposed once registered, so open listeners are called immediately.
+    Assert.notNull(listener, "listener").accept(this);
+    return new Listener<Session>() {
+      @Override
+      public void accept(Session session) {
+        listener.accept(session);
+      }
+
+      @Override
+      public void close() {
+      }
+    };
+  }
+
+  /**
+   * Closes the session.
+   * <p>
+   * Closing a multiplexed session unregisters the session from the cluster. The multiplexer's connection
+   * and event loop remain open for other sessions.
+   *
+   * @return A completable future to be completed once the session has been closed.
+   */
+  public CompletableFuture<Void> close() {
+    return multiplexer.unregister(this);
+  }
+
+  /**
+   * Handles closing the session.
+   */
+  void onClose() {
+    if (isOpen()) {
+      LOGGER.debug("Closed session: {}", id);
+      state = State.CLOSED;
+      notifyClose();
+    }
+  }
+
+  @Override
+  public boolean isClosed() {
+    return state == State.CLOSED || state == State.EXPIRED;
+  }
+
+  /**
+   * Handles expiring the session.
+   */
+  void onExpire() {
+    if (isOpen()) {
+      LOGGER.debug("Expired session: {}", id);
+      state = State.EXPIRED;
+      notifyClose();
+    }
+  }
+
+  @Override
+  public boolean isExpired() {
+    return state == State.EXPIRED;
+  }
+
+}
@@ -0,0 +1,490 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.copycat.client.session;
+
+import io.atomix.catalyst.serializer.Serializer;
+import io.atomix.catalyst.serializer.ServiceLoaderTypeResolver;
+import io.atomix.catalyst.transport.Address;
+import io.atomix.catalyst.transport.Connection;
+import io.atomix.catalyst.transport.Transport;
+import io.atomix.catalyst.util.Assert;
+import io.atomix.catalyst.util.ConfigurationException;
+import io.atomix.catalyst.util.Managed;
+import io.atomix.catalyst.util.concurrent.Futures;
+import io.atomix.catalyst.util.concurrent.Scheduled;
+import io.atomix.catalyst.util.concurrent.SingleThreadContext;
+import io.atomix.catalyst.util.concurrent.ThreadContext;
+import io.atomix.copycat.client.ConnectionStrategies;
+import io.atomix.copycat.client.ConnectionStrategy;
+import io.atomix.copycat.client.error.UnknownSessionException;
+import io.atomix.copycat.client.request.*;
+import io.atomix.copycat.client.response.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hosts many logical {@link MultiplexedSession sessions} over a single event loop and connection.
+ * <p>
+ * A {@link ClientSession} owns its own thread, connection, and keep-alive timer, which makes it expensive for
+ * applications that need many independent sessions, e.g. one session per tenant or per lock owner. The session
+ * multiplexer instead hosts any number of logical sessions on a single {@link ThreadContext} and a single
+ * connection to the cluster:
+ * <ul>
+ *   <li>Commands and queries for all sessions are sent over the multiplexer's connection</li>
+ *   <li>All sessions are kept alive by {@link BatchKeepAliveRequest}s of bounded size once per keep-alive interval</li>
+ *   <li>{@link PublishRequest}s received on the connection are demultiplexed to sessions by session ID</li>
+ *   <li>Commands for all sessions are sent directly to the leader over a single leader connection</li>
+ * </ul>
+ * <pre>
+ *   {@code
+ *   SessionMultiplexer multiplexer = SessionMultiplexer.builder(members)
+ *     .withTransport(new NettyTransport())
+ *     .build();
+ *   multiplexer.open().join();
+ *
+ *   MultiplexedSession session = multiplexer.createSession().join();
+ *   session.submit(new PutCommand("foo", "Hello world!")).join();
+ *   }
+ * </pre>
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+public class SessionMultiplexer implements Managed<SessionMultiplexer> {
+  private static final Logger LOGGER = LoggerFactory.getLogger(SessionMultiplexer.class);
+  private static final double KEEP_ALIVE_RATIO = 0.4;
+  private static final int MAX_KEEP_ALIVE_BATCH_SIZE = 1024;
+
+  /**
+   * Returns a new session multiplexer builder.
+   *
+   * @param members The cluster members to which to connect.
+   * @return The session multiplexer builder.
+   */
+  public static Builder builder(Address... members) {
+    return builder(Arrays.asList(Assert.notNull(members, "members")));
+  }
+
+  /**
+   * Returns a new session multiplexer builder.
+   *
+   * @param members The cluster members to which to connect.
+   * @return The session multiplexer builder.
+   */
+  public static Builder builder(Collection<Address> members) {
+    return new Builder(members);
+  }
+
+  private final ThreadContext context;
+  private final ClientConnection connections;
+  private final Map<Long, MultiplexedSession> sessions = new ConcurrentHashMap<>();
+  private Scheduled keepAliveFuture;
+  private long keepAliveInterval;
+  private volatile boolean open;
+
+  public SessionMultiplexer(Transport transport, Collection<Address> members, Serializer serializer, ConnectionStrategy connectionStrategy) {
+    this.context = new SingleThreadContext("copycat-client-multiplexer-" + UUID.randomUUID().toString(), Assert.notNull(serializer, "serializer").clone());
+    this.connections = new ClientConnection(Assert.notNull(transport, "transport").client(), context, members, connectionStrategy, new ClientConnection.Handler() {
+      @Override
+      public boolean isOpen(Session session) {
+        return open && (session == null || session.isOpen());
+      }
+
+      @Override
+      public void onExpire(Session session) {
+        if (session != null) {
+          expire(session.id());
+        } else {
+          for (long id : new ArrayList<>(sessions.keySet())) {
+            expire(id);
+          }
+        }
+      }
+
+      @Override
+      public void onOverload() {
+      }
+
+      @Override
+      public CompletableFuture<Void> onConnect(Connection connection) {
+        return SessionMultiplexer.this.onConnect(connection);
+      }
+    });
+  }
+
+  /**
+   * Returns the multiplexer context.
+   *
+   * @return The multiplexer context.
+   */
+  public ThreadContext context() {
+    return context;
+  }
+
+  /**
+   * Returns the open sessions hosted by the multiplexer.
+   *
+   * @return The open sessions hosted by the multiplexer.
+   */
+  public Collection<MultiplexedSession> sessions() {
+    return Collections.unmodifiableCollection(sessions.values());
+  }
+
+  /**
+   * Registers a new session with the cluster.
+   *
+   * @return A completable future to be completed once the session has been registered.
+   */
+  public CompletableFuture<MultiplexedSession> createSession() {
+    if (!open)
+      return Futures.exceptionalFuture(new IllegalStateException("multiplexer not open"));
+
+    CompletableFuture<MultiplexedSession> future = new CompletableFuture<>();
+    context.executor().execute(() -> {
+      RegisterRequest request = RegisterRequest.builder()
+        .withClient(UUID.randomUUID())
+        .build();
+
+      connections.<RegisterRequest, RegisterResponse>request(request, null).whenComplete((response, error) -> {
+        if (error == null) {
+          if (response.status() == Response.Status.OK) {
+            connections.setLeader(response.leader());
+            connections.setMembers(response.members());
+
+            MultiplexedSession session = new MultiplexedSession(this, response.session());
+            sessions.put(session.id(), session);
+            LOGGER.debug("Registered session: {}", session.id());
+
+            // Ensure the keep-alive interval is short enough for the session with the smallest timeout.
+            scheduleKeepAlive(Math.round(response.timeout() * KEEP_ALIVE_RATIO));
+
+            // Connect the session on the current connection to ensure events are sent to this client.
+            Connection connection = connections.connection();
+            if (connection != null) {
+              connect(connection, session).whenComplete((connectResult, connectError) -> future.complete(session));
+            } else {
+              future.complete(session);
+            }
+          } else {
+            future.completeExceptionally(response.error().createException());
+          }
+        } else {
+          future.completeExceptionally(error);
+        }
+      });
+    });
+    return future;
+  }
+
+  /**
+   * Unregisters the given session.
+   */
+  CompletableFuture<Void> unregister(MultiplexedSession session) {
+    CompletableFuture<Void> future = new CompletableFuture<>();
+    context.executor().execute(() -> {
+      if (sessions.remove(session.id()) == null || !open) {
+        session.onClose();
+        future.complete(null);
+        return;
+      }
+
+      UnregisterRequest request = UnregisterRequest.builder()
+        .withSession(session.id())
+        .build();
+
+      connections.<UnregisterRequest, UnregisterResponse>request(request, session).whenComplete((response, error) -> {
+        session.onClose();
+        future.complete(null);
+      });
+    });
+    return future;
+  }
+
+  /**
+   * Expires the session with the given ID.
+   */
+  private void expire(long id) {
+    MultiplexedSession session = sessions.remove(id);
+    if (session != null) {
+      session.onExpire();
+    }
+  }
+
+  /**
+   * Sends a request on behalf of the given session.
+   *
+   * @param request The request to send.
+   * @param session The session on behalf of which to send the request.
+   * @param <T> The request type.
+   * @param <U> The response type.
+   * @return A completable future to be completed once the response is received.
+   */
+  <T extends Request<T>, U extends Response<U>> CompletableFuture<U> request(T request, MultiplexedSession session) {
+    return connections.request(request, session);
+  }
+
+  /**
+   * Sends a request directly to the cluster leader on behalf of the given session.
+   *
+   * @param request The request to send.
+   * @param session The session on behalf of which to send the request.
+   * @param <T> The request type.
+   * @param <U> The response type.
+   * @return A completable future to be completed once the response is received.
+   */
+  <T extends Request<T>, U extends Response<U>> CompletableFuture<U> leaderRequest(T request, MultiplexedSession session) {
+    return connections.leaderRequest(request, session);
+  }
+
+  /**
+   * Sets up a new connection.
+   * <p>
+   * Publish requests received on the connection are demultiplexed to sessions by session ID, and all open
+   * sessions are connected via the new connection to ensure the cluster sends events to this client.
+   */
+  private CompletableFuture<Void> onConnect(Connection connection) {
+    connection.handler(PublishRequest.class, this::handlePublish);
+
+    List<CompletableFuture<Void>> futures = new ArrayList<>(sessions.size());
+    for (MultiplexedSession session : sessions.values()) {
+      futures.add(connect(connection, session));
+    }
+    return CompletableFuture.allOf(futures.toArray(new CompletableFuture[futures.size()]));
+  }
+
+  /**
+   * Connects a session via the given connection.
+   */
+  private CompletableFuture<Void> connect(Connection connection, MultiplexedSession session) {
+    ConnectRequest request = ConnectRequest.builder()
+      .withSession(session.id())
+      .build();
+    return connection.<ConnectRequest, ConnectResponse>send(request).handle((response, error) -> null);
+  }
+
+  /**
+   * Demultiplexes a publish request to the appropriate session.
+   */
+  private CompletableFuture<PublishResponse> handlePublish(PublishRequest request) {
+    MultiplexedSession session = sessions.get(request.session());
+    if (session == null) {
+      LOGGER.debug("Unknown session ID: {}", request.session());
+      return Futures.exceptionalFuture(new UnknownSessionException("unknown session ID"));
+    }
+    return session.handlePublish(request);
+  }
+
+  /**
+   * Schedules the keep-alive timer if the given interval is shorter than the current interval.
+   */
+  private void scheduleKeepAlive(long interval) {
+    if (keepAliveInterval == 0 || interval < keepAliveInterval) {
+      keepAliveInterval = interval;
+      connections.setTimeout(Math.round(interval / KEEP_ALIVE_RATIO));
+      if (keepAliveFuture != null) {
+        keepAliveFuture.cancel();
+      }
+      keepAliveFuture = context.schedule(Duration.ofMillis(interval), this::keepAlive);
+    }
+  }
+
+  /**
+   * Sends batched keep-alive requests for all sessions and reschedules the keep-alive timer.
+   * <p>
+   * Sessions are split into batches of at most {@link #MAX_KEEP_ALIVE_BATCH_SIZE} sessions so that the size of
+   * each request is bounded regardless of the number of sessions hosted by the multiplexer. The timer is
+   * rescheduled once all batches have completed.
+   */
+  private void keepAlive() {
+    keepAliveFuture = null;
+    if (!open)
+      return;
+
+    if (sessions.isEmpty()) {
+      rescheduleKeepAlive();
+      return;
+    }
+
+    List<CompletableFuture<Void>> futures = new ArrayList<>(sessions.size() / MAX_KEEP_ALIVE_BATCH_SIZE + 1);
+    BatchKeepAliveRequest.Builder builder = BatchKeepAliveRequest.builder();
+    int size = 0;
+    for (MultiplexedSession session : sessions.values()) {
+      builder.addSession(session.id(), session.commandSequence(), session.eventVersion());
+      if (++size == MAX_KEEP_ALIVE_BATCH_SIZE) {
+        futures.add(keepAlive(builder.build()));
+        builder = BatchKeepAliveRequest.builder();
+        size = 0;
+      }
+    }
+
+    if (size > 0) {
+      futures.add(keepAlive(builder.build()));
+    }
+
+    CompletableFuture.allOf(futures.toArray(new CompletableFuture[futures.size()])).whenComplete((result, error) -> rescheduleKeepAlive());
+  }
+
+  /**
+   * Sends a single batched keep-alive request.
+   *
+   * @return A future to be completed once the keep-alive response has been handled.
+   */
+  private CompletableFuture<Void> keepAlive(BatchKeepAliveRequest request) {
+    return connections.<BatchKeepAliveRequest, BatchKeepAliveResponse>request(request, null).handle((response, error) -> {
+      if (error == null && response.status() == Response.Status.OK) {
+        connections.setLeader(response.leader());
+        connections.setMembers(response.members());
+        connections.resetMembers();
+
+        // Expire any sessions the cluster no longer knows about.
+        for (long id : response.unknownSessions()) {
+          expire(id);
+        }
+      } else if (error == null && connections.setLeader(response.leader())) {
+        connections.resetMembers();
+      }
+      return null;
+    });
+  }
+
+  /**
+   * Reschedules the keep-alive timer.
+   */
+  private void rescheduleKeepAlive() {
+    if (open && keepAliveFuture == null) {
+      keepAliveFuture = context.schedule(Duration.ofMillis(keepAliveInterval), this::keepAlive);
+    }
+  }
+
+  @Override
+  public CompletableFuture<SessionMultiplexer> open() {
+    return CompletableFuture.supplyAsync(() -> {
+      open = true;
+      return this;
+    }, context.executor());
+  }
+
+  @Override
+  public boolean isOpen() {
+    return open;
+  }
+
+  @Override
+  public CompletableFuture<Void> close() {
+    if (!open)
+      return CompletableFuture.completedFuture(null);
+
+    List<CompletableFuture<Void>> futures = new ArrayList<>(sessions.size());
+    for (MultiplexedSession session : sessions.values()) {
+      futures.add(session.close());
+    }
+
+    return CompletableFuture.allOf(futures.toArray(new CompletableFuture[futures.size()])).thenRunAsync(() -> {
+      open = false;
+      if (keepAliveFuture != null) {
+        keepAliveFuture.cancel();
+      }
+      connections.close();
+    }, context.executor()).thenRun(context::close);
+  }
+
+  @Override
+  public boolean isClosed() {
+    return !open;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s[sessions=%d]", getClass().getSimpleName(), sessions.size());
+  }
+
+  /**
+   * Session multiplexer builder.
+   */
+  public static class Builder extends io.atomix.catalyst.util.Builder<SessionMultiplexer> {
+    private Transport transport;
+    private Serializer serializer;
+    private Set<Address> members;
+    private ConnectionStrategy connectionStrategy = ConnectionStrategies.FOLLOWERS;
+
+    private Builder(Collection<Address> members) {
+      this.members = new HashSet<>(Assert.notNull(members, "members"));
+    }
+
+    /**
+     * Sets the multiplexer transport.
+     *
+     * @param transport The multiplexer transport.
+     * @return The multiplexer builder.
+     * @throws NullPointerException if {@code transport} is null
+     */
+    public Builder withTransport(Transport transport) {
+      this.transport = Assert.notNull(transport, "transport");
+      return this;
+    }
+
+    /**
+     * Sets the multiplexer serializer.
+     *
+     * @param serializer The multiplexer serializer.
+     * @return The multiplexer builder.
+     * @throws NullPointerException if {@code serializer} is null
+     */
+    public Builder withSerializer(Serializer serializer) {
+      this.serializer = Assert.notNull(serializer, "serializer");
+      return this;
+    }
+
+    /**
+     * Sets the multiplexer connection strategy.
+     *
+     * @param connectionStrategy The multiplexer connection strategy.
+     * @return The multiplexer builder.
+     */
+    public Builder withConnectionStrategy(ConnectionStrategy connectionStrategy) {
+      this.connectionStrategy = Assert.notNull(connectionStrategy, "connectionStrategy");
+      return this;
+    }
+
+    /**
+     * @throws ConfigurationException if transport is not configured and {@code io.atomix.catalyst.transport.NettyTransport}
+     * is not found on the classpath
+     */
+    @Override
+    public SessionMultiplexer build() {
+      // If the transport is not configured, attempt to use the default Netty transport.
+      if (transport == null) {
+        try {
+          transport = (Transport) Class.forName("io.atomix.catalyst.transport.NettyTransport").newInstance();
+        } catch (ClassNotFoundException | InstantiationException | IllegalAccessException e) {
+          throw new ConfigurationException("transport not configured");
+        }
+      }
+
+      // If no serializer instance was provided, create one.
+      if (serializer == null) {
+        serializer = new Serializer();
+      }
+      serializer.resolve(new ServiceLoaderTypeResolver());
+      return new SessionMultiplexer(transport, members, serializer, connectionStrategy);
+    }
+  }
+
+}
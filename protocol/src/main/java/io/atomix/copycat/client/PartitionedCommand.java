@@ -0,0 +1,42 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.copycat.client;
+
+/**
+ * Command that modifies only the state associated with a single partition key.
+ * <p>
+ * When a partitioned command is applied to a {@code PartitionedStateMachine}, the command is executed on a partition
+ * thread selected by the hash of its {@link #partitionKey() partition key} rather than on the single state machine
+ * thread. Commands with the same partition key are always applied in log order, but commands with different partition
+ * keys may be applied concurrently. Partitioned commands must therefore only read and modify state owned by their
+ * partition key.
+ * <p>
+ * Partition keys must have a deterministic {@link Object#hashCode()} so that every replica assigns a key to the same
+ * partition. Types like {@link String}, {@link Long} and enums are suitable keys. If a command returns a {@code null}
+ * partition key, it's applied on the state machine thread after all prior partitioned commands have completed.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+public interface PartitionedCommand<T> extends Command<T> {
+
+  /**
+   * Returns the command partition key.
+   *
+   * @return The command partition key or {@code null} if the command must be applied to the entire state machine.
+   */
+  Object partitionKey();
+
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.copycat.client.error;
+
+/**
+ * Overloaded exception.
+ * <p>
+ * Overloaded exceptions are thrown when the leader has too many pending operations to accept another operation,
+ * or when a client has too many outstanding operations and is configured to fail fast.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+public class OverloadedException extends RaftException {
+  private static final RaftError.Type TYPE = RaftError.Type.OVERLOADED_ERROR;
+
+  public OverloadedException(String message, Object... args) {
+    super(TYPE, message, args);
+  }
+
+  public OverloadedException(Throwable cause, String message, Object... args) {
+    super(TYPE, cause, message, args);
+  }
+
+  public OverloadedException(Throwable cause) {
+    super(TYPE, cause);
+  }
+
+}
@@ -45,6 +45,8 @@ public interface RaftError {
         return Type.UNKNOWN_SESSION_ERROR;
       case 7:
         return Type.INTERNAL_ERROR;
+      case 8:
+        return Type.OVERLOADED_ERROR;
       default:
         throw new IllegalArgumentException("invalid error identifier: " + id);
     }
@@ -137,6 +139,16 @@ public interface RaftError {
       public RaftException createException() {
         return new InternalException("internal Raft error");
       }
+    },
+
+    /**
+     * Overloaded error.
+     */
+    OVERLOADED_ERROR(8) {
+      @Override
+      public RaftException createException() {
+        return new OverloadedException("server overloaded");
+      }
     };
 
     private final byte id;
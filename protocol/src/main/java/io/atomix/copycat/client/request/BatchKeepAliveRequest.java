@@ -0,0 +1,194 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.copycat.client.request;
+
+import io.atomix.catalyst.buffer.BufferInput;
+import io.atomix.catalyst.buffer.BufferOutput;
+import io.atomix.catalyst.serializer.SerializeWith;
+import io.atomix.catalyst.serializer.Serializer;
+import io.atomix.catalyst.util.Assert;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Protocol keep alive request for many sessions.
+ * <p>
+ * Batch keep alive requests are sent by clients that host many sessions to keep all of their sessions
+ * alive in a single request. Each session in the batch is identified by its session ID along with the
+ * session's command sequence number and event version.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+@SerializeWith(id=217)
+public class BatchKeepAliveRequest extends AbstractRequest<BatchKeepAliveRequest> {
+
+  /**
+   * Returns a new batch keep alive request builder.
+   *
+   * @return A new batch keep alive request builder.
+   */
+  public static Builder builder() {
+    return new Builder(new BatchKeepAliveRequest());
+  }
+
+  /**
+   * Returns a batch keep alive request builder for an existing request.
+   *
+   * @param request The request to build.
+   * @return The batch keep alive request builder.
+   * @throws NullPointerException if {@code request} is null
+   */
+  public static Builder builder(BatchKeepAliveRequest request) {
+    return new Builder(request);
+  }
+
+  private int size;
+  private long[] sessions = new long[0];
+  private long[] commandSequences = new long[0];
+  private long[] eventVersions = new long[0];
+
+  /**
+   * Returns the number of sessions in the request.
+   *
+   * @return The number of sessions in the request.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns the session ID at the given position.
+   *
+   * @param i The session position.
+   * @return The session ID.
+   */
+  public long session(int i) {
+    return sessions[i];
+  }
+
+  /**
+   * Returns the command sequence number at the given position.
+   *
+   * @param i The session position.
+   * @return The command sequence number.
+   */
+  public long commandSequence(int i) {
+    return commandSequences[i];
+  }
+
+  /**
+   * Returns the event version number at the given position.
+   *
+   * @param i The session position.
+   * @return The event version number.
+   */
+  public long eventVersion(int i) {
+    return eventVersions[i];
+  }
+
+  @Override
+  public void readObject(BufferInput<?> buffer, Serializer serializer) {
+    size = buffer.readInt();
+    sessions = new long[size];
+    commandSequences = new long[size];
+    eventVersions = new long[size];
+    for (int i = 0; i < size; i++) {
+      sessions[i] = buffer.readLong();
+      commandSequences[i] = buffer.readLong();
+      eventVersions[i] = buffer.readLong();
+    }
+  }
+
+  @Override
+  public void writeObject(BufferOutput<?> buffer, Serializer serializer) {
+    buffer.writeInt(size);
+    for (int i = 0; i < size; i++) {
+      buffer.writeLong(sessions[i]);
+      buffer.writeLong(commandSequences[i]);
+      buffer.writeLong(eventVersions[i]);
+    }
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(getClass(), size, Arrays.hashCode(Arrays.copyOf(sessions, size)));
+  }
+
+  @Override
+  public boolean equals(Object object) {
+    if (object instanceof BatchKeepAliveRequest) {
+      BatchKeepAliveRequest request = (BatchKeepAliveRequest) object;
+      return request.size == size
+        && Arrays.equals(Arrays.copyOf(request.sessions, size), Arrays.copyOf(sessions, size))
+        && Arrays.equals(Arrays.copyOf(request.commandSequences, size), Arrays.copyOf(commandSequences, size))
+        && Arrays.equals(Arrays.copyOf(request.eventVersions, size), Arrays.copyOf(eventVersions, size));
+    }
+    return false;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s[sessions=%s]", getClass().getSimpleName(), Arrays.toString(Arrays.copyOf(sessions, size)));
+  }
+
+  /**
+   * Batch keep alive request builder.
+   */
+  public static class Builder extends AbstractRequest.Builder<Builder, BatchKeepAliveRequest> {
+    protected Builder(BatchKeepAliveRequest request) {
+      super(request);
+    }
+
+    /**
+     * Adds a session to the request.
+     *
+     * @param session The session ID.
+     * @param commandSequence The session's command sequence number.
+     * @param eventVersion The session's event version number.
+     * @return The request builder.
+     * @throws IllegalArgumentException if {@code session} is not positive or {@code commandSequence} or
+     *         {@code eventVersion} is less than 0
+     */
+    public Builder addSession(long session, long commandSequence, long eventVersion) {
+      Assert.argNot(session < 1, "session must be positive");
+      Assert.argNot(commandSequence < 0, "commandSequence cannot be negative");
+      Assert.argNot(eventVersion < 0, "eventVersion cannot be negative");
+      if (request.size == request.sessions.length) {
+        int capacity = Math.max(8, request.size * 2);
+        request.sessions = Arrays.copyOf(request.sessions, capacity);
+        request.commandSequences = Arrays.copyOf(request.commandSequences, capacity);
+        request.eventVersions = Arrays.copyOf(request.eventVersions, capacity);
+      }
+      request.sessions[request.size] = session;
+      request.commandSequences[request.size] = commandSequence;
+      request.eventVersions[request.size] = eventVersion;
+      request.size++;
+      return this;
+    }
+
+    /**
+     * @throws IllegalStateException if the request contains no sessions
+     */
+    @Override
+    public BatchKeepAliveRequest build() {
+      super.build();
+      Assert.state(request.size > 0, "sessions cannot be empty");
+      return request;
+    }
+  }
+
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.copycat.client.response;
+
+import io.atomix.catalyst.buffer.BufferInput;
+import io.atomix.catalyst.buffer.BufferOutput;
+import io.atomix.catalyst.serializer.SerializeWith;
+import io.atomix.catalyst.serializer.Serializer;
+import io.atomix.catalyst.transport.Address;
+import io.atomix.catalyst.util.Assert;
+import io.atomix.copycat.client.error.RaftError;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Objects;
+
+/**
+ * Protocol keep alive response for many sessions.
+ * <p>
+ * If the batch was committed, the response status is {@link Status#OK} and the response lists the
+ * {@link #unknownSessions() sessions} in the batch that were not known to the cluster. Those sessions
+ * have either expired or were never registered and must be re-registered by the client.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+@SerializeWith(id=218)
+public class BatchKeepAliveResponse extends AbstractResponse<BatchKeepAliveResponse> {
+
+  /**
+   * Returns a new batch keep alive response builder.
+   *
+   * @return A new batch keep alive response builder.
+   */
+  public static Builder builder() {
+    return new Builder(new BatchKeepAliveResponse());
+  }
+
+  /**
+   * Returns a batch keep alive response builder for an existing response.
+   *
+   * @param response The response to build.
+   * @return The batch keep alive response builder.
+   * @throws NullPointerException if {@code response} is null
+   */
+  public static Builder builder(BatchKeepAliveResponse response) {
+    return new Builder(response);
+  }
+
+  private Address leader;
+  private Collection<Address> members;
+  private long[] unknownSessions = new long[0];
+
+  /**
+   * Returns the cluster leader.
+   *
+   * @return The cluster leader.
+   */
+  public Address leader() {
+    return leader;
+  }
+
+  /**
+   * Returns the cluster members.
+   *
+   * @return The cluster members.
+   */
+  public Collection<Address> members() {
+    return members;
+  }
+
+  /**
+   * Returns the sessions in the request that are not known to the cluster.
+   *
+   * @return The unknown session IDs.
+   */
+  public long[] unknownSessions() {
+    return unknownSessions;
+  }
+
+  @Override
+  public void readObject(BufferInput<?> buffer, Serializer serializer) {
+    status = Status.forId(buffer.readByte());
+    if (status == Status.OK) {
+      error = null;
+      leader = serializer.readObject(buffer);
+      members = serializer.readObject(buffer);
+      int size = buffer.readInt();
+      unknownSessions = new long[size];
+      for (int i = 0; i < size; i++) {
+        unknownSessions[i] = buffer.readLong();
+      }
+    } else {
+      error = RaftError.forId(buffer.readByte());
+      leader = serializer.readObject(buffer);
+    }
+  }
+
+  @Override
+  public void writeObject(BufferOutput<?> buffer, Serializer serializer) {
+    buffer.writeByte(status.id());
+    if (status == Status.OK) {
+      serializer.writeObject(leader, buffer);
+      serializer.writeObject(members, buffer);
+      buffer.writeInt(unknownSessions.length);
+      for (long session : unknownSessions) {
+        buffer.writeLong(session);
+      }
+    } else {
+      buffer.writeByte(error.id());
+      serializer.writeObject(leader, buffer);
+    }
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(getClass(), status, leader, members, Arrays.hashCode(unknownSessions));
+  }
+
+  @Override
+  public boolean equals(Object object) {
+    if (object instanceof BatchKeepAliveResponse) {
+      BatchKeepAliveResponse response = (BatchKeepAliveResponse) object;
+      return response.status == status
+        && Objects.equals(response.leader, leader)
+        && Objects.equals(response.members, members)
+        && Arrays.equals(response.unknownSessions, unknownSessions);
+    }
+    return false;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s[status=%s, leader=%s, members=%s, unknownSessions=%s]", getClass().getSimpleName(), status, leader, members, Arrays.toString(unknownSessions));
+  }
+
+  /**
+   * Batch keep alive response builder.
+   */
+  public static class Builder extends AbstractResponse.Builder<Builder, BatchKeepAliveResponse> {
+
+    protected Builder(BatchKeepAliveResponse response) {
+      super(response);
+    }
+
+    /**
+     * Sets the response leader.
+     *
+     * @param leader The response leader.
+     * @return The response builder.
+     */
+    public Builder withLeader(Address leader) {
+      response.leader = leader;
+      return this;
+    }
+
+    /**
+     * Sets the response members.
+     *
+     * @param members The response members.
+     * @return The response builder.
+     * @throws NullPointerException if {@code members} is null
+     */
+    public Builder withMembers(Collection<Address> members) {
+      response.members = Assert.notNull(members, "members");
+      return this;
+    }
+
+    /**
+     * Sets the sessions in the request that are not known to the cluster.
+     *
+     * @param unknownSessions The unknown session IDs.
+     * @return The response builder.
+     * @throws NullPointerException if {@code unknownSessions} is null
+     */
+    public Builder withUnknownSessions(long... unknownSessions) {
+      response.unknownSessions = Assert.notNull(unknownSessions, "unknownSessions");
+      return this;
+    }
+
+    /**
+     * @throws IllegalStateException if status is OK and members is null
+     */
+    @Override
+    public BatchKeepAliveResponse build() {
+      super.build();
+      Assert.stateNot(response.status == Status.OK && response.members == null, "members cannot be null");
+      return response;
+    }
+  }
+
+}
@@ -15,10 +15,20 @@
  */
 package io.atomix.copycat.client.response;
 
+import io.atomix.catalyst.buffer.BufferInput;
+import io.atomix.catalyst.buffer.BufferOutput;
 import io.atomix.catalyst.serializer.SerializeWith;
+import io.atomix.catalyst.serializer.Serializer;
+import io.atomix.catalyst.transport.Address;
+
+import java.util.Objects;
 
 /**
  * Protocol command response.
+ * <p>
+ * Commands must be handled by the cluster leader. When a command is sent to a server that is not the leader,
+ * the server responds with an {@link io.atomix.copycat.client.error.RaftError.Type#ILLEGAL_MEMBER_STATE_ERROR}
+ * and the {@link #leader() leader} to which the client should redirect the command.
  *
  * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
  */
@@ -45,6 +55,41 @@ public class CommandResponse extends OperationResponse<CommandResponse> {
     return new Builder(response);
   }
 
+  private Address leader;
+
+  /**
+   * Returns the leader to which to redirect the command.
+   *
+   * @return The leader to which to redirect the command or {@code null} if no redirect is necessary.
+   */
+  public Address leader() {
+    return leader;
+  }
+
+  @Override
+  public void readObject(BufferInput<?> buffer, Serializer serializer) {
+    super.readObject(buffer, serializer);
+    leader = status == Status.ERROR ? serializer.readObject(buffer) : null;
+  }
+
+  @Override
+  public void writeObject(BufferOutput<?> buffer, Serializer serializer) {
+    super.writeObject(buffer, serializer);
+    if (status == Status.ERROR) {
+      serializer.writeObject(leader, buffer);
+    }
+  }
+
+  @Override
+  public boolean equals(Object object) {
+    return super.equals(object) && Objects.equals(((CommandResponse) object).leader, leader);
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s[status=%s, version=%d, result=%s, leader=%s]", getClass().getSimpleName(), status, version, result, leader);
+  }
+
   /**
    * Command response builder.
    */
@@ -52,6 +97,17 @@ public class CommandResponse extends OperationResponse<CommandResponse> {
     protected Builder(CommandResponse response) {
       super(response);
     }
+
+    /**
+     * Sets the leader to which to redirect the command.
+     *
+     * @param leader The leader to which to redirect the command.
+     * @return The response builder.
+     */
+    public Builder withLeader(Address leader) {
+      response.leader = leader;
+      return this;
+    }
   }
 
 }
@@ -23,6 +23,7 @@ import io.atomix.catalyst.transport.Transport;
 import io.atomix.catalyst.util.Assert;
 import io.atomix.catalyst.util.ConfigurationException;
 import io.atomix.catalyst.util.Listener;
+import io.atomix.catalyst.util.concurrent.Futures;
 import io.atomix.catalyst.util.concurrent.ThreadContext;
 import io.atomix.copycat.client.Command;
 import io.atomix.copycat.client.Query;
@@ -166,14 +167,24 @@ public class CopycatServer implements RaftServer {
   private final Duration electionTimeout;
   private final Duration heartbeatInterval;
   private final Duration sessionTimeout;
+  private final double leaseDriftFactor;
+  private final int maxPendingEntries;
+  private final int maxSessionResponses;
+  private final long catchUpBandwidth;
+  private final double commandTraceSampleRate;
   private Listener<Address> electionListener;
   private boolean open;
 
-  private CopycatServer(ServerContext context, Duration electionTimeout, Duration heartbeatInterval, Duration sessionTimeout) {
+  private CopycatServer(ServerContext context, Duration electionTimeout, Duration heartbeatInterval, Duration sessionTimeout, double leaseDriftFactor, int maxPendingEntries, int maxSessionResponses, long catchUpBandwidth, double commandTraceSampleRate) {
     this.context = context;
     this.electionTimeout = electionTimeout;
     this.heartbeatInterval = heartbeatInterval;
     this.sessionTimeout = sessionTimeout;
+    this.leaseDriftFactor = leaseDriftFactor;
+    this.maxPendingEntries = maxPendingEntries;
+    this.maxSessionResponses = maxSessionResponses;
+    this.catchUpBandwidth = catchUpBandwidth;
+    this.commandTraceSampleRate = commandTraceSampleRate;
   }
 
   @Override
@@ -238,6 +249,33 @@ public class CopycatServer implements RaftServer {
     return state.onStateChange(listener);
   }
 
+  /**
+   * Transfers leadership to the given member.
+   * <p>
+   * This server must be the leader. The leader stops accepting commands, replicates its log to the given member,
+   * and then asks the member to start an election immediately rather than waiting for an election timeout. This
+   * can be used to hand off leadership before shutting down the leader or to move leadership to a preferred server.
+   * If the member's log can't be brought up to date within an election timeout, the transfer fails and the leader
+   * resumes accepting commands.
+   * <pre>
+   *   {@code
+   *   server.transferLeadership(new Address("123.456.789.1", 5000)).thenRun(() -> {
+   *     server.close();
+   *   });
+   *   }
+   * </pre>
+   *
+   * @param member The active member to which to transfer leadership.
+   * @return A completable future to be completed once the member has started an election.
+   * @throws NullPointerException If {@code member} is {@code null}
+   */
+  public CompletableFuture<Void> transferLeadership(Address member) {
+    Assert.notNull(member, "member");
+    if (!open)
+      return Futures.exceptionalFuture(new IllegalStateException("server not open"));
+    return state.transferLeadership(member);
+  }
+
   @Override
   public ThreadContext context() {
     return state.getThreadContext();
@@ -258,6 +296,11 @@ public class CopycatServer implements RaftServer {
             state.setElectionTimeout(electionTimeout)
               .setHeartbeatInterval(heartbeatInterval)
               .setSessionTimeout(sessionTimeout)
+              .setLeaseDriftFactor(leaseDriftFactor)
+              .setMaxPendingEntries(maxPendingEntries)
+              .setMaxSessionResponses(maxSessionResponses)
+              .setCatchUpBandwidth(catchUpBandwidth)
+              .setCommandTraceSampleRate(commandTraceSampleRate)
               .join()
               .whenComplete((result, error) -> {
                 if (error == null) {
@@ -341,6 +384,9 @@ public class CopycatServer implements RaftServer {
     private static final Duration DEFAULT_RAFT_ELECTION_TIMEOUT = Duration.ofMillis(1000);
     private static final Duration DEFAULT_RAFT_HEARTBEAT_INTERVAL = Duration.ofMillis(150);
     private static final Duration DEFAULT_RAFT_SESSION_TIMEOUT = Duration.ofMillis(5000);
+    private static final double DEFAULT_RAFT_LEASE_DRIFT_FACTOR = 0.1;
+    private static final int DEFAULT_RAFT_MAX_PENDING_ENTRIES = 1024 * 64;
+    private static final int DEFAULT_RAFT_MAX_SESSION_RESPONSES = 1024 * 16;
 
     private Transport transport;
     private Storage storage;
@@ -351,6 +397,11 @@ public class CopycatServer implements RaftServer {
     private Duration electionTimeout = DEFAULT_RAFT_ELECTION_TIMEOUT;
     private Duration heartbeatInterval = DEFAULT_RAFT_HEARTBEAT_INTERVAL;
     private Duration sessionTimeout = DEFAULT_RAFT_SESSION_TIMEOUT;
+    private double leaseDriftFactor = DEFAULT_RAFT_LEASE_DRIFT_FACTOR;
+    private int maxPendingEntries = DEFAULT_RAFT_MAX_PENDING_ENTRIES;
+    private int maxSessionResponses = DEFAULT_RAFT_MAX_SESSION_RESPONSES;
+    private long catchUpBandwidth;
+    private double commandTraceSampleRate;
 
     private Builder(Address address, Collection<Address> cluster) {
       this.address = Assert.notNull(address, "address");
@@ -451,6 +502,94 @@ public class CopycatServer implements RaftServer {
       return this;
     }
 
+    /**
+     * Sets the leader lease clock drift factor, returning the Raft configuration for method chaining.
+     * <p>
+     * The leader serves {@link io.atomix.copycat.client.Query.ConsistencyLevel#BOUNDED_LINEARIZABLE} queries
+     * locally for as long as it holds a lease. The lease lasts for the election timeout minus the given fraction
+     * of the election timeout, measured from the time the last request acknowledged by a majority of the cluster
+     * was sent. The drift factor should bound the relative clock rate error between any two servers.
+     *
+     * @param leaseDriftFactor The fraction of the election timeout to reserve for clock drift.
+     * @return The Raft configuration.
+     * @throws IllegalArgumentException If the drift factor is not in the range {@code [0, 1)}
+     */
+    public Builder withLeaseDriftFactor(double leaseDriftFactor) {
+      Assert.argNot(leaseDriftFactor < 0 || leaseDriftFactor >= 1, "leaseDriftFactor must be in the range [0, 1)");
+      this.leaseDriftFactor = leaseDriftFactor;
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of entries the leader may have pending application, returning the Raft configuration
+     * for method chaining.
+     * <p>
+     * When the number of entries appended to the leader's log but not yet applied to its state machine exceeds the
+     * given limit, the leader rejects new commands with an overloaded error. Clients back off and reduce the number
+     * of operations they keep outstanding when they receive the error.
+     *
+     * @param maxPendingEntries The maximum number of entries the leader may have pending application.
+     * @return The Raft configuration.
+     * @throws IllegalArgumentException If the maximum number of pending entries is not positive
+     */
+    public Builder withMaxPendingEntries(int maxPendingEntries) {
+      this.maxPendingEntries = Assert.arg(maxPendingEntries, maxPendingEntries > 0, "maxPendingEntries must be positive");
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of unacknowledged command responses each server caches per session, returning the
+     * Raft configuration for method chaining.
+     * <p>
+     * Servers cache the output of each command until the client acknowledges it so that commands resubmitted after
+     * a failure aren't applied twice. When a client has more unacknowledged responses than the given limit, the
+     * oldest responses are evicted, and resubmitting those commands fails with an application error. The limit must
+     * be the same on all servers in the cluster.
+     *
+     * @param maxSessionResponses The maximum number of unacknowledged command responses to cache per session.
+     * @return The Raft configuration.
+     * @throws IllegalArgumentException If the maximum number of session responses is not positive
+     */
+    public Builder withMaxSessionResponses(int maxSessionResponses) {
+      this.maxSessionResponses = Assert.arg(maxSessionResponses, maxSessionResponses > 0, "maxSessionResponses must be positive");
+      return this;
+    }
+
+    /**
+     * Sets the maximum rate at which the leader replicates entries to members that are catching up, returning the
+     * Raft configuration for method chaining.
+     * <p>
+     * Members joining the cluster and followers that have fallen far behind the leader are caught up in a separate
+     * lane that is served after the members forming the quorum. Entries sent to members in the catch-up lane are
+     * limited to the given rate so that large catch-ups don't delay commits. By default catch-up is not limited.
+     *
+     * @param bytesPerSecond The maximum catch-up replication rate in bytes per second, or {@code 0} for no limit.
+     * @return The Raft configuration.
+     * @throws IllegalArgumentException If the catch-up bandwidth is negative
+     */
+    public Builder withCatchUpBandwidth(long bytesPerSecond) {
+      this.catchUpBandwidth = Assert.arg(bytesPerSecond, bytesPerSecond >= 0, "bytesPerSecond must not be negative");
+      return this;
+    }
+
+    /**
+     * Sets the fraction of commands for which the leader traces per-stage timings, returning the Raft configuration
+     * for method chaining.
+     * <p>
+     * Traced commands record the time at which they pass through each stage of the leader's pipeline, from receipt
+     * of the request to sending the response. Stage timings are published as histograms through the server's JMX
+     * metrics, where the most recent traces can also be dumped. Tracing is disabled by default and the sample rate
+     * can be changed at runtime through JMX.
+     *
+     * @param sampleRate The fraction of commands to trace between {@code 0} and {@code 1}.
+     * @return The Raft configuration.
+     * @throws IllegalArgumentException If the sample rate is not between {@code 0} and {@code 1}
+     */
+    public Builder withCommandTraceSampleRate(double sampleRate) {
+      this.commandTraceSampleRate = Assert.arg(sampleRate, sampleRate >= 0 && sampleRate <= 1, "sampleRate must be between 0 and 1");
+      return this;
+    }
+
     /**
      * @throws ConfigurationException if a state machine, members or transport are not configured
      */
@@ -484,7 +623,7 @@ public class CopycatServer implements RaftServer {
       }
 
       ServerContext context = new ServerContext(address, cluster, stateMachine, transport, storage, serializer);
-      return new CopycatServer(context, electionTimeout, heartbeatInterval, sessionTimeout);
+      return new CopycatServer(context, electionTimeout, heartbeatInterval, sessionTimeout, leaseDriftFactor, maxPendingEntries, maxSessionResponses, catchUpBandwidth, commandTraceSampleRate);
     }
   }
 
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.copycat.server;
+
+import io.atomix.catalyst.util.Assert;
+import io.atomix.copycat.client.PartitionedCommand;
+
+/**
+ * Base class for state machines that apply independent commands in parallel.
+ * <p>
+ * A partitioned state machine is configured exactly like a {@link StateMachine}, but {@link PartitionedCommand}s
+ * are executed on one of a fixed number of partition threads rather than on the single state machine thread. The
+ * partition thread is selected by the hash of the command's {@link PartitionedCommand#partitionKey() partition key},
+ * so commands for the same key are applied in log order on every replica while commands for different keys are
+ * applied concurrently.
+ * <p>
+ * All other operations act as a barrier: session registrations, keep-alives and expirations, queries, scheduled
+ * callbacks and commands that are not partitioned are applied on the state machine thread only after every prior
+ * partitioned command has completed, and no partitioned command is started until they complete. Results are returned
+ * to clients in log order.
+ * <p>
+ * Because partitioned commands may run concurrently with one another, their operations must only access state
+ * owned by their partition key. Partitioned operations should read the time from {@link Commit#time()} rather than
+ * the state machine {@link #clock() clock} and must not publish session events or schedule callbacks; commands
+ * that need to do so should not be partitioned.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+public abstract class PartitionedStateMachine extends StateMachine {
+  private final int partitions;
+
+  /**
+   * Creates a partitioned state machine with a partition per available processor.
+   */
+  protected PartitionedStateMachine() {
+    this(Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Creates a partitioned state machine.
+   *
+   * @param partitions The number of partition threads on which to apply partitioned commands.
+   * @throws IllegalArgumentException if {@code partitions} is not positive
+   */
+  protected PartitionedStateMachine(int partitions) {
+    this.partitions = Assert.arg(partitions, partitions > 0, "partitions must be positive");
+  }
+
+  /**
+   * Returns the number of state machine partitions.
+   *
+   * @return The number of state machine partitions.
+   */
+  public int partitions() {
+    return partitions;
+  }
+
+}
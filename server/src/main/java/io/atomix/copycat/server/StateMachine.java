@@ -22,6 +22,7 @@ import io.atomix.copycat.client.Query;
 import io.atomix.copycat.client.session.Session;
 import io.atomix.copycat.server.session.Sessions;
 
+import java.lang.invoke.*;
 import java.lang.reflect.*;
 import java.time.Clock;
 import java.util.function.Consumer;
@@ -346,15 +347,26 @@ public abstract class StateMachine implements AutoCloseable {
 
   /**
    * Wraps a void method.
+   * <p>
+   * The method is wrapped in a {@link Consumer} that calls the method directly on this state machine, so reflectively
+   * registered operations are dispatched as fast as explicitly registered lambdas. If a direct call can't be generated,
+   * for instance because the state machine class is not public, the method is called through a bound method handle.
    */
   private Consumer wrapVoidMethod(Method method) {
-    return c -> {
-      try {
-        method.invoke(this, c);
-      } catch (IllegalAccessException | InvocationTargetException e) {
-        throw new AssertionError();
-      }
-    };
+    try {
+      return (Consumer) bindMethod(method, Consumer.class, "accept", MethodType.methodType(void.class, Object.class));
+    } catch (Throwable e) {
+      MethodHandle handle = unreflectMethod(method);
+      return c -> {
+        try {
+          handle.invoke(c);
+        } catch (RuntimeException | Error t) {
+          throw t;
+        } catch (Throwable t) {
+          throw new IllegalStateException(t);
+        }
+      };
+    }
   }
 
   /**
@@ -367,15 +379,50 @@ public abstract class StateMachine implements AutoCloseable {
 
   /**
    * Wraps a value method.
+   * <p>
+   * The method is wrapped in a {@link Function} that calls the method directly on this state machine, so reflectively
+   * registered operations are dispatched as fast as explicitly registered lambdas. If a direct call can't be generated,
+   * for instance because the state machine class is not public, the method is called through a bound method handle.
    */
   private Function wrapValueMethod(Method method) {
-    return c -> {
-      try {
-        return method.invoke(this, c);
-      } catch (IllegalAccessException | InvocationTargetException e) {
-        throw new AssertionError();
-      }
-    };
+    try {
+      return (Function) bindMethod(method, Function.class, "apply", MethodType.methodType(Object.class, Object.class));
+    } catch (Throwable e) {
+      MethodHandle handle = unreflectMethod(method);
+      return c -> {
+        try {
+          return handle.invoke(c);
+        } catch (RuntimeException | Error t) {
+          throw t;
+        } catch (Throwable t) {
+          throw new IllegalStateException(t);
+        }
+      };
+    }
+  }
+
+  /**
+   * Generates an implementation of the given functional interface that calls the given method on this state machine.
+   */
+  private Object bindMethod(Method method, Class<?> functionType, String functionName, MethodType functionMethodType) throws Throwable {
+    MethodHandles.Lookup lookup = MethodHandles.lookup();
+    MethodHandle handle = lookup.unreflect(method);
+    MethodType instantiatedType = MethodType.methodType(functionMethodType.returnType(), Commit.class);
+    CallSite site = LambdaMetafactory.metafactory(lookup, functionName, MethodType.methodType(functionType, method.getDeclaringClass()),
+      functionMethodType, handle, instantiatedType);
+    return site.getTarget().invoke(this);
+  }
+
+  /**
+   * Returns a method handle for the given method bound to this state machine.
+   */
+  private MethodHandle unreflectMethod(Method method) {
+    try {
+      method.setAccessible(true);
+      return MethodHandles.lookup().unreflect(method).bindTo(this);
+    } catch (IllegalAccessException | SecurityException e) {
+      throw new IllegalStateException("cannot access state machine operation " + method, e);
+    }
   }
 
 }
@@ -110,6 +110,27 @@ public interface StateMachineExecutor extends ThreadContext {
    */
   <T extends Operation<U>, U> StateMachineExecutor register(Class<T> type, Function<Commit<T>, U> callback);
 
+  /**
+   * Registers a thread safe query callback.
+   * <p>
+   * Rather than being executed on the state machine thread, queries of {@code type} are executed concurrently on a
+   * pool of query threads, so long running queries don't delay commands and read heavy workloads scale with the
+   * number of cores. Query consistency guarantees are unchanged: a query is only executed once all commands prior to
+   * the query's required version have been applied to the state machine. However, the callback may be executed
+   * concurrently with other queries and with commands applied after that version, so the callback must only read
+   * state that is safe to read concurrently with writes, e.g. concurrent collections or copy-on-write views.
+   * <p>
+   * Because the state machine context is updated by the state machine thread, concurrent query callbacks should read
+   * the query time from {@link Commit#time()} rather than from the state machine context.
+   *
+   * @param type The query type.
+   * @param callback The query callback.
+   * @param <T> The query type.
+   * @return The state machine executor.
+   * @throws NullPointerException if {@code type} or {@code callback} are null
+   */
+  <T extends Query<U>, U> StateMachineExecutor registerConcurrent(Class<T> type, Function<Commit<T>, U> callback);
+
   @Override
   default void close() {
   }
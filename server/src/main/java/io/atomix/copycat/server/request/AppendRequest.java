@@ -15,16 +15,20 @@
  */
 package io.atomix.copycat.server.request;
 
+import io.atomix.catalyst.buffer.Buffer;
 import io.atomix.catalyst.buffer.BufferInput;
 import io.atomix.catalyst.buffer.BufferOutput;
+import io.atomix.catalyst.buffer.DirectBuffer;
 import io.atomix.catalyst.serializer.SerializeWith;
 import io.atomix.catalyst.serializer.Serializer;
 import io.atomix.catalyst.util.Assert;
 import io.atomix.copycat.client.request.AbstractRequest;
 import io.atomix.copycat.server.storage.entry.Entry;
+import io.atomix.copycat.server.util.Varints;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 import java.util.Objects;
 
@@ -35,6 +39,8 @@ import java.util.Objects;
  */
 @SerializeWith(id=207)
 public class AppendRequest extends AbstractRequest<AppendRequest> {
+  private static final ThreadLocal<byte[]> RECORD_BYTES = ThreadLocal.withInitial(() -> new byte[0]);
+  private static final ThreadLocal<Buffer> RECORDS = ThreadLocal.withInitial(DirectBuffer::allocate);
 
   /**
    * Returns a new append request builder.
@@ -60,8 +66,12 @@ public class AppendRequest extends AbstractRequest<AppendRequest> {
   private long logIndex;
   private long logTerm;
   private List<Entry> entries = new ArrayList<>(128);
+  private byte[] records;
+  private int recordCount;
+  private int recordsSize;
   private long commitIndex = -1;
   private long globalIndex = -1;
+  private List<Integer> catchUpMembers = new ArrayList<>(0);
 
   /**
    * Returns the requesting node's current term.
@@ -108,6 +118,18 @@ public class AppendRequest extends AbstractRequest<AppendRequest> {
     return entries;
   }
 
+  /**
+   * Returns the number of serialized entries copied to the request in addition to {@link #entries()}.
+   * <p>
+   * Serialized entries are copied by the leader from sealed log segments and are read as {@link #entries()} by
+   * the receiver.
+   *
+   * @return The number of serialized entries copied to the request.
+   */
+  public int recordCount() {
+    return recordCount;
+  }
+
   /**
    * Returns the leader's commit index.
    *
@@ -126,6 +148,15 @@ public class AppendRequest extends AbstractRequest<AppendRequest> {
     return globalIndex;
   }
 
+  /**
+   * Returns the passive members to which the receiving follower should replicate committed entries.
+   *
+   * @return The identifiers of the passive members assigned to the receiving follower.
+   */
+  public List<Integer> catchUpMembers() {
+    return catchUpMembers;
+  }
+
   @Override
   public void writeObject(BufferOutput<?> buffer, Serializer serializer) {
     buffer.writeLong(term)
@@ -140,6 +171,17 @@ public class AppendRequest extends AbstractRequest<AppendRequest> {
       buffer.writeLong(entry.getIndex());
       serializer.writeObject(entry, buffer);
     }
+
+    buffer.writeInt(catchUpMembers.size());
+    for (int member : catchUpMembers) {
+      buffer.writeInt(member);
+    }
+
+    // Serialized entries are written as they were copied from the leader's log.
+    buffer.writeInt(recordCount);
+    if (recordCount > 0) {
+      buffer.writeInt(recordsSize).write(records, 0, recordsSize);
+    }
   }
 
   @Override
@@ -159,11 +201,38 @@ public class AppendRequest extends AbstractRequest<AppendRequest> {
       entry.setIndex(index);
       entries.add(entry);
     }
+
+    int numCatchUpMembers = buffer.readInt();
+    catchUpMembers = new ArrayList<>(numCatchUpMembers);
+    for (int i = 0; i < numCatchUpMembers; i++) {
+      catchUpMembers.add(buffer.readInt());
+    }
+
+    // Serialized entries are copied from the leader's log in big-endian order, so read them from a direct buffer.
+    // The array and direct buffer are reused by each thread rather than allocated for each request.
+    int numRecords = buffer.readInt();
+    if (numRecords > 0) {
+      int size = buffer.readInt();
+      byte[] bytes = RECORD_BYTES.get();
+      if (bytes.length < size) {
+        bytes = new byte[size];
+        RECORD_BYTES.set(bytes);
+      }
+      buffer.read(bytes, 0, size);
+
+      Buffer records = RECORDS.get().clear().write(bytes, 0, size).flip();
+      for (int i = 0; i < numRecords; i++) {
+        long index = Varints.readUnsignedLong(records);
+        Entry entry = serializer.readObject(records);
+        entry.setIndex(index);
+        entries.add(entry);
+      }
+    }
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(getClass(), term, leader, logIndex, logTerm, entries, commitIndex, globalIndex);
+    return Objects.hash(getClass(), term, leader, logIndex, logTerm, entries, recordCount, commitIndex, globalIndex, catchUpMembers);
   }
 
   @Override
@@ -175,15 +244,17 @@ public class AppendRequest extends AbstractRequest<AppendRequest> {
         && request.logIndex == logIndex
         && request.logTerm == logTerm
         && request.entries.equals(entries)
+        && request.recordCount == recordCount
         && request.commitIndex == commitIndex
-        && request.globalIndex == globalIndex;
+        && request.globalIndex == globalIndex
+        && request.catchUpMembers.equals(catchUpMembers);
     }
     return false;
   }
 
   @Override
   public String toString() {
-    return String.format("%s[term=%d, leader=%s, logIndex=%d, logTerm=%d, entries=[%d], commitIndex=%d, globalIndex=%d]", getClass().getSimpleName(), term, leader, logIndex, logTerm, entries.size(), commitIndex, globalIndex);
+    return String.format("%s[term=%d, leader=%s, logIndex=%d, logTerm=%d, entries=[%d], commitIndex=%d, globalIndex=%d, catchUpMembers=%s]", getClass().getSimpleName(), term, leader, logIndex, logTerm, entries.size() + recordCount, commitIndex, globalIndex, catchUpMembers);
   }
 
   /**
@@ -278,6 +349,28 @@ public class AppendRequest extends AbstractRequest<AppendRequest> {
       return this;
     }
 
+    /**
+     * Sets serialized entries to copy to the request.
+     * <p>
+     * Each entry must be written as its variable-length index followed by its big-endian serialized bytes, as written
+     * by {@link io.atomix.copycat.server.storage.Log#copyTo(long, long, BufferOutput)}. Serialized entries are read
+     * after {@link #entries()} and must follow them in the log. The array is not copied, so it must not be modified
+     * until the request has been serialized.
+     *
+     * @param count The number of serialized entries.
+     * @param records The array containing the serialized entries.
+     * @param size The number of serialized bytes at the start of the array.
+     * @return The append request builder.
+     * @throws NullPointerException if {@code records} is null
+     * @throws IllegalArgumentException if {@code count} is negative or {@code size} is negative or exceeds the array
+     */
+    public Builder withRecords(int count, byte[] records, int size) {
+      request.recordCount = Assert.argNot(count, count < 0, "count must not be negative");
+      request.records = Assert.notNull(records, "records");
+      request.recordsSize = Assert.argNot(size, size < 0 || size > records.length, "invalid records size");
+      return this;
+    }
+
     /**
      * Sets the request commit index.
      *
@@ -302,6 +395,18 @@ public class AppendRequest extends AbstractRequest<AppendRequest> {
       return this;
     }
 
+    /**
+     * Sets the passive members to which the receiving follower should replicate committed entries.
+     *
+     * @param members The identifiers of the passive members assigned to the receiving follower.
+     * @return The append request builder.
+     * @throws NullPointerException if {@code members} is null
+     */
+    public Builder withCatchUpMembers(Collection<Integer> members) {
+      request.catchUpMembers = new ArrayList<>(Assert.notNull(members, "members"));
+      return this;
+    }
+
     /**
      * @throws IllegalStateException if the term, log term, log index, commit index, or global index are not positive, or 
      * if entries is null 
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.copycat.server.request;
+
+import io.atomix.catalyst.buffer.BufferInput;
+import io.atomix.catalyst.buffer.BufferOutput;
+import io.atomix.catalyst.serializer.SerializeWith;
+import io.atomix.catalyst.serializer.Serializer;
+import io.atomix.catalyst.util.Assert;
+import io.atomix.copycat.client.request.AbstractRequest;
+
+import java.util.Objects;
+
+/**
+ * Protocol timeout now request.
+ * <p>
+ * Timeout now requests are sent by the leader to transfer leadership to an up-to-date follower. Upon receiving the
+ * request, the follower immediately starts a new election rather than waiting for its election timeout.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+@SerializeWith(id=229)
+public class TimeoutNowRequest extends AbstractRequest<TimeoutNowRequest> {
+
+  /**
+   * Returns a new timeout now request builder.
+   *
+   * @return A new timeout now request builder.
+   */
+  public static Builder builder() {
+    return new Builder(new TimeoutNowRequest());
+  }
+
+  /**
+   * Returns a timeout now request builder for an existing request.
+   *
+   * @param request The request to build.
+   * @return The timeout now request builder.
+   */
+  public static Builder builder(TimeoutNowRequest request) {
+    return new Builder(request);
+  }
+
+  private long term = -1;
+  private int leader;
+
+  /**
+   * Returns the requesting leader's current term.
+   *
+   * @return The requesting leader's current term.
+   */
+  public long term() {
+    return term;
+  }
+
+  /**
+   * Returns the requesting leader's address.
+   *
+   * @return The requesting leader's address.
+   */
+  public int leader() {
+    return leader;
+  }
+
+  @Override
+  public void readObject(BufferInput<?> buffer, Serializer serializer) {
+    term = buffer.readLong();
+    leader = buffer.readInt();
+  }
+
+  @Override
+  public void writeObject(BufferOutput<?> buffer, Serializer serializer) {
+    buffer.writeLong(term)
+      .writeInt(leader);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(getClass(), term, leader);
+  }
+
+  @Override
+  public boolean equals(Object object) {
+    if (object instanceof TimeoutNowRequest) {
+      TimeoutNowRequest request = (TimeoutNowRequest) object;
+      return request.term == term
+        && request.leader == leader;
+    }
+    return false;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s[term=%d, leader=%s]", getClass().getSimpleName(), term, leader);
+  }
+
+  /**
+   * Timeout now request builder.
+   */
+  public static class Builder extends AbstractRequest.Builder<Builder, TimeoutNowRequest> {
+    protected Builder(TimeoutNowRequest request) {
+      super(request);
+    }
+
+    /**
+     * Sets the request term.
+     *
+     * @param term The request term.
+     * @return The timeout now request builder.
+     * @throws IllegalArgumentException if {@code term} is negative
+     */
+    public Builder withTerm(long term) {
+      request.term = Assert.argNot(term, term < 0, "term must not be negative");
+      return this;
+    }
+
+    /**
+     * Sets the request leader.
+     *
+     * @param leader The request leader.
+     * @return The timeout now request builder.
+     */
+    public Builder withLeader(int leader) {
+      request.leader = leader;
+      return this;
+    }
+
+    /**
+     * @throws IllegalStateException if {@code term} is negative
+     */
+    @Override
+    public TimeoutNowRequest build() {
+      super.build();
+      Assert.stateNot(request.term < 0, "term must not be negative");
+      return request;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(request);
+    }
+
+    @Override
+    public boolean equals(Object object) {
+      return object instanceof Builder && ((Builder) object).request.equals(request);
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%s[request=%s]", getClass().getCanonicalName(), request);
+    }
+
+  }
+
+}
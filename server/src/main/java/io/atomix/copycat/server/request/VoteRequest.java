@@ -55,6 +55,7 @@ public class VoteRequest extends AbstractRequest<VoteRequest> {
   private int candidate;
   private long logIndex = -1;
   private long logTerm = -1;
+  private boolean transfer;
 
   /**
    * Returns the requesting node's current term.
@@ -92,12 +93,25 @@ public class VoteRequest extends AbstractRequest<VoteRequest> {
     return logTerm;
   }
 
+  /**
+   * Returns a boolean indicating whether the candidate is taking over leadership at the request of the leader.
+   * <p>
+   * Followers that still hold a lease for the current leader only vote for candidates that were asked by the
+   * leader to start an election.
+   *
+   * @return Indicates whether the election is a leadership transfer.
+   */
+  public boolean transfer() {
+    return transfer;
+  }
+
   @Override
   public void readObject(BufferInput<?> buffer, Serializer serializer) {
     term = buffer.readLong();
     candidate = buffer.readInt();
     logIndex = buffer.readLong();
     logTerm = buffer.readLong();
+    transfer = buffer.readBoolean();
   }
 
   @Override
@@ -105,12 +119,13 @@ public class VoteRequest extends AbstractRequest<VoteRequest> {
     buffer.writeLong(term)
       .writeInt(candidate)
       .writeLong(logIndex)
-      .writeLong(logTerm);
+      .writeLong(logTerm)
+      .writeBoolean(transfer);
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(getClass(), term, candidate, logIndex, logTerm);
+    return Objects.hash(getClass(), term, candidate, logIndex, logTerm, transfer);
   }
 
   @Override
@@ -120,14 +135,15 @@ public class VoteRequest extends AbstractRequest<VoteRequest> {
       return request.term == term
         && request.candidate == candidate
         && request.logIndex == logIndex
-        && request.logTerm == logTerm;
+        && request.logTerm == logTerm
+        && request.transfer == transfer;
     }
     return false;
   }
 
   @Override
   public String toString() {
-    return String.format("%s[term=%d, candidate=%s, logIndex=%d, logTerm=%d]", getClass().getSimpleName(), term, candidate, logIndex, logTerm);
+    return String.format("%s[term=%d, candidate=%s, logIndex=%d, logTerm=%d, transfer=%b]", getClass().getSimpleName(), term, candidate, logIndex, logTerm, transfer);
   }
 
   /**
@@ -186,6 +202,17 @@ public class VoteRequest extends AbstractRequest<VoteRequest> {
       return this;
     }
 
+    /**
+     * Sets whether the election is a leadership transfer.
+     *
+     * @param transfer Whether the candidate was asked by the leader to start the election.
+     * @return The vote request builder.
+     */
+    public Builder withTransfer(boolean transfer) {
+      request.transfer = transfer;
+      return this;
+    }
+
     /**
      * @throws IllegalStateException if candidate is not positive or if term, logIndex or logTerm are negative
      */
@@ -56,6 +56,8 @@ public class AppendResponse extends AbstractResponse<AppendResponse> {
   private long term;
   private boolean succeeded;
   private long logIndex;
+  private long conflictTerm;
+  private long conflictIndex;
 
   /**
    * Returns the requesting node's current term.
@@ -84,6 +86,28 @@ public class AppendResponse extends AbstractResponse<AppendResponse> {
     return logIndex;
   }
 
+  /**
+   * Returns the term of the replica's entry that conflicted with the request's previous entry.
+   * <p>
+   * If the request was rejected because the replica's entry at the request's previous index has a different term,
+   * the conflicting term allows the leader to skip all entries in that term rather than backtracking one entry at
+   * a time.
+   *
+   * @return The term of the conflicting entry or {@code 0} if the term of the conflicting entry is unknown.
+   */
+  public long conflictTerm() {
+    return conflictTerm;
+  }
+
+  /**
+   * Returns the first index of the conflicting term in the replica's log.
+   *
+   * @return The first index of the conflicting term or {@code 0} if the term of the conflicting entry is unknown.
+   */
+  public long conflictIndex() {
+    return conflictIndex;
+  }
+
   @Override
   public void readObject(BufferInput buffer, Serializer serializer) {
     status = Status.forId(buffer.readByte());
@@ -92,6 +116,8 @@ public class AppendResponse extends AbstractResponse<AppendResponse> {
       term = buffer.readLong();
       succeeded = buffer.readBoolean();
       logIndex = buffer.readLong();
+      conflictTerm = buffer.readLong();
+      conflictIndex = buffer.readLong();
     } else {
       error = RaftError.forId(buffer.readByte());
     }
@@ -103,7 +129,9 @@ public class AppendResponse extends AbstractResponse<AppendResponse> {
     if (status == Response.Status.OK) {
       buffer.writeLong(term)
         .writeBoolean(succeeded)
-        .writeLong(logIndex);
+        .writeLong(logIndex)
+        .writeLong(conflictTerm)
+        .writeLong(conflictIndex);
     } else {
       buffer.writeByte(error.id());
     }
@@ -111,7 +139,7 @@ public class AppendResponse extends AbstractResponse<AppendResponse> {
 
   @Override
   public int hashCode() {
-    return Objects.hash(getClass(), status, term, succeeded, logIndex);
+    return Objects.hash(getClass(), status, term, succeeded, logIndex, conflictTerm, conflictIndex);
   }
 
   @Override
@@ -121,14 +149,16 @@ public class AppendResponse extends AbstractResponse<AppendResponse> {
       return response.status == status
         && response.term == term
         && response.succeeded == succeeded
-        && response.logIndex == logIndex;
+        && response.logIndex == logIndex
+        && response.conflictTerm == conflictTerm
+        && response.conflictIndex == conflictIndex;
     }
     return false;
   }
 
   @Override
   public String toString() {
-    return String.format("%s[status=%s, term=%d, succeeded=%b, logIndex=%d]", getClass().getSimpleName(), status, term, succeeded, logIndex);
+    return String.format("%s[status=%s, term=%d, succeeded=%b, logIndex=%d, conflictTerm=%d, conflictIndex=%d]", getClass().getSimpleName(), status, term, succeeded, logIndex, conflictTerm, conflictIndex);
   }
 
   /**
@@ -174,6 +204,30 @@ public class AppendResponse extends AbstractResponse<AppendResponse> {
       return this;
     }
 
+    /**
+     * Sets the term of the replica's entry that conflicted with the request's previous entry.
+     *
+     * @param term The term of the conflicting entry.
+     * @return The append response builder.
+     * @throws IllegalArgumentException if {@code term} is negative
+     */
+    public Builder withConflictTerm(long term) {
+      response.conflictTerm = Assert.argNot(term, term < 0, "conflictTerm must not be negative");
+      return this;
+    }
+
+    /**
+     * Sets the first index of the conflicting term in the replica's log.
+     *
+     * @param index The first index of the conflicting term.
+     * @return The append response builder.
+     * @throws IllegalArgumentException if {@code index} is negative
+     */
+    public Builder withConflictIndex(long index) {
+      response.conflictIndex = Assert.argNot(index, index < 0, "conflictIndex must not be negative");
+      return this;
+    }
+
     /**
      * @throws IllegalStateException if status is ok and term is not positive or log index is negative
      */
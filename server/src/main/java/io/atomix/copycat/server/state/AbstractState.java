@@ -103,6 +103,11 @@ abstract class AbstractState implements Managed<AbstractState> {
    */
   protected abstract CompletableFuture<KeepAliveResponse> keepAlive(KeepAliveRequest request);
 
+  /**
+   * Handles a batch keep alive request.
+   */
+  protected abstract CompletableFuture<BatchKeepAliveResponse> batchKeepAlive(BatchKeepAliveRequest request);
+
   /**
    * Handles an unregister request.
    */
@@ -138,6 +143,11 @@ abstract class AbstractState implements Managed<AbstractState> {
    */
   protected abstract CompletableFuture<VoteResponse> vote(VoteRequest request);
 
+  /**
+   * Handles a timeout now request.
+   */
+  protected abstract CompletableFuture<TimeoutNowResponse> timeoutNow(TimeoutNowRequest request);
+
   /**
    * Handles a command request.
    */
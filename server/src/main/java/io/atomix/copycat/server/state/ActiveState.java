@@ -26,11 +26,12 @@ import io.atomix.copycat.server.CopycatServer;
 import io.atomix.copycat.server.RaftServer;
 import io.atomix.copycat.server.request.AppendRequest;
 import io.atomix.copycat.server.request.PollRequest;
+import io.atomix.copycat.server.request.TimeoutNowRequest;
 import io.atomix.copycat.server.request.VoteRequest;
 import io.atomix.copycat.server.response.AppendResponse;
 import io.atomix.copycat.server.response.PollResponse;
+import io.atomix.copycat.server.response.TimeoutNowResponse;
 import io.atomix.copycat.server.response.VoteResponse;
-import io.atomix.copycat.server.storage.entry.Entry;
 import io.atomix.copycat.server.storage.entry.QueryEntry;
 
 import java.util.concurrent.CompletableFuture;
@@ -184,6 +185,19 @@ abstract class ActiveState extends PassiveState {
     }
   }
 
+  @Override
+  protected CompletableFuture<TimeoutNowResponse> timeoutNow(TimeoutNowRequest request) {
+    context.checkThread();
+    logRequest(request);
+
+    // Only followers of the requesting leader can take over leadership.
+    return CompletableFuture.completedFuture(logResponse(TimeoutNowResponse.builder()
+      .withStatus(Response.Status.OK)
+      .withTerm(context.getTerm())
+      .withAccepted(false)
+      .build()));
+  }
+
   /**
    * Returns a boolean value indicating whether the given candidate's log is up-to-date.
    */
@@ -193,30 +207,26 @@ abstract class ActiveState extends PassiveState {
       LOGGER.debug("{} - Accepted {}: candidate's log is up-to-date", context.getAddress(), request);
       return true;
     } else {
-      // Otherwise, load the last entry in the log. The last entry should be
+      // Otherwise, get the term of the last entry in the log. The last entry should be
       // at least as up to date as the candidates entry and term.
       long lastIndex = context.getLog().lastIndex();
-      Entry entry = context.getLog().get(lastIndex);
-      if (entry == null) {
+      long lastTerm = context.getLog().term(lastIndex);
+      if (lastTerm == 0) {
         LOGGER.debug("{} - Accepted {}: candidate's log is up-to-date", context.getAddress(), request);
         return true;
       }
 
-      try {
-        if (index != 0 && index >= lastIndex) {
-          if (term >= entry.getTerm()) {
-            LOGGER.debug("{} - Accepted {}: candidate's log is up-to-date", context.getAddress(), request);
-            return true;
-          } else {
-            LOGGER.debug("{} - Rejected {}: candidate's last log term ({}) is in conflict with local log ({})", context.getAddress(), request, term, entry.getTerm());
-            return false;
-          }
+      if (index != 0 && index >= lastIndex) {
+        if (term >= lastTerm) {
+          LOGGER.debug("{} - Accepted {}: candidate's log is up-to-date", context.getAddress(), request);
+          return true;
         } else {
-          LOGGER.debug("{} - Rejected {}: candidate's last log entry ({}) is at a lower index than the local log ({})", context.getAddress(), request, index, lastIndex);
+          LOGGER.debug("{} - Rejected {}: candidate's last log term ({}) is in conflict with local log ({})", context.getAddress(), request, term, lastTerm);
           return false;
         }
-      } finally {
-        entry.close();
+      } else {
+        LOGGER.debug("{} - Rejected {}: candidate's last log entry ({}) is at a lower index than the local log ({})", context.getAddress(), request, index, lastIndex);
+        return false;
       }
     }
   }
@@ -23,7 +23,6 @@ import io.atomix.copycat.server.request.AppendRequest;
 import io.atomix.copycat.server.request.VoteRequest;
 import io.atomix.copycat.server.response.AppendResponse;
 import io.atomix.copycat.server.response.VoteResponse;
-import io.atomix.copycat.server.storage.entry.Entry;
 import io.atomix.copycat.server.util.Quorum;
 
 import java.time.Duration;
@@ -62,13 +61,13 @@ final class CandidateState extends ActiveState {
    */
   void startElection() {
     LOGGER.info("{} - Starting election", context.getAddress());
-    sendVoteRequests();
+    sendVoteRequests(context.isTransferring());
   }
 
   /**
    * Resets the election timer.
    */
-  private void sendVoteRequests() {
+  private void sendVoteRequests(boolean transfer) {
     context.checkThread();
 
     // Because of asynchronous execution, the candidate state could have already been closed. In that case,
@@ -83,6 +82,7 @@ final class CandidateState extends ActiveState {
     // When the election timer is reset, increment the current term and
     // restart the election.
     context.setTerm(context.getTerm() + 1).setLastVotedFor(context.getAddress().hashCode());
+    context.getMetrics().recordElection();
 
     Duration delay = context.getElectionTimeout().plus(Duration.ofMillis(random.nextInt((int) context.getElectionTimeout().toMillis())));
     currentTimer = context.getThreadContext().schedule(delay, () -> {
@@ -93,7 +93,8 @@ final class CandidateState extends ActiveState {
         quorum.cancel();
         quorum = null;
       }
-      sendVoteRequests();
+      // Only the first round of an election started at the request of the leader is exempt from leader leases.
+      sendVoteRequests(false);
       LOGGER.debug("{} - Restarted election", context.getAddress());
     });
 
@@ -120,18 +121,9 @@ final class CandidateState extends ActiveState {
       }
     });
 
-    // First, load the last log entry to get its term. We load the entry
-    // by its index since the index is required by the protocol.
+    // First, get the last log index and term. The index is required by the protocol.
     long lastIndex = context.getLog().lastIndex();
-    Entry lastEntry = lastIndex != 0 ? context.getLog().get(lastIndex) : null;
-
-    final long lastTerm;
-    if (lastEntry != null) {
-      lastTerm = lastEntry.getTerm();
-      lastEntry.close();
-    } else {
-      lastTerm = 0;
-    }
+    long lastTerm = lastIndex != 0 ? context.getLog().term(lastIndex) : 0;
 
     LOGGER.info("{} - Requesting votes from {}", context.getAddress(), votingMembers);
 
@@ -144,6 +136,7 @@ final class CandidateState extends ActiveState {
         .withCandidate(context.getAddress().hashCode())
         .withLogIndex(lastIndex)
         .withLogTerm(lastTerm)
+        .withTransfer(transfer)
         .build();
 
       context.getConnections().getConnection(member.getAddress()).thenAccept(connection -> {
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.copycat.server.state;
+
+import io.atomix.catalyst.transport.Address;
+import io.atomix.copycat.client.response.Response;
+import io.atomix.copycat.server.request.AppendRequest;
+import io.atomix.copycat.server.response.AppendResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Replicates committed entries from a follower to passive members assigned to it by the leader.
+ * <p>
+ * The leader assigns passive members that are far behind to up-to-date followers so that catching up new
+ * members doesn't load the leader. Only committed entries are replicated, so entries sent by the follower
+ * never conflict with entries sent by the leader, and the leader resumes replication once the member has
+ * caught up to the uncommitted tail of the log.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+final class CatchUpReplicator {
+  private static final Logger LOGGER = LoggerFactory.getLogger(CatchUpReplicator.class);
+  private final ServerState context;
+  private final Map<Integer, Long> nextIndexes = new HashMap<>();
+  private final Set<Integer> replicating = new HashSet<>();
+  private final Map<Integer, EntryBatch> batches = new HashMap<>();
+  private boolean open = true;
+
+  CatchUpReplicator(ServerState context) {
+    this.context = context;
+  }
+
+  /**
+   * Returns a boolean indicating whether any passive members are assigned to this server.
+   */
+  boolean hasMembers() {
+    return !nextIndexes.isEmpty();
+  }
+
+  /**
+   * Updates the passive members to which committed entries are replicated.
+   * <p>
+   * Members that are no longer assigned to this server are dropped, and replication is resumed for all
+   * assigned members that are behind the local commit index.
+   *
+   * @param members The identifiers of the passive members assigned to this server.
+   */
+  void replicate(Collection<Integer> members) {
+    context.checkThread();
+    nextIndexes.keySet().retainAll(members);
+    batches.keySet().retainAll(members);
+    for (int member : members) {
+      nextIndexes.putIfAbsent(member, 0L);
+      replicate(member);
+    }
+  }
+
+  /**
+   * Sends the next batch of committed entries to the given member.
+   */
+  private void replicate(int id) {
+    Long nextIndex = nextIndexes.get(id);
+    MemberState member = context.getCluster().getMember(id);
+    Address leader = context.getLeader();
+    if (!open || replicating.contains(id) || nextIndex == null || member == null || leader == null) {
+      return;
+    }
+
+    AppendRequest.Builder builder = AppendRequest.builder()
+      .withTerm(context.getTerm())
+      .withLeader(leader.hashCode())
+      .withGlobalIndex(context.getGlobalIndex());
+
+    // If the member's log is unknown, send an empty request to determine the member's last index.
+    if (nextIndex == 0) {
+      builder.withLogIndex(0)
+        .withLogTerm(0)
+        .withCommitIndex(0);
+    } else {
+      long commitIndex = Math.min(context.getCommitIndex(), context.getLog().lastIndex());
+      if (nextIndex > commitIndex) {
+        return;
+      }
+
+      long prevIndex = nextIndex - 1;
+      builder.withLogIndex(prevIndex)
+        .withLogTerm(prevIndex > 0 ? context.getLog().term(prevIndex) : 0);
+
+      // Only the entries verified by this request may be committed by the member.
+      long index = prevIndex != 0 ? nextIndex : context.getLog().firstIndex();
+      EntryBatch batch = batches.computeIfAbsent(id, i -> new EntryBatch());
+      builder.withCommitIndex(batch.build(context.getLog(), builder, index, commitIndex, EntryBatch.MAX_SIZE).nextIndex() - 1);
+    }
+
+    AppendRequest request = builder.build();
+    replicating.add(id);
+    LOGGER.debug("{} - Sent {} to {}", context.getAddress(), request, member.getAddress());
+    context.getConnections().getConnection(member.getAddress())
+      .thenCompose(connection -> connection.<AppendRequest, AppendResponse>send(request))
+      .whenComplete((response, error) -> {
+        context.checkThread();
+        replicating.remove(id);
+        if (!open || !nextIndexes.containsKey(id)) {
+          return;
+        }
+
+        if (error == null && response.status() == Response.Status.OK && response.term() <= context.getTerm()) {
+          LOGGER.debug("{} - Received {} from {}", context.getAddress(), response, member.getAddress());
+
+          // Continue replicating to the member only if progress was made. Otherwise, wait for the leader
+          // to reassign the member before trying again.
+          long next = Math.max(response.logIndex() + 1, 1);
+          nextIndexes.put(id, next);
+          if (next != nextIndex) {
+            replicate(id);
+          }
+        } else if (error != null) {
+          LOGGER.debug("{} - Failed to replicate to {}: {}", context.getAddress(), member.getAddress(), error.getMessage());
+        }
+      });
+  }
+
+  /**
+   * Stops replicating to all members.
+   */
+  void close() {
+    open = false;
+    nextIndexes.clear();
+    batches.clear();
+  }
+
+}
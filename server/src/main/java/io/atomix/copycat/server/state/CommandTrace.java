@@ -0,0 +1,119 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.copycat.server.state;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * High-resolution timestamps for the stages a single command passes through on the leader.
+ * <p>
+ * Traces are created by the {@link CommandTracer} for sampled commands only. Commands that aren't sampled are
+ * given the shared {@link #NONE} trace, for which recording stages is a no-op, so callers never need to check
+ * whether a command is being traced. A trace is written by the server and state machine threads in turn, with
+ * each thread hand-off providing the necessary happens-before relationship.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+final class CommandTrace {
+
+  /**
+   * Command pipeline stages, in the order in which they occur.
+   */
+  enum Stage {
+    RECEIVED,
+    APPENDED,
+    FLUSHED,
+    COMMITTED,
+    DISPATCHED,
+    EXECUTED,
+    EVENTS_COMMITTED,
+    RESPONDED
+  }
+
+  static final Stage[] STAGES = Stage.values();
+
+  /**
+   * Trace for commands that are not sampled.
+   */
+  static final CommandTrace NONE = new CommandTrace(null);
+
+  private final long[] timestamps;
+  private long index;
+
+  CommandTrace() {
+    this(new long[STAGES.length]);
+  }
+
+  private CommandTrace(long[] timestamps) {
+    this.timestamps = timestamps;
+  }
+
+  /**
+   * Returns a boolean indicating whether the command is being traced.
+   */
+  boolean isSampled() {
+    return timestamps != null;
+  }
+
+  /**
+   * Records the current time for the given stage.
+   */
+  CommandTrace record(Stage stage) {
+    if (timestamps != null) {
+      timestamps[stage.ordinal()] = System.nanoTime();
+    }
+    return this;
+  }
+
+  /**
+   * Sets the index of the traced command.
+   */
+  CommandTrace setIndex(long index) {
+    this.index = index;
+    return this;
+  }
+
+  /**
+   * Returns the index of the traced command.
+   */
+  long getIndex() {
+    return index;
+  }
+
+  /**
+   * Returns the time at which the given stage was recorded, or {@code 0} if the stage was not recorded.
+   */
+  long timestamp(Stage stage) {
+    return timestamps != null ? timestamps[stage.ordinal()] : 0;
+  }
+
+  @Override
+  public String toString() {
+    if (timestamps == null)
+      return getClass().getSimpleName() + "[none]";
+
+    StringBuilder builder = new StringBuilder(getClass().getSimpleName()).append("[index=").append(index);
+    long start = timestamps[Stage.RECEIVED.ordinal()];
+    for (Stage stage : STAGES) {
+      long timestamp = timestamps[stage.ordinal()];
+      if (timestamp != 0) {
+        builder.append(", ").append(stage).append("=+").append(TimeUnit.NANOSECONDS.toMicros(timestamp - start)).append("us");
+      }
+    }
+    return builder.append("]").toString();
+  }
+
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.copycat.server.state;
+
+import io.atomix.catalyst.util.Assert;
+import io.atomix.copycat.server.util.LatencyHistogram;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Samples commands and aggregates their {@link CommandTrace traces}.
+ * <p>
+ * For each sampled command, the time spent in each {@link CommandTrace.Stage stage} is measured from the previous
+ * recorded stage and added to a per-stage histogram. Stages that a command skipped are not recorded, so their time
+ * is attributed to the next recorded stage. The leader's flush overlaps replication and may complete after the command
+ * is committed, so the {@link CommandTrace.Stage#FLUSHED flushed} stage is measured from the
+ * {@link CommandTrace.Stage#APPENDED appended} stage and does not take part in the chain. Completed traces are also kept in a fixed size ring buffer from which the
+ * most recent traces can be dumped on demand. Sampling is disabled by default.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+final class CommandTracer {
+  private static final int CAPACITY = 1024;
+  private final LatencyHistogram[] stages = new LatencyHistogram[CommandTrace.STAGES.length];
+  private final AtomicReferenceArray<CommandTrace> traces = new AtomicReferenceArray<>(CAPACITY);
+  private final AtomicLong cursor = new AtomicLong();
+  private volatile double sampleRate;
+
+  CommandTracer() {
+    for (int i = 0; i < stages.length; i++) {
+      stages[i] = new LatencyHistogram();
+    }
+  }
+
+  /**
+   * Sets the fraction of commands to trace.
+   */
+  CommandTracer setSampleRate(double sampleRate) {
+    Assert.arg(sampleRate >= 0 && sampleRate <= 1, "sample rate must be between 0 and 1");
+    this.sampleRate = sampleRate;
+    return this;
+  }
+
+  /**
+   * Returns the fraction of commands to trace.
+   */
+  double getSampleRate() {
+    return sampleRate;
+  }
+
+  /**
+   * Starts a trace for a received command.
+   *
+   * @return A new trace if the command is sampled, otherwise {@link CommandTrace#NONE}.
+   */
+  CommandTrace start() {
+    double sampleRate = this.sampleRate;
+    if (sampleRate == 0 || (sampleRate < 1 && ThreadLocalRandom.current().nextDouble() >= sampleRate)) {
+      return CommandTrace.NONE;
+    }
+    return new CommandTrace().record(CommandTrace.Stage.RECEIVED);
+  }
+
+  /**
+   * Completes a trace once the command's response has been sent.
+   */
+  void complete(CommandTrace trace) {
+    if (!trace.isSampled())
+      return;
+
+    trace.record(CommandTrace.Stage.RESPONDED);
+    long previous = trace.timestamp(CommandTrace.Stage.RECEIVED);
+    for (int i = 1; i < stages.length; i++) {
+      CommandTrace.Stage stage = CommandTrace.STAGES[i];
+      long timestamp = trace.timestamp(stage);
+      if (timestamp != 0) {
+        if (stage == CommandTrace.Stage.FLUSHED) {
+          long appended = trace.timestamp(CommandTrace.Stage.APPENDED);
+          if (appended != 0) {
+            stages[i].record(timestamp - appended);
+          }
+        } else {
+          stages[i].record(timestamp - previous);
+          previous = timestamp;
+        }
+      }
+    }
+    traces.set((int) (cursor.getAndIncrement() % CAPACITY), trace);
+  }
+
+  /**
+   * Returns the given percentile of the time spent in each stage in microseconds.
+   */
+  Map<String, Long> percentile(double percentile) {
+    Map<String, Long> percentiles = new LinkedHashMap<>();
+    for (int i = 1; i < stages.length; i++) {
+      percentiles.put(CommandTrace.STAGES[i].name(), TimeUnit.NANOSECONDS.toMicros(stages[i].percentile(percentile)));
+    }
+    return percentiles;
+  }
+
+  /**
+   * Returns the most recently completed traces, most recent first.
+   */
+  List<String> dump() {
+    long end = cursor.get();
+    long start = Math.max(end - CAPACITY, 0);
+    List<String> dump = new ArrayList<>((int) (end - start));
+    for (long i = end - 1; i >= start; i--) {
+      CommandTrace trace = traces.get((int) (i % CAPACITY));
+      if (trace != null) {
+        dump.add(trace.toString());
+      }
+    }
+    return dump;
+  }
+
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.copycat.server.state;
+
+import io.atomix.catalyst.buffer.HeapBuffer;
+import io.atomix.copycat.server.request.AppendRequest;
+import io.atomix.copycat.server.storage.Log;
+import io.atomix.copycat.server.storage.entry.Entry;
+
+/**
+ * Batch of log entries replicated in an append request.
+ * <p>
+ * Batches are built by the leader when replicating to members and by followers when replicating committed entries
+ * to passive members catching up from them. Serialized entries copied from the log are referenced by the request
+ * rather than copied again, so a batch is reused only for requests to a single member, which has at most one
+ * request in flight.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+final class EntryBatch {
+  static final int MAX_SIZE = 1024 * 28;
+  private final HeapBuffer records = HeapBuffer.allocate();
+  private int size;
+  private long nextIndex;
+
+  /**
+   * Adds entries to the given request.
+   * <p>
+   * If the first entry is in a sealed segment, serialized entries are copied directly from the segment rather than
+   * deserializing them only to serialize them again in the request. Only committed entries are copied from segments.
+   * Otherwise, entries are read from the log up to {@code lastIndex}. Entries in the log may be null if they've been
+   * compacted and the member to which entries are sent is just joining the cluster or is otherwise far behind. Null
+   * entries are simply skipped and not counted towards the size of the batch. The first entry is always added once
+   * the full batch size is available, even if it exceeds the batch size, so that a single large entry cannot stall
+   * replication.
+   *
+   * @param log The log from which to read entries.
+   * @param builder The request builder to which to add entries.
+   * @param index The index of the first entry to add.
+   * @param lastIndex The index of the last entry that may be added.
+   * @param maxSize The maximum number of entry bytes to add.
+   * @return The batch.
+   */
+  EntryBatch build(Log log, AppendRequest.Builder builder, long index, long lastIndex, long maxSize) {
+    size = 0;
+    nextIndex = index;
+    if (log.isEmpty()) {
+      return this;
+    }
+
+    int count = log.copyTo(index, maxSize, records.clear());
+    if (count > 0) {
+      size = (int) records.position();
+      builder.withRecords(count, records.array(), size);
+
+      // Entries that have been cleaned from the segment are skipped, so at least count entries were read.
+      nextIndex = index + count;
+      return this;
+    }
+
+    while (nextIndex <= lastIndex) {
+      Entry entry = log.get(nextIndex);
+      if (entry != null) {
+        if (size + entry.size() > maxSize && (size > 0 || maxSize < MAX_SIZE)) {
+          break;
+        }
+        size += entry.size();
+        builder.addEntry(entry);
+      }
+      nextIndex++;
+    }
+    return this;
+  }
+
+  /**
+   * Returns the number of entry bytes in the batch.
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * Returns the index following the last entry in the batch.
+   * <p>
+   * Entries copied from a sealed segment may skip cleaned entries, in which case the returned index is a lower
+   * bound on the index following the last copied entry.
+   */
+  long nextIndex() {
+    return nextIndex;
+  }
+
+}
@@ -15,6 +15,7 @@
  */
 package io.atomix.copycat.server.state;
 
+import io.atomix.catalyst.transport.Address;
 import io.atomix.catalyst.transport.Connection;
 import io.atomix.catalyst.util.concurrent.Scheduled;
 import io.atomix.copycat.client.error.RaftError;
@@ -24,16 +25,18 @@ import io.atomix.copycat.server.CopycatServer;
 import io.atomix.copycat.server.request.AcceptRequest;
 import io.atomix.copycat.server.request.AppendRequest;
 import io.atomix.copycat.server.request.PollRequest;
+import io.atomix.copycat.server.request.TimeoutNowRequest;
 import io.atomix.copycat.server.request.VoteRequest;
 import io.atomix.copycat.server.response.AcceptResponse;
 import io.atomix.copycat.server.response.AppendResponse;
 import io.atomix.copycat.server.response.PollResponse;
+import io.atomix.copycat.server.response.TimeoutNowResponse;
 import io.atomix.copycat.server.response.VoteResponse;
-import io.atomix.copycat.server.storage.entry.Entry;
 import io.atomix.copycat.server.util.Quorum;
 
 import java.time.Duration;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Random;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
@@ -46,7 +49,10 @@ import java.util.concurrent.atomic.AtomicBoolean;
  */
 final class FollowerState extends ActiveState {
   private final Random random = new Random();
+  private final CatchUpReplicator catchUp = new CatchUpReplicator(context);
   private Scheduled heartbeatTimer;
+  private long heartbeatTime;
+  private boolean heartbeatReceived;
 
   public FollowerState(ServerState context) {
     super(context);
@@ -112,7 +118,27 @@ final class FollowerState extends ActiveState {
         .withError(RaftError.Type.NO_LEADER_ERROR)
         .build()));
     } else {
-      return this.<KeepAliveRequest, KeepAliveResponse>forward(request).thenApply(this::logResponse);
+      // Rather than proxying the keep alive through this server, redirect the client to the leader.
+      return CompletableFuture.completedFuture(logResponse(KeepAliveResponse.builder()
+        .withStatus(Response.Status.ERROR)
+        .withError(RaftError.Type.ILLEGAL_MEMBER_STATE_ERROR)
+        .withLeader(context.getLeader())
+        .build()));
+    }
+  }
+
+  @Override
+  protected CompletableFuture<BatchKeepAliveResponse> batchKeepAlive(BatchKeepAliveRequest request) {
+    context.checkThread();
+    logRequest(request);
+
+    if (context.getLeader() == null) {
+      return CompletableFuture.completedFuture(logResponse(BatchKeepAliveResponse.builder()
+        .withStatus(Response.Status.ERROR)
+        .withError(RaftError.Type.NO_LEADER_ERROR)
+        .build()));
+    } else {
+      return this.<BatchKeepAliveRequest, BatchKeepAliveResponse>forward(request).thenApply(this::logResponse);
     }
   }
 
@@ -218,18 +244,9 @@ final class FollowerState extends ActiveState {
       }
     });
 
-    // First, load the last log entry to get its term. We load the entry
-    // by its index since the index is required by the protocol.
+    // First, get the last log index and term. The index is required by the protocol.
     long lastIndex = context.getLog().lastIndex();
-    Entry lastEntry = lastIndex > 0 ? context.getLog().get(lastIndex) : null;
-
-    final long lastTerm;
-    if (lastEntry != null) {
-      lastTerm = lastEntry.getTerm();
-      lastEntry.close();
-    } else {
-      lastTerm = 0;
-    }
+    long lastTerm = lastIndex > 0 ? context.getLog().term(lastIndex) : 0;
 
     LOGGER.info("{} - Polling members {}", context.getAddress(), votingMembers);
 
@@ -274,12 +291,101 @@ final class FollowerState extends ActiveState {
 
   @Override
   public CompletableFuture<AppendResponse> append(AppendRequest request) {
+    // Record the monotonic time at which a request from the current leader was received. The leader's
+    // lease is measured from the time the request was sent, so the leader's lease always expires first.
+    if (request.term() >= context.getTerm()) {
+      heartbeatTime = System.nanoTime();
+      heartbeatReceived = true;
+    }
     resetHeartbeatTimeout();
     CompletableFuture<AppendResponse> response = super.append(request);
     resetHeartbeatTimeout();
+
+    // Replicate committed entries to any passive members the leader assigned to this follower. Replication is
+    // resumed after the request's commits have been applied so that the latest commit index is replicated.
+    // Most followers are never assigned members, so skip scheduling replication unless there's work to do.
+    List<Integer> members = request.catchUpMembers();
+    if (request.term() == context.getTerm() && (!members.isEmpty() || catchUp.hasMembers())) {
+      context.getThreadContext().execute(() -> {
+        if (isOpen()) {
+          catchUp.replicate(members);
+        }
+      });
+    }
     return response;
   }
 
+  /**
+   * Returns a boolean indicating whether this follower has heard from a leader within an election timeout.
+   * <p>
+   * While the leader is known to be alive, the follower rejects poll and vote requests without updating its term.
+   * This is the follower's half of the leader lease: a majority of the cluster promises not to elect a new leader
+   * until an election timeout after the last {@link AppendRequest} was received from the current leader.
+   */
+  private boolean isLeaderLeased() {
+    return context.getLeader() != null && heartbeatReceived && System.nanoTime() - heartbeatTime < context.getElectionTimeout().toNanos();
+  }
+
+  @Override
+  protected CompletableFuture<PollResponse> poll(PollRequest request) {
+    context.checkThread();
+    if (isLeaderLeased()) {
+      LOGGER.debug("{} - Rejected {}: leader {} is still leased", context.getAddress(), logRequest(request), context.getLeader());
+      return CompletableFuture.completedFuture(logResponse(PollResponse.builder()
+        .withStatus(Response.Status.OK)
+        .withTerm(context.getTerm())
+        .withAccepted(false)
+        .build()));
+    }
+    return super.poll(request);
+  }
+
+  @Override
+  protected CompletableFuture<VoteResponse> vote(VoteRequest request) {
+    context.checkThread();
+
+    // Candidates taking over leadership at the request of the leader are exempt from the lease since the leader
+    // stops serving leased reads before it asks a follower to start an election.
+    if (!request.transfer() && isLeaderLeased()) {
+      LOGGER.debug("{} - Rejected {}: leader {} is still leased", context.getAddress(), logRequest(request), context.getLeader());
+      return CompletableFuture.completedFuture(logResponse(VoteResponse.builder()
+        .withStatus(Response.Status.OK)
+        .withTerm(context.getTerm())
+        .withVoted(false)
+        .build()));
+    }
+    return super.vote(request);
+  }
+
+  @Override
+  protected CompletableFuture<TimeoutNowResponse> timeoutNow(TimeoutNowRequest request) {
+    context.checkThread();
+    logRequest(request);
+
+    // Only start an election if the request was sent by the leader for the current term. The leader sends the
+    // request once this follower's log is up to date, so the follower can win the election immediately.
+    Address leader = context.getLeader();
+    if (request.term() != context.getTerm() || leader == null || leader.hashCode() != request.leader()) {
+      LOGGER.debug("{} - Rejected {}: request is not from the current leader", context.getAddress(), request);
+      return CompletableFuture.completedFuture(logResponse(TimeoutNowResponse.builder()
+        .withStatus(Response.Status.OK)
+        .withTerm(context.getTerm())
+        .withAccepted(false)
+        .build()));
+    }
+
+    CompletableFuture<TimeoutNowResponse> future = CompletableFuture.completedFuture(logResponse(TimeoutNowResponse.builder()
+      .withStatus(Response.Status.OK)
+      .withTerm(context.getTerm())
+      .withAccepted(true)
+      .build()));
+
+    LOGGER.info("{} - Taking over leadership from {}", context.getAddress(), leader);
+    context.setLeader(0);
+    context.transfer();
+    return future;
+  }
+
   @Override
   protected VoteResponse handleVote(VoteRequest request) {
     // Reset the heartbeat timeout if we voted for another candidate.
@@ -302,7 +408,10 @@ final class FollowerState extends ActiveState {
 
   @Override
   public synchronized CompletableFuture<Void> close() {
-    return super.close().thenRun(this::cancelHeartbeatTimeout);
+    return super.close().thenRun(() -> {
+      cancelHeartbeatTimeout();
+      catchUp.close();
+    });
   }
 
 }
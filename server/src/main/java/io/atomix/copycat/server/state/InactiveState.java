@@ -61,6 +61,11 @@ class InactiveState extends AbstractState {
     return Futures.exceptionalFuture(new IllegalStateException("inactive state"));
   }
 
+  @Override
+  protected CompletableFuture<BatchKeepAliveResponse> batchKeepAlive(BatchKeepAliveRequest request) {
+    return Futures.exceptionalFuture(new IllegalStateException("inactive state"));
+  }
+
   @Override
   protected CompletableFuture<UnregisterResponse> unregister(UnregisterRequest request) {
     return Futures.exceptionalFuture(new IllegalStateException("inactive state"));
@@ -96,6 +101,11 @@ class InactiveState extends AbstractState {
     return Futures.exceptionalFuture(new IllegalStateException("inactive state"));
   }
 
+  @Override
+  protected CompletableFuture<TimeoutNowResponse> timeoutNow(TimeoutNowRequest request) {
+    return Futures.exceptionalFuture(new IllegalStateException("inactive state"));
+  }
+
   @Override
   protected CompletableFuture<CommandResponse> command(CommandRequest request) {
     return Futures.exceptionalFuture(new IllegalStateException("inactive state"));
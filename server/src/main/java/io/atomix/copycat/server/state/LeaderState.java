@@ -18,12 +18,14 @@ package io.atomix.copycat.server.state;
 import io.atomix.catalyst.transport.Address;
 import io.atomix.catalyst.transport.Connection;
 import io.atomix.catalyst.util.concurrent.ComposableFuture;
+import io.atomix.catalyst.util.concurrent.Futures;
 import io.atomix.catalyst.util.concurrent.Scheduled;
 import io.atomix.copycat.client.Command;
 import io.atomix.copycat.client.Query;
 import io.atomix.copycat.client.error.InternalException;
 import io.atomix.copycat.client.error.RaftError;
 import io.atomix.copycat.client.error.RaftException;
+import io.atomix.copycat.client.error.UnknownSessionException;
 import io.atomix.copycat.client.request.*;
 import io.atomix.copycat.client.response.*;
 import io.atomix.copycat.server.CopycatServer;
@@ -34,6 +36,7 @@ import io.atomix.copycat.server.storage.entry.*;
 import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * Leader state.
@@ -41,12 +44,22 @@ import java.util.concurrent.CompletableFuture;
  * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
  */
 final class LeaderState extends ActiveState {
-  private static final int MAX_BATCH_SIZE = 1024 * 28;
+  private static final int MAX_BATCH_SIZE = EntryBatch.MAX_SIZE;
+  private static final int MAX_KEEP_ALIVE_BATCH_SIZE = 2048;
+  private static final int MAX_KEEP_ALIVE_BATCH_BYTES = MAX_BATCH_SIZE / 2;
+  private static final int CATCH_UP_THRESHOLD = 1024;
   private Scheduled currentTimer;
   private final Replicator replicator = new Replicator();
   private long leaderTime = System.currentTimeMillis();
   private long leaderIndex;
   private long configuring;
+  private final Map<Long, PendingKeepAlive> pendingKeepAlives = new LinkedHashMap<>();
+  private boolean keepAliveFlushing;
+  private MemberState transferMember;
+  private CompletableFuture<Void> transferFuture;
+  private Scheduled transferTimer;
+  private long transferIndex;
+  private boolean leaseRevoked;
 
   public LeaderState(ServerState context) {
     super(context);
@@ -143,18 +156,21 @@ final class LeaderState extends ActiveState {
     // in the cluster. This timer acts as a heartbeat to ensure this node remains
     // the leader.
     LOGGER.debug("{} - Starting heartbeat timer", context.getAddress());
-    currentTimer = context.getThreadContext().schedule(Duration.ZERO, context.getHeartbeatInterval(), this::heartbeatMembers);
+    heartbeatMembers();
   }
 
   /**
-   * Sends a heartbeat to all members of the cluster.
+   * Sends a heartbeat to each member of the cluster that has been idle for the heartbeat interval.
+   * <p>
+   * A member's heartbeat deadline is reset each time the member acknowledges any append request, so members
+   * receiving entries are not sent additional heartbeats. The timer is rescheduled for the earliest deadline.
    */
   private void heartbeatMembers() {
     context.checkThread();
     if (isOpen()) {
-      replicator.commit().whenComplete((result, error) -> {
-        context.getLog().compactor().minorIndex(context.getLastCompleted());
-      });
+      context.getLog().compactor().minorIndex(context.getLastCompleted());
+      long delay = replicator.heartbeat();
+      currentTimer = context.getThreadContext().schedule(Duration.ofMillis(delay), this::heartbeatMembers);
     }
   }
 
@@ -238,6 +254,7 @@ final class LeaderState extends ActiveState {
       // being logged and committed concurrently. This is an important safety property of Raft.
       configuring = index;
       context.getCluster().configure(entry.getIndex(), entry.getActive(), entry.getPassive());
+      replicator.updateLeaseTime();
     }
 
     CompletableFuture<JoinResponse> future = new CompletableFuture<>();
@@ -314,6 +331,7 @@ final class LeaderState extends ActiveState {
       // being logged and committed concurrently. This is an important safety property of Raft.
       configuring = index;
       context.getCluster().configure(entry.getIndex(), entry.getActive(), entry.getPassive());
+      replicator.updateLeaseTime();
     }
 
     CompletableFuture<LeaveResponse> future = new CompletableFuture<>();
@@ -388,7 +406,13 @@ final class LeaderState extends ActiveState {
   protected CompletableFuture<CommandResponse> command(final CommandRequest request) {
     context.checkThread();
     logRequest(request);
+    return command(request, context.getMetrics().tracer().start());
+  }
 
+  /**
+   * Handles a command request, recording the command's progress through the pipeline in the given trace.
+   */
+  private CompletableFuture<CommandResponse> command(final CommandRequest request, final CommandTrace trace) {
     // Get the client's server session. If the session doesn't exist, return an unknown session error.
     ServerSession session = context.getStateMachine().executor().context().sessions().getSession(request.session());
     if (session == null) {
@@ -398,6 +422,24 @@ final class LeaderState extends ActiveState {
         .build()));
     }
 
+    // If leadership is being transferred, reject the command without a leader so the client looks for the new leader.
+    // The command isn't rejected as overloaded since the leader isn't loaded and the client would shrink its window.
+    if (transferFuture != null) {
+      return CompletableFuture.completedFuture(logResponse(CommandResponse.builder()
+        .withStatus(Response.Status.ERROR)
+        .withError(RaftError.Type.NO_LEADER_ERROR)
+        .build()));
+    }
+
+    // If the leader has too many entries pending application, reject the command to signal the client to back off.
+    // The command is rejected before it's sequenced so the client can resubmit it with the same sequence number.
+    if (context.getLog().lastIndex() - context.getLastApplied() >= context.getMaxPendingEntries()) {
+      return CompletableFuture.completedFuture(logResponse(CommandResponse.builder()
+        .withStatus(Response.Status.ERROR)
+        .withError(RaftError.Type.OVERLOADED_ERROR)
+        .build()));
+    }
+
     ComposableFuture<CommandResponse> future = new ComposableFuture<>();
 
     Command command = request.command();
@@ -408,12 +450,13 @@ final class LeaderState extends ActiveState {
     // sequence number. In that case, it's likely that the command was submitted more than once to the
     // cluster, and the command will be deduplicated once applied to the state machine.
     if (request.sequence() > session.nextRequest()) {
-      session.registerRequest(request.sequence(), () -> command(request).whenComplete(future));
+      session.registerRequest(request.sequence(), () -> command(request, trace).whenComplete(future));
       return future;
     }
 
     final long term = context.getTerm();
     final long timestamp = System.currentTimeMillis();
+    final long startTime = System.nanoTime();
     final long index;
 
     // Create a CommandEntry and append it to the log.
@@ -426,15 +469,19 @@ final class LeaderState extends ActiveState {
       index = context.getLog().append(entry);
       LOGGER.debug("{} - Appended {} to log at index {}", context.getAddress(), entry, index);
     }
+    trace.setIndex(index).record(CommandTrace.Stage.APPENDED);
+    replicator.traceFlush(trace);
 
     replicator.commit(index).whenComplete((commitIndex, commitError) -> {
       context.checkThread();
       if (isOpen()) {
         if (commitError == null) {
+          context.getMetrics().recordCommit(System.nanoTime() - startTime);
+          trace.record(CommandTrace.Stage.COMMITTED);
           CommandEntry entry = context.getLog().get(index);
 
           LOGGER.debug("{} - Applying {}", context.getAddress(), entry);
-          context.getStateMachine().apply(entry, true).whenComplete((result, error) -> {
+          context.getStateMachine().apply(entry, true, trace).whenComplete((result, error) -> {
             if (isOpen()) {
               if (error == null) {
                 future.complete(logResponse(CommandResponse.builder()
@@ -455,6 +502,7 @@ final class LeaderState extends ActiveState {
                   .withError(RaftError.Type.INTERNAL_ERROR)
                   .build()));
               }
+              context.getMetrics().tracer().complete(trace);
               checkSessions();
             }
             entry.release();
@@ -520,16 +568,30 @@ final class LeaderState extends ActiveState {
 
   /**
    * Submits a query with lease bounded linearizable consistency.
+   * <p>
+   * If the leader's lease is still held, the query is applied locally without contacting followers.
+   * Otherwise, the query falls back to a linearizable heartbeat which will renew the lease for later queries.
+   * Once leadership has been offered to another member, followers no longer honor the lease and all queries
+   * fall back to linearizable heartbeats. If the transfer fails, the lease is only restored by requests sent
+   * after the failure.
    */
   private CompletableFuture<QueryResponse> submitQueryBoundedLinearizable(QueryEntry entry) {
-    long commitTime = replicator.commitTime();
-    if (System.currentTimeMillis() - commitTime < context.getElectionTimeout().toMillis()) {
+    if (isLeased()) {
       return submitQueryLocal(entry);
     } else {
       return submitQueryLinearizable(entry);
     }
   }
 
+  /**
+   * Returns a boolean indicating whether the leader's lease is currently held.
+   *
+   * @return Indicates whether queries can be served from the leader's lease.
+   */
+  boolean isLeased() {
+    return !leaseRevoked && replicator.isLeased();
+  }
+
   /**
    * Submits a query with strict linearizable consistency.
    */
@@ -723,63 +785,197 @@ final class LeaderState extends ActiveState {
 
   @Override
   protected CompletableFuture<KeepAliveResponse> keepAlive(KeepAliveRequest request) {
-    final long timestamp = System.currentTimeMillis();
-    final long index;
+    context.checkThread();
+    logRequest(request);
 
+    CompletableFuture<Void> keepAliveFuture = queueKeepAlive(request.session(), request.commandSequence(), request.eventVersion());
+    flushKeepAlives();
+
+    CompletableFuture<KeepAliveResponse> future = new CompletableFuture<>();
+    keepAliveFuture.whenComplete((result, error) -> {
+      if (isOpen()) {
+        if (error == null) {
+          future.complete(logResponse(KeepAliveResponse.builder()
+            .withStatus(Response.Status.OK)
+            .withLeader(context.getAddress())
+            .withMembers(context.getCluster().buildActiveMembers())
+            .build()));
+        } else if (error instanceof RaftException) {
+          future.complete(logResponse(KeepAliveResponse.builder()
+            .withStatus(Response.Status.ERROR)
+            .withLeader(context.getAddress())
+            .withError(((RaftException) error).getType())
+            .build()));
+        } else {
+          future.complete(logResponse(KeepAliveResponse.builder()
+            .withStatus(Response.Status.ERROR)
+            .withLeader(context.getAddress())
+            .withError(RaftError.Type.INTERNAL_ERROR)
+            .build()));
+        }
+      }
+    });
+    return future;
+  }
+
+  @Override
+  protected CompletableFuture<BatchKeepAliveResponse> batchKeepAlive(BatchKeepAliveRequest request) {
     context.checkThread();
     logRequest(request);
 
-    try (KeepAliveEntry entry = context.getLog().create(KeepAliveEntry.class)) {
+    long[] sessions = new long[request.size()];
+    CompletableFuture[] keepAliveFutures = new CompletableFuture[request.size()];
+    for (int i = 0; i < request.size(); i++) {
+      sessions[i] = request.session(i);
+      keepAliveFutures[i] = queueKeepAlive(request.session(i), request.commandSequence(i), request.eventVersion(i));
+    }
+    flushKeepAlives();
+
+    CompletableFuture<BatchKeepAliveResponse> future = new CompletableFuture<>();
+    CompletableFuture.allOf(keepAliveFutures).whenComplete((result, error) -> {
+      if (isOpen()) {
+        // Sessions that failed with an UnknownSessionException are reported individually. Any other
+        // failure indicates the batch could not be committed and fails the entire request.
+        long[] unknownSessions = new long[sessions.length];
+        int unknownCount = 0;
+        Throwable failure = null;
+        for (int i = 0; i < keepAliveFutures.length; i++) {
+          try {
+            keepAliveFutures[i].join();
+          } catch (CompletionException e) {
+            if (e.getCause() instanceof UnknownSessionException) {
+              unknownSessions[unknownCount++] = sessions[i];
+            } else {
+              failure = e.getCause();
+            }
+          }
+        }
+
+        if (failure == null) {
+          future.complete(logResponse(BatchKeepAliveResponse.builder()
+            .withStatus(Response.Status.OK)
+            .withLeader(context.getAddress())
+            .withMembers(context.getCluster().buildActiveMembers())
+            .withUnknownSessions(Arrays.copyOf(unknownSessions, unknownCount))
+            .build()));
+        } else if (failure instanceof RaftException) {
+          future.complete(logResponse(BatchKeepAliveResponse.builder()
+            .withStatus(Response.Status.ERROR)
+            .withLeader(context.getAddress())
+            .withError(((RaftException) failure).getType())
+            .build()));
+        } else {
+          future.complete(logResponse(BatchKeepAliveResponse.builder()
+            .withStatus(Response.Status.ERROR)
+            .withLeader(context.getAddress())
+            .withError(RaftError.Type.INTERNAL_ERROR)
+            .build()));
+        }
+      }
+    });
+    return future;
+  }
+
+  /**
+   * Queues a keep alive for the given session to be written in the next batch keep alive entry.
+   * <p>
+   * If a keep alive for the session is already queued, the keep alives are merged into a single
+   * entry in the batch using the highest command sequence and event version.
+   *
+   * @return A future to be completed once the keep alive has been committed and applied.
+   */
+  private CompletableFuture<Void> queueKeepAlive(long session, long commandSequence, long eventVersion) {
+    PendingKeepAlive keepAlive = pendingKeepAlives.get(session);
+    if (keepAlive == null) {
+      keepAlive = new PendingKeepAlive(commandSequence, eventVersion);
+      pendingKeepAlives.put(session, keepAlive);
+    } else {
+      keepAlive.commandSequence = Math.max(keepAlive.commandSequence, commandSequence);
+      keepAlive.eventVersion = Math.max(keepAlive.eventVersion, eventVersion);
+    }
+
+    CompletableFuture<Void> future = new CompletableFuture<>();
+    keepAlive.futures.add(future);
+    return future;
+  }
+
+  /**
+   * Writes queued keep alives to the log in a single batch keep alive entry.
+   * <p>
+   * Only one batch keep alive entry is committed at any given time. Keep alives received while a batch
+   * is being committed are queued and written in the next batch once the current batch completes. This
+   * bounds the number of keep alive entries written to the log by the commit latency rather than by the
+   * number of sessions in the cluster.
+   */
+  private void flushKeepAlives() {
+    if (keepAliveFlushing || pendingKeepAlives.isEmpty())
+      return;
+
+    final long timestamp = System.currentTimeMillis();
+    final long index;
+
+    // Remove up to the maximum number of sessions from the pending keep alives. The batch is also capped by its
+    // serialized size, leaving room for the entry header, so that the entry always fits in a single AppendRequest.
+    Map<Long, PendingKeepAlive> keepAlives = new HashMap<>();
+    Iterator<Map.Entry<Long, PendingKeepAlive>> iterator = pendingKeepAlives.entrySet().iterator();
+    int size = 0;
+    while (iterator.hasNext() && keepAlives.size() < MAX_KEEP_ALIVE_BATCH_SIZE) {
+      Map.Entry<Long, PendingKeepAlive> keepAlive = iterator.next();
+      PendingKeepAlive pending = keepAlive.getValue();
+      size += BatchKeepAliveEntry.sessionSize(keepAlive.getKey(), pending.commandSequence, pending.eventVersion);
+      if (size > MAX_KEEP_ALIVE_BATCH_BYTES)
+        break;
+      keepAlives.put(keepAlive.getKey(), pending);
+      iterator.remove();
+    }
+
+    try (BatchKeepAliveEntry entry = context.getLog().create(BatchKeepAliveEntry.class)) {
       entry.setTerm(context.getTerm())
-        .setSession(request.session())
-        .setCommandSequence(request.commandSequence())
-        .setEventVersion(request.eventVersion())
         .setTimestamp(timestamp);
+      for (Map.Entry<Long, PendingKeepAlive> keepAlive : keepAlives.entrySet()) {
+        entry.addSession(keepAlive.getKey(), keepAlive.getValue().commandSequence, keepAlive.getValue().eventVersion);
+      }
       index = context.getLog().append(entry);
       LOGGER.debug("{} - Appended {}", context.getAddress(), entry);
     }
 
-    CompletableFuture<KeepAliveResponse> future = new CompletableFuture<>();
+    keepAliveFlushing = true;
     replicator.commit(index).whenComplete((commitIndex, commitError) -> {
       context.checkThread();
       if (isOpen()) {
         if (commitError == null) {
-          KeepAliveEntry entry = context.getLog().get(index);
+          BatchKeepAliveEntry entry = context.getLog().get(index);
           applyEntry(entry).whenCompleteAsync((sessionResult, sessionError) -> {
+            keepAliveFlushing = false;
             if (isOpen()) {
               if (sessionError == null) {
-                future.complete(logResponse(KeepAliveResponse.builder()
-                  .withStatus(Response.Status.OK)
-                  .withLeader(context.getAddress())
-                  .withMembers(context.getCluster().buildActiveMembers())
-                  .build()));
-              } else if (sessionError instanceof RaftException) {
-                future.complete(logResponse(KeepAliveResponse.builder()
-                  .withStatus(Response.Status.ERROR)
-                  .withLeader(context.getAddress())
-                  .withError(((RaftException) sessionError).getType())
-                  .build()));
+                Set<Long> unknownSessions = new HashSet<>();
+                for (long session : (long[]) sessionResult) {
+                  unknownSessions.add(session);
+                }
+
+                for (Map.Entry<Long, PendingKeepAlive> keepAlive : keepAlives.entrySet()) {
+                  if (unknownSessions.contains(keepAlive.getKey())) {
+                    keepAlive.getValue().completeExceptionally(new UnknownSessionException("unknown session: " + keepAlive.getKey()));
+                  } else {
+                    keepAlive.getValue().complete();
+                  }
+                }
               } else {
-                future.complete(logResponse(KeepAliveResponse.builder()
-                  .withStatus(Response.Status.ERROR)
-                  .withLeader(context.getAddress())
-                  .withError(RaftError.Type.INTERNAL_ERROR)
-                  .build()));
+                keepAlives.values().forEach(k -> k.completeExceptionally(sessionError));
               }
               checkSessions();
+              flushKeepAlives();
             }
             entry.release();
           }, context.getThreadContext().executor());
         } else {
-          future.complete(logResponse(KeepAliveResponse.builder()
-            .withStatus(Response.Status.ERROR)
-            .withLeader(context.getAddress())
-            .withError(RaftError.Type.INTERNAL_ERROR)
-            .build()));
+          keepAliveFlushing = false;
+          keepAlives.values().forEach(k -> k.completeExceptionally(new InternalException("failed to commit keep alive")));
+          flushKeepAlives();
         }
       }
     });
-    return future;
   }
 
   @Override
@@ -849,9 +1045,147 @@ final class LeaderState extends ActiveState {
     }
   }
 
+  /**
+   * Transfers leadership to the given member.
+   * <p>
+   * The leader stops accepting commands and replicates its log to the member. Once the member's log is up to date,
+   * the leader sends it a {@link TimeoutNowRequest} to start an election immediately rather than waiting for its
+   * election timeout. If the member can't be brought up to date within an election timeout, the transfer fails and
+   * the leader resumes accepting commands.
+   *
+   * @param address The address of the member to which to transfer leadership.
+   * @return A completable future to be completed once the member has started an election.
+   */
+  CompletableFuture<Void> transfer(Address address) {
+    context.checkThread();
+    if (address.equals(context.getAddress())) {
+      return CompletableFuture.completedFuture(null);
+    }
+
+    MemberState member = context.getCluster().getMember(address.hashCode());
+    if (member == null || !context.getCluster().isActiveMember(member)) {
+      return Futures.exceptionalFuture(new IllegalArgumentException("not an active member: " + address));
+    } else if (transferFuture != null) {
+      return Futures.exceptionalFuture(new IllegalStateException("leadership transfer already in progress"));
+    }
+
+    LOGGER.info("{} - Transferring leadership to {}", context.getAddress(), address);
+    CompletableFuture<Void> future = new CompletableFuture<>();
+    transferFuture = future;
+    transferMember = member;
+    transferIndex = context.getLog().lastIndex();
+    transferTimer = context.getThreadContext().schedule(context.getElectionTimeout(), () -> {
+      transferTimer = null;
+      LOGGER.warn("{} - Failed to transfer leadership to {}", context.getAddress(), address);
+      completeTransfer(new IllegalStateException("leadership transfer timed out"));
+    });
+
+    replicator.commit();
+    checkTransfer();
+    return future;
+  }
+
+  /**
+   * Sends a timeout now request to the transfer member once its log is up to date with the last index at the
+   * time the transfer was started. Entries appended while the transfer is pending aren't waited on, otherwise a
+   * steady stream of keep-alives could prevent the member from ever catching up.
+   */
+  private void checkTransfer() {
+    MemberState member = transferMember;
+    if (member == null || member.getMatchIndex() < transferIndex) {
+      return;
+    }
+
+    // Once the member starts an election, followers will vote for it despite this leader's lease, so the
+    // lease must no longer be used to serve queries.
+    transferMember = null;
+    leaseRevoked = true;
+
+    TimeoutNowRequest request = TimeoutNowRequest.builder()
+      .withTerm(context.getTerm())
+      .withLeader(context.getAddress().hashCode())
+      .build();
+
+    LOGGER.debug("{} - Sent {} to {}", context.getAddress(), request, member.getAddress());
+    context.getConnections().getConnection(member.getAddress())
+      .thenCompose(connection -> connection.<TimeoutNowRequest, TimeoutNowResponse>send(request))
+      .whenComplete((response, error) -> {
+        context.checkThread();
+        if (error == null && response.status() == Response.Status.OK && response.accepted()) {
+          LOGGER.debug("{} - Received {} from {}", context.getAddress(), response, member.getAddress());
+          completeTransfer(null);
+        } else {
+          completeTransfer(error != null ? error : new IllegalStateException("leadership transfer rejected"));
+        }
+      });
+  }
+
+  /**
+   * Completes the current leadership transfer.
+   * <p>
+   * If the transfer failed after the timeout now request was sent, the member may still have started an election,
+   * so the lease is only restored once a majority acknowledges requests sent after the failure.
+   */
+  private void completeTransfer(Throwable error) {
+    if (transferTimer != null) {
+      transferTimer.cancel();
+      transferTimer = null;
+    }
+
+    if (error != null && leaseRevoked) {
+      leaseRevoked = false;
+      replicator.resetLease();
+    }
+
+    CompletableFuture<Void> future = transferFuture;
+    transferFuture = null;
+    transferMember = null;
+    if (future != null) {
+      if (error == null) {
+        future.complete(null);
+      } else {
+        future.completeExceptionally(error);
+      }
+    }
+  }
+
   @Override
   public synchronized CompletableFuture<Void> close() {
-    return super.close().thenRun(this::cancelPingTimer);
+    context.getMetrics().clearReplication();
+    return super.close().thenRun(() -> {
+      cancelPingTimer();
+
+      // If the timeout now request was sent, this leader likely stepped down because the member was elected.
+      completeTransfer(leaseRevoked ? null : new IllegalStateException("leader stepped down"));
+    });
+  }
+
+  /**
+   * Keep alive queued for the next batch keep alive entry.
+   */
+  private static class PendingKeepAlive {
+    private long commandSequence;
+    private long eventVersion;
+    private final List<CompletableFuture<Void>> futures = new ArrayList<>(1);
+
+    private PendingKeepAlive(long commandSequence, long eventVersion) {
+      this.commandSequence = commandSequence;
+      this.eventVersion = eventVersion;
+    }
+
+    /**
+     * Completes all futures waiting on the keep alive.
+     */
+    private void complete() {
+      futures.forEach(f -> f.complete(null));
+    }
+
+    /**
+     * Fails all futures waiting on the keep alive.
+     */
+    private void completeExceptionally(Throwable error) {
+      futures.forEach(f -> f.completeExceptionally(error));
+    }
   }
 
   /**
@@ -864,6 +1198,17 @@ final class LeaderState extends ActiveState {
     private CompletableFuture<Long> commitFuture;
     private CompletableFuture<Long> nextCommitFuture;
     private final TreeMap<Long, CompletableFuture<Long>> commitFutures = new TreeMap<>();
+    private long flushedIndex;
+    private boolean flushScheduled;
+    private final Queue<CommandTrace> flushTraces = new ArrayDeque<>();
+    private final Set<MemberState> throttled = new HashSet<>();
+    private final Map<MemberState, MemberState> catchUpSources = new HashMap<>();
+    private long catchUpBytes = MAX_BATCH_SIZE;
+    private long catchUpTime = System.nanoTime();
+    private long leaseTime;
+    private boolean leased;
+    private long leaseVersion;
+    private final Map<MemberState, EntryBatch> batches = new HashMap<>();
 
     /**
      * Returns the current quorum index.
@@ -888,9 +1233,7 @@ final class LeaderState extends ActiveState {
       if (commitFuture == null) {
         commitFuture = new CompletableFuture<>();
         commitTime = System.currentTimeMillis();
-        for (MemberState member : context.getCluster().getMembers()) {
-          commit(member);
-        }
+        commitMembers();
         return commitFuture;
       }
       // If a commit future already exists, that indicates there is a heartbeat currently underway.
@@ -916,29 +1259,99 @@ final class LeaderState extends ActiveState {
       if (index == 0)
         return commit();
 
-      // If there are no other servers in the cluster, immediately commit the index.
-      if (context.getCluster().getMembers().isEmpty()) {
+      // If there are no other servers in the cluster, immediately commit the index once it's been flushed.
+      if (context.getCluster().getMembers().isEmpty() && flushedIndex() >= index) {
         context.setCommitIndex(index);
         context.setGlobalIndex(index);
         return CompletableFuture.completedFuture(index);
       }
       // If there are no other active members in the cluster, update the commit index and complete
       // the commit but ensure append entries requests are sent to passive members.
-      else if (context.getCluster().getActiveMembers().isEmpty()) {
+      else if (context.getCluster().getActiveMembers().isEmpty() && flushedIndex() >= index) {
         context.setCommitIndex(index);
-        for (MemberState member : context.getCluster().getMembers()) {
-          commit(member);
-        }
+        commitMembers();
         return CompletableFuture.completedFuture(index);
       }
 
-      // Ensure append requests are being sent to all members, including passive members.
-      return commitFutures.computeIfAbsent(index, i -> {
-        for (MemberState member : context.getCluster().getMembers()) {
-          commit(member);
-        }
+      // Ensure append requests are being sent to all members, including passive members. The local
+      // flush is performed only after the requests have been sent so that disk writes overlap replication.
+      CompletableFuture<Long> future = commitFutures.computeIfAbsent(index, i -> {
+        commitMembers();
         return new CompletableFuture<>();
       });
+      flush();
+      return future;
+    }
+
+    /**
+     * Returns the highest index that has been persisted to the leader's log.
+     * <p>
+     * If the log is not flushed on commit, all appended entries are considered persisted.
+     */
+    private long flushedIndex() {
+      return context.getLog().flushOnCommit() ? flushedIndex : context.getLog().lastIndex();
+    }
+
+    /**
+     * Records the flushed stage for the given trace once its entry has been persisted to the leader's log.
+     */
+    private void traceFlush(CommandTrace trace) {
+      if (trace.isSampled()) {
+        if (trace.getIndex() <= flushedIndex()) {
+          trace.record(CommandTrace.Stage.FLUSHED);
+        } else {
+          flushTraces.add(trace);
+        }
+      }
+    }
+
+    /**
+     * Schedules a flush of the leader's log.
+     * <p>
+     * Flushes are coalesced so that all entries appended within a single pass of the server's event loop
+     * are persisted by a single flush once append requests for those entries have been sent.
+     */
+    private void flush() {
+      if (context.getLog().flushOnCommit() && !flushScheduled && flushedIndex < context.getLog().lastIndex()) {
+        flushScheduled = true;
+        context.getThreadContext().execute(this::flushEntries);
+      }
+    }
+
+    /**
+     * Flushes the leader's log and completes any commits waiting for the flush.
+     */
+    private void flushEntries() {
+      flushScheduled = false;
+      if (isOpen()) {
+        long index = context.getLog().lastIndex();
+        context.getLog().flush();
+        flushedIndex = index;
+        while (!flushTraces.isEmpty() && flushTraces.peek().getIndex() <= index) {
+          flushTraces.remove().record(CommandTrace.Stage.FLUSHED);
+        }
+        commitEntries();
+      }
+    }
+
+    /**
+     * Sends a heartbeat to each member that hasn't acknowledged an append request within the heartbeat interval.
+     *
+     * @return The time in milliseconds until the next member's heartbeat deadline.
+     */
+    private long heartbeat() {
+      long interval = context.getHeartbeatInterval().toMillis();
+      long time = System.currentTimeMillis();
+      long delay = interval;
+      for (MemberState member : context.getCluster().getMembers()) {
+        long idle = time - member.getCommitTime();
+        if (idle >= interval) {
+          commit(member);
+        } else {
+          delay = Math.min(delay, interval - idle);
+        }
+      }
+      return delay;
     }
 
     /**
@@ -952,11 +1365,68 @@ final class LeaderState extends ActiveState {
       return System.currentTimeMillis();
     }
 
+    /**
+     * Returns a boolean indicating whether the leader's lease is held.
+     * <p>
+     * The lease is measured from the latest time at which a request was sent that has since been acknowledged by
+     * a majority of the cluster. Followers will not vote for a new leader within an election timeout of
+     * receiving a request from the leader, so the lease is guaranteed to hold for the lease timeout
+     * after this time.
+     */
+    private boolean isLeased() {
+      if (quorumIndex() < 0) {
+        return true;
+      }
+      return leased && System.nanoTime() - leaseTime < context.getLeaseTimeout().toNanos();
+    }
+
+    /**
+     * Updates the lease time to the latest send time acknowledged by a majority of the cluster.
+     * <p>
+     * This must be called whenever a member's lease time or the cluster configuration changes.
+     */
+    private void updateLeaseTime() {
+      leased = false;
+      int quorumIndex = quorumIndex();
+      List<MemberState> members = context.getCluster().getActiveMembers();
+      for (MemberState member : members) {
+        if (member.isLeased() && (!leased || member.getLeaseTime() - leaseTime > 0)) {
+          // The member's lease time is held by a majority if enough other members acknowledged a later request.
+          int count = 0;
+          for (MemberState other : members) {
+            if (other.isLeased() && other.getLeaseTime() - member.getLeaseTime() >= 0) {
+              count++;
+            }
+          }
+
+          if (count > quorumIndex) {
+            leaseTime = member.getLeaseTime();
+            leased = true;
+          }
+        }
+      }
+    }
+
+    /**
+     * Resets the lease so that it's only held once a majority acknowledges requests sent after the reset.
+     */
+    private void resetLease() {
+      leaseVersion++;
+      for (MemberState member : context.getCluster().getMembers()) {
+        member.resetLeaseTime();
+      }
+      leased = false;
+    }
+
     /**
      * Sets a commit time or fails the commit if a quorum of successful responses cannot be achieved.
      */
     private void commitTime(MemberState member, Throwable error) {
+      // Even if no commit is in progress, record the time of the acknowledgement to reset the member's heartbeat deadline.
       if (commitFuture == null) {
+        if (error == null) {
+          member.setCommitTime(System.currentTimeMillis());
+        }
         return;
       }
 
@@ -987,9 +1457,7 @@ final class LeaderState extends ActiveState {
         nextCommitFuture = null;
         if (commitFuture != null) {
           this.commitTime = System.currentTimeMillis();
-          for (MemberState replica : context.getCluster().getMembers()) {
-            commit(replica);
-          }
+          commitMembers();
         }
       }
     }
@@ -1017,17 +1485,30 @@ final class LeaderState extends ActiveState {
       // If the active members list is empty (a configuration change occurred between an append request/response)
       // ensure all commit futures are completed and cleared.
       if (members.isEmpty()) {
-        context.setCommitIndex(context.getLog().lastIndex());
-        for (Map.Entry<Long, CompletableFuture<Long>> entry : commitFutures.entrySet()) {
-          entry.getValue().complete(entry.getKey());
-        }
-        commitFutures.clear();
+        long flushedIndex = flushedIndex();
+        context.setCommitIndex(Math.max(context.getCommitIndex(), flushedIndex));
+        SortedMap<Long, CompletableFuture<Long>> futures = commitFutures.headMap(flushedIndex, true);
+        context.getStateMachine().applyBatch(() -> {
+          for (Map.Entry<Long, CompletableFuture<Long>> entry : futures.entrySet()) {
+            entry.getValue().complete(entry.getKey());
+          }
+        });
+        futures.clear();
         return;
       }
 
       // Calculate the current commit index as the median matchIndex.
       long commitIndex = members.get(quorumIndex()).getMatchIndex();
 
+      // If the leader has not yet flushed the median matchIndex, the leader can't be counted towards
+      // the quorum for that index. Commit either the flushed index or the index stored on enough
+      // followers to form a quorum without the leader, whichever is greater.
+      long flushedIndex = flushedIndex();
+      if (flushedIndex < commitIndex) {
+        int nextIndex = quorumIndex() + 1;
+        commitIndex = Math.max(flushedIndex, nextIndex < members.size() ? members.get(nextIndex).getMatchIndex() : 0);
+      }
+
       // If the commit index has increased then update the commit index. Note that in order to ensure
       // the leader completeness property holds, verify that the commit index is greater than or equal to
       // the index of the leader's no-op entry. Update the commit index and trigger commit futures.
@@ -1038,25 +1519,165 @@ final class LeaderState extends ActiveState {
         // Futures could simply be stored in a hash map and we could use a sequential index starting
         // from the previous commit index to get the appropriate futures. But for now, at least this
         // ensures that no memory leaks can occur.
+        // Entries applied by commit future callbacks are handed to the state machine in a single batch.
         SortedMap<Long, CompletableFuture<Long>> futures = commitFutures.headMap(commitIndex, true);
-        for (Map.Entry<Long, CompletableFuture<Long>> entry : futures.entrySet()) {
-          entry.getValue().complete(entry.getKey());
-        }
+        context.getStateMachine().applyBatch(() -> {
+          for (Map.Entry<Long, CompletableFuture<Long>> entry : futures.entrySet()) {
+            entry.getValue().complete(entry.getKey());
+          }
+        });
         futures.clear();
       }
     }
 
+    /**
+     * Triggers a commit for all members.
+     * <p>
+     * Members that are catching up are committed only after the members that form the quorum so that
+     * catch-up batches are never built ahead of the requests needed to commit new entries.
+     */
+    private void commitMembers() {
+      List<MemberState> catchingUp = null;
+      for (MemberState member : context.getCluster().getMembers()) {
+        if (isCatchingUp(member)) {
+          if (catchingUp == null) {
+            catchingUp = new ArrayList<>();
+          }
+          catchingUp.add(member);
+        } else {
+          commit(member);
+        }
+      }
+
+      if (catchingUp != null) {
+        for (MemberState member : catchingUp) {
+          commit(member);
+        }
+      }
+    }
+
+    /**
+     * Returns a boolean indicating whether the given member is catching up.
+     * <p>
+     * Passive members are always catching up. Active members are catching up if they're far enough behind
+     * the leader that the commit index has advanced without them.
+     */
+    private boolean isCatchingUp(MemberState member) {
+      return context.getCluster().isPassiveMember(member)
+        || (member.getMatchIndex() < context.getCommitIndex() && context.getLog().lastIndex() - member.getMatchIndex() > CATCH_UP_THRESHOLD);
+    }
+
+    /**
+     * Returns the number of bytes that may currently be sent to members that are catching up.
+     */
+    private long catchUpBytes() {
+      long bandwidth = context.getCatchUpBandwidth();
+      if (bandwidth == 0) {
+        return MAX_BATCH_SIZE;
+      }
+
+      long time = System.nanoTime();
+      catchUpBytes = Math.min(catchUpBytes + (long) ((time - catchUpTime) / 1_000_000_000d * bandwidth), MAX_BATCH_SIZE);
+      catchUpTime = time;
+      return catchUpBytes;
+    }
+
+    /**
+     * Throttles replication to a member that is catching up until a full batch can be sent.
+     */
+    private void throttle(MemberState member) {
+      if (throttled.add(member)) {
+        long delay = Math.max((long) Math.ceil((MAX_BATCH_SIZE - catchUpBytes) * 1000d / context.getCatchUpBandwidth()), 1);
+        context.getThreadContext().schedule(Duration.ofMillis(delay), () -> {
+          throttled.remove(member);
+          commit(member);
+        });
+      }
+    }
+
+    /**
+     * Returns the follower from which the given member is catching up.
+     * <p>
+     * Passive members that are far behind the commit index catch up on committed entries from an up-to-date
+     * follower rather than from the leader. The leader continues to send empty commits to the member to track
+     * its progress, and resumes replicating entries once the member is within reach of the commit index.
+     *
+     * @return The follower replicating committed entries to the member, or {@code null} if the leader replicates
+     * to the member.
+     */
+    private MemberState catchUpSource(MemberState member) {
+      if (!context.getCluster().isPassiveMember(member) || context.getCommitIndex() - member.getMatchIndex() <= CATCH_UP_THRESHOLD) {
+        catchUpSources.remove(member);
+        return null;
+      }
+
+      // If the member's current source is no longer able to replicate to it, choose the follower with the fewest
+      // members catching up from it.
+      MemberState source = catchUpSources.get(member);
+      if (source == null || !isCatchUpSource(source)) {
+        source = null;
+        for (MemberState candidate : context.getCluster().getActiveMembers()) {
+          if (isCatchUpSource(candidate) && (source == null || catchUpMembers(candidate).size() < catchUpMembers(source).size())) {
+            source = candidate;
+          }
+        }
+
+        if (source != null) {
+          catchUpSources.put(member, source);
+        } else {
+          catchUpSources.remove(member);
+        }
+      }
+      return source;
+    }
+
+    /**
+     * Returns a boolean indicating whether the given member can replicate committed entries to passive members.
+     */
+    private boolean isCatchUpSource(MemberState member) {
+      return context.getCluster().isActiveMember(member) && member.getFailureCount() == 0 && !isCatchingUp(member);
+    }
+
+    /**
+     * Returns the identifiers of the passive members catching up from the given follower.
+     */
+    private List<Integer> catchUpMembers(MemberState source) {
+      List<Integer> members = new ArrayList<>(0);
+      for (Map.Entry<MemberState, MemberState> entry : catchUpSources.entrySet()) {
+        if (entry.getValue() == source && context.getCluster().isPassiveMember(entry.getKey())) {
+          members.add(entry.getKey().getAddress().hashCode());
+        }
+      }
+      return members;
+    }
+
+    /**
+     * Returns a boolean indicating whether replicating entries to the given member is deferred.
+     * <p>
+     * Entries are deferred while catch-up replication to the member is throttled or while the member is
+     * catching up from a follower. Only empty commits are sent to the member in the meantime.
+     */
+    private boolean isDeferred(MemberState member) {
+      return throttled.contains(member) || catchUpSources.containsKey(member);
+    }
+
     /**
      * Triggers a commit for the replica.
      */
     private void commit(MemberState member) {
       if (!committing.contains(member) && isOpen()) {
+        // Update the follower from which the member is catching up regardless of which request is sent.
+        MemberState source = catchUpSource(member);
+
         // If the log is empty then send an empty commit.
         // If the next index hasn't yet been set then we send an empty commit first.
         // If the next index is greater than the last index then send an empty commit.
         // If the member failed to respond to recent communication send an empty commit. This
         // helps avoid doing expensive work until we can ascertain the member is back up.
-        if (context.getLog().isEmpty() || member.getNextIndex() > context.getLog().lastIndex() || member.getFailureCount() > 0) {
+        // If catch-up replication to the member is throttled then send an empty commit to maintain the leader.
+        // If the member is catching up from a follower then send an empty commit to track its progress.
+        if (context.getLog().isEmpty() || member.getNextIndex() > context.getLog().lastIndex() || member.getFailureCount() > 0
+          || throttled.contains(member) || source != null) {
           emptyCommit(member);
         } else {
           entriesCommit(member);
@@ -1072,13 +1693,10 @@ final class LeaderState extends ActiveState {
     }
 
     /**
-     * Gets the previous entry.
+     * Gets the previous entry term.
      */
-    private Entry getPrevEntry(MemberState member, long prevIndex) {
-      if (prevIndex > 0) {
-        return context.getLog().get(prevIndex);
-      }
-      return null;
+    private long getPrevTerm(long prevIndex) {
+      return prevIndex > 0 ? context.getLog().term(prevIndex) : 0;
     }
 
     /**
@@ -1086,15 +1704,15 @@ final class LeaderState extends ActiveState {
      */
     private void emptyCommit(MemberState member) {
       long prevIndex = getPrevIndex(member);
-      Entry prevEntry = getPrevEntry(member, prevIndex);
 
       AppendRequest.Builder builder = AppendRequest.builder()
         .withTerm(context.getTerm())
         .withLeader(context.getAddress().hashCode())
         .withLogIndex(prevIndex)
-        .withLogTerm(prevEntry != null ? prevEntry.getTerm() : 0)
+        .withLogTerm(getPrevTerm(prevIndex))
         .withCommitIndex(context.getCommitIndex())
-        .withGlobalIndex(context.getGlobalIndex());
+        .withGlobalIndex(context.getGlobalIndex())
+        .withCatchUpMembers(catchUpMembers(member));
 
       commit(member, builder.build(), false);
     }
@@ -1104,43 +1722,32 @@ final class LeaderState extends ActiveState {
      */
     private void entriesCommit(MemberState member) {
       long prevIndex = getPrevIndex(member);
-      Entry prevEntry = getPrevEntry(member, prevIndex);
 
       AppendRequest.Builder builder = AppendRequest.builder()
         .withTerm(context.getTerm())
         .withLeader(context.getAddress().hashCode())
         .withLogIndex(prevIndex)
-        .withLogTerm(prevEntry != null ? prevEntry.getTerm() : 0)
+        .withLogTerm(getPrevTerm(prevIndex))
         .withCommitIndex(context.getCommitIndex())
-        .withGlobalIndex(context.getGlobalIndex());
-
-      // Build a list of entries to send to the member.
-      if (!context.getLog().isEmpty()) {
-        long index = prevIndex != 0 ? prevIndex + 1 : context.getLog().firstIndex();
-
-        // We build a list of entries up to the MAX_BATCH_SIZE. Note that entries in the log may
-        // be null if they've been compacted and the member to which we're sending entries is just
-        // joining the cluster or is otherwise far behind. Null entries are simply skipped and not
-        // counted towards the size of the batch.
-        int size = 0;
-        while (index <= context.getLog().lastIndex()) {
-          Entry entry = context.getLog().get(index);
-          if (entry != null) {
-            if (size + entry.size() > MAX_BATCH_SIZE) {
-              break;
-            }
-            size += entry.size();
-            builder.addEntry(entry);
-          }
-          index++;
+        .withGlobalIndex(context.getGlobalIndex())
+        .withCatchUpMembers(catchUpMembers(member));
+
+      // Members that are catching up share the catch-up bandwidth, so limit the batch to the available bytes.
+      boolean catchingUp = isCatchingUp(member);
+      long maxSize = catchingUp ? catchUpBytes() : MAX_BATCH_SIZE;
+
+      // Build a batch of entries to send to the member.
+      long index = prevIndex != 0 ? prevIndex + 1 : context.getLog().firstIndex();
+      EntryBatch batch = batches.computeIfAbsent(member, m -> new EntryBatch());
+      int size = batch.build(context.getLog(), builder, index, context.getLog().lastIndex(), maxSize).size();
+
+      if (catchingUp && context.getCatchUpBandwidth() > 0) {
+        catchUpBytes -= size;
+        if (size == 0) {
+          throttle(member);
         }
       }
 
-      // Release the previous entry back to the entry pool.
-      if (prevEntry != null) {
-        prevEntry.release();
-      }
-
       commit(member, builder.build(), true);
     }
 
@@ -1151,14 +1758,21 @@ final class LeaderState extends ActiveState {
       committing.add(member);
       member.setCommitStartTime(commitTime);
 
+      // Record the monotonic send time before the request is sent. If the member acknowledges the request,
+      // the leader's lease for the member is measured from this time unless the lease is reset in the meantime.
+      long sendTime = System.nanoTime();
+      long leaseVersion = this.leaseVersion;
+
       LOGGER.debug("{} - Sent {} to {}", context.getAddress(), request, member.getAddress());
+      context.getMetrics().recordAppendSent(member.getAddress(), context.getLog().lastIndex());
       context.getConnections().getConnection(member.getAddress()).whenComplete((connection, error) -> {
         context.checkThread();
 
         if (isOpen()) {
           if (error == null) {
-            commit(connection, member, request, recursive);
+            commit(connection, member, request, sendTime, leaseVersion, recursive);
           } else {
+            context.getMetrics().recordAppendComplete(member.getAddress());
             committing.remove(member);
             commitTime(member, error);
             failAttempt(member, error);
@@ -1170,18 +1784,26 @@ final class LeaderState extends ActiveState {
     /**
      * Sends a commit message.
      */
-    private void commit(Connection connection, MemberState member, AppendRequest request, boolean recursive) {
+    private void commit(Connection connection, MemberState member, AppendRequest request, long sendTime, long leaseVersion, boolean recursive) {
       connection.<AppendRequest, AppendResponse>send(request).whenComplete((response, error) -> {
         committing.remove(member);
         context.checkThread();
 
         if (isOpen()) {
+          context.getMetrics().recordAppendComplete(member.getAddress());
+
           if (error == null) {
             LOGGER.debug("{} - Received {} from {}", context.getAddress(), response, member.getAddress());
             if (response.status() == Response.Status.OK) {
               // Reset the member failure count.
               member.resetFailureCount();
 
+              // If the member accepted this leader's term, extend the member's lease from the time the request was sent.
+              if (response.term() <= context.getTerm() && leaseVersion == this.leaseVersion) {
+                member.setLeaseTime(sendTime);
+                updateLeaseTime();
+              }
+
               // Update the commit time for the replica. This will cause heartbeat futures to be triggered.
               commitTime(member, null);
 
@@ -1196,8 +1818,13 @@ final class LeaderState extends ActiveState {
                   commitEntries();
                 }
 
+                // If leadership is being transferred to the member, check whether its log is up to date.
+                if (member == transferMember) {
+                  checkTransfer();
+                }
+
                 // If there are more entries to send then attempt to send another commit.
-                if (hasMoreEntries(member)) {
+                if (hasMoreEntries(member) && !isDeferred(member)) {
                   commit();
                 }
               } else if (response.term() > context.getTerm()) {
@@ -1208,7 +1835,7 @@ final class LeaderState extends ActiveState {
                 resetNextIndex(member);
 
                 // If there are more entries to send then attempt to send another commit.
-                if (hasMoreEntries(member)) {
+                if (hasMoreEntries(member) && !isDeferred(member)) {
                   commit();
                 }
               }
@@ -1262,6 +1889,7 @@ final class LeaderState extends ActiveState {
     private void updateMatchIndex(MemberState member, AppendResponse response) {
       // If the replica returned a valid match index then update the existing match index.
       member.setMatchIndex(Math.max(member.getMatchIndex(), response.logIndex()));
+      context.getMetrics().recordMatchIndex(member.getAddress(), member.getMatchIndex());
     }
 
     /**
@@ -1311,6 +1939,7 @@ final class LeaderState extends ActiveState {
         // place at the same time.
         configuring = index;
         context.getCluster().configure(entry.getIndex(), entry.getActive(), entry.getPassive());
+        updateLeaseTime();
       }
 
       commit(configuring).whenComplete((result, error) -> {
@@ -1323,7 +1952,18 @@ final class LeaderState extends ActiveState {
      * Resets the match index when a response fails.
      */
     private void resetMatchIndex(MemberState member, AppendResponse response) {
-      member.setMatchIndex(response.logIndex());
+      long matchIndex = response.logIndex();
+
+      // If the member returned the term of its conflicting entry, skip all of the member's entries in that term that
+      // can't match the leader's log. If the leader has entries in the conflicting term, the member's log may match up
+      // to the leader's last entry in the term. Otherwise, none of the member's entries in the term match the leader's.
+      if (response.conflictTerm() != 0) {
+        long lastIndex = context.getLog().lastIndexOfTerm(response.conflictTerm());
+        matchIndex = Math.min(matchIndex, lastIndex != 0 ? lastIndex : Math.max(response.conflictIndex() - 1, 0));
+      }
+
+      member.setMatchIndex(matchIndex);
+      context.getMetrics().recordMatchIndex(member.getAddress(), member.getMatchIndex());
       LOGGER.debug("{} - Reset match index for {} to {}", context.getAddress(), member, member.getMatchIndex());
     }
 
@@ -31,6 +31,8 @@ class MemberState {
   private long nextIndex;
   private long commitTime;
   private long commitStartTime;
+  private long leaseTime;
+  private boolean leased;
   private int failures;
 
   public MemberState(Address address) {
@@ -45,6 +47,7 @@ class MemberState {
     nextIndex = log.lastIndex() + 1;
     commitTime = 0;
     commitStartTime = 0;
+    resetLeaseTime();
     failures = 0;
   }
 
@@ -157,6 +160,53 @@ class MemberState {
     return this;
   }
 
+  /**
+   * Returns a boolean indicating whether the member has acknowledged a request since its lease was reset.
+   *
+   * @return Indicates whether the member's lease time is set.
+   */
+  boolean isLeased() {
+    return leased;
+  }
+
+  /**
+   * Returns the member lease time.
+   * <p>
+   * The lease time is the {@link System#nanoTime()} at which the most recently acknowledged
+   * {@code AppendRequest} was sent to the member. The lease time is only meaningful if {@link #isLeased()}.
+   *
+   * @return The member lease time.
+   */
+  long getLeaseTime() {
+    return leaseTime;
+  }
+
+  /**
+   * Sets the member lease time.
+   *
+   * @param leaseTime The monotonic time at which the acknowledged request was sent.
+   * @return The member state.
+   */
+  MemberState setLeaseTime(long leaseTime) {
+    // Monotonic times may be negative and must be compared by their difference.
+    if (!leased || leaseTime - this.leaseTime > 0) {
+      this.leaseTime = leaseTime;
+      this.leased = true;
+    }
+    return this;
+  }
+
+  /**
+   * Resets the member lease time.
+   *
+   * @return The member state.
+   */
+  MemberState resetLeaseTime() {
+    leaseTime = 0;
+    leased = false;
+    return this;
+  }
+
   /**
    * Returns the member failure count.
    *
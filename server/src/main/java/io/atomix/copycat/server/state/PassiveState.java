@@ -26,10 +26,9 @@ import io.atomix.copycat.server.storage.entry.ConfigurationEntry;
 import io.atomix.copycat.server.storage.entry.ConnectEntry;
 import io.atomix.copycat.server.storage.entry.Entry;
 
-import java.util.ArrayDeque;
-import java.util.Queue;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Passive state.
@@ -37,7 +36,7 @@ import java.util.concurrent.atomic.AtomicInteger;
  * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
  */
 class PassiveState extends AbstractState {
-  private final Queue<AtomicInteger> counterPool = new ArrayDeque<>();
+  private static final int MAX_APPLY_BATCH_SIZE = 1024;
 
   public PassiveState(ServerState context) {
     super(context);
@@ -106,19 +105,21 @@ class PassiveState extends AbstractState {
         .build();
     }
 
-    // If the previous entry term doesn't match the local previous term then reject the request.
-    try (Entry entry = context.getLog().get(request.logIndex())) {
-      if (entry == null || entry.getTerm() != request.logTerm()) {
-        LOGGER.warn("{} - Rejected {}: Request log term does not match local log term {} for the same entry", context.getAddress(), request, entry != null ? entry.getTerm() : "unknown");
-        return AppendResponse.builder()
-          .withStatus(Response.Status.OK)
-          .withTerm(context.getTerm())
-          .withSucceeded(false)
-          .withLogIndex(request.logIndex() <= context.getLog().lastIndex() ? request.logIndex() - 1 : context.getLog().lastIndex())
-          .build();
-      } else {
-        return doAppendEntries(request);
-      }
+    // If the previous entry term doesn't match the local previous term then reject the request. Include the
+    // conflicting term and the first index of that term in the response so the leader can skip the entire term.
+    long term = context.getLog().term(request.logIndex());
+    if (term == 0 || term != request.logTerm()) {
+      LOGGER.warn("{} - Rejected {}: Request log term does not match local log term {} for the same entry", context.getAddress(), request, term != 0 ? term : "unknown");
+      return AppendResponse.builder()
+        .withStatus(Response.Status.OK)
+        .withTerm(context.getTerm())
+        .withSucceeded(false)
+        .withLogIndex(request.logIndex() <= context.getLog().lastIndex() ? request.logIndex() - 1 : context.getLog().lastIndex())
+        .withConflictTerm(term)
+        .withConflictIndex(term != 0 ? context.getLog().firstIndexOfTerm(term) : 0)
+        .build();
+    } else {
+      return doAppendEntries(request);
     }
   }
 
@@ -138,19 +139,18 @@ class PassiveState extends AbstractState {
           LOGGER.debug("{} - Appended {} to log at index {}", context.getAddress(), entry, entry.getIndex());
         } else {
           // Compare the term of the received entry with the matching entry in the log.
-          try (Entry match = context.getLog().get(entry.getIndex())) {
-            if (match != null) {
-              if (entry.getTerm() != match.getTerm()) {
-                // We found an invalid entry in the log. Remove the invalid entry and append the new entry.
-                // If appending to the log fails, apply commits and reply false to the append request.
-                LOGGER.warn("{} - Appended entry term does not match local log, removing incorrect entries", context.getAddress());
-                context.getLog().truncate(entry.getIndex() - 1).append(entry);
-                LOGGER.debug("{} - Appended {} to log at index {}", context.getAddress(), entry, entry.getIndex());
-              }
-            } else {
+          long term = context.getLog().term(entry.getIndex());
+          if (term != 0) {
+            if (entry.getTerm() != term) {
+              // We found an invalid entry in the log. Remove the invalid entry and append the new entry.
+              // If appending to the log fails, apply commits and reply false to the append request.
+              LOGGER.warn("{} - Appended entry term does not match local log, removing incorrect entries", context.getAddress());
               context.getLog().truncate(entry.getIndex() - 1).append(entry);
               LOGGER.debug("{} - Appended {} to log at index {}", context.getAddress(), entry, entry.getIndex());
             }
+          } else {
+            context.getLog().truncate(entry.getIndex() - 1).append(entry);
+            LOGGER.debug("{} - Appended {} to log at index {}", context.getAddress(), entry, entry.getIndex());
           }
         }
 
@@ -173,6 +173,11 @@ class PassiveState extends AbstractState {
           context.getStateMachine().executor().context().sessions().registerAddress(connectEntry.getSession(), connectEntry.getAddress());
         }
       }
+
+      // If entries must be flushed before they're committed, flush the appended entries before acknowledging them.
+      if (context.getLog().flushOnCommit()) {
+        context.getLog().flush();
+      }
     }
 
     // If we've made it this far, apply commits and send a successful response.
@@ -207,50 +212,30 @@ class PassiveState extends AbstractState {
       long entriesToApply = effectiveIndex - lastApplied;
       LOGGER.debug("{} - Applying {} commits", context.getAddress(), entriesToApply);
 
-      CompletableFuture<Void> future = new CompletableFuture<>();
-
-      // Rather than composing all futures into a single future, use a counter to count completions in order to preserve memory.
-      AtomicInteger counter = getCounter();
-
-      for (long i = lastApplied + 1; i <= effectiveIndex; i++) {
-        Entry entry = context.getLog().get(i);
-        if (entry != null) {
-          applyEntry(entry).whenComplete((result, error) -> {
-            if (isOpen() && error != null) {
-              LOGGER.info("{} - An application error occurred: {}", context.getAddress(), error.getMessage());
-            }
-
-            if (counter.incrementAndGet() == entriesToApply) {
-              future.complete(null);
-              recycleCounter(counter);
+      // Rather than passing each entry to the state machine thread and back separately, apply entries in batches.
+      // Each batch is executed in a single state machine task and completed in a single task in this thread, and
+      // since batches are executed in order, the last batch's future completes once all entries have been applied.
+      CompletableFuture<Void> future = null;
+      for (long first = lastApplied + 1; first <= effectiveIndex; first += MAX_APPLY_BATCH_SIZE) {
+        long start = first;
+        long end = Math.min(first + MAX_APPLY_BATCH_SIZE - 1, effectiveIndex);
+        List<Entry> entries = new ArrayList<>((int) (end - start + 1));
+        future = context.getStateMachine().applyBatch(() -> {
+          for (long i = start; i <= end; i++) {
+            Entry entry = context.getLog().get(i);
+            if (entry != null) {
+              applyEntry(entry);
+              entries.add(entry);
             }
-            entry.release();
-          });
-        }
+          }
+        });
+        future.whenComplete((result, error) -> entries.forEach(Entry::release));
       }
       return future;
     }
     return CompletableFuture.completedFuture(null);
   }
 
-  /**
-   * Gets a counter from the counter pool.
-   */
-  private AtomicInteger getCounter() {
-    AtomicInteger counter = counterPool.poll();
-    if (counter == null)
-      counter = new AtomicInteger();
-    counter.set(0);
-    return counter;
-  }
-
-  /**
-   * Adds a used counter to the counter pool.
-   */
-  private void recycleCounter(AtomicInteger counter) {
-    counterPool.add(counter);
-  }
-
   /**
    * Applies an entry to the state machine.
    */
@@ -280,6 +265,16 @@ class PassiveState extends AbstractState {
       .build()));
   }
 
+  @Override
+  protected CompletableFuture<TimeoutNowResponse> timeoutNow(TimeoutNowRequest request) {
+    context.checkThread();
+    logRequest(request);
+    return CompletableFuture.completedFuture(logResponse(TimeoutNowResponse.builder()
+      .withStatus(Response.Status.ERROR)
+      .withError(RaftError.Type.ILLEGAL_MEMBER_STATE_ERROR)
+      .build()));
+  }
+
   /**
    * Forwards the given request to the leader if possible.
    */
@@ -311,7 +306,12 @@ class PassiveState extends AbstractState {
         .withError(RaftError.Type.NO_LEADER_ERROR)
         .build()));
     } else {
-      return this.<CommandRequest, CommandResponse>forward(request).thenApply(this::logResponse);
+      // Rather than proxying the command through this server, redirect the client to the leader.
+      return CompletableFuture.completedFuture(logResponse(CommandResponse.builder()
+        .withStatus(Response.Status.ERROR)
+        .withError(RaftError.Type.ILLEGAL_MEMBER_STATE_ERROR)
+        .withLeader(context.getLeader())
+        .build()));
     }
   }
 
@@ -374,6 +374,18 @@ class PassiveState extends AbstractState {
       .build()));
   }
 
+  @Override
+  protected CompletableFuture<BatchKeepAliveResponse> batchKeepAlive(BatchKeepAliveRequest request) {
+    context.checkThread();
+    logRequest(request);
+
+    return CompletableFuture.completedFuture(logResponse(BatchKeepAliveResponse.builder()
+      .withStatus(Response.Status.ERROR)
+      .withLeader(context.getLeader())
+      .withError(RaftError.Type.ILLEGAL_MEMBER_STATE_ERROR)
+      .build()));
+  }
+
   @Override
   protected CompletableFuture<UnregisterResponse> unregister(UnregisterRequest request) {
     context.checkThread();
@@ -111,8 +111,8 @@ class ServerCommit implements Commit<Operation<?>> {
       session = null;
       instant = null;
       operation = null;
-      pool.release(this);
       open = false;
+      pool.release(this);
     }
   }
 
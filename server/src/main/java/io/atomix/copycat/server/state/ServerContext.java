@@ -21,6 +21,7 @@ import io.atomix.catalyst.transport.Address;
 import io.atomix.catalyst.transport.Server;
 import io.atomix.catalyst.transport.Transport;
 import io.atomix.catalyst.util.Managed;
+import io.atomix.catalyst.util.concurrent.Scheduled;
 import io.atomix.catalyst.util.concurrent.Futures;
 import io.atomix.catalyst.util.concurrent.SingleThreadContext;
 import io.atomix.catalyst.util.concurrent.ThreadContext;
@@ -31,6 +32,11 @@ import io.atomix.copycat.server.storage.Storage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
 import java.util.Collection;
 import java.util.concurrent.CompletableFuture;
 
@@ -41,6 +47,7 @@ import java.util.concurrent.CompletableFuture;
  */
 public class ServerContext implements Managed<ServerState> {
   private static final Logger LOGGER = LoggerFactory.getLogger(ServerContext.class);
+  private static final Duration METRICS_SAMPLE_INTERVAL = Duration.ofSeconds(1);
   private final Address address;
   private final Collection<Address> members;
   private final StateMachine userStateMachine;
@@ -49,6 +56,8 @@ public class ServerContext implements Managed<ServerState> {
   private final ThreadContext context;
   private Server server;
   private ServerState state;
+  private ObjectName metricsName;
+  private Scheduled metricsTimer;
   private volatile boolean open;
 
   public ServerContext(Address address, Collection<Address> members, StateMachine stateMachine, Transport transport, Storage storage, Serializer serializer) {
@@ -77,6 +86,7 @@ public class ServerContext implements Managed<ServerState> {
 
       server.listen(address, c -> state.connect(c)).thenRun(() -> {
         state = new ServerState(address, members, log, userStateMachine, connections, context);
+        registerMetrics();
         open = true;
         future.complete(state);
       });
@@ -104,6 +114,7 @@ public class ServerContext implements Managed<ServerState> {
     CompletableFuture<Void> future = new CompletableFuture<>();
     context.executor().execute(() -> {
       open = false;
+      unregisterMetrics();
       server.close().whenCompleteAsync((result, error) -> {
         context.close();
         future.complete(null);
@@ -125,6 +136,39 @@ public class ServerContext implements Managed<ServerState> {
     return !open;
   }
 
+  /**
+   * Registers the server metrics with the platform MBean server and starts sampling metrics.
+   */
+  private void registerMetrics() {
+    metricsTimer = context.schedule(METRICS_SAMPLE_INTERVAL, METRICS_SAMPLE_INTERVAL, state::sampleMetrics);
+    try {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      ObjectName name = new ObjectName(String.format("io.atomix.copycat:type=Server,address=%s", ObjectName.quote(address.host() + ":" + address.port())));
+      server.registerMBean(state.getMetrics(), name);
+      metricsName = name;
+    } catch (JMException e) {
+      LOGGER.warn("{} - Failed to register server metrics: {}", address, e.getMessage());
+    }
+  }
+
+  /**
+   * Stops sampling metrics and unregisters the server metrics from the platform MBean server.
+   */
+  private void unregisterMetrics() {
+    if (metricsTimer != null) {
+      metricsTimer.cancel();
+      metricsTimer = null;
+    }
+    if (metricsName != null) {
+      try {
+        ManagementFactory.getPlatformMBeanServer().unregisterMBean(metricsName);
+      } catch (JMException e) {
+        LOGGER.warn("{} - Failed to unregister server metrics: {}", address, e.getMessage());
+      }
+      metricsName = null;
+    }
+  }
+
   /**
    * Deletes the context.
    */
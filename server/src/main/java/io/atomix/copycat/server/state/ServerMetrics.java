@@ -0,0 +1,327 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.copycat.server.state;
+
+import io.atomix.catalyst.transport.Address;
+import io.atomix.copycat.server.CopycatServer;
+import io.atomix.copycat.server.storage.Log;
+import io.atomix.copycat.server.util.LatencyHistogram;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Raft server metrics.
+ * <p>
+ * Metrics are recorded by the server and state machine threads and may be read concurrently from any thread,
+ * typically through JMX. Recording only updates atomic counters and volatile gauges and never allocates once a
+ * member has been seen, so metrics are always enabled. Gauges that are expensive to compute, like the size of the
+ * log, compaction statistics and the number of sessions, are sampled periodically on the thread that owns the underlying state.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+public class ServerMetrics implements ServerMetricsMXBean {
+  private final LatencyHistogram commitLatency = new LatencyHistogram();
+  private final CommandTracer tracer = new CommandTracer();
+  private final Map<Address, Replication> replication = new ConcurrentHashMap<>();
+  private final AtomicLong elections = new AtomicLong();
+  private final AtomicLong termChanges = new AtomicLong();
+  private final AtomicLong applyQueueDepth = new AtomicLong();
+  private volatile CopycatServer.State state = CopycatServer.State.INACTIVE;
+  private volatile long term;
+  private volatile long lastIndex;
+  private volatile long logSegmentCount;
+  private volatile long logSize;
+  private volatile long compactionCount;
+  private volatile long lastCompactionTime;
+  private volatile long totalCompactionTime;
+  private volatile long reclaimedBytes;
+  private volatile long sessionCount;
+  private volatile long eventBacklog;
+
+  /**
+   * Returns the command tracer.
+   */
+  CommandTracer tracer() {
+    return tracer;
+  }
+
+  /**
+   * Records a state change.
+   */
+  void recordState(CopycatServer.State state) {
+    this.state = state;
+  }
+
+  /**
+   * Records a term change.
+   */
+  void recordTerm(long term) {
+    this.term = term;
+    termChanges.incrementAndGet();
+  }
+
+  /**
+   * Records the start of an election.
+   */
+  void recordElection() {
+    elections.incrementAndGet();
+  }
+
+  /**
+   * Records the time taken to commit an entry.
+   */
+  void recordCommit(long nanos) {
+    commitLatency.record(nanos);
+  }
+
+  /**
+   * Records an append request sent to a member.
+   */
+  void recordAppendSent(Address member, long lastIndex) {
+    this.lastIndex = lastIndex;
+    replication(member).inFlight.incrementAndGet();
+  }
+
+  /**
+   * Records an append request to a member completing.
+   */
+  void recordAppendComplete(Address member) {
+    replication(member).inFlight.decrementAndGet();
+  }
+
+  /**
+   * Records a change to a member's match index.
+   */
+  void recordMatchIndex(Address member, long matchIndex) {
+    replication(member).matchIndex = matchIndex;
+  }
+
+  /**
+   * Clears replication metrics once the server is no longer the leader.
+   */
+  void clearReplication() {
+    replication.clear();
+  }
+
+  /**
+   * Returns replication metrics for the given member.
+   */
+  private Replication replication(Address member) {
+    // Look up the member before computeIfAbsent to avoid locking the map for members that have already been seen.
+    Replication replication = this.replication.get(member);
+    return replication != null ? replication : this.replication.computeIfAbsent(member, m -> new Replication());
+  }
+
+  /**
+   * Records an operation being queued for the state machine thread.
+   */
+  void recordApplyQueued() {
+    applyQueueDepth.incrementAndGet();
+  }
+
+  /**
+   * Records an operation being dequeued by the state machine thread.
+   */
+  void recordApplyDequeued() {
+    applyQueueDepth.decrementAndGet();
+  }
+
+  /**
+   * Samples log gauges. This must be called in the server thread.
+   */
+  void sampleLog(Log log) {
+    if (log.isOpen()) {
+      logSegmentCount = log.segmentCount();
+      logSize = log.size();
+      compactionCount = log.compactor().compactionCount();
+      lastCompactionTime = log.compactor().lastCompactionTime();
+      totalCompactionTime = log.compactor().totalCompactionTime();
+      reclaimedBytes = log.compactor().reclaimedBytes();
+    }
+  }
+
+  /**
+   * Samples session gauges. This must be called in the state machine thread.
+   */
+  void sampleSessions(ServerSessionManager sessions) {
+    long backlog = 0;
+    for (ServerSession session : sessions.sessions.values()) {
+      backlog += session.getEventBacklog();
+    }
+    sessionCount = sessions.sessions.size();
+    eventBacklog = backlog;
+  }
+
+  @Override
+  public String getState() {
+    return state.name();
+  }
+
+  @Override
+  public long getTerm() {
+    return term;
+  }
+
+  @Override
+  public long getElectionCount() {
+    return elections.get();
+  }
+
+  @Override
+  public long getTermChangeCount() {
+    return termChanges.get();
+  }
+
+  @Override
+  public long getCommitCount() {
+    return commitLatency.count();
+  }
+
+  @Override
+  public long getCommitLatencyP50() {
+    return TimeUnit.NANOSECONDS.toMicros(commitLatency.percentile(.5));
+  }
+
+  @Override
+  public long getCommitLatencyP99() {
+    return TimeUnit.NANOSECONDS.toMicros(commitLatency.percentile(.99));
+  }
+
+  @Override
+  public long getCommitLatencyP999() {
+    return TimeUnit.NANOSECONDS.toMicros(commitLatency.percentile(.999));
+  }
+
+  @Override
+  public long getCommitLatencyMax() {
+    return TimeUnit.NANOSECONDS.toMicros(commitLatency.max());
+  }
+
+  @Override
+  public Map<String, Long> getReplicationLag() {
+    long lastIndex = this.lastIndex;
+    Map<String, Long> lag = new HashMap<>();
+    for (Map.Entry<Address, Replication> entry : replication.entrySet()) {
+      lag.put(toString(entry.getKey()), Math.max(lastIndex - entry.getValue().matchIndex, 0));
+    }
+    return lag;
+  }
+
+  @Override
+  public Map<String, Long> getInFlightAppends() {
+    Map<String, Long> inFlight = new HashMap<>();
+    for (Map.Entry<Address, Replication> entry : replication.entrySet()) {
+      inFlight.put(toString(entry.getKey()), entry.getValue().inFlight.get());
+    }
+    return inFlight;
+  }
+
+  @Override
+  public long getApplyQueueDepth() {
+    return applyQueueDepth.get();
+  }
+
+  @Override
+  public long getLogSegmentCount() {
+    return logSegmentCount;
+  }
+
+  @Override
+  public long getLogSize() {
+    return logSize;
+  }
+
+  @Override
+  public long getCompactionCount() {
+    return compactionCount;
+  }
+
+  @Override
+  public long getLastCompactionTime() {
+    return lastCompactionTime;
+  }
+
+  @Override
+  public long getTotalCompactionTime() {
+    return totalCompactionTime;
+  }
+
+  @Override
+  public long getReclaimedBytes() {
+    return reclaimedBytes;
+  }
+
+  @Override
+  public long getSessionCount() {
+    return sessionCount;
+  }
+
+  @Override
+  public long getEventBacklog() {
+    return eventBacklog;
+  }
+
+  @Override
+  public double getCommandTraceSampleRate() {
+    return tracer.getSampleRate();
+  }
+
+  @Override
+  public void setCommandTraceSampleRate(double sampleRate) {
+    tracer.setSampleRate(sampleRate);
+  }
+
+  @Override
+  public Map<String, Long> getCommandStageLatencyP50() {
+    return tracer.percentile(.5);
+  }
+
+  @Override
+  public Map<String, Long> getCommandStageLatencyP99() {
+    return tracer.percentile(.99);
+  }
+
+  @Override
+  public Map<String, Long> getCommandStageLatencyP999() {
+    return tracer.percentile(.999);
+  }
+
+  @Override
+  public List<String> dumpCommandTraces() {
+    return tracer.dump();
+  }
+
+  /**
+   * Returns the {@code host:port} string for the given address.
+   */
+  private static String toString(Address address) {
+    return address.host() + ":" + address.port();
+  }
+
+  /**
+   * Per-member replication metrics.
+   */
+  private static class Replication {
+    private final AtomicLong inFlight = new AtomicLong();
+    private volatile long matchIndex;
+  }
+
+}
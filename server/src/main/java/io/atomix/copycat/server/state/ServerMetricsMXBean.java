@@ -0,0 +1,220 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.copycat.server.state;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Raft server metrics management interface.
+ * <p>
+ * Each open server registers its {@link ServerMetrics} with the platform MBean server under the name
+ * {@code io.atomix.copycat:type=Server,address=<host:port>}. Latencies are reported in microseconds.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+public interface ServerMetricsMXBean {
+
+  /**
+   * Returns the current server state.
+   *
+   * @return The current server state.
+   */
+  String getState();
+
+  /**
+   * Returns the current server term.
+   *
+   * @return The current server term.
+   */
+  long getTerm();
+
+  /**
+   * Returns the number of elections started by this server.
+   *
+   * @return The number of elections started by this server.
+   */
+  long getElectionCount();
+
+  /**
+   * Returns the number of times this server's term has changed.
+   *
+   * @return The number of term changes.
+   */
+  long getTermChangeCount();
+
+  /**
+   * Returns the number of commands committed while this server was the leader.
+   *
+   * @return The number of committed commands.
+   */
+  long getCommitCount();
+
+  /**
+   * Returns the median latency from appending a command to the leader's log to committing it.
+   *
+   * @return The median commit latency in microseconds.
+   */
+  long getCommitLatencyP50();
+
+  /**
+   * Returns the 99th percentile commit latency.
+   *
+   * @return The 99th percentile commit latency in microseconds.
+   */
+  long getCommitLatencyP99();
+
+  /**
+   * Returns the 99.9th percentile commit latency.
+   *
+   * @return The 99.9th percentile commit latency in microseconds.
+   */
+  long getCommitLatencyP999();
+
+  /**
+   * Returns the maximum commit latency.
+   *
+   * @return The maximum commit latency in microseconds.
+   */
+  long getCommitLatencyMax();
+
+  /**
+   * Returns the number of entries by which each member's {@code matchIndex} trails the leader's last log index.
+   * <p>
+   * Members are only tracked while this server is the leader.
+   *
+   * @return A map of member addresses to replication lag in entries.
+   */
+  Map<String, Long> getReplicationLag();
+
+  /**
+   * Returns the number of in-flight append requests to each member.
+   * <p>
+   * Members are only tracked while this server is the leader.
+   *
+   * @return A map of member addresses to in-flight append requests.
+   */
+  Map<String, Long> getInFlightAppends();
+
+  /**
+   * Returns the number of operations waiting to be executed in the state machine thread.
+   *
+   * @return The state machine apply queue depth.
+   */
+  long getApplyQueueDepth();
+
+  /**
+   * Returns the number of segments in the log.
+   *
+   * @return The number of log segments.
+   */
+  long getLogSegmentCount();
+
+  /**
+   * Returns the total size of all log segments.
+   *
+   * @return The total size of the log in bytes.
+   */
+  long getLogSize();
+
+  /**
+   * Returns the number of completed log compactions.
+   *
+   * @return The number of completed log compactions.
+   */
+  long getCompactionCount();
+
+  /**
+   * Returns the duration of the last log compaction.
+   *
+   * @return The duration of the last log compaction in milliseconds.
+   */
+  long getLastCompactionTime();
+
+  /**
+   * Returns the total time spent compacting the log.
+   *
+   * @return The total time spent compacting the log in milliseconds.
+   */
+  long getTotalCompactionTime();
+
+  /**
+   * Returns the total number of bytes reclaimed by log compaction.
+   *
+   * @return The total number of bytes reclaimed by log compaction.
+   */
+  long getReclaimedBytes();
+
+  /**
+   * Returns the number of open sessions.
+   *
+   * @return The number of open sessions.
+   */
+  long getSessionCount();
+
+  /**
+   * Returns the number of event batches published to sessions but not yet acknowledged.
+   *
+   * @return The number of unacknowledged event batches.
+   */
+  long getEventBacklog();
+
+  /**
+   * Returns the fraction of commands for which per-stage timings are traced.
+   *
+   * @return The command trace sample rate between {@code 0} and {@code 1}.
+   */
+  double getCommandTraceSampleRate();
+
+  /**
+   * Sets the fraction of commands for which per-stage timings are traced.
+   *
+   * @param sampleRate The command trace sample rate between {@code 0} and {@code 1}.
+   */
+  void setCommandTraceSampleRate(double sampleRate);
+
+  /**
+   * Returns the median time traced commands spent in each pipeline stage.
+   * <p>
+   * The time spent in a stage is measured from the end of the previous recorded stage. The {@code FLUSHED} stage
+   * overlaps replication and is measured from the {@code APPENDED} stage.
+   *
+   * @return A map of stage names to median stage latency in microseconds.
+   */
+  Map<String, Long> getCommandStageLatencyP50();
+
+  /**
+   * Returns the 99th percentile time traced commands spent in each pipeline stage.
+   *
+   * @return A map of stage names to 99th percentile stage latency in microseconds.
+   */
+  Map<String, Long> getCommandStageLatencyP99();
+
+  /**
+   * Returns the 99.9th percentile time traced commands spent in each pipeline stage.
+   *
+   * @return A map of stage names to 99.9th percentile stage latency in microseconds.
+   */
+  Map<String, Long> getCommandStageLatencyP999();
+
+  /**
+   * Dumps the most recently completed command traces, most recent first.
+   *
+   * @return The most recently completed command traces.
+   */
+  List<String> dumpCommandTraces();
+
+}
@@ -49,7 +49,6 @@ class ServerSession implements Session {
   private long request;
   private long sequence;
   private long version;
-  private long commandLowWaterMark;
   private long eventVersion;
   private long eventAckVersion;
   private long timestamp;
@@ -57,10 +56,9 @@ class ServerSession implements Session {
   private final Map<Long, List<Runnable>> sequenceQueries = new HashMap<>();
   private final Map<Long, List<Runnable>> versionQueries = new HashMap<>();
   private final Map<Long, Runnable> commands = new HashMap<>();
-  private final Map<Long, Object> responses = new HashMap<>();
+  private final ServerSessionResponses responses;
   private final Queue<EventHolder> events = new ArrayDeque<>();
   private EventHolder event;
-  private final Map<Long, CompletableFuture<Void>> futures = new HashMap<>();
   private boolean suspect;
   private boolean unregistering;
   private boolean expired;
@@ -75,6 +73,7 @@ class ServerSession implements Session {
     this.version = id - 1;
     this.context = context;
     this.timeout = timeout;
+    this.responses = new ServerSessionResponses(context.sessions().getMaxResponses());
   }
 
   @Override
@@ -301,16 +300,15 @@ class ServerSession implements Session {
    * <p>
    * Responses are stored in memory on all servers in order to provide linearizable semantics. When a command
    * is applied to the state machine, the command's return value is stored with the sequence number. Once the
-   * client acknowledges receipt of the command output the response will be cleared from memory.
+   * client acknowledges receipt of the command output the response will be cleared from memory. If the client
+   * doesn't acknowledge responses, the oldest responses are evicted once the session's response limit is reached.
    *
    * @param sequence The response sequence number.
    * @param response The response.
    * @return The server session.
    */
   ServerSession registerResponse(long sequence, Object response, CompletableFuture<Void> future) {
-    responses.put(sequence, response);
-    if (future != null)
-      futures.put(sequence, future);
+    responses.register(sequence, response, future);
     return this;
   }
 
@@ -325,13 +323,7 @@ class ServerSession implements Session {
    * @return The server session.
    */
   ServerSession clearResponses(long sequence) {
-    if (sequence > commandLowWaterMark) {
-      for (long i = commandLowWaterMark + 1; i <= sequence; i++) {
-        responses.remove(i);
-        futures.remove(i);
-        commandLowWaterMark = i;
-      }
-    }
+    responses.clear(sequence);
     return this;
   }
 
@@ -342,7 +334,17 @@ class ServerSession implements Session {
    * @return The response.
    */
   Object getResponse(long sequence) {
-    return responses.get(sequence);
+    return responses.getResponse(sequence);
+  }
+
+  /**
+   * Returns a boolean indicating whether the response for the given sequence was evicted before it was acknowledged.
+   *
+   * @param sequence The response sequence.
+   * @return Indicates whether the response was evicted.
+   */
+  boolean isResponseEvicted(long sequence) {
+    return responses.isEvicted(sequence);
   }
 
   /**
@@ -352,7 +354,7 @@ class ServerSession implements Session {
    * @return The response future.
    */
   CompletableFuture<Void> getResponseFuture(long sequence) {
-    return futures.get(sequence);
+    return responses.getFuture(sequence);
   }
 
   /**
@@ -398,6 +400,7 @@ class ServerSession implements Session {
   @Override
   public Session publish(String event, Object message) {
     Assert.stateNot(closed, "session is not open");
+    Assert.stateNot(ServerStateMachinePartitions.isPartitioned(), "session events cannot be published by partitioned operations");
     Assert.state(context.consistency() != null, "session events can only be published during command execution");
 
     // If the client acked a version greater than the current event sequence number since we know the client must have received it from another server.
@@ -457,6 +460,15 @@ class ServerSession implements Session {
     return version;
   }
 
+  /**
+   * Returns the number of event batches that have been published to the session but not yet acknowledged.
+   *
+   * @return The number of unacknowledged event batches.
+   */
+  int getEventBacklog() {
+    return events.size();
+  }
+
   /**
    * Clears events up to the given sequence.
    *
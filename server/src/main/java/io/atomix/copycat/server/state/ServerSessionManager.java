@@ -30,15 +30,34 @@ import java.util.concurrent.ConcurrentHashMap;
  * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
  */
 class ServerSessionManager implements Sessions {
+  private static final int DEFAULT_MAX_RESPONSES = 1024 * 16;
   private final Map<Long, Address> addresses = new ConcurrentHashMap<>();
   private final Map<Long, Connection> connections = new ConcurrentHashMap<>();
   final Map<Long, ServerSession> sessions = new ConcurrentHashMap<>();
+  private int maxResponses = DEFAULT_MAX_RESPONSES;
 
   @Override
   public Session session(long sessionId) {
     return sessions.get(sessionId);
   }
 
+  /**
+   * Sets the maximum number of unacknowledged command responses to cache for each session.
+   * <p>
+   * The limit applies to sessions registered after it is set.
+   */
+  ServerSessionManager setMaxResponses(int maxResponses) {
+    this.maxResponses = maxResponses;
+    return this;
+  }
+
+  /**
+   * Returns the maximum number of unacknowledged command responses to cache for each session.
+   */
+  int getMaxResponses() {
+    return maxResponses;
+  }
+
   /**
    * Registers an address.
    */
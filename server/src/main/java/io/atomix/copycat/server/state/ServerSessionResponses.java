@@ -0,0 +1,179 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.copycat.server.state;
+
+import io.atomix.catalyst.util.Assert;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Bounded cache of command responses for a single session.
+ * <p>
+ * Responses are stored in a ring buffer indexed by command sequence number. Sequence numbers are assigned to commands
+ * contiguously by the client, so the cached responses always cover a contiguous range of sequence numbers from the
+ * lowest sequence not yet acknowledged by the client to the highest sequence applied to the state machine. Clearing
+ * acknowledged responses simply advances the start of the range, and the buffer grows and shrinks with the number of
+ * unacknowledged responses.
+ * <p>
+ * The number of cached responses is bounded by the configured maximum. Once a client has more unacknowledged commands
+ * than the maximum, the responses for its oldest commands are evicted. Because eviction depends only on the sequence
+ * of commands applied to the state machine, every server evicts the same responses. Resubmissions of commands whose
+ * responses were evicted can be detected with {@link #isEvicted(long)}.
+ * <p>
+ * This class is not thread safe and must only be used from the state machine thread.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+class ServerSessionResponses {
+  private static final int MIN_CAPACITY = 16;
+  private final int maxSize;
+  private Object[] responses = new Object[MIN_CAPACITY];
+  private CompletableFuture[] futures = new CompletableFuture[MIN_CAPACITY];
+  private int mask = MIN_CAPACITY - 1;
+  private long first = 1;
+  private long last;
+  private long acked;
+  private long evicted;
+
+  ServerSessionResponses(int maxSize) {
+    this.maxSize = Assert.arg(maxSize, maxSize > 0, "maxSize must be positive");
+  }
+
+  /**
+   * Returns the number of cached responses.
+   *
+   * @return The number of cached responses.
+   */
+  int size() {
+    return (int) (last - first + 1);
+  }
+
+  /**
+   * Registers the response for the given sequence number.
+   *
+   * @param sequence The command sequence number.
+   * @param response The command response.
+   * @param future The future to be completed once events published by the command have been received, or {@code null}.
+   */
+  void register(long sequence, Object response, CompletableFuture<Void> future) {
+    if (sequence < first)
+      return;
+
+    // If caching the response would exceed the maximum size, evict the oldest responses.
+    if (sequence - first >= maxSize) {
+      evicted = sequence - maxSize;
+      remove(evicted);
+    }
+
+    // Grow the buffer until it covers the sequence number.
+    int capacity = responses.length;
+    while (sequence - first >= capacity) {
+      capacity <<= 1;
+    }
+    if (capacity != responses.length) {
+      resize(capacity);
+    }
+
+    int index = (int) (sequence & mask);
+    responses[index] = response;
+    futures[index] = future;
+    last = Math.max(last, sequence);
+  }
+
+  /**
+   * Clears responses up to and including the given sequence number.
+   *
+   * @param sequence The highest sequence number acknowledged by the client.
+   */
+  void clear(long sequence) {
+    if (sequence < first)
+      return;
+
+    acked = sequence;
+    remove(sequence);
+
+    // Release memory held by a buffer that was grown to handle a burst of unacknowledged responses.
+    int capacity = responses.length;
+    while (capacity > MIN_CAPACITY && size() < capacity >>> 2) {
+      capacity >>>= 1;
+    }
+    if (capacity != responses.length) {
+      resize(capacity);
+    }
+  }
+
+  /**
+   * Returns the response for the given sequence number.
+   *
+   * @param sequence The command sequence number.
+   * @return The cached response or {@code null} if no response is cached for the sequence number.
+   */
+  Object getResponse(long sequence) {
+    return sequence >= first && sequence <= last ? responses[(int) (sequence & mask)] : null;
+  }
+
+  /**
+   * Returns the response future for the given sequence number.
+   *
+   * @param sequence The command sequence number.
+   * @return The cached response future or {@code null} if no future is cached for the sequence number.
+   */
+  @SuppressWarnings("unchecked")
+  CompletableFuture<Void> getFuture(long sequence) {
+    return sequence >= first && sequence <= last ? futures[(int) (sequence & mask)] : null;
+  }
+
+  /**
+   * Returns a boolean indicating whether the response for the given sequence number was evicted before the client
+   * acknowledged it.
+   *
+   * @param sequence The command sequence number.
+   * @return Indicates whether the response for the given sequence number was evicted.
+   */
+  boolean isEvicted(long sequence) {
+    return sequence > acked && sequence <= evicted;
+  }
+
+  /**
+   * Removes responses up to and including the given sequence number from the buffer.
+   */
+  private void remove(long sequence) {
+    for (long i = first, end = Math.min(sequence, last); i <= end; i++) {
+      int index = (int) (i & mask);
+      responses[index] = null;
+      futures[index] = null;
+    }
+    first = sequence + 1;
+    last = Math.max(last, sequence);
+  }
+
+  /**
+   * Resizes the buffer to the given capacity, which must be a power of two large enough to hold all cached responses.
+   */
+  private void resize(int capacity) {
+    Object[] responses = new Object[capacity];
+    CompletableFuture[] futures = new CompletableFuture[capacity];
+    int mask = capacity - 1;
+    for (long i = first; i <= last; i++) {
+      responses[(int) (i & mask)] = this.responses[(int) (i & this.mask)];
+      futures[(int) (i & mask)] = this.futures[(int) (i & this.mask)];
+    }
+    this.responses = responses;
+    this.futures = futures;
+    this.mask = mask;
+  }
+
+}
@@ -56,12 +56,17 @@ public class ServerState {
   private final Log log;
   private final ServerStateMachine stateMachine;
   private final ConnectionManager connections;
+  private final ServerMetrics metrics = new ServerMetrics();
   private AbstractState state = new InactiveState(this);
   private Duration electionTimeout = Duration.ofMillis(500);
   private Duration sessionTimeout = Duration.ofMillis(5000);
   private Duration heartbeatInterval = Duration.ofMillis(150);
+  private double leaseDriftFactor = 0.1;
+  private int maxPendingEntries = 1024 * 64;
+  private long catchUpBandwidth;
   private Scheduled joinTimer;
   private Scheduled leaveTimer;
+  private boolean transferring;
   private int leader;
   private long term;
   private int lastVotedFor;
@@ -81,7 +86,7 @@ public class ServerState {
 
     // Create a state machine executor and configure the state machine.
     ThreadContext stateContext = new SingleThreadContext("copycat-server-" + address + "-state-%d", threadContext.serializer().clone());
-    this.stateMachine = new ServerStateMachine(userStateMachine, new ServerStateMachineContext(connections, new ServerSessionManager()), log::clean, stateContext);
+    this.stateMachine = new ServerStateMachine(userStateMachine, new ServerStateMachineContext(connections, new ServerSessionManager()), log::clean, stateContext, metrics);
 
     cluster.configure(0, activeMembers, Collections.EMPTY_LIST);
   }
@@ -124,6 +129,23 @@ public class ServerState {
     return threadContext;
   }
 
+  /**
+   * Returns the server metrics.
+   *
+   * @return The server metrics.
+   */
+  public ServerMetrics getMetrics() {
+    return metrics;
+  }
+
+  /**
+   * Samples server and state machine metrics.
+   */
+  void sampleMetrics() {
+    metrics.sampleLog(log);
+    stateMachine.sampleMetrics();
+  }
+
   /**
    * Returns the context connection manager.
    *
@@ -173,6 +195,127 @@ public class ServerState {
     return heartbeatInterval;
   }
 
+  /**
+   * Sets the leader lease clock drift factor.
+   *
+   * @param leaseDriftFactor The fraction of the election timeout to reserve for clock drift.
+   * @return The Raft context.
+   */
+  public ServerState setLeaseDriftFactor(double leaseDriftFactor) {
+    this.leaseDriftFactor = leaseDriftFactor;
+    return this;
+  }
+
+  /**
+   * Returns the leader lease clock drift factor.
+   *
+   * @return The fraction of the election timeout reserved for clock drift.
+   */
+  public double getLeaseDriftFactor() {
+    return leaseDriftFactor;
+  }
+
+  /**
+   * Sets the maximum number of entries the leader may have pending application.
+   *
+   * @param maxPendingEntries The maximum number of entries the leader may have pending application.
+   * @return The Raft context.
+   */
+  public ServerState setMaxPendingEntries(int maxPendingEntries) {
+    this.maxPendingEntries = maxPendingEntries;
+    return this;
+  }
+
+  /**
+   * Returns the maximum number of entries the leader may have pending application.
+   * <p>
+   * When the number of entries appended to the leader's log but not yet applied to its state machine exceeds
+   * this limit, the leader rejects new commands with an {@link io.atomix.copycat.client.error.RaftError.Type#OVERLOADED_ERROR}
+   * to signal clients to back off.
+   *
+   * @return The maximum number of entries the leader may have pending application.
+   */
+  public int getMaxPendingEntries() {
+    return maxPendingEntries;
+  }
+
+  /**
+   * Sets the maximum rate at which the leader replicates entries to members that are catching up.
+   *
+   * @param catchUpBandwidth The maximum catch-up replication rate in bytes per second, or {@code 0} for no limit.
+   * @return The Raft context.
+   */
+  public ServerState setCatchUpBandwidth(long catchUpBandwidth) {
+    this.catchUpBandwidth = catchUpBandwidth;
+    return this;
+  }
+
+  /**
+   * Returns the maximum rate at which the leader replicates entries to members that are catching up.
+   * <p>
+   * Members that are catching up include passive members joining the cluster and active members that are
+   * too far behind to count towards the current commit index. Entries replicated to those members share
+   * this bandwidth so that large catch-ups don't delay replication to the members that form the quorum.
+   *
+   * @return The maximum catch-up replication rate in bytes per second, or {@code 0} if there is no limit.
+   */
+  public long getCatchUpBandwidth() {
+    return catchUpBandwidth;
+  }
+
+  /**
+   * Sets the maximum number of unacknowledged command responses cached for each session.
+   *
+   * @param maxSessionResponses The maximum number of unacknowledged command responses cached for each session.
+   * @return The Raft context.
+   */
+  public ServerState setMaxSessionResponses(int maxSessionResponses) {
+    stateMachine.executor().context().sessions().setMaxResponses(maxSessionResponses);
+    return this;
+  }
+
+  /**
+   * Returns the maximum number of unacknowledged command responses cached for each session.
+   *
+   * @return The maximum number of unacknowledged command responses cached for each session.
+   */
+  public int getMaxSessionResponses() {
+    return stateMachine.executor().context().sessions().getMaxResponses();
+  }
+
+  /**
+   * Sets the fraction of commands for which per-stage timings are traced.
+   *
+   * @param sampleRate The fraction of commands to trace between {@code 0} and {@code 1}.
+   * @return The Raft context.
+   */
+  public ServerState setCommandTraceSampleRate(double sampleRate) {
+    metrics.tracer().setSampleRate(sampleRate);
+    return this;
+  }
+
+  /**
+   * Returns the fraction of commands for which per-stage timings are traced.
+   *
+   * @return The fraction of commands to trace.
+   */
+  public double getCommandTraceSampleRate() {
+    return metrics.tracer().getSampleRate();
+  }
+
+  /**
+   * Returns the leader lease timeout.
+   * <p>
+   * The lease timeout is the election timeout reduced by the configured clock drift factor. Followers will
+   * not elect a new leader within an election timeout of hearing from the leader, so the leader may serve
+   * reads locally for the lease timeout after a quorum has acknowledged a request.
+   *
+   * @return The leader lease timeout.
+   */
+  public Duration getLeaseTimeout() {
+    return Duration.ofNanos((long) (electionTimeout.toNanos() * (1 - leaseDriftFactor)));
+  }
+
   /**
    * Returns the session timeout.
    *
@@ -269,6 +412,7 @@ public class ServerState {
       this.term = term;
       this.leader = 0;
       this.lastVotedFor = 0;
+      metrics.recordTerm(term);
       LOGGER.debug("{} - Set term {}", address, term);
     }
     return this;
@@ -431,6 +575,7 @@ public class ServerState {
     connection.handler(ConnectRequest.class, request -> state.connect(request, connection));
     connection.handler(AcceptRequest.class, request -> state.accept(request));
     connection.handler(KeepAliveRequest.class, request -> state.keepAlive(request));
+    connection.handler(BatchKeepAliveRequest.class, request -> state.batchKeepAlive(request));
     connection.handler(UnregisterRequest.class, request -> state.unregister(request));
     connection.handler(PublishRequest.class, request -> state.publish(request));
     connection.handler(JoinRequest.class, request -> state.join(request));
@@ -438,6 +583,7 @@ public class ServerState {
     connection.handler(AppendRequest.class, request -> state.append(request));
     connection.handler(PollRequest.class, request -> state.poll(request));
     connection.handler(VoteRequest.class, request -> state.vote(request));
+    connection.handler(TimeoutNowRequest.class, request -> state.timeoutNow(request));
     connection.handler(CommandRequest.class, request -> state.command(request));
     connection.handler(QueryRequest.class, request -> state.query(request));
   }
@@ -470,6 +616,7 @@ public class ServerState {
       throw new IllegalStateException("failed to initialize Raft state", e);
     }
 
+    metrics.recordState(this.state.type());
     stateChangeListeners.forEach(l -> l.accept(this.state.type()));
     return CompletableFuture.completedFuture(null);
   }
@@ -533,10 +680,16 @@ public class ServerState {
           } else if (response.error() == null) {
             // If the response error is null, that indicates that no error occurred but the leader was
             // in a state that was incapable of handling the join request. Attempt to join the leader
-            // again after an election timeout.
+            // again after an election timeout, completing this join once the retry completes.
             LOGGER.debug("{} - Failed to join {}", address, member.getAddress());
             cancelJoinTimer();
-            joinTimer = threadContext.schedule(electionTimeout, this::join);
+            joinTimer = threadContext.schedule(electionTimeout, () -> join().whenComplete((result, joinError) -> {
+              if (joinError == null) {
+                future.complete(null);
+              } else {
+                future.completeExceptionally(joinError);
+              }
+            }));
           } else {
             // If the response error was non-null, attempt to join via the next server in the members list.
             LOGGER.debug("{} - Failed to join {}", address, member.getAddress());
@@ -619,6 +772,46 @@ public class ServerState {
     }
   }
 
+  /**
+   * Transfers leadership to the given member.
+   */
+  public CompletableFuture<Void> transferLeadership(Address member) {
+    CompletableFuture<Void> future = new CompletableFuture<>();
+    threadContext.execute(() -> {
+      if (state.type() == CopycatServer.State.LEADER) {
+        ((LeaderState) state).transfer(member).whenComplete((result, error) -> {
+          if (error == null) {
+            future.complete(null);
+          } else {
+            future.completeExceptionally(error);
+          }
+        });
+      } else {
+        future.completeExceptionally(new IllegalStateException("not the leader"));
+      }
+    });
+    return future;
+  }
+
+  /**
+   * Transitions to the candidate state to take over leadership at the request of the leader.
+   */
+  void transfer() {
+    transferring = true;
+    try {
+      transition(CopycatServer.State.CANDIDATE);
+    } finally {
+      transferring = false;
+    }
+  }
+
+  /**
+   * Returns a boolean indicating whether the server is starting an election at the request of the leader.
+   */
+  boolean isTransferring() {
+    return transferring;
+  }
+
   /**
    * Creates an internal state for the given state type.
    */
@@ -20,15 +20,22 @@ import io.atomix.catalyst.util.concurrent.ComposableFuture;
 import io.atomix.catalyst.util.concurrent.Futures;
 import io.atomix.catalyst.util.concurrent.ThreadContext;
 import io.atomix.copycat.client.Command;
+import io.atomix.copycat.client.PartitionedCommand;
+import io.atomix.copycat.client.error.ApplicationException;
+import io.atomix.copycat.client.error.IllegalMemberStateException;
 import io.atomix.copycat.client.error.InternalException;
 import io.atomix.copycat.client.error.UnknownSessionException;
+import io.atomix.copycat.server.PartitionedStateMachine;
 import io.atomix.copycat.server.StateMachine;
 import io.atomix.copycat.server.storage.entry.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.time.Instant;
+import java.util.Arrays;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Raft server state machine.
@@ -41,15 +48,28 @@ class ServerStateMachine implements AutoCloseable {
   private final ServerStateMachineExecutor executor;
   private final ServerCommitCleaner cleaner;
   private final ServerCommitPool commits;
+  private final ServerMetrics metrics;
   private long lastApplied;
   private long lastCompleted;
   private long configuration;
 
   ServerStateMachine(StateMachine stateMachine, ServerStateMachineContext context, ServerCommitCleaner cleaner, ThreadContext executor) {
+    this(stateMachine, context, cleaner, executor, new ServerMetrics());
+  }
+
+  ServerStateMachine(StateMachine stateMachine, ServerStateMachineContext context, ServerCommitCleaner cleaner, ThreadContext executor, ServerMetrics metrics) {
     this.stateMachine = stateMachine;
-    this.executor = new ServerStateMachineExecutor(context, executor);
+    this.metrics = metrics;
+    this.executor = new ServerStateMachineExecutor(context, executor, stateMachine instanceof PartitionedStateMachine ? ((PartitionedStateMachine) stateMachine).partitions() : 0);
     this.cleaner = cleaner;
-    this.commits = new ServerCommitPool(cleaner, this.executor.context().sessions());
+
+    // Partitioned commits may be cleaned on partition threads, so cleaning is handed back to the state machine thread.
+    if (this.executor.partitions() != null) {
+      Executor stateExecutor = this.executor.directExecutor();
+      this.commits = new ServerCommitPool(index -> stateExecutor.execute(() -> cleaner.clean(index)), this.executor.context().sessions());
+    } else {
+      this.commits = new ServerCommitPool(cleaner, this.executor.context().sessions());
+    }
     init();
   }
 
@@ -131,16 +151,30 @@ class ServerStateMachine implements AutoCloseable {
    * @return The result.
    */
   CompletableFuture<?> apply(Entry entry, boolean expectResult) {
+    return apply(entry, expectResult, CommandTrace.NONE);
+  }
+
+  /**
+   * Applies an entry to the state machine.
+   *
+   * @param entry The entry to apply.
+   * @param expectResult Indicates whether this call expects a result.
+   * @param trace The trace in which to record the stages of a command entry.
+   * @return The result.
+   */
+  CompletableFuture<?> apply(Entry entry, boolean expectResult, CommandTrace trace) {
     boolean apply = !(entry instanceof QueryEntry);
     try {
       if (!apply) {
         return apply((QueryEntry) entry);
       } else if (entry instanceof CommandEntry) {
-        return apply((CommandEntry) entry, expectResult);
+        return apply((CommandEntry) entry, expectResult, trace);
       } else if (entry instanceof RegisterEntry) {
         return apply((RegisterEntry) entry, expectResult);
       } else if (entry instanceof KeepAliveEntry) {
         return apply((KeepAliveEntry) entry);
+      } else if (entry instanceof BatchKeepAliveEntry) {
+        return apply((BatchKeepAliveEntry) entry);
       } else if (entry instanceof UnregisterEntry) {
         return apply((UnregisterEntry) entry, expectResult);
       } else if (entry instanceof NoOpEntry) {
@@ -159,6 +193,41 @@ class ServerStateMachine implements AutoCloseable {
     }
   }
 
+  /**
+   * Applies a batch of entries to the state machine.
+   * <p>
+   * Entries applied by the given callback are handed to the state machine thread in a single task and executed
+   * back-to-back, and the futures returned for those entries are completed in a single task in the caller's thread
+   * rather than each entry being passed between threads separately. If a batch is already open, entries are
+   * added to the open batch.
+   *
+   * @param callback A callback that applies entries to the state machine.
+   * @return A future to be completed in the caller's thread once all entries in the batch have been executed.
+   */
+  CompletableFuture<Void> applyBatch(Runnable callback) {
+    ServerStateMachineBatch batch = executor.openBatch(ThreadContext.currentContextOrThrow());
+    if (batch == null) {
+      callback.run();
+      batch = executor.batch();
+      return batch != null ? batch.future() : CompletableFuture.completedFuture(null);
+    }
+
+    try {
+      callback.run();
+    } finally {
+      executor.closeBatch(batch);
+    }
+    return batch.future();
+  }
+
+  /**
+   * Returns the executor with which to complete futures in the caller's thread.
+   */
+  private Executor callerExecutor() {
+    ServerStateMachineBatch batch = executor.batch();
+    return batch != null ? batch : ThreadContext.currentContextOrThrow().executor();
+  }
+
   /**
    * Applies an entry to the state machine.
    *
@@ -211,7 +280,7 @@ class ServerStateMachine implements AutoCloseable {
     // but it will make them available to be unregistered by the leader.
     suspectSessions(timestamp);
 
-    ThreadContext context = ThreadContext.currentContextOrThrow();
+    Executor context = callerExecutor();
     long index = entry.getIndex();
 
     // Call the register() method on the user-provided state machine to allow the state machine to react to
@@ -235,10 +304,10 @@ class ServerStateMachine implements AutoCloseable {
       CompletableFuture<Void> sessionFuture = executor.context().commit();
       if (sessionFuture != null) {
         sessionFuture.whenComplete((result, error) -> {
-          context.executor().execute(() -> future.complete(index));
+          context.execute(() -> future.complete(index));
         });
       } else {
-        context.executor().execute(() -> future.complete(index));
+        context.execute(() -> future.complete(index));
       }
     });
 
@@ -278,7 +347,7 @@ class ServerStateMachine implements AutoCloseable {
     // expire a session by committing an UnregisterEntry in order to ensure sessions can't be expired
     // during leadership changes.
     else {
-      ThreadContext context = ThreadContext.currentContextOrThrow();
+      Executor context = callerExecutor();
 
       // Set the session as trusted. This will prevent the leader from explicitly unregistering the
       // session if it hasn't done so already.
@@ -301,7 +370,7 @@ class ServerStateMachine implements AutoCloseable {
       updateLastCompleted(entry.getIndex());
 
       future = new CompletableFuture<>();
-      context.executor().execute(() -> future.complete(null));
+      context.execute(() -> future.complete(null));
     }
 
     // Immediately clean the keep alive entry from the log.
@@ -310,6 +379,67 @@ class ServerStateMachine implements AutoCloseable {
     return future;
   }
 
+  /**
+   * Applies an entry to the state machine.
+   *
+   * @param entry The entry to apply.
+   * @return A future to be completed with the sessions in the entry that are not known to the state machine.
+   */
+  private CompletableFuture<long[]> apply(BatchKeepAliveEntry entry) {
+    // Update the deterministic executor time and allow the executor to execute any scheduled events. Time
+    // progresses once for the entire batch, exactly as it would for a single keep alive entry.
+    long timestamp = executor.tick(entry.getTimestamp());
+
+    // Determine whether any sessions appear to be expired before the sessions in the batch are trusted.
+    suspectSessions(timestamp);
+
+    Executor context = callerExecutor();
+
+    long[] unknownSessions = new long[entry.getSessionCount()];
+    int unknownCount = 0;
+
+    // Store the command/event sequence and event version of each known session instead of acquiring a reference
+    // to the entry, and trust and update each session exactly as a single-session keep alive would.
+    int count = entry.getSessionCount();
+    ServerSession[] sessions = new ServerSession[count];
+    long[] commandSequences = new long[count];
+    long[] eventVersions = new long[count];
+    for (int i = 0; i < count; i++) {
+      ServerSession session = executor.context().sessions().getSession(entry.getSession(i));
+      if (session == null) {
+        LOGGER.warn("Unknown session: " + entry.getSession(i));
+        unknownSessions[unknownCount++] = entry.getSession(i);
+      } else {
+        session.trust();
+        session.setTimestamp(timestamp);
+        sessions[i] = session;
+        commandSequences[i] = entry.getCommandSequence(i);
+        eventVersions[i] = entry.getEventVersion(i);
+      }
+    }
+
+    // Clear responses and resend events for all sessions in a single task on the state machine thread.
+    executor.executor().execute(() -> {
+      for (int i = 0; i < count; i++) {
+        if (sessions[i] != null) {
+          sessions[i].clearResponses(commandSequences[i]).resendEvents(eventVersions[i]);
+        }
+      }
+    });
+
+    // Since the index of acked events in the sessions changed, update the highest index completed for all
+    // sessions to allow log compaction to progress.
+    updateLastCompleted(entry.getIndex());
+
+    // Immediately clean the keep alive entry from the log.
+    cleaner.clean(entry.getIndex());
+
+    long[] result = unknownCount == unknownSessions.length ? unknownSessions : Arrays.copyOf(unknownSessions, unknownCount);
+    CompletableFuture<long[]> future = new CompletableFuture<>();
+    context.execute(() -> future.complete(result));
+    return future;
+  }
+
   /**
    * Applies an entry to the state machine.
    *
@@ -338,7 +468,7 @@ class ServerStateMachine implements AutoCloseable {
     // If the session exists, don't allow it to expire even if its expiration has passed since we still
     // managed to receive a keep alive request from the client before it was removed.
     else {
-      ThreadContext context = ThreadContext.currentContextOrThrow();
+      Executor context = callerExecutor();
       future = new CompletableFuture<>();
 
       long index = entry.getIndex();
@@ -365,10 +495,10 @@ class ServerStateMachine implements AutoCloseable {
           CompletableFuture<Void> sessionFuture = executor.context().commit();
           if (sessionFuture != null) {
             sessionFuture.whenComplete((result, error) -> {
-              context.executor().execute(() -> future.complete(null));
+              context.execute(() -> future.complete(null));
             });
           } else {
-            context.executor().execute(() -> future.complete(null));
+            context.execute(() -> future.complete(null));
           }
         });
       }
@@ -393,10 +523,10 @@ class ServerStateMachine implements AutoCloseable {
           CompletableFuture<Void> sessionFuture = executor.context().commit();
           if (sessionFuture != null) {
             sessionFuture.whenComplete((result, error) -> {
-              context.executor().execute(() -> future.complete(null));
+              context.execute(() -> future.complete(null));
             });
           } else {
-            context.executor().execute(() -> future.complete(null));
+            context.execute(() -> future.complete(null));
           }
         });
       }
@@ -422,7 +552,7 @@ class ServerStateMachine implements AutoCloseable {
    * @param synchronous Whether the call expects a result.
    * @return The result.
    */
-  private CompletableFuture<Object> apply(CommandEntry entry, boolean synchronous) {
+  private CompletableFuture<Object> apply(CommandEntry entry, boolean synchronous, CommandTrace trace) {
     final CompletableFuture<Object> future = new CompletableFuture<>();
 
     // First check to ensure that the session exists.
@@ -440,7 +570,7 @@ class ServerStateMachine implements AutoCloseable {
     else if (entry.getSequence() > 0 && entry.getSequence() < session.nextSequence()) {
       // Ensure the response check is executed in the state machine thread in order to ensure the
       // command was applied, otherwise there will be a race condition and concurrent modification issues.
-      ThreadContext context = ThreadContext.currentContextOrThrow();
+      Executor context = callerExecutor();
       long sequence = entry.getSequence();
 
       // Get the consistency level of the command. This should match the consistency level of the original command.
@@ -449,16 +579,21 @@ class ServerStateMachine implements AutoCloseable {
       // Switch to the state machine thread and get the existing response.
       executor.executor().execute(() -> {
 
+        // If the response was evicted from the session's response cache before the client acknowledged it, the
+        // original output of the command can't be returned. Fail the command rather than applying it twice.
+        if (session.isResponseEvicted(sequence)) {
+          context.execute(() -> future.completeExceptionally(new ApplicationException("response for command %d was evicted", sequence)));
+        }
         // If the command's consistency level is not LINEARIZABLE or null (which are equivalent), return the
         // cached response immediately in the server thread.
-        if (consistency == Command.ConsistencyLevel.NONE || consistency == Command.ConsistencyLevel.SEQUENTIAL) {
+        else if (consistency == Command.ConsistencyLevel.NONE || consistency == Command.ConsistencyLevel.SEQUENTIAL) {
           Object response = session.getResponse(sequence);
           if (response == null) {
-            context.executor().execute(() -> future.complete(null));
+            context.execute(() -> future.complete(null));
           } else if (response instanceof Throwable) {
-            context.executor().execute(() -> future.completeExceptionally((Throwable) response));
+            context.execute(() -> future.completeExceptionally((Throwable) response));
           } else {
-            context.executor().execute(() -> future.complete(response));
+            context.execute(() -> future.complete(response));
           }
         } else {
           // For linearizable commands, check whether a future is registered for the command. A future will be
@@ -470,11 +605,11 @@ class ServerStateMachine implements AutoCloseable {
             sessionFuture.whenComplete((result, error) -> {
               Object response = session.getResponse(sequence);
               if (response == null) {
-                context.executor().execute(() -> future.complete(null));
+                context.execute(() -> future.complete(null));
               } else if (response instanceof Throwable) {
-                context.executor().execute(() -> future.completeExceptionally((Throwable) response));
+                context.execute(() -> future.completeExceptionally((Throwable) response));
               } else {
-                context.executor().execute(() -> future.complete(response));
+                context.execute(() -> future.complete(response));
               }
             });
           } else {
@@ -482,11 +617,11 @@ class ServerStateMachine implements AutoCloseable {
             // server thread.
             Object response = session.getResponse(sequence);
             if (response == null) {
-              context.executor().execute(() -> future.complete(null));
+              context.execute(() -> future.complete(null));
             } else if (response instanceof Throwable) {
-              context.executor().execute(() -> future.completeExceptionally((Throwable) response));
+              context.execute(() -> future.completeExceptionally((Throwable) response));
             } else {
-              context.executor().execute(() -> future.complete(response));
+              context.execute(() -> future.complete(response));
             }
           }
         }
@@ -495,7 +630,7 @@ class ServerStateMachine implements AutoCloseable {
     // If we've made it this far, the command must have been applied in the proper order as sequenced by the
     // session. This should be the case for most commands applied to the state machine.
     else {
-      executeCommand(entry, session, synchronous, future, ThreadContext.currentContextOrThrow());
+      executeCommand(entry, session, synchronous, future, callerExecutor(), trace);
     }
 
     return future;
@@ -504,9 +639,7 @@ class ServerStateMachine implements AutoCloseable {
   /**
    * Executes a state machine command.
    */
-  private CompletableFuture<Object> executeCommand(CommandEntry entry, ServerSession session, boolean synchronous, CompletableFuture<Object> future, ThreadContext context) {
-    context.checkThread();
-
+  private CompletableFuture<Object> executeCommand(CommandEntry entry, ServerSession session, boolean synchronous, CompletableFuture<Object> future, Executor context, CommandTrace trace) {
     // Allow the executor to execute any scheduled events.
     long timestamp = executor.tick(entry.getTimestamp());
     long sequence = entry.getSequence();
@@ -516,7 +649,19 @@ class ServerStateMachine implements AutoCloseable {
     // Execute the command in the state machine thread. Once complete, the CompletableFuture callback will be completed
     // in the state machine thread. Register the result in that thread and then complete the future in the caller's thread.
     ServerCommit commit = commits.acquire(entry, timestamp);
+    metrics.recordApplyQueued();
+    trace.record(CommandTrace.Stage.DISPATCHED);
+
+    // If the state machine is partitioned and the command has a partition key, execute the command on its partition.
+    Object partitionKey = executor.partitions() != null && entry.getCommand() instanceof PartitionedCommand ? ((PartitionedCommand) entry.getCommand()).partitionKey() : null;
+    if (partitionKey != null) {
+      executePartitionedCommand(commit, partitionKey, session, sequence, future, context, trace);
+      session.setTimestamp(timestamp).setSequence(sequence);
+      return future;
+    }
+
     executor.executor().execute(() -> {
+      metrics.recordApplyDequeued();
 
       // Update the state machine context with the commit index and local server context. The synchronous flag
       // indicates whether the server expects linearizable completion of published events. Events will be published
@@ -526,6 +671,7 @@ class ServerStateMachine implements AutoCloseable {
       try {
         // Execute the state machine operation and get the result.
         Object result = executor.executeOperation(commit);
+        trace.record(CommandTrace.Stage.EXECUTED);
 
         // Once the operation has been applied to the state machine, commit events published by the command.
         // The state machine context will build a composite future for events published to all sessions.
@@ -536,7 +682,7 @@ class ServerStateMachine implements AutoCloseable {
         // the sequential nature of the command means we shouldn't need to block even on retries.
         if (consistency == Command.ConsistencyLevel.NONE || consistency == Command.ConsistencyLevel.SEQUENTIAL) {
           session.registerResponse(sequence, result, null);
-          context.executor().execute(() -> future.complete(result));
+          context.execute(() -> future.complete(result));
         } else {
           // If the command consistency level is LINEARIZABLE, store the response with the event future. The stored
           // response will be used to provide linearizable semantics for commands resubmitted to the cluster.
@@ -545,16 +691,17 @@ class ServerStateMachine implements AutoCloseable {
           session.registerResponse(sequence, result, sessionFuture);
           if (sessionFuture != null) {
             sessionFuture.whenComplete((sessionResult, sessionError) -> {
-              context.executor().execute(() -> future.complete(result));
+              trace.record(CommandTrace.Stage.EVENTS_COMMITTED);
+              context.execute(() -> future.complete(result));
             });
           } else {
-            context.executor().execute(() -> future.complete(result));
+            context.execute(() -> future.complete(result));
           }
         }
       } catch (Exception e) {
         // If an exception occurs during execution of the command, store the exception.
         session.registerResponse(sequence, e, null);
-        context.executor().execute(() -> future.completeExceptionally(e));
+        context.execute(() -> future.completeExceptionally(e));
       }
     });
 
@@ -565,6 +712,30 @@ class ServerStateMachine implements AutoCloseable {
     return future;
   }
 
+  /**
+   * Executes a partitioned state machine command.
+   * <p>
+   * The command is submitted to its partition from the state machine thread so that partitioned commands are
+   * submitted in log order relative to all other state machine operations. Partitioned commands can't publish
+   * session events, so the response is registered and the command completed as soon as the partition and all
+   * prior partitioned commands have completed.
+   */
+  private void executePartitionedCommand(ServerCommit commit, Object partitionKey, ServerSession session, long sequence, CompletableFuture<Object> future, Executor context, CommandTrace trace) {
+    executor.directExecutor().execute(() -> {
+      metrics.recordApplyDequeued();
+      executor.partitions().execute(partitionKey, () -> executor.executeOperation(commit), (result, error) -> {
+        trace.record(CommandTrace.Stage.EXECUTED);
+        if (error == null) {
+          session.registerResponse(sequence, result, null);
+          context.execute(() -> future.complete(result));
+        } else {
+          session.registerResponse(sequence, error, null);
+          context.execute(() -> future.completeExceptionally(error));
+        }
+      });
+    });
+  }
+
   /**
    * Applies an entry to the state machine.
    *
@@ -601,10 +772,10 @@ class ServerStateMachine implements AutoCloseable {
         if (version > session.getVersion()) {
           session.registerVersionQuery(version, () -> {
             context.checkThread();
-            executeQuery(commit, future, context);
+            executeQuery(commit, future);
           });
         } else {
-          executeQuery(commit, future, context);
+          executeQuery(commit, future);
         }
       });
       return future;
@@ -618,25 +789,49 @@ class ServerStateMachine implements AutoCloseable {
       ServerCommit commit = commits.acquire(entry, executor.timestamp());
       session.registerVersionQuery(entry.getVersion(), () -> {
         context.checkThread();
-        executeQuery(commit, future, context);
+        executeQuery(commit, future);
       });
       return future;
     } else {
-      return executeQuery(commits.acquire(entry, executor.timestamp()), new CompletableFuture<>(), ThreadContext.currentContextOrThrow());
+      return executeQuery(commits.acquire(entry, executor.timestamp()), new CompletableFuture<>());
     }
   }
 
   /**
    * Executes a state machine query.
    */
-  private CompletableFuture<Object> executeQuery(ServerCommit commit, CompletableFuture<Object> future, ThreadContext context) {
+  private CompletableFuture<Object> executeQuery(ServerCommit commit, CompletableFuture<Object> future) {
+    Executor context = callerExecutor();
+    metrics.recordApplyQueued();
+
     executor.executor().execute(() -> {
+      metrics.recordApplyDequeued();
+
+      // If the query is thread safe, execute it on the query executor once all prior commands have been applied
+      // rather than blocking the state machine thread. Registered operations are only read in the state machine thread.
+      if (executor.isConcurrent(commit.type())) {
+        try {
+          executor.queryExecutor().execute(() -> {
+            try {
+              Object result = executor.executeOperation(commit);
+              context.execute(() -> future.complete(result));
+            } catch (Exception e) {
+              context.execute(() -> future.completeExceptionally(e));
+            }
+          });
+        } catch (RejectedExecutionException e) {
+          commit.close();
+          context.execute(() -> future.completeExceptionally(new IllegalMemberStateException("state machine closed")));
+        }
+        return;
+      }
+
       executor.context().update(commit.index(), commit.time(), true, null);
       try {
         Object result = executor.executeOperation(commit);
-        context.executor().execute(() -> future.complete(result));
+        context.execute(() -> future.complete(result));
       } catch (Exception e) {
-        context.executor().execute(() -> future.completeExceptionally(e));
+        context.execute(() -> future.completeExceptionally(e));
       }
     });
     return future;
@@ -684,6 +879,13 @@ class ServerStateMachine implements AutoCloseable {
     }
   }
 
+  /**
+   * Samples state machine metrics in the state machine thread.
+   */
+  void sampleMetrics() {
+    executor.executor().execute(() -> metrics.sampleSessions(executor.context().sessions()));
+  }
+
   @Override
   public void close() {
     executor.close();
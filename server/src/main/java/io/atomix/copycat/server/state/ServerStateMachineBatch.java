@@ -0,0 +1,116 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.copycat.server.state;
+
+import io.atomix.catalyst.util.concurrent.ThreadContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Batch of state machine tasks handed to the state machine thread at once.
+ * <p>
+ * While a batch is open, tasks submitted to the state machine executor from the thread that opened the batch are
+ * queued in the batch rather than submitted one at a time. Once the batch is closed, the queued tasks are executed
+ * back-to-back in a single state machine thread task. The batch is also an {@link Executor} for the caller's thread:
+ * callbacks submitted to it by the batch's tasks are collected and run in a single task in the caller's thread after
+ * the batch has been executed, and callbacks submitted at any other time are passed straight to the caller's thread.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+class ServerStateMachineBatch implements Executor {
+  private static final Logger LOGGER = LoggerFactory.getLogger(ServerStateMachineBatch.class);
+  private final Thread owner = Thread.currentThread();
+  private final ThreadContext context;
+  private final List<Runnable> tasks = new ArrayList<>();
+  private final List<Runnable> callbacks = new ArrayList<>();
+  private final CompletableFuture<Void> future = new CompletableFuture<>();
+  private Thread runner;
+  private boolean open = true;
+
+  ServerStateMachineBatch(ThreadContext context) {
+    this.context = context;
+  }
+
+  /**
+   * Returns a boolean indicating whether tasks submitted by the current thread should be added to the batch.
+   */
+  boolean isOwner() {
+    return open && Thread.currentThread() == owner;
+  }
+
+  /**
+   * Adds a task to the batch.
+   */
+  void add(Runnable task) {
+    tasks.add(task);
+  }
+
+  /**
+   * Returns a future to be completed in the caller's thread once all tasks in the batch have been executed.
+   */
+  CompletableFuture<Void> future() {
+    return future;
+  }
+
+  /**
+   * Closes the batch and submits its tasks to the given state machine executor.
+   */
+  void close(Executor executor) {
+    open = false;
+    if (tasks.isEmpty()) {
+      future.complete(null);
+    } else {
+      executor.execute(this::run);
+    }
+  }
+
+  /**
+   * Executes the batch in the state machine thread.
+   */
+  private void run() {
+    runner = Thread.currentThread();
+    for (Runnable task : tasks) {
+      try {
+        task.run();
+      } catch (RuntimeException e) {
+        LOGGER.error("An uncaught exception occurred", e);
+      }
+    }
+    runner = null;
+
+    context.executor().execute(() -> {
+      for (Runnable callback : callbacks) {
+        callback.run();
+      }
+      future.complete(null);
+    });
+  }
+
+  @Override
+  public void execute(Runnable callback) {
+    if (Thread.currentThread() == runner) {
+      callbacks.add(callback);
+    } else {
+      context.executor().execute(callback);
+    }
+  }
+
+}
@@ -18,10 +18,12 @@ package io.atomix.copycat.server.state;
 
 import io.atomix.catalyst.serializer.Serializer;
 import io.atomix.catalyst.util.Assert;
+import io.atomix.catalyst.util.concurrent.CatalystThreadFactory;
 import io.atomix.catalyst.util.concurrent.Scheduled;
 import io.atomix.catalyst.util.concurrent.ThreadContext;
 import io.atomix.copycat.client.Command;
 import io.atomix.copycat.client.Operation;
+import io.atomix.copycat.client.Query;
 import io.atomix.copycat.client.error.ApplicationException;
 import io.atomix.copycat.server.Commit;
 import io.atomix.copycat.server.StateMachineExecutor;
@@ -33,6 +35,8 @@ import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -45,15 +49,114 @@ import java.util.function.Supplier;
 class ServerStateMachineExecutor implements StateMachineExecutor {
   private static final Logger LOGGER = LoggerFactory.getLogger(ServerStateMachineExecutor.class);
   private final ThreadContext executor;
+  private final ServerStateMachinePartitions partitions;
+  private final Runnable awaitPartitions;
+  private final Executor barrier = this::executeAfterPartitions;
+  private final Executor direct = this::executeDirect;
+  private ServerStateMachineBatch batch;
   private final ServerStateMachineContext context;
-  private final List<ServerScheduledTask> tasks = new ArrayList<>();
-  private final List<ServerScheduledTask> complete = new ArrayList<>();
+  private final ServerTimingWheel timers = new ServerTimingWheel();
   private final Map<Class, Function> operations = new HashMap<>();
+  private ClassValue<Function> resolvedOperations = new OperationResolver();
+  private ExecutorService queryExecutor;
   private long timestamp;
 
   ServerStateMachineExecutor(ServerStateMachineContext context, ThreadContext executor) {
+    this(context, executor, 0);
+  }
+
+  ServerStateMachineExecutor(ServerStateMachineContext context, ThreadContext executor, int partitions) {
     this.executor = executor;
     this.context = context;
+    if (partitions > 0) {
+      this.partitions = new ServerStateMachinePartitions(partitions, executor.executor(), executor.serializer());
+      this.awaitPartitions = this.partitions::await;
+    } else {
+      this.partitions = null;
+      this.awaitPartitions = null;
+    }
+  }
+
+  /**
+   * Executes a callback on the state machine thread once all prior partitioned operations have completed.
+   */
+  private void executeAfterPartitions(Runnable callback) {
+    ServerStateMachineBatch batch = batch();
+    if (batch != null) {
+      if (partitions != null) {
+        batch.add(awaitPartitions);
+      }
+      batch.add(callback);
+    } else if (partitions != null) {
+      executor.executor().execute(() -> {
+        partitions.await();
+        callback.run();
+      });
+    } else {
+      executor.executor().execute(callback);
+    }
+  }
+
+  /**
+   * Executes a callback on the state machine thread.
+   */
+  private void executeDirect(Runnable callback) {
+    ServerStateMachineBatch batch = batch();
+    if (batch != null) {
+      batch.add(callback);
+    } else {
+      executor.executor().execute(callback);
+    }
+  }
+
+  /**
+   * Opens a batch in the current thread.
+   * <p>
+   * Until the batch is {@link #closeBatch(ServerStateMachineBatch) closed}, callbacks submitted to the state machine
+   * thread from the current thread are queued in the batch.
+   *
+   * @return The opened batch or {@code null} if a batch is already open.
+   */
+  ServerStateMachineBatch openBatch(ThreadContext context) {
+    if (batch != null) {
+      return null;
+    }
+    batch = new ServerStateMachineBatch(context);
+    return batch;
+  }
+
+  /**
+   * Closes the given batch and submits it to the state machine thread.
+   */
+  void closeBatch(ServerStateMachineBatch batch) {
+    this.batch = null;
+    batch.close(executor.executor());
+  }
+
+  /**
+   * Returns the batch opened by the current thread or {@code null} if the current thread has no open batch.
+   */
+  ServerStateMachineBatch batch() {
+    ServerStateMachineBatch batch = this.batch;
+    return batch != null && batch.isOwner() ? batch : null;
+  }
+
+  /**
+   * Returns the state machine partitions or {@code null} if the state machine is not partitioned.
+   */
+  ServerStateMachinePartitions partitions() {
+    return partitions;
+  }
+
+  /**
+   * Returns an executor that executes callbacks on the state machine thread without waiting for partitioned operations.
+   * <p>
+   * Callbacks executed through {@link #executor()} are only executed once all partitioned operations submitted before
+   * them have completed. This executor bypasses that barrier and must only be used to submit partitioned operations
+   * and to run callbacks that don't access state machine state.
+   */
+  Executor directExecutor() {
+    return direct;
   }
 
   /**
@@ -80,7 +183,23 @@ class ServerStateMachineExecutor implements StateMachineExecutor {
 
   @Override
   public Executor executor() {
-    return executor.executor();
+    return barrier;
+  }
+
+  /**
+   * Returns a boolean indicating whether queries of the given type can be executed concurrently.
+   * <p>
+   * Registered operations are not thread safe, so this must be called in the state machine thread.
+   */
+  boolean isConcurrent(Class<?> type) {
+    return resolvedOperations.get(type) instanceof ConcurrentQuery;
+  }
+
+  /**
+   * Returns the executor on which concurrent queries are executed.
+   */
+  Executor queryExecutor() {
+    return queryExecutor;
   }
 
   /**
@@ -88,25 +207,8 @@ class ServerStateMachineExecutor implements StateMachineExecutor {
    */
   @SuppressWarnings("unchecked")
   <T extends Operation<U>, U> U executeOperation(Commit commit) {
-    // Get the function registered for the operation. If no function is registered, attempt to
-    // use a global function if available.
-    Function function = operations.get(commit.type());
-
-    if (function == null) {
-      // If no operation function was found for the class, try to find an operation function
-      // registered with a parent class.
-      for (Map.Entry<Class, Function> entry : operations.entrySet()) {
-        if (entry.getKey().isAssignableFrom(commit.type())) {
-          function = entry.getValue();
-          break;
-        }
-      }
-
-      // If a parent operation function was found, store the function for future reference.
-      if (function != null) {
-        operations.put(commit.type(), function);
-      }
-    }
+    // Get the function registered for the operation or the closest registered supertype of the operation.
+    Function function = resolvedOperations.get(commit.type());
 
     if (function == null) {
       throw new IllegalStateException("unknown state machine operation: " + commit.type());
@@ -116,7 +218,7 @@ class ServerStateMachineExecutor implements StateMachineExecutor {
       try {
         return (U) function.apply(commit);
       } catch (Exception e) {
-        throw new ApplicationException("An application error occurred", e);
+        throw new ApplicationException(e, "An application error occurred");
       }
     }
   }
@@ -127,49 +229,54 @@ class ServerStateMachineExecutor implements StateMachineExecutor {
    * @return The updated executor timestamp. This timestamp is guaranteed to be monotonically increasing.
    */
   long tick(long timestamp) {
-    this.timestamp = Math.max(this.timestamp, timestamp);
-
-    // Only create an iterator if there are actually tasks scheduled.
-    if (!tasks.isEmpty()) {
-
-      // Iterate through scheduled tasks until we reach a task that has not met its scheduled time.
-      // The tasks list is sorted by time on insertion.
-      Iterator<ServerScheduledTask> iterator = tasks.iterator();
-      while (iterator.hasNext()) {
-        ServerScheduledTask task = iterator.next();
-        if (task.complete(this.timestamp)) {
-          executor.executor().execute(() -> {
-            context.update(context.version(), Instant.ofEpochMilli(task.time), false, Command.ConsistencyLevel.SEQUENTIAL);
-            task.execute();
-          });
-          complete.add(task);
-          iterator.remove();
-        } else {
-          break;
-        }
-      }
-
-      // Iterate through tasks that were completed and reschedule them.
-      for (ServerScheduledTask task : complete) {
-        task.reschedule();
-      }
-      complete.clear();
+    // Timers are scheduled and expired in the state machine thread, so advance the timing wheel in that thread.
+    // Because the wheel is advanced in log order relative to the commands that schedule timers, every replica
+    // expires the same timers at the same point in the log.
+    if (timestamp > this.timestamp) {
+      this.timestamp = timestamp;
+      barrier.execute(() -> timers.advance(timestamp, timer -> expire((ServerScheduledTask) timer, timestamp)));
     }
     return this.timestamp;
   }
 
+  /**
+   * Executes an expired scheduled task and reschedules it if it's a repeating task.
+   */
+  private void expire(ServerScheduledTask task, long timestamp) {
+    context.update(context.version(), Instant.ofEpochMilli(task.time), false, Command.ConsistencyLevel.SEQUENTIAL);
+    try {
+      task.execute();
+    } catch (RuntimeException e) {
+      LOGGER.error("An uncaught exception occurred in scheduled callback", e);
+    }
+    task.reschedule(timestamp);
+  }
+
   @Override
   public CompletableFuture<Void> execute(Runnable callback) {
-    return executor.execute(callback);
+    if (partitions == null) {
+      return executor.execute(callback);
+    }
+    return executor.execute(() -> {
+      partitions.await();
+      callback.run();
+    });
   }
 
   @Override
   public <T> CompletableFuture<T> execute(Supplier<T> callback) {
-    return executor.execute(callback);
+    if (partitions == null) {
+      return executor.execute(callback);
+    }
+    return executor.execute(() -> {
+      partitions.await();
+      return callback.get();
+    });
   }
 
   @Override
   public Scheduled schedule(Duration delay, Runnable callback) {
+    Assert.stateNot(ServerStateMachinePartitions.isPartitioned(), "callbacks cannot be scheduled by partitioned operations");
     Assert.state(context.consistency() != null, "callbacks can only be scheduled during command execution");
     LOGGER.debug("Scheduled callback {} with delay {}", callback, delay);
     return new ServerScheduledTask(callback, delay.toMillis()).schedule();
@@ -177,6 +284,7 @@ class ServerStateMachineExecutor implements StateMachineExecutor {
 
   @Override
   public Scheduled schedule(Duration initialDelay, Duration interval, Runnable callback) {
+    Assert.stateNot(ServerStateMachinePartitions.isPartitioned(), "callbacks cannot be scheduled by partitioned operations");
     Assert.state(context.consistency() != null, "callbacks can only be scheduled during command execution");
     LOGGER.debug("Scheduled repeating callback {} with initial delay {} and interval {}", callback, initialDelay, interval);
     return new ServerScheduledTask(callback, initialDelay.toMillis(), interval.toMillis()).schedule();
@@ -190,6 +298,7 @@ class ServerStateMachineExecutor implements StateMachineExecutor {
       callback.accept(commit);
       return null;
     });
+    resolvedOperations = new OperationResolver();
     LOGGER.debug("Registered void operation callback {}", type);
     return this;
   }
@@ -199,30 +308,48 @@ class ServerStateMachineExecutor implements StateMachineExecutor {
     Assert.notNull(type, "type");
     Assert.notNull(callback, "callback");
     operations.put(type, callback);
+    resolvedOperations = new OperationResolver();
     LOGGER.debug("Registered value operation callback {}", type);
     return this;
   }
 
+  @Override
+  public <T extends Query<U>, U> StateMachineExecutor registerConcurrent(Class<T> type, Function<Commit<T>, U> callback) {
+    Assert.notNull(type, "type");
+    Assert.notNull(callback, "callback");
+    if (queryExecutor == null) {
+      queryExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new CatalystThreadFactory("copycat-server-query-%d"));
+    }
+    operations.put(type, new ConcurrentQuery(callback));
+    resolvedOperations = new OperationResolver();
+    LOGGER.debug("Registered concurrent query callback {}", type);
+    return this;
+  }
+
   @Override
   public void close() {
+    if (queryExecutor != null) {
+      queryExecutor.shutdown();
+    }
+    if (partitions != null) {
+      partitions.close();
+    }
     executor.close();
   }
 
   /**
    * Scheduled task.
    */
-  private class ServerScheduledTask implements Scheduled {
-    private final long delay;
+  private class ServerScheduledTask extends ServerTimingWheel.Timer implements Scheduled {
     private final long interval;
     private final Runnable callback;
-    private long time;
+    private boolean cancelled;
 
     private ServerScheduledTask(Runnable callback, long delay) {
       this(callback, delay, 0);
     }
 
     private ServerScheduledTask(Runnable callback, long delay, long interval) {
-      this.delay = delay;
       this.interval = interval;
       this.callback = callback;
       this.time = context.clock().instant().toEpochMilli() + delay;
@@ -232,64 +359,84 @@ class ServerStateMachineExecutor implements StateMachineExecutor {
      * Schedules the task.
      */
     private Scheduled schedule() {
-      // Perform binary search to insert the task at the appropriate position in the tasks list.
-      if (tasks.isEmpty()) {
-        tasks.add(this);
-      } else {
-        int l = 0;
-        int u = tasks.size() - 1;
-        int i;
-        while (true) {
-          i = (u + l) / 2;
-          long t = tasks.get(i).time;
-          if (t == time) {
-            tasks.add(i, this);
-            return this;
-          } else if (t < time) {
-            l = i + 1;
-            if (l > u) {
-              tasks.add(i + 1, this);
-              return this;
-            }
-          } else {
-            u = i - 1;
-            if (l > u) {
-              tasks.add(i, this);
-              return this;
-            }
-          }
-        }
-      }
+      timers.schedule(this);
       return this;
     }
 
     /**
      * Reschedules the task.
      */
-    private void reschedule() {
-      if (interval > 0) {
-        time = timestamp + delay;
+    private void reschedule(long timestamp) {
+      if (interval > 0 && !cancelled) {
+        time = timestamp + interval;
         schedule();
       }
     }
 
-    /**
-     * Returns a boolean value indicating whether the task delay has been met.
-     */
-    private boolean complete(long timestamp) {
-      return timestamp > time;
-    }
-
     /**
      * Executes the task.
      */
-    private synchronized void execute() {
+    private void execute() {
       callback.run();
     }
 
     @Override
-    public synchronized void cancel() {
-      tasks.remove(this);
+    public void cancel() {
+      cancelled = true;
+      timers.cancel(this);
+    }
+  }
+
+  /**
+   * Thread safe query function.
+   */
+  private static class ConcurrentQuery implements Function {
+    private final Function function;
+
+    private ConcurrentQuery(Function function) {
+      this.function = function;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object apply(Object commit) {
+      return function.apply(commit);
+    }
+  }
+
+  /**
+   * Resolves and caches the operation function for each operation type.
+   * <p>
+   * If no function is registered for an operation type, the function registered for the type's closest superclass
+   * is used, followed by the function registered for any of its interfaces in breadth first order. Each type is
+   * resolved once, and because registering an operation replaces the resolver, resolved functions never go stale.
+   */
+  private class OperationResolver extends ClassValue<Function> {
+    @Override
+    protected Function computeValue(Class<?> type) {
+      for (Class<?> superclass = type; superclass != null; superclass = superclass.getSuperclass()) {
+        Function function = operations.get(superclass);
+        if (function != null) {
+          return function;
+        }
+      }
+
+      Deque<Class<?>> interfaces = new ArrayDeque<>();
+      for (Class<?> superclass = type; superclass != null; superclass = superclass.getSuperclass()) {
+        interfaces.addAll(Arrays.asList(superclass.getInterfaces()));
+      }
+      Set<Class<?>> visited = new HashSet<>();
+      while (!interfaces.isEmpty()) {
+        Class<?> iface = interfaces.poll();
+        if (visited.add(iface)) {
+          Function function = operations.get(iface);
+          if (function != null) {
+            return function;
+          }
+          interfaces.addAll(Arrays.asList(iface.getInterfaces()));
+        }
+      }
+      return null;
     }
   }
 
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.copycat.server.state;
+
+import io.atomix.catalyst.serializer.Serializer;
+import io.atomix.catalyst.util.concurrent.SingleThreadContext;
+import io.atomix.catalyst.util.concurrent.ThreadContext;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Partition threads for a {@link io.atomix.copycat.server.PartitionedStateMachine}.
+ * <p>
+ * Operations are submitted from the state machine thread in log order and executed on the partition thread
+ * selected by their partition key. Completion callbacks are run on the state machine thread in the order in
+ * which operations were submitted, regardless of the order in which partitions complete them. This class is
+ * not thread safe and must only be used from the state machine thread.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+class ServerStateMachinePartitions implements AutoCloseable {
+  private static final ThreadLocal<Boolean> PARTITIONED = new ThreadLocal<>();
+  private final ThreadContext[] partitions;
+  private final Executor executor;
+  private final Queue<PartitionTask> tasks = new ArrayDeque<>();
+
+  ServerStateMachinePartitions(int partitions, Executor executor, Serializer serializer) {
+    this.partitions = new ThreadContext[partitions];
+    for (int i = 0; i < partitions; i++) {
+      this.partitions[i] = new SingleThreadContext("copycat-server-state-partition-" + i, serializer.clone());
+    }
+    this.executor = executor;
+  }
+
+  /**
+   * Returns a boolean indicating whether the current thread is executing a partitioned operation.
+   * <p>
+   * Partitioned operations run concurrently with the state machine thread and so must not access state that's
+   * owned by the state machine thread, such as timers or session events.
+   */
+  static boolean isPartitioned() {
+    return PARTITIONED.get() != null;
+  }
+
+  /**
+   * Returns the number of partitions.
+   */
+  int size() {
+    return partitions.length;
+  }
+
+  /**
+   * Returns the partition for the given key.
+   */
+  int partition(Object key) {
+    return Math.floorMod(key.hashCode(), partitions.length);
+  }
+
+  /**
+   * Executes an operation on the partition for the given key.
+   *
+   * @param key The operation partition key.
+   * @param operation The operation to execute.
+   * @param callback The callback to call on the state machine thread once the operation and all prior operations
+   *                 have completed.
+   */
+  @SuppressWarnings("unchecked")
+  <T> void execute(Object key, Supplier<T> operation, BiConsumer<T, Throwable> callback) {
+    PartitionTask task = new PartitionTask((BiConsumer) callback);
+    tasks.add(task);
+    partitions[partition(key)].executor().execute(() -> {
+      PARTITIONED.set(true);
+      try {
+        task.complete(operation.get());
+      } catch (Throwable e) {
+        task.completeExceptionally(e);
+      } finally {
+        PARTITIONED.remove();
+      }
+      executor.execute(this::drain);
+    });
+  }
+
+  /**
+   * Completes operations that are complete and have no incomplete predecessors.
+   */
+  private void drain() {
+    PartitionTask task = tasks.peek();
+    while (task != null && task.isDone()) {
+      tasks.remove().run();
+      task = tasks.peek();
+    }
+  }
+
+  /**
+   * Blocks until all submitted operations have completed and completes them in submission order.
+   * <p>
+   * This is called on the state machine thread prior to applying any entry that is not partitioned.
+   */
+  void await() {
+    PartitionTask task = tasks.poll();
+    while (task != null) {
+      task.run();
+      task = tasks.poll();
+    }
+  }
+
+  @Override
+  public void close() {
+    for (ThreadContext partition : partitions) {
+      partition.close();
+    }
+  }
+
+  /**
+   * Partitioned operation.
+   */
+  private static class PartitionTask extends CompletableFuture<Object> implements Runnable {
+    private final BiConsumer<Object, Throwable> callback;
+
+    private PartitionTask(BiConsumer<Object, Throwable> callback) {
+      this.callback = callback;
+    }
+
+    /**
+     * Waits for the operation to complete and calls the callback.
+     */
+    @Override
+    public void run() {
+      Object result = null;
+      Throwable error = null;
+      try {
+        result = join();
+      } catch (Exception e) {
+        error = e.getCause() != null ? e.getCause() : e;
+      }
+      callback.accept(result, error);
+    }
+  }
+
+}
@@ -0,0 +1,236 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.copycat.server.state;
+
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel for deterministic state machine timers.
+ * <p>
+ * Time is measured in milliseconds and advanced explicitly with the timestamps of committed entries, so the wheel
+ * expires the same timers in the same order on every replica. The wheel has four levels of 256 slots, each level
+ * covering 256 times the range of the level below it. Timers are placed in the lowest level whose range covers their
+ * delay and are cascaded down to lower levels as time advances, so scheduling and cancelling a timer is O(1)
+ * regardless of the number of timers. Timers that expire in the same millisecond are expired in the order in which
+ * they arrived in that millisecond's slot.
+ * <p>
+ * This class is not thread safe and must only be used from the state machine thread.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+class ServerTimingWheel {
+  private static final int LEVELS = 4;
+  private static final int LEVEL_BITS = 8;
+  private static final int SLOTS = 1 << LEVEL_BITS;
+  private static final int MASK = SLOTS - 1;
+  private static final long MAX_DELAY = (1L << (LEVEL_BITS * LEVELS)) - 1;
+
+  private final Timer[][] slots = new Timer[LEVELS][SLOTS];
+  private final Timer expired = new Timer();
+  private final int[] counts = new int[LEVELS];
+  private long time;
+  private int size;
+
+  ServerTimingWheel() {
+    expired.prev = expired;
+    expired.next = expired;
+    for (int level = 0; level < LEVELS; level++) {
+      for (int slot = 0; slot < SLOTS; slot++) {
+        Timer head = new Timer();
+        head.prev = head;
+        head.next = head;
+        slots[level][slot] = head;
+      }
+    }
+  }
+
+  /**
+   * Returns the current wheel time.
+   * <p>
+   * All timers scheduled for a time prior to the wheel time have been expired.
+   */
+  long time() {
+    return time;
+  }
+
+  /**
+   * Returns the number of scheduled timers.
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * Schedules a timer to expire once the wheel advances past the timer's time.
+   * <p>
+   * Timers scheduled for a time prior to the current wheel time expire the next time the wheel advances.
+   */
+  void schedule(Timer timer) {
+    if (timer.head != null) {
+      cancel(timer);
+    }
+    insert(timer);
+    size++;
+  }
+
+  /**
+   * Cancels a timer. Cancelling a timer that is not scheduled has no effect.
+   */
+  void cancel(Timer timer) {
+    if (timer.head != null) {
+      remove(timer);
+      size--;
+    }
+  }
+
+  /**
+   * Advances the wheel to the given time, expiring all timers scheduled for a time prior to it in time order.
+   * <p>
+   * The callback may schedule and cancel timers. Timers scheduled by the callback are expired no earlier than the
+   * next millisecond, so a callback that reschedules itself can't expire more than once per millisecond.
+   *
+   * @param time The time to which to advance the wheel.
+   * @param callback The callback to call for each expired timer.
+   */
+  void advance(long time, Consumer<Timer> callback) {
+    while (this.time < time) {
+      if (size == 0) {
+        this.time = time;
+        return;
+      }
+
+      // If the lower levels of the wheel are empty, skip ahead to the next slot boundary of the lowest non-empty level.
+      int level = 0;
+      while (counts[level] == 0) {
+        level++;
+      }
+      if (level > 0) {
+        long span = 1L << (LEVEL_BITS * level);
+        long next = (this.time + span - 1) & -span;
+        if (next > this.time) {
+          this.time = Math.min(next, time);
+          if (this.time < next) {
+            return;
+          }
+        }
+      }
+
+      // Cascade timers from higher levels whenever a lower level wraps around.
+      int index = (int) (this.time & MASK);
+      if (index == 0) {
+        for (int l = 1; l < LEVELS; l++) {
+          int slot = (int) ((this.time >>> (LEVEL_BITS * l)) & MASK);
+          cascade(l, slot);
+          if (slot != 0) {
+            break;
+          }
+        }
+      }
+
+      // Move the timers in the current slot to the expired list and advance the time before calling the callback
+      // for each timer, so timers scheduled by the callback are placed in later slots.
+      Timer head = slots[0][index];
+      if (head.next != head) {
+        expired.next = head.next;
+        expired.prev = head.prev;
+        expired.next.prev = expired;
+        expired.prev.next = expired;
+        head.next = head;
+        head.prev = head;
+      }
+      this.time++;
+
+      Timer timer = expired.next;
+      while (timer != expired) {
+        remove(timer);
+        size--;
+        callback.accept(timer);
+        timer = expired.next;
+      }
+    }
+  }
+
+  /**
+   * Re-inserts all timers in the given slot into the wheel relative to the current time.
+   */
+  private void cascade(int level, int slot) {
+    Timer head = slots[level][slot];
+    Timer timer = head.next;
+    while (timer != head) {
+      Timer next = timer.next;
+      remove(timer);
+      insert(timer);
+      timer = next;
+    }
+  }
+
+  /**
+   * Inserts a timer into the slot for its time.
+   */
+  private void insert(Timer timer) {
+    long time = Math.max(timer.time, this.time);
+    long delay = time - this.time;
+    if (delay > MAX_DELAY) {
+      time = this.time + MAX_DELAY;
+      delay = MAX_DELAY;
+    }
+
+    int level = 0;
+    while (delay >= 1L << (LEVEL_BITS * (level + 1))) {
+      level++;
+    }
+
+    Timer head = slots[level][(int) ((time >>> (LEVEL_BITS * level)) & MASK)];
+    timer.head = head;
+    timer.level = level;
+    timer.prev = head.prev;
+    timer.next = head;
+    head.prev.next = timer;
+    head.prev = timer;
+    counts[level]++;
+  }
+
+  /**
+   * Removes a timer from its slot.
+   */
+  private void remove(Timer timer) {
+    timer.prev.next = timer.next;
+    timer.next.prev = timer.prev;
+    timer.prev = null;
+    timer.next = null;
+    timer.head = null;
+    counts[timer.level]--;
+  }
+
+  /**
+   * Timing wheel timer.
+   */
+  static class Timer {
+    protected long time;
+    private Timer head;
+    private Timer prev;
+    private Timer next;
+    private int level;
+
+    /**
+     * Returns a boolean indicating whether the timer is scheduled.
+     */
+    boolean isScheduled() {
+      return head != null;
+    }
+  }
+
+}
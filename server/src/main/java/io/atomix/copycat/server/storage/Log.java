@@ -15,6 +15,7 @@
  */
 package io.atomix.copycat.server.storage;
 
+import io.atomix.catalyst.buffer.BufferOutput;
 import io.atomix.catalyst.serializer.Serializer;
 import io.atomix.catalyst.util.Assert;
 import io.atomix.catalyst.util.concurrent.CatalystThreadFactory;
@@ -126,6 +127,8 @@ public class Log implements AutoCloseable {
   final SegmentManager segments;
   private final Compactor compactor;
   private final TypedEntryPool entryPool = new TypedEntryPool();
+  private final TermIndex terms = new TermIndex();
+  private final boolean flushOnCommit;
   private boolean open = true;
 
   /**
@@ -133,8 +136,78 @@ public class Log implements AutoCloseable {
    */
   protected Log(String name, Storage storage) {
     this.segments = new SegmentManager(name, storage);
-    this.compactor = new Compactor(storage, segments, Executors.newScheduledThreadPool(storage.compactionThreads(),
-        new CatalystThreadFactory("copycat-compactor-%d")));
+    this.flushOnCommit = storage.flushOnCommit();
+    this.compactor = new Compactor(storage, segments, storage.compactionExecutor() != null ? storage.compactionExecutor()
+        : Executors.newScheduledThreadPool(storage.compactionThreads(), new CatalystThreadFactory("copycat-compactor-%d")));
+    indexTerms();
+  }
+
+  /**
+   * Rebuilds the term index from the entries on disk.
+   * <p>
+   * Since entry terms never decrease along the log, any range of indexes bounded by two entries of the same term
+   * contains only entries of that term. The index is rebuilt by bisecting the log until each range is bounded by
+   * entries of the same term, so only a logarithmic number of entries are read for each term in the log.
+   */
+  private void indexTerms() {
+    if (isEmpty())
+      return;
+
+    long first = firstIndex();
+    long last = lastIndex();
+    while (first <= last && readTerm(first) == 0) {
+      first++;
+    }
+    while (last > first && readTerm(last) == 0) {
+      last--;
+    }
+    if (first <= last) {
+      indexTerms(first, readTerm(first), last, readTerm(last));
+    }
+  }
+
+  /**
+   * Indexes the terms of entries in the given range, which must be bounded by entries with known terms.
+   */
+  private void indexTerms(long low, long lowTerm, long high, long highTerm) {
+    if (lowTerm == highTerm || high - low <= 1) {
+      terms.index(low, lowTerm);
+      terms.index(high, highTerm);
+      return;
+    }
+
+    // Find an entry with a known term near the middle of the range. If all the entries between the bounds have been
+    // compacted, the terms of the entries in between are unknown.
+    long mid = (low + high) >>> 1;
+    long midTerm = 0;
+    for (long i = mid; i < high && midTerm == 0; i++) {
+      midTerm = readTerm(i);
+      mid = i;
+    }
+    for (long i = (low + high) >>> 1; i > low && midTerm == 0; i--) {
+      midTerm = readTerm(i);
+      mid = i;
+    }
+
+    if (midTerm == 0) {
+      terms.index(low, lowTerm);
+      terms.index(high, highTerm);
+    } else {
+      indexTerms(low, lowTerm, mid, midTerm);
+      indexTerms(mid, midTerm, high, highTerm);
+    }
+  }
+
+  /**
+   * Reads the term of the entry at the given index from disk.
+   */
+  private long readTerm(long index) {
+    Segment segment = segments.segment(index);
+    if (segment == null)
+      return 0;
+    try (Entry entry = segment.get(index)) {
+      return entry != null ? entry.getTerm() : 0;
+    }
   }
 
   /**
@@ -155,6 +228,16 @@ public class Log implements AutoCloseable {
     return segments.serializer();
   }
 
+  /**
+   * Returns a boolean value indicating whether entries must be flushed to disk before they're committed.
+   *
+   * @return Indicates whether entries must be flushed to disk before they're committed.
+   * @see Storage#flushOnCommit()
+   */
+  public boolean flushOnCommit() {
+    return flushOnCommit;
+  }
+
   /**
    * Returns a boolean value indicating whether the log is open.
    *
@@ -204,6 +287,17 @@ public class Log implements AutoCloseable {
     return segments.segments().stream().mapToLong(Segment::size).sum();
   }
 
+  /**
+   * Returns the number of {@link Segment segments} in the log.
+   *
+   * @return The number of {@link Segment segments} in the log.
+   * @throws IllegalStateException If the log is not open.
+   */
+  public int segmentCount() {
+    assertIsOpen();
+    return segments.segments().size();
+  }
+
   /**
    * Returns the number of entries in the log.
    * <p>
@@ -245,9 +339,12 @@ public class Log implements AutoCloseable {
 
   /**
    * Checks whether we need to roll over to a new segment.
+   * <p>
+   * Full segments are flushed before rolling over so that flushing the current segment flushes all written entries.
    */
   private void checkRoll() {
     if (segments.currentSegment().isFull()) {
+      segments.currentSegment().flush();
       segments.nextSegment();
     }
   }
@@ -286,7 +383,25 @@ public class Log implements AutoCloseable {
     checkRoll();
 
     // Append the entry to the appropriate segment.
-    return segments.currentSegment().append(entry);
+    long index = segments.currentSegment().append(entry);
+    terms.index(index, entry.getTerm());
+    return index;
+  }
+
+  /**
+   * Returns the term of the entry at the given index.
+   * <p>
+   * Terms are looked up in an in-memory index and can be read without reading the entry from disk. The term of an
+   * entry that has been cleaned or compacted may still be known.
+   *
+   * @param index The index of the entry for which to return the term.
+   * @return The term of the entry at the given index or {@code 0} if the index is not in the log or the term
+   *         of the entry is unknown.
+   * @throws IllegalStateException If the log is not open.
+   */
+  public long term(long index) {
+    assertIsOpen();
+    return validIndex(index) ? terms.lookup(index) : 0;
   }
 
   /**
@@ -335,6 +450,36 @@ public class Log implements AutoCloseable {
     return null;
   }
 
+  /**
+   * Copies committed entries from a sealed segment to the given output without deserializing them.
+   * <p>
+   * Entries are copied from the segment containing {@code index} only if that segment is no longer being written and
+   * all of its entries have been committed. Each entry is written as its variable-length index followed by its
+   * serialized bytes in big-endian order. Entries in memory segments are not copied. As with {@link #get(long)},
+   * entries that have been compacted or cleaned are skipped.
+   *
+   * @param index The index from which to copy entries.
+   * @param maxSize The maximum number of serialized entry bytes to copy.
+   * @param output The output to which to copy entries.
+   * @return The number of entries copied, or {@code 0} if the index is not in a sealed file or mapped segment.
+   * @throws IllegalStateException If the log is not open.
+   */
+  public int copyTo(long index, long maxSize, BufferOutput<?> output) {
+    assertIsOpen();
+    Assert.notNull(output, "output");
+    if (!validIndex(index)) {
+      return 0;
+    }
+
+    Segment segment = segments.segment(index);
+    if (segment == null || segment == segments.currentSegment() || segment.lastIndex() > segments.commitIndex()) {
+      return 0;
+    }
+
+    long majorIndex = compactor.majorIndex();
+    return segment.copyTo(index, maxSize, i -> !segment.isClean(i) || i > majorIndex, output);
+  }
+
   /**
    * Returns a boolean value indicating whether the given index is within the bounds of the log.
    * <p>
@@ -366,6 +511,34 @@ public class Log implements AutoCloseable {
     return segment != null && segment.contains(index);
   }
 
+  /**
+   * Returns the first index in the log of an entry with the given term.
+   * <p>
+   * Terms are looked up in an in-memory index and can be read without reading entries from disk.
+   *
+   * @param term The term for which to return the first index.
+   * @return The first known index of an entry with the given term or {@code 0} if no entry with the term is known.
+   * @throws IllegalStateException If the log is not open.
+   */
+  public long firstIndexOfTerm(long term) {
+    assertIsOpen();
+    return terms.firstIndex(term);
+  }
+
+  /**
+   * Returns the last index in the log of an entry with the given term.
+   * <p>
+   * Terms are looked up in an in-memory index and can be read without reading entries from disk.
+   *
+   * @param term The term for which to return the last index.
+   * @return The last known index of an entry with the given term or {@code 0} if no entry with the term is known.
+   * @throws IllegalStateException If the log is not open.
+   */
+  public long lastIndexOfTerm(long term) {
+    assertIsOpen();
+    return terms.lastIndex(term);
+  }
+
   /**
    * Cleans the entry at the given index.
    *
@@ -435,6 +608,7 @@ public class Log implements AutoCloseable {
     if (lastIndex() == index)
       return this;
 
+    terms.truncate(index);
     for (Segment segment : segments.reverseSegments()) {
       if (segment.validIndex(index)) {
         segment.truncate(index);
@@ -16,13 +16,16 @@
 package io.atomix.copycat.server.storage;
 
 import io.atomix.catalyst.buffer.Buffer;
+import io.atomix.catalyst.buffer.BufferOutput;
 import io.atomix.catalyst.buffer.FileBuffer;
 import io.atomix.catalyst.buffer.MappedBuffer;
 import io.atomix.catalyst.buffer.SlicedBuffer;
 import io.atomix.catalyst.serializer.Serializer;
 import io.atomix.catalyst.util.Assert;
 import io.atomix.copycat.server.storage.entry.Entry;
+import io.atomix.copycat.server.util.Varints;
 
+import java.util.function.LongPredicate;
 import java.util.function.Predicate;
 
 /**
@@ -41,7 +44,7 @@ import java.util.function.Predicate;
  * the Raft consensus algorithm, readers should typically benefit from O(1) lookups.
  * <p>
  * When a segment is constructed, the segment will attempt to rebuild its index from the underlying segment
- * {@link Buffer}. This is done by reading a 16-bit unsigned length and 32-bit offset for each entry. Once the
+ * {@link Buffer}. This is done by reading a 16-bit unsigned length and variable-length offset for each entry. Once the
  * segment has been built, new entries will be {@link #append(Entry) appended} at the end of the segment.
  * <p>
  * Additionally, segments are responsible for keeping track of entries that have been {@link #clean(long) cleaned}.
@@ -75,7 +78,7 @@ public class Segment implements AutoCloseable {
     long position = buffer.mark().position();
     int length = buffer.readUnsignedShort();
     while (length != 0) {
-      long offset = buffer.readLong();
+      long offset = Varints.readUnsignedLong(buffer);
       offsetIndex.index(offset, position);
       position = buffer.skip(length).position();
       length = buffer.mark().readUnsignedShort();
@@ -270,17 +273,21 @@ public class Segment implements AutoCloseable {
     // Mark the starting position of the record and record the starting position of the new entry.
     long position = buffer.mark().position();
 
+    // The record header is the entry length followed by the variable-length offset of the entry in the segment.
+    int headerSize = Short.BYTES + Varints.size(offset);
+
     // Serialize the object into the segment buffer.
-    serializer.writeObject(entry, buffer.skip(Short.BYTES + Long.BYTES));
+    serializer.writeObject(entry, buffer.skip(headerSize));
 
     // Calculate the length of the serialized bytes based on the resulting buffer position and the starting position.
-    int length = (int) (buffer.position() - (position + Short.BYTES + Long.BYTES));
+    int length = (int) (buffer.position() - (position + headerSize));
 
     // Set the entry size.
     entry.setSize(length);
 
     // Write the length of the entry for indexing.
-    buffer.reset().writeUnsignedShort(length).writeLong(offset).skip(length);
+    Varints.writeUnsignedLong(buffer.reset().writeUnsignedShort(length), offset);
+    buffer.skip(length);
 
     // Index the offset, position, and length.
     offsetIndex.index(offset, position);
@@ -315,11 +322,11 @@ public class Segment implements AutoCloseable {
       int length = buffer.readUnsignedShort(position);
 
       // Verify that the entry at the given offset matches.
-      long entryOffset = buffer.readLong(position + Short.BYTES);
+      long entryOffset = Varints.readUnsignedLong(buffer, position + Short.BYTES);
       Assert.state(entryOffset == offset, "inconsistent index: %s", index);
 
       // Read the entry buffer and deserialize the entry.
-      try (Buffer value = buffer.slice(position + Short.BYTES + Long.BYTES, length)) {
+      try (Buffer value = buffer.slice(position + Short.BYTES + Varints.size(offset), length)) {
         T entry = serializer.readObject(value);
         entry.setIndex(index).setSize(length);
         return entry;
@@ -328,6 +335,61 @@ public class Segment implements AutoCloseable {
     return null;
   }
 
+  /**
+   * Copies serialized entries starting at the given index to the given output without deserializing them.
+   * <p>
+   * Each entry is written to the output as its variable-length index followed by its serialized bytes. Entry bytes
+   * are copied as they're stored in the segment buffer, so only file and memory-mapped segments, which store values
+   * in big-endian order, are copied. Heap segments store values in the platform byte order and are never copied.
+   * Entries that have been compacted from the segment or that are rejected by the {@code filter} are skipped. Copying
+   * stops at the end of the segment or once the next entry would exceed {@code maxSize} serialized bytes.
+   *
+   * @param index The index from which to copy entries.
+   * @param maxSize The maximum number of serialized entry bytes to copy.
+   * @param filter A predicate indicating whether the entry at a given index should be copied.
+   * @param output The output to which to copy entries.
+   * @return The number of entries copied.
+   * @throws IllegalStateException if the segment is not open
+   */
+  public synchronized int copyTo(long index, long maxSize, LongPredicate filter, BufferOutput<?> output) {
+    assertSegmentOpen();
+    if (!buffer.isFile() && !buffer.isDirect()) {
+      return 0;
+    }
+
+    int count = 0;
+    long size = 0;
+    byte[] bytes = null;
+    long lastIndex = lastIndex();
+    for (long i = index; i <= lastIndex; i++) {
+      long offset = relativeOffset(i);
+      long position = offsetIndex.position(offset);
+      if (position != -1 && filter.test(i)) {
+        int length = buffer.readUnsignedShort(position);
+        if (size + length > maxSize) {
+          break;
+        }
+
+        // Memory-mapped entry bytes are written to the output directly from the mapped memory. File bytes are read
+        // in bulk into a reused array since writing them directly would read the file one byte at a time.
+        long start = position + Short.BYTES + Varints.size(offset);
+        Varints.writeUnsignedLong(output, i);
+        if (buffer.isDirect()) {
+          output.write(buffer.bytes(), buffer.offset() + start, length);
+        } else {
+          if (bytes == null || bytes.length < length) {
+            bytes = new byte[length];
+          }
+          buffer.read(start, bytes, 0, length);
+          output.write(bytes, 0, length);
+        }
+        size += length;
+        count++;
+      }
+    }
+    return count;
+  }
+
   /**
    * Returns a boolean value indicating whether the given index is within the range of the segment.
    *
@@ -47,6 +47,8 @@ import io.atomix.catalyst.util.Assert;
  *   <li>{@code locked} (8-bit boolean) - A boolean indicating whether the segment is locked. Segments will be locked once
  *   all entries have been committed to the segment. The lock state of each segment is used to determine log compaction
  *   and recovery behavior.</li>
+ *   <li>{@code format} (8-bit signed integer) - The record format of the segment, stored at offset {@code 44}. Segments
+ *   written before record formats were versioned read as format {@code 0} and cannot be read by this version.</li>
  * </ul>
  *
  * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
@@ -54,6 +56,11 @@ import io.atomix.catalyst.util.Assert;
 public final class SegmentDescriptor implements AutoCloseable {
   public static final int BYTES = 64;
 
+  /**
+   * The current segment record format. Records are prefixed with an unsigned 16-bit length and a variable-length offset.
+   */
+  public static final int FORMAT = 1;
+
   /**
    * Returns a descriptor builder.
    * <p>
@@ -84,6 +91,7 @@ public final class SegmentDescriptor implements AutoCloseable {
   private final long maxSegmentSize;
   private final int maxEntries;
   private boolean locked;
+  private final int format;
 
   /**
    * @throws NullPointerException if {@code buffer} is null
@@ -98,6 +106,7 @@ public final class SegmentDescriptor implements AutoCloseable {
     this.updated = buffer.readLong();
     this.locked = buffer.readBoolean();
     buffer.skip(23);
+    this.format = buffer.readByte(44);
   }
 
   /**
@@ -167,6 +176,17 @@ public final class SegmentDescriptor implements AutoCloseable {
     return updated;
   }
 
+  /**
+   * Returns the segment record format.
+   * <p>
+   * Segments written before the record format was versioned return {@code 0}.
+   *
+   * @return The segment record format.
+   */
+  public int format() {
+    return format;
+  }
+
   /**
    * Writes an update to the descriptor.
    */
@@ -210,6 +230,7 @@ public final class SegmentDescriptor implements AutoCloseable {
       .writeLong(updated)
       .writeBoolean(locked)
       .skip(23)
+      .writeByte(44, format)
       .flush();
     return this;
   }
@@ -298,7 +319,7 @@ public final class SegmentDescriptor implements AutoCloseable {
      * @return The built segment descriptor.
      */
     public SegmentDescriptor build() {
-      return new SegmentDescriptor(buffer.writeLong(32, 0).rewind());
+      return new SegmentDescriptor(buffer.writeLong(32, 0).writeByte(44, FORMAT).rewind());
     }
 
   }
@@ -409,6 +409,12 @@ public class SegmentManager implements AutoCloseable {
         // unlocked and should ultimately be deleted from disk.
         if (descriptor.locked()) {
 
+          // Segments written in an older record format cannot be read by this version.
+          if (descriptor.format() != SegmentDescriptor.FORMAT) {
+            descriptor.close();
+            throw new DescriptorException("unsupported segment format %d: %s", descriptor.format(), segmentFile.file().getName());
+          }
+
           // Load the segment.
           Segment segment = loadSegment(descriptor.id(), descriptor.version());
 
@@ -21,6 +21,7 @@ import io.atomix.catalyst.util.Assert;
 
 import java.io.File;
 import java.time.Duration;
+import java.util.concurrent.ScheduledExecutorService;
 
 /**
  * Immutable log configuration and {@link Log} factory.
@@ -73,6 +74,8 @@ public class Storage {
   private Duration minorCompactionInterval = DEFAULT_MINOR_COMPACTION_INTERVAL;
   private Duration majorCompactionInterval = DEFAULT_MAJOR_COMPACTION_INTERVAL;
   private double compactionThreshold = DEFAULT_COMPACTION_THRESHOLD;
+  private boolean flushOnCommit;
+  private ScheduledExecutorService compactionExecutor;
 
   public Storage() {
   }
@@ -267,6 +270,32 @@ public class Storage {
     return compactionThreshold;
   }
 
+  /**
+   * Returns whether to flush entries to disk before they're committed.
+   * <p>
+   * When flushing on commit is enabled, servers flush {@link io.atomix.copycat.server.storage.entry.Entry entries}
+   * to disk before acknowledging them, and the leader only counts itself towards the quorum for entries it has
+   * flushed to disk.
+   *
+   * @return Whether to flush entries to disk before they're committed.
+   */
+  public boolean flushOnCommit() {
+    return flushOnCommit;
+  }
+
+  /**
+   * Returns the executor shared by logs for compaction.
+   * <p>
+   * If a compaction executor is provided, each {@link Log} opened with this storage compacts its segments on the
+   * shared executor rather than creating its own pool of {@link #compactionThreads()} threads. The shared executor
+   * is not shut down when a log is closed.
+   *
+   * @return The shared compaction executor or {@code null} if each log creates its own compaction threads.
+   */
+  public ScheduledExecutorService compactionExecutor() {
+    return compactionExecutor;
+  }
+
   /**
    * Opens a new {@link Log}.
    * <p>
@@ -482,6 +511,37 @@ public class Storage {
       return this;
     }
 
+    /**
+     * Sets whether to flush entries to disk before they're committed, returning the builder for method chaining.
+     * <p>
+     * By default, entries are written to the underlying storage but not flushed until a segment is rolled over or the
+     * log is closed. Enabling flushing on commit ensures committed entries survive the failure of a majority of the
+     * cluster at the cost of a flush for each batch of entries written.
+     *
+     * @param flushOnCommit Whether to flush entries to disk before they're committed.
+     * @return The storage builder.
+     */
+    public Builder withFlushOnCommit(boolean flushOnCommit) {
+      storage.flushOnCommit = flushOnCommit;
+      return this;
+    }
+
+    /**
+     * Sets an executor to be shared by logs for compaction, returning the builder for method chaining.
+     * <p>
+     * By default, each {@link Log} creates its own pool of {@link #withCompactionThreads(int) compaction threads}.
+     * When many servers run in the same JVM, providing a shared executor bounds the number of compaction threads
+     * regardless of the number of logs. The executor is owned by the caller and is not shut down when logs are closed.
+     *
+     * @param executor The shared compaction executor.
+     * @return The storage builder.
+     * @throws NullPointerException if {@code executor} is null
+     */
+    public Builder withCompactionExecutor(ScheduledExecutorService executor) {
+      storage.compactionExecutor = Assert.notNull(executor, "executor");
+      return this;
+    }
+
     /**
      * Builds the {@link Storage} object.
      *
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.copycat.server.storage;
+
+import java.util.Arrays;
+
+/**
+ * Run-length encoded index of entry terms.
+ * <p>
+ * The term index maps ranges of log indexes to the term of the entries in each range. Because entry terms never
+ * decrease along the log, the terms in the log form a small number of contiguous runs, and each run is stored as its
+ * first and last known index and its term. Looking up the term of an entry is a binary search over the runs and
+ * requires no I/O or deserialization.
+ * <p>
+ * The index only stores ranges of indexes whose terms are known. Entries that were compacted from the log before the
+ * index was built from disk may leave a gap between two runs, and the terms of indexes in such a gap are unknown.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+final class TermIndex {
+  private static final int INITIAL_CAPACITY = 8;
+  private long[] starts = new long[INITIAL_CAPACITY];
+  private long[] ends = new long[INITIAL_CAPACITY];
+  private long[] terms = new long[INITIAL_CAPACITY];
+  private int size;
+
+  /**
+   * Returns the number of runs in the index.
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * Indexes the term of an entry.
+   * <p>
+   * Entries must be indexed in increasing index order. An entry with the same term as the last run extends the run,
+   * and an entry with a different term starts a new run.
+   *
+   * @param index The entry index.
+   * @param term The entry term.
+   */
+  void index(long index, long term) {
+    if (size > 0 && terms[size - 1] == term) {
+      ends[size - 1] = index;
+    } else {
+      if (size == starts.length) {
+        starts = Arrays.copyOf(starts, size * 2);
+        ends = Arrays.copyOf(ends, size * 2);
+        terms = Arrays.copyOf(terms, size * 2);
+      }
+      starts[size] = index;
+      ends[size] = index;
+      terms[size] = term;
+      size++;
+    }
+  }
+
+  /**
+   * Looks up the term of the entry at the given index.
+   *
+   * @param index The entry index.
+   * @return The entry term or {@code 0} if the term of the entry is unknown.
+   */
+  long lookup(long index) {
+    int low = 0;
+    int high = size - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      if (starts[mid] <= index) {
+        low = mid + 1;
+      } else {
+        high = mid - 1;
+      }
+    }
+    return high >= 0 && index <= ends[high] ? terms[high] : 0;
+  }
+
+  /**
+   * Returns the first known index of the given term.
+   *
+   * @param term The term for which to return the first index.
+   * @return The first known index of the given term or {@code 0} if the term is not in the index.
+   */
+  long firstIndex(long term) {
+    int run = find(term);
+    return run != -1 ? starts[run] : 0;
+  }
+
+  /**
+   * Returns the last known index of the given term.
+   *
+   * @param term The term for which to return the last index.
+   * @return The last known index of the given term or {@code 0} if the term is not in the index.
+   */
+  long lastIndex(long term) {
+    int run = find(term);
+    return run != -1 ? ends[run] : 0;
+  }
+
+  /**
+   * Finds the run for the given term, searching backwards from the most recent term.
+   */
+  private int find(long term) {
+    for (int i = size - 1; i >= 0; i--) {
+      if (terms[i] == term) {
+        return i;
+      } else if (terms[i] < term) {
+        break;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Truncates the index to the given index, removing the terms of all later entries.
+   *
+   * @param index The index after which to remove terms.
+   */
+  void truncate(long index) {
+    while (size > 0 && starts[size - 1] > index) {
+      size--;
+    }
+    if (size > 0 && ends[size - 1] > index) {
+      ends[size - 1] = index;
+    }
+  }
+
+}
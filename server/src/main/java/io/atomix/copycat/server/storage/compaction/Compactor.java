@@ -18,6 +18,7 @@ package io.atomix.copycat.server.storage.compaction;
 import io.atomix.catalyst.util.Assert;
 import io.atomix.catalyst.util.concurrent.ThreadContext;
 import io.atomix.catalyst.util.concurrent.ThreadPoolContext;
+import io.atomix.copycat.server.storage.Segment;
 import io.atomix.copycat.server.storage.SegmentManager;
 import io.atomix.copycat.server.storage.Storage;
 import org.slf4j.Logger;
@@ -29,6 +30,7 @@ import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Manages compaction of log {@link io.atomix.copycat.server.storage.Segment}s in a pool of background
@@ -58,6 +60,10 @@ public final class Compactor implements AutoCloseable {
   private ScheduledFuture<?> minor;
   private ScheduledFuture<?> major;
   private CompletableFuture<Void> future;
+  private final AtomicLong compactionCount = new AtomicLong();
+  private final AtomicLong totalCompactionTime = new AtomicLong();
+  private final AtomicLong reclaimedBytes = new AtomicLong();
+  private volatile long lastCompactionTime;
 
   public Compactor(Storage storage, SegmentManager segments, ScheduledExecutorService executor) {
     this.storage = Assert.notNull(storage, "storage");
@@ -142,12 +148,15 @@ public final class Compactor implements AutoCloseable {
     Collection<CompactionTask> tasks = manager.buildTasks(storage, segments);
     if (!tasks.isEmpty()) {
       LOGGER.debug("Executing {} compaction task(s)", tasks.size());
+      long startTime = System.currentTimeMillis();
+      long startSize = size();
       for (CompactionTask task : tasks) {
         LOGGER.debug("Executing {}", task);
         ThreadContext taskThread = new ThreadPoolContext(executor, segments.serializer());
         taskThread.execute(task).whenComplete((result, error) -> {
           LOGGER.debug("{} complete", task);
           if (counter.incrementAndGet() == tasks.size()) {
+            recordCompaction(System.currentTimeMillis() - startTime, startSize - size());
             if (compactorThread != null) {
               compactorThread.executor().execute(() -> future.complete(null));
             } else {
@@ -162,11 +171,72 @@ public final class Compactor implements AutoCloseable {
     return future.whenComplete((result, error) -> future = null);
   }
 
+  /**
+   * Returns the total size of all segments.
+   */
+  private long size() {
+    return segments.segments().stream().mapToLong(Segment::size).sum();
+  }
+
+  /**
+   * Records the duration of a compaction and the number of bytes it reclaimed.
+   * <p>
+   * Because entries may be appended to the log while it's being compacted, the number of reclaimed bytes is
+   * a lower bound.
+   */
+  private void recordCompaction(long time, long reclaimed) {
+    compactionCount.incrementAndGet();
+    totalCompactionTime.addAndGet(time);
+    lastCompactionTime = time;
+    if (reclaimed > 0) {
+      reclaimedBytes.addAndGet(reclaimed);
+    }
+  }
+
+  /**
+   * Returns the number of compactions that have been completed.
+   * <p>
+   * Compactions for which there was nothing to compact are not counted.
+   *
+   * @return The number of completed compactions.
+   */
+  public long compactionCount() {
+    return compactionCount.get();
+  }
+
+  /**
+   * Returns the duration of the most recent compaction.
+   *
+   * @return The duration of the most recent compaction in milliseconds.
+   */
+  public long lastCompactionTime() {
+    return lastCompactionTime;
+  }
+
+  /**
+   * Returns the total time spent compacting the log.
+   *
+   * @return The total time spent compacting the log in milliseconds.
+   */
+  public long totalCompactionTime() {
+    return totalCompactionTime.get();
+  }
+
+  /**
+   * Returns the total number of bytes reclaimed by compaction.
+   *
+   * @return The total number of bytes reclaimed by compaction.
+   */
+  public long reclaimedBytes() {
+    return reclaimedBytes.get();
+  }
+
   /**
    * Closes the log compactor.
    * <p>
    * When the compactor is closed, existing compaction tasks will be allowed to complete, future scheduled
-   * compactions will be cancelled, and the underlying {@link ScheduledExecutorService} will be shut down.
+   * compactions will be cancelled, and the underlying {@link ScheduledExecutorService} will be shut down
+   * unless it's shared via {@link Storage#compactionExecutor()}.
    */
   @Override
   public void close() {
@@ -174,7 +244,10 @@ public final class Compactor implements AutoCloseable {
       minor.cancel(false);
     if (major != null)
       major.cancel(false);
-    executor.shutdown();
+
+    // If the executor is shared by multiple logs, it's owned by the user and must not be shut down.
+    if (executor != storage.compactionExecutor())
+      executor.shutdown();
   }
 
 }
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.copycat.server.storage.entry;
+
+import io.atomix.catalyst.buffer.BufferInput;
+import io.atomix.catalyst.buffer.BufferOutput;
+import io.atomix.catalyst.serializer.SerializeWith;
+import io.atomix.catalyst.serializer.Serializer;
+import io.atomix.catalyst.util.ReferenceManager;
+import io.atomix.copycat.server.util.Varints;
+
+import java.util.Arrays;
+
+/**
+ * Keep alive entry for many sessions.
+ * <p>
+ * The batch keep alive entry aggregates the keep alives of many sessions into a single log entry. Each
+ * session in the entry is stored with its command sequence number and event version. Batching keep alives
+ * ensures that the number of entries written to the log for session liveness is independent of the number
+ * of sessions in the cluster.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+@SerializeWith(id=228)
+public class BatchKeepAliveEntry extends TimestampedEntry<BatchKeepAliveEntry> {
+  private int count;
+  private long[] sessions = new long[8];
+  private long[] commandSequences = new long[8];
+  private long[] eventVersions = new long[8];
+
+  public BatchKeepAliveEntry() {
+  }
+
+  public BatchKeepAliveEntry(ReferenceManager<Entry<?>> referenceManager) {
+    super(referenceManager);
+  }
+
+  @Override
+  protected BatchKeepAliveEntry reset() {
+    count = 0;
+    return super.reset();
+  }
+
+  /**
+   * Returns the number of sessions in the entry.
+   *
+   * @return The number of sessions in the entry.
+   */
+  public int getSessionCount() {
+    return count;
+  }
+
+  /**
+   * Returns the session ID at the given position.
+   *
+   * @param i The session position.
+   * @return The session ID.
+   */
+  public long getSession(int i) {
+    return sessions[i];
+  }
+
+  /**
+   * Returns the command sequence number at the given position.
+   *
+   * @param i The session position.
+   * @return The command sequence number.
+   */
+  public long getCommandSequence(int i) {
+    return commandSequences[i];
+  }
+
+  /**
+   * Returns the event version number at the given position.
+   *
+   * @param i The session position.
+   * @return The event version number.
+   */
+  public long getEventVersion(int i) {
+    return eventVersions[i];
+  }
+
+  /**
+   * Adds a session to the entry.
+   *
+   * @param session The session ID.
+   * @param commandSequence The session's command sequence number.
+   * @param eventVersion The session's event version number.
+   * @return The batch keep alive entry.
+   */
+  public BatchKeepAliveEntry addSession(long session, long commandSequence, long eventVersion) {
+    ensureCapacity(count + 1);
+    sessions[count] = session;
+    commandSequences[count] = commandSequence;
+    eventVersions[count] = eventVersion;
+    count++;
+    return this;
+  }
+
+  /**
+   * Returns the number of bytes a single session adds to a serialized entry.
+   *
+   * @param session The session ID.
+   * @param commandSequence The session's command sequence number.
+   * @param eventVersion The session's event version number.
+   * @return The serialized size of the session in bytes.
+   */
+  public static int sessionSize(long session, long commandSequence, long eventVersion) {
+    return Varints.signedSize(session) + Varints.signedSize(commandSequence) + Varints.signedSize(eventVersion);
+  }
+
+  /**
+   * Ensures the entry arrays can hold the given number of sessions.
+   */
+  private void ensureCapacity(int capacity) {
+    if (capacity > sessions.length) {
+      int size = Math.max(capacity, sessions.length * 2);
+      sessions = Arrays.copyOf(sessions, size);
+      commandSequences = Arrays.copyOf(commandSequences, size);
+      eventVersions = Arrays.copyOf(eventVersions, size);
+    }
+  }
+
+  @Override
+  public void readObject(BufferInput<?> buffer, Serializer serializer) {
+    super.readObject(buffer, serializer);
+    count = (int) Varints.readUnsignedLong(buffer);
+    ensureCapacity(count);
+    for (int i = 0; i < count; i++) {
+      sessions[i] = Varints.readLong(buffer);
+      commandSequences[i] = Varints.readLong(buffer);
+      eventVersions[i] = Varints.readLong(buffer);
+    }
+  }
+
+  @Override
+  public void writeObject(BufferOutput<?> buffer, Serializer serializer) {
+    super.writeObject(buffer, serializer);
+    Varints.writeUnsignedLong(buffer, count);
+    for (int i = 0; i < count; i++) {
+      Varints.writeLong(buffer, sessions[i]);
+      Varints.writeLong(buffer, commandSequences[i]);
+      Varints.writeLong(buffer, eventVersions[i]);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s[index=%d, term=%d, sessions=%s, timestamp=%d]", getClass().getSimpleName(), getIndex(), getTerm(), Arrays.toString(Arrays.copyOf(sessions, count)), getTimestamp());
+  }
+
+}
@@ -23,6 +23,7 @@ import io.atomix.catalyst.util.Assert;
 import io.atomix.catalyst.util.ReferenceCounted;
 import io.atomix.catalyst.util.ReferenceManager;
 import io.atomix.copycat.server.storage.Log;
+import io.atomix.copycat.server.util.Varints;
 
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -140,12 +141,12 @@ public abstract class Entry<T extends Entry<T>> implements ReferenceCounted<Entr
 
   @Override
   public void writeObject(BufferOutput<?> buffer, Serializer serializer) {
-    buffer.writeLong(term);
+    Varints.writeLong(buffer, term);
   }
 
   @Override
   public void readObject(BufferInput<?> buffer, Serializer serializer) {
-    term = buffer.readLong();
+    term = Varints.readLong(buffer);
   }
 
   @Override
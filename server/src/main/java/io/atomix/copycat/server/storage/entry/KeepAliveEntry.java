@@ -20,6 +20,7 @@ import io.atomix.catalyst.buffer.BufferOutput;
 import io.atomix.catalyst.serializer.SerializeWith;
 import io.atomix.catalyst.serializer.Serializer;
 import io.atomix.catalyst.util.ReferenceManager;
+import io.atomix.copycat.server.util.Varints;
 
 /**
  * Keep alive entry.
@@ -81,15 +82,15 @@ public class KeepAliveEntry extends SessionEntry<KeepAliveEntry> {
   @Override
   public void readObject(BufferInput buffer, Serializer serializer) {
     super.readObject(buffer, serializer);
-    commandSequence = buffer.readLong();
-    eventVersion = buffer.readLong();
+    commandSequence = Varints.readLong(buffer);
+    eventVersion = Varints.readLong(buffer);
   }
 
   @Override
   public void writeObject(BufferOutput buffer, Serializer serializer) {
     super.writeObject(buffer, serializer);
-    buffer.writeLong(commandSequence);
-    buffer.writeLong(eventVersion);
+    Varints.writeLong(buffer, commandSequence);
+    Varints.writeLong(buffer, eventVersion);
   }
 
   @Override
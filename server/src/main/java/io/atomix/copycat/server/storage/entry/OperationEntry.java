@@ -20,6 +20,7 @@ import io.atomix.catalyst.buffer.BufferInput;
 import io.atomix.catalyst.buffer.BufferOutput;
 import io.atomix.catalyst.serializer.Serializer;
 import io.atomix.catalyst.util.ReferenceManager;
+import io.atomix.copycat.server.util.Varints;
 
 /**
  * Operation entry.
@@ -67,13 +68,13 @@ public abstract class OperationEntry<T extends OperationEntry<T>> extends Sessio
   @Override
   public void writeObject(BufferOutput<?> buffer, Serializer serializer) {
     super.writeObject(buffer, serializer);
-    buffer.writeLong(sequence);
+    Varints.writeLong(buffer, sequence);
   }
 
   @Override
   public void readObject(BufferInput<?> buffer, Serializer serializer) {
     super.readObject(buffer, serializer);
-    sequence = buffer.readLong();
+    sequence = Varints.readLong(buffer);
   }
 
 }
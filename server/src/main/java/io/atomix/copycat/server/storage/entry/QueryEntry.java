@@ -23,6 +23,7 @@ import io.atomix.catalyst.serializer.SerializeWith;
 import io.atomix.catalyst.serializer.Serializer;
 import io.atomix.catalyst.util.Assert;
 import io.atomix.catalyst.util.ReferenceManager;
+import io.atomix.copycat.server.util.Varints;
 
 /**
  * Query entry.
@@ -90,14 +91,14 @@ public class QueryEntry extends OperationEntry<QueryEntry> {
   @Override
   public void writeObject(BufferOutput buffer, Serializer serializer) {
     super.writeObject(buffer, serializer);
-    buffer.writeLong(version);
+    Varints.writeLong(buffer, version);
     serializer.writeObject(query, buffer);
   }
 
   @Override
   public void readObject(BufferInput buffer, Serializer serializer) {
     super.readObject(buffer, serializer);
-    version = buffer.readLong();
+    version = Varints.readLong(buffer);
     query = serializer.readObject(buffer);
   }
 
@@ -21,6 +21,7 @@ import io.atomix.catalyst.serializer.SerializeWith;
 import io.atomix.catalyst.serializer.Serializer;
 import io.atomix.catalyst.util.Assert;
 import io.atomix.catalyst.util.ReferenceManager;
+import io.atomix.copycat.server.util.Varints;
 
 import java.util.UUID;
 
@@ -85,14 +86,14 @@ public class RegisterEntry extends TimestampedEntry<RegisterEntry> {
   @Override
   public void writeObject(BufferOutput buffer, Serializer serializer) {
     super.writeObject(buffer, serializer);
-    buffer.writeLong(timeout);
+    Varints.writeLong(buffer, timeout);
     serializer.writeObject(client, buffer);
   }
 
   @Override
   public void readObject(BufferInput buffer, Serializer serializer) {
     super.readObject(buffer, serializer);
-    timeout = buffer.readLong();
+    timeout = Varints.readLong(buffer);
     client = serializer.readObject(buffer);
   }
 
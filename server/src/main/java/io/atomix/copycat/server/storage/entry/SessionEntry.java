@@ -19,6 +19,7 @@ import io.atomix.catalyst.buffer.BufferInput;
 import io.atomix.catalyst.buffer.BufferOutput;
 import io.atomix.catalyst.serializer.Serializer;
 import io.atomix.catalyst.util.ReferenceManager;
+import io.atomix.copycat.server.util.Varints;
 
 /**
  * Session entry.
@@ -59,13 +60,13 @@ public abstract class SessionEntry<T extends SessionEntry<T>> extends Timestampe
   @Override
   public void writeObject(BufferOutput<?> buffer, Serializer serializer) {
     super.writeObject(buffer, serializer);
-    buffer.writeLong(session);
+    Varints.writeLong(buffer, session);
   }
 
   @Override
   public void readObject(BufferInput<?> buffer, Serializer serializer) {
     super.readObject(buffer, serializer);
-    session = buffer.readLong();
+    session = Varints.readLong(buffer);
   }
 
 }
@@ -19,6 +19,7 @@ import io.atomix.catalyst.buffer.BufferInput;
 import io.atomix.catalyst.buffer.BufferOutput;
 import io.atomix.catalyst.serializer.Serializer;
 import io.atomix.catalyst.util.ReferenceManager;
+import io.atomix.copycat.server.util.Varints;
 
 /**
  * Timestamped entry.
@@ -59,13 +60,13 @@ public abstract class TimestampedEntry<T extends TimestampedEntry<T>> extends En
   @Override
   public void writeObject(BufferOutput<?> buffer, Serializer serializer) {
     super.writeObject(buffer, serializer);
-    buffer.writeLong(timestamp);
+    Varints.writeLong(buffer, timestamp);
   }
 
   @Override
   public void readObject(BufferInput<?> buffer, Serializer serializer) {
     super.readObject(buffer, serializer);
-    timestamp = buffer.readLong();
+    timestamp = Varints.readLong(buffer);
   }
 
   @Override
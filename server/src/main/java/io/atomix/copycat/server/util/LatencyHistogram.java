@@ -0,0 +1,112 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.copycat.server.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram.
+ * <p>
+ * Values are recorded into log-linear buckets: each power of two is split into a fixed number of linear
+ * sub-buckets, which bounds the relative error of reported percentiles to about 3% regardless of magnitude.
+ * The histogram may be recorded to concurrently by any number of threads.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+public class LatencyHistogram {
+  private static final int SUB_BUCKET_BITS = 5;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+  private final AtomicLongArray buckets = new AtomicLongArray((64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS);
+  private final AtomicLong count = new AtomicLong();
+  private final AtomicLong max = new AtomicLong();
+
+  /**
+   * Records a latency.
+   *
+   * @param nanos The latency in nanoseconds.
+   */
+  public void record(long nanos) {
+    long value = Math.max(nanos, 0);
+    buckets.incrementAndGet(bucket(value));
+    count.incrementAndGet();
+    long current;
+    while (value > (current = max.get()) && !max.compareAndSet(current, value));
+  }
+
+  /**
+   * Returns the number of recorded latencies.
+   *
+   * @return The number of recorded latencies.
+   */
+  public long count() {
+    return count.get();
+  }
+
+  /**
+   * Returns the maximum recorded latency in nanoseconds.
+   *
+   * @return The maximum recorded latency.
+   */
+  public long max() {
+    return max.get();
+  }
+
+  /**
+   * Returns the latency at the given percentile in nanoseconds.
+   *
+   * @param percentile The percentile in the range {@code (0, 1]}.
+   * @return The latency at the given percentile, or {@code 0} if no latencies have been recorded.
+   */
+  public long percentile(double percentile) {
+    long total = count.get();
+    if (total == 0)
+      return 0;
+
+    long target = Math.max((long) Math.ceil(percentile * total), 1);
+    long seen = 0;
+    for (int i = 0; i < buckets.length(); i++) {
+      seen += buckets.get(i);
+      if (seen >= target) {
+        return Math.min(highestValue(i), max.get());
+      }
+    }
+    return max.get();
+  }
+
+  /**
+   * Returns the bucket for the given value.
+   */
+  private static int bucket(long value) {
+    if (value < SUB_BUCKETS)
+      return (int) value;
+    int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+    return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+  }
+
+  /**
+   * Returns the highest value that falls into the given bucket.
+   */
+  private static long highestValue(int bucket) {
+    if (bucket < SUB_BUCKETS)
+      return bucket;
+    int shift = bucket / SUB_BUCKETS - 1;
+    long lowest = (long) (bucket % SUB_BUCKETS + SUB_BUCKETS) << shift;
+    return lowest + (1L << shift) - 1;
+  }
+
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.copycat.server.util;
+
+import io.atomix.catalyst.buffer.Buffer;
+import io.atomix.catalyst.buffer.BufferInput;
+import io.atomix.catalyst.buffer.BufferOutput;
+
+/**
+ * Variable-length integer encoding helpers.
+ * <p>
+ * Unsigned values are written seven bits per byte, least significant group first, with the high bit of each byte
+ * set if more bytes follow. Signed values are zig-zag encoded before being written so that small negative values
+ * remain small.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+public final class Varints {
+  private static final int MAX_SHIFT = 63;
+
+  private Varints() {
+  }
+
+  /**
+   * Returns the number of bytes required to write the given unsigned value.
+   *
+   * @param value The value to size.
+   * @return The number of bytes required to write the value.
+   */
+  public static int size(long value) {
+    int size = 1;
+    while ((value & ~0x7FL) != 0) {
+      value >>>= 7;
+      size++;
+    }
+    return size;
+  }
+
+  /**
+   * Returns the number of bytes required to write the given signed value.
+   *
+   * @param value The value to size.
+   * @return The number of bytes required to write the value.
+   */
+  public static int signedSize(long value) {
+    return size((value << 1) ^ (value >> 63));
+  }
+
+  /**
+   * Writes an unsigned variable-length long to the given buffer.
+   *
+   * @param buffer The buffer to which to write the value.
+   * @param value The value to write.
+   */
+  public static void writeUnsignedLong(BufferOutput<?> buffer, long value) {
+    while ((value & ~0x7FL) != 0) {
+      buffer.writeByte((int) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    buffer.writeByte((int) value);
+  }
+
+  /**
+   * Reads an unsigned variable-length long from the given buffer.
+   *
+   * @param buffer The buffer from which to read the value.
+   * @return The value.
+   * @throws IllegalStateException if the value is malformed
+   */
+  public static long readUnsignedLong(BufferInput<?> buffer) {
+    long value = 0;
+    for (int shift = 0; shift <= MAX_SHIFT; shift += 7) {
+      int b = buffer.readByte();
+      value |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IllegalStateException("malformed variable-length long");
+  }
+
+  /**
+   * Reads an unsigned variable-length long at the given offset in the buffer without changing the buffer's position.
+   *
+   * @param buffer The buffer from which to read the value.
+   * @param offset The offset at which to read the value.
+   * @return The value.
+   * @throws IllegalStateException if the value is malformed
+   */
+  public static long readUnsignedLong(Buffer buffer, long offset) {
+    long value = 0;
+    for (int shift = 0; shift <= MAX_SHIFT; shift += 7) {
+      int b = buffer.readByte(offset++);
+      value |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IllegalStateException("malformed variable-length long");
+  }
+
+  /**
+   * Writes a signed variable-length long to the given buffer.
+   *
+   * @param buffer The buffer to which to write the value.
+   * @param value The value to write.
+   */
+  public static void writeLong(BufferOutput<?> buffer, long value) {
+    writeUnsignedLong(buffer, (value << 1) ^ (value >> 63));
+  }
+
+  /**
+   * Reads a signed variable-length long from the given buffer.
+   *
+   * @param buffer The buffer from which to read the value.
+   * @return The value.
+   * @throws IllegalStateException if the value is malformed
+   */
+  public static long readLong(BufferInput<?> buffer) {
+    long value = readUnsignedLong(buffer);
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+package io.atomix.copycat.server.request;
+
+import static org.testng.Assert.assertEquals;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import io.atomix.catalyst.buffer.Buffer;
+import io.atomix.catalyst.buffer.DirectBuffer;
+import io.atomix.catalyst.buffer.HeapBuffer;
+import io.atomix.catalyst.serializer.Serializer;
+import io.atomix.catalyst.serializer.ServiceLoaderTypeResolver;
+import io.atomix.copycat.server.storage.TestEntry;
+import io.atomix.copycat.server.util.Varints;
+
+/**
+ * Append request test.
+ */
+@Test
+public class AppendRequestTest {
+  private static final long TERM = 0x0102030405060708L;
+  private Serializer serializer;
+
+  @BeforeMethod
+  void beforeMethod() {
+    serializer = new Serializer(new ServiceLoaderTypeResolver());
+  }
+
+  /**
+   * Tests serializing a request with serialized entries to a heap buffer.
+   */
+  public void testRecordsRoundTripHeapBuffer() {
+    testRecordsRoundTrip(HeapBuffer.allocate());
+  }
+
+  /**
+   * Tests serializing a request with serialized entries to a direct buffer.
+   */
+  public void testRecordsRoundTripDirectBuffer() {
+    testRecordsRoundTrip(DirectBuffer.allocate());
+  }
+
+  /**
+   * Tests that serialized entries are read after entries and only up to the records size.
+   */
+  private void testRecordsRoundTrip(Buffer buffer) {
+    // Read a larger request first to ensure a smaller request read on the same thread isn't affected by it.
+    AppendRequest large = roundTrip(request(1, 10, 1024), buffer);
+    assertEquals(large.entries().size(), 11);
+
+    AppendRequest request = roundTrip(request(5, 2, 16), buffer.clear());
+    assertEquals(request.term(), 1L);
+    assertEquals(request.logIndex(), 4L);
+    assertEquals(request.commitIndex(), 7L);
+    assertEquals(request.entries().size(), 3);
+    for (int i = 0; i < 3; i++) {
+      TestEntry entry = (TestEntry) request.entries().get(i);
+      assertEquals(entry.getIndex(), 5L + i);
+      assertEquals(entry.getTerm(), TERM);
+      assertEquals(entry.getPadding().length, 16);
+    }
+  }
+
+  /**
+   * Writes the given request to the buffer and reads it back.
+   */
+  private AppendRequest roundTrip(AppendRequest request, Buffer buffer) {
+    serializer.writeObject(request, buffer);
+    return serializer.readObject(buffer.flip());
+  }
+
+  /**
+   * Returns a request with one entry followed by the given number of serialized entries.
+   */
+  private AppendRequest request(long index, int count, int padding) {
+    // Serialized entries are copied from the log in big-endian order, followed by unused bytes in the array.
+    Buffer records = DirectBuffer.allocate();
+    for (int i = 1; i <= count; i++) {
+      Varints.writeUnsignedLong(records, index + i);
+      serializer.writeObject(entry(padding), records);
+    }
+    int size = (int) records.position();
+    byte[] bytes = new byte[size + 64];
+    records.flip().read(bytes, 0, size);
+
+    return AppendRequest.builder()
+      .withTerm(1)
+      .withLeader(1)
+      .withLogIndex(index - 1)
+      .withLogTerm(1)
+      .addEntry(entry(padding).setIndex(index))
+      .withRecords(count, bytes, size)
+      .withCommitIndex(index + count)
+      .withGlobalIndex(0)
+      .build();
+  }
+
+  /**
+   * Returns a test entry with the given padding.
+   */
+  private TestEntry entry(int padding) {
+    TestEntry entry = new TestEntry();
+    entry.setTerm(TERM);
+    entry.setPadding(padding);
+    return entry;
+  }
+
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.copycat.server.state;
+
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.testng.Assert.*;
+
+/**
+ * Command tracer test.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+@Test
+public class CommandTracerTest {
+
+  /**
+   * Tests that commands are not traced by default.
+   */
+  public void testTracingDisabledByDefault() {
+    CommandTracer tracer = new CommandTracer();
+    CommandTrace trace = tracer.start();
+    assertSame(trace, CommandTrace.NONE);
+    assertFalse(trace.isSampled());
+    trace.record(CommandTrace.Stage.APPENDED);
+    assertEquals(trace.timestamp(CommandTrace.Stage.APPENDED), 0);
+    tracer.complete(trace);
+    assertTrue(tracer.dump().isEmpty());
+  }
+
+  /**
+   * Tests recording stage timings for a sampled command.
+   */
+  public void testTraceStages() throws Throwable {
+    CommandTracer tracer = new CommandTracer().setSampleRate(1);
+    CommandTrace trace = tracer.start();
+    assertTrue(trace.isSampled());
+    assertTrue(trace.timestamp(CommandTrace.Stage.RECEIVED) > 0);
+
+    trace.setIndex(10).record(CommandTrace.Stage.APPENDED);
+    Thread.sleep(5);
+    trace.record(CommandTrace.Stage.COMMITTED);
+    trace.record(CommandTrace.Stage.DISPATCHED);
+    trace.record(CommandTrace.Stage.EXECUTED);
+    tracer.complete(trace);
+
+    assertTrue(trace.timestamp(CommandTrace.Stage.RESPONDED) >= trace.timestamp(CommandTrace.Stage.EXECUTED));
+    assertEquals(trace.timestamp(CommandTrace.Stage.FLUSHED), 0);
+
+    // Time not spent in a recorded stage is attributed to the next recorded stage.
+    Map<String, Long> latencies = tracer.percentile(1);
+    assertTrue(latencies.get(CommandTrace.Stage.COMMITTED.name()) >= 5000);
+    assertEquals(latencies.get(CommandTrace.Stage.FLUSHED.name()).longValue(), 0);
+    assertFalse(latencies.containsKey(CommandTrace.Stage.RECEIVED.name()));
+
+    List<String> traces = tracer.dump();
+    assertEquals(traces.size(), 1);
+    assertTrue(traces.get(0).contains("index=10"));
+  }
+
+  /**
+   * Tests that a flush completing after the command is committed doesn't hide the commit latency.
+   */
+  public void testTraceFlushAfterCommit() throws Throwable {
+    CommandTracer tracer = new CommandTracer().setSampleRate(1);
+    CommandTrace trace = tracer.start();
+
+    trace.setIndex(10).record(CommandTrace.Stage.APPENDED);
+    Thread.sleep(5);
+    trace.record(CommandTrace.Stage.COMMITTED);
+    Thread.sleep(5);
+    trace.record(CommandTrace.Stage.FLUSHED);
+    tracer.complete(trace);
+
+    Map<String, Long> latencies = tracer.percentile(1);
+    assertTrue(latencies.get(CommandTrace.Stage.COMMITTED.name()) >= 5000);
+    assertTrue(latencies.get(CommandTrace.Stage.FLUSHED.name()) >= 10000);
+  }
+
+  /**
+   * Tests that the trace ring buffer retains only the most recent traces.
+   */
+  public void testTraceRingBuffer() {
+    CommandTracer tracer = new CommandTracer().setSampleRate(1);
+    for (int i = 1; i <= 2000; i++) {
+      tracer.complete(tracer.start().setIndex(i));
+    }
+    List<String> traces = tracer.dump();
+    assertEquals(traces.size(), 1024);
+    assertTrue(traces.get(0).contains("index=2000"));
+    assertTrue(traces.get(traces.size() - 1).contains("index=977"));
+  }
+
+}
@@ -18,13 +18,23 @@ package io.atomix.copycat.server.state;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.atomix.catalyst.transport.Address;
 import io.atomix.copycat.client.response.Response.Status;
 import io.atomix.copycat.server.request.AppendRequest;
 import io.atomix.copycat.server.request.PollRequest;
+import io.atomix.copycat.server.request.TimeoutNowRequest;
 import io.atomix.copycat.server.request.VoteRequest;
 import io.atomix.copycat.server.response.AppendResponse;
 import io.atomix.copycat.server.response.PollResponse;
+import io.atomix.copycat.server.response.TimeoutNowResponse;
 import io.atomix.copycat.server.response.VoteResponse;
+import io.atomix.copycat.server.storage.TestEntry;
 
 /**
  * Follower state test.
@@ -362,4 +372,158 @@ public class FollowerStateTest extends AbstractStateTest<FollowerState> {
     });
   }
 
+  /**
+   * Tests that a follower rejects votes without updating its term while the leader's lease is held.
+   */
+  public void testFollowerRejectsVoteWhileLeaderLeased() throws Throwable {
+    runOnServer(() -> {
+      serverState.setTerm(2).setLeader(0);
+      AppendRequest request1 = AppendRequest.builder()
+          .withTerm(2)
+          .withLeader(members.get(2).hashCode())
+          .withLogIndex(0)
+          .withLogTerm(0)
+          .withCommitIndex(0)
+          .withGlobalIndex(0)
+          .build();
+
+      AppendResponse response1 = state.append(request1).get();
+      threadAssertTrue(response1.succeeded());
+
+      VoteRequest request2 = VoteRequest.builder()
+          .withTerm(3)
+          .withCandidate(members.get(1).hashCode())
+          .withLogIndex(0)
+          .withLogTerm(0)
+          .build();
+
+      VoteResponse response2 = state.vote(request2).get();
+
+      threadAssertEquals(serverState.getTerm(), 2L);
+      threadAssertEquals(serverState.getLeader(), members.get(2));
+      threadAssertEquals(serverState.getLastVotedFor(), 0);
+      threadAssertEquals(response2.term(), 2L);
+      threadAssertFalse(response2.voted());
+    });
+  }
+
+  /**
+   * Tests that a follower votes for a candidate taking over leadership while the leader's lease is held.
+   */
+  public void testFollowerVotesForTransferWhileLeaderLeased() throws Throwable {
+    runOnServer(() -> {
+      serverState.setTerm(2).setLeader(0);
+      AppendRequest request1 = AppendRequest.builder()
+          .withTerm(2)
+          .withLeader(members.get(2).hashCode())
+          .withLogIndex(0)
+          .withLogTerm(0)
+          .withCommitIndex(0)
+          .withGlobalIndex(0)
+          .build();
+
+      AppendResponse response1 = state.append(request1).get();
+      threadAssertTrue(response1.succeeded());
+
+      VoteRequest request2 = VoteRequest.builder()
+          .withTerm(3)
+          .withCandidate(members.get(1).hashCode())
+          .withLogIndex(0)
+          .withLogTerm(0)
+          .withTransfer(true)
+          .build();
+
+      VoteResponse response2 = state.vote(request2).get();
+
+      threadAssertEquals(serverState.getTerm(), 3L);
+      threadAssertEquals(serverState.getLastVotedFor(), members.get(1).hashCode());
+      threadAssertEquals(response2.term(), 3L);
+      threadAssertTrue(response2.voted());
+    });
+  }
+
+  /**
+   * Tests that a follower rejects a timeout now request that wasn't sent by the current leader.
+   */
+  public void testFollowerRejectsTimeoutNowFromNonLeader() throws Throwable {
+    runOnServer(() -> {
+      serverState.setTerm(2).setLeader(members.get(2).hashCode());
+      TimeoutNowRequest request = TimeoutNowRequest.builder()
+          .withTerm(2)
+          .withLeader(members.get(1).hashCode())
+          .build();
+
+      TimeoutNowResponse response = state.timeoutNow(request).get();
+
+      threadAssertEquals(serverState.getTerm(), 2L);
+      threadAssertEquals(serverState.getLeader(), members.get(2));
+      threadAssertEquals(response.term(), 2L);
+      threadAssertFalse(response.accepted());
+    });
+  }
+
+  /**
+   * Tests that a follower replicates committed entries to the passive members assigned to it by the leader.
+   */
+  public void testFollowerReplicatesToCatchUpMembers() throws Throwable {
+    Address passive = new Address("localhost", 5003);
+    AtomicLong passiveIndex = new AtomicLong();
+    AtomicBoolean uncommitted = new AtomicBoolean();
+    serverCtx.execute(() -> {
+      transport.server().listen(passive, c -> {
+        c.handler(AppendRequest.class, request -> {
+          // The passive member must never be allowed to commit entries it didn't receive from the follower.
+          boolean succeeded = request.logIndex() <= passiveIndex.get();
+          if (succeeded) {
+            passiveIndex.set(request.logIndex() + request.entries().size());
+            if (request.commitIndex() > passiveIndex.get()) {
+              uncommitted.set(true);
+            }
+          }
+          return CompletableFuture.completedFuture(AppendResponse.builder()
+            .withStatus(Status.OK)
+            .withTerm(request.term())
+            .withSucceeded(succeeded)
+            .withLogIndex(passiveIndex.get())
+            .build());
+        });
+      }).thenRunAsync(this::resume);
+    });
+    await(1000);
+
+    runOnServer(() -> {
+      serverState.setTerm(1).setElectionTimeout(Duration.ofSeconds(5));
+      serverState.getCluster().configure(1, members, Collections.singletonList(passive));
+      for (int i = 0; i < 100; i++) {
+        try (TestEntry entry = serverState.getLog().create(TestEntry.class)) {
+          entry.setTerm(1).setTombstone(false).setPadding(1024);
+          serverState.getLog().append(entry);
+        }
+      }
+
+      // Entries are replicated in multiple batches. Only the first 90 entries are committed, so the follower must not replicate the remaining entries.
+      AppendRequest request = AppendRequest.builder()
+        .withTerm(1)
+        .withLeader(members.get(1).hashCode())
+        .withLogIndex(100)
+        .withLogTerm(1)
+        .withCommitIndex(90)
+        .withGlobalIndex(0)
+        .withCatchUpMembers(Collections.singletonList(passive.hashCode()))
+        .build();
+
+      AppendResponse response = state.append(request).get();
+      threadAssertTrue(response.succeeded());
+    });
+
+    long deadline = System.currentTimeMillis() + 5000;
+    while (passiveIndex.get() < 90 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    Thread.sleep(100);
+
+    threadAssertEquals(passiveIndex.get(), 90L);
+    threadAssertFalse(uncommitted.get());
+  }
+
 }
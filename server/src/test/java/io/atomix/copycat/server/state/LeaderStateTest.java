@@ -15,15 +15,45 @@
  */
 package io.atomix.copycat.server.state;
 
+import io.atomix.catalyst.serializer.ServiceLoaderTypeResolver;
+import io.atomix.catalyst.transport.Address;
 import io.atomix.copycat.server.RaftServer;
+import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+
+import io.atomix.copycat.client.error.RaftError;
+import io.atomix.copycat.client.request.BatchKeepAliveRequest;
 import io.atomix.copycat.client.request.CommandRequest;
+import io.atomix.copycat.client.response.CommandResponse;
+import io.atomix.copycat.client.response.Response;
 import io.atomix.copycat.server.CopycatServer;
+import io.atomix.copycat.server.TestStateMachine;
 import io.atomix.copycat.server.TestStateMachine.TestCommand;
+import io.atomix.copycat.server.request.AppendRequest;
 import io.atomix.copycat.server.request.VoteRequest;
+import io.atomix.copycat.server.response.AppendResponse;
 import io.atomix.copycat.server.response.VoteResponse;
+import io.atomix.copycat.server.storage.Storage;
+import io.atomix.copycat.server.storage.StorageLevel;
+import io.atomix.copycat.server.storage.TestEntry;
+import io.atomix.copycat.server.storage.entry.BatchKeepAliveEntry;
 import io.atomix.copycat.server.storage.entry.CommandEntry;
 
 /**
@@ -40,6 +70,144 @@ public class LeaderStateTest extends AbstractStateTest<LeaderState> {
     state = new LeaderState(serverState);
   }
 
+  @AfterMethod
+  @Override
+  void afterMethod() throws Throwable {
+    runOnServer(state::close);
+    super.afterMethod();
+  }
+
+  /**
+   * Starts a server for each of the leader's followers that responds to append requests with the given handler.
+   */
+  private void listen(BiFunction<Address, AppendRequest, CompletableFuture<AppendResponse>> handler) throws Throwable {
+    listen(members.subList(1, members.size()), handler);
+  }
+
+  /**
+   * Starts a server for each of the given members that responds to append requests with the given handler.
+   */
+  private void listen(List<Address> members, BiFunction<Address, AppendRequest, CompletableFuture<AppendResponse>> handler) throws Throwable {
+    serverCtx.execute(() -> {
+      for (Address member : members) {
+        transport.server().listen(member, c -> {
+          c.handler(AppendRequest.class, request -> handler.apply(member, request));
+        }).thenRunAsync(this::resume);
+      }
+    });
+    await(1000, members.size());
+  }
+
+  /**
+   * Replaces the server state with a cluster of the given size.
+   */
+  private void createState(int size, boolean flushOnCommit) {
+    log.close();
+    storage = Storage.builder()
+      .withStorageLevel(StorageLevel.MEMORY)
+      .withFlushOnCommit(flushOnCommit)
+      .build();
+    storage.serializer().resolve(new ServiceLoaderTypeResolver());
+    log = storage.open("test");
+
+    members = new ArrayList<>();
+    for (int i = 0; i < size; i++) {
+      members.add(new Address("localhost", 5000 + i));
+    }
+
+    stateMachine = new TestStateMachine();
+    serverState = new ServerState(members.get(0), members, log, stateMachine, new ConnectionManager(transport.client()), serverCtx);
+    state = new LeaderState(serverState);
+  }
+
+  /**
+   * Returns a successful response to the given append request.
+   */
+  private CompletableFuture<AppendResponse> succeed(AppendRequest request) {
+    return CompletableFuture.completedFuture(AppendResponse.builder()
+      .withStatus(Response.Status.OK)
+      .withTerm(request.term())
+      .withSucceeded(true)
+      .withLogIndex(request.logIndex() + request.entries().size() + request.recordCount())
+      .build());
+  }
+
+  /**
+   * Returns the leader's state for the given member.
+   */
+  private MemberState member(int index) {
+    return serverState.getCluster().getMember(members.get(index).hashCode());
+  }
+
+  /**
+   * Returns a response to the given append request from a member whose log ends at the given index.
+   * <p>
+   * The request is rejected if the member's log doesn't contain the request's previous entry. Otherwise, the
+   * member's last index is updated to the last entry in the request.
+   */
+  private CompletableFuture<AppendResponse> append(AtomicLong lastIndex, AppendRequest request) {
+    if (request.logIndex() > lastIndex.get()) {
+      return CompletableFuture.completedFuture(AppendResponse.builder()
+        .withStatus(Response.Status.OK)
+        .withTerm(request.term())
+        .withSucceeded(false)
+        .withLogIndex(lastIndex.get())
+        .build());
+    }
+    lastIndex.set(request.logIndex() + request.entries().size() + request.recordCount());
+    return succeed(request);
+  }
+
+  /**
+   * Waits for the given condition to be met on the server context.
+   */
+  private void awaitCondition(Supplier<Boolean> condition) throws Throwable {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (!serverCtx.execute(condition).get()) {
+      if (System.currentTimeMillis() > deadline) {
+        throw new AssertionError("condition not met");
+      }
+      Thread.sleep(10);
+    }
+  }
+
+  /**
+   * Followers that acknowledge all append requests except those sent to held members.
+   */
+  private class Followers {
+    private final Map<Address, Queue<Runnable>> held = new ConcurrentHashMap<>();
+
+    /**
+     * Defers responses from the given members until they're released.
+     */
+    private void hold(int... indexes) {
+      for (int index : indexes) {
+        held.put(members.get(index), new ConcurrentLinkedQueue<>());
+      }
+    }
+
+    /**
+     * Acknowledges all requests held by the given member and resumes acknowledging requests immediately.
+     */
+    private void release(int index) throws Throwable {
+      Queue<Runnable> responses = held.remove(members.get(index));
+      runOnServer(() -> responses.forEach(Runnable::run));
+    }
+
+    /**
+     * Handles an append request sent to the given member.
+     */
+    private CompletableFuture<AppendResponse> handle(Address member, AppendRequest request) {
+      Queue<Runnable> responses = held.get(member);
+      if (responses == null) {
+        return succeed(request);
+      }
+      CompletableFuture<AppendResponse> future = new CompletableFuture<>();
+      responses.add(() -> future.complete(succeed(request).join()));
+      return future;
+    }
+  }
+
   /**
    * Tests that a leader steps down when it receives a higher term.
    */
@@ -116,4 +284,430 @@ public class LeaderStateTest extends AbstractStateTest<LeaderState> {
 
     await();
   }
+
+  /**
+   * Tests that the leader rejects commands when too many entries are pending application.
+   */
+  public void testLeaderRejectsCommandsWhenOverloaded() throws Throwable {
+    runOnServer(() -> {
+      serverState.setTerm(1)
+          .setLeader(members.get(0).hashCode())
+          .setMaxPendingEntries(1)
+          .getStateMachine()
+          .executor()
+          .context()
+          .sessions()
+          .registerSession(new ServerSession(1, serverState.getStateMachine().executor().context(), 1000));
+      append(1, 1);
+
+      CommandRequest request = CommandRequest.builder()
+          .withSession(1)
+          .withSequence(1)
+          .withCommand(new TestCommand("foo"))
+          .build();
+
+      CommandResponse response = state.command(request).get();
+      threadAssertEquals(response.status(), Response.Status.ERROR);
+      threadAssertEquals(response.error(), RaftError.Type.OVERLOADED_ERROR);
+      threadAssertEquals(serverState.getLog().lastIndex(), 1L);
+    });
+  }
+
+  /**
+   * Tests that the leader rejects commands without a leader while leadership is being transferred.
+   */
+  public void testLeaderRejectsCommandsDuringTransfer() throws Throwable {
+    runOnServer(() -> {
+      serverState.setTerm(1)
+          .setLeader(members.get(0).hashCode())
+          .getStateMachine()
+          .executor()
+          .context()
+          .sessions()
+          .registerSession(new ServerSession(1, serverState.getStateMachine().executor().context(), 1000));
+      append(1, 1);
+      state.transfer(members.get(1));
+
+      CommandRequest request = CommandRequest.builder()
+          .withSession(1)
+          .withSequence(1)
+          .withCommand(new TestCommand("foo"))
+          .build();
+
+      CommandResponse response = state.command(request).get();
+      assertNoLeaderError(response);
+      threadAssertEquals(serverState.getLog().lastIndex(), 1L);
+    });
+  }
+
+  /**
+   * Tests that a full batch of keep alives is written in entries that fit in a single append request.
+   */
+  public void testLeaderLimitsKeepAliveBatchSize() throws Throwable {
+    runOnServer(() -> {
+      serverState.setTerm(1).setLeader(members.get(0).hashCode());
+
+      BatchKeepAliveRequest.Builder builder = BatchKeepAliveRequest.builder();
+      for (int i = 0; i < 4096; i++) {
+        builder.addSession(Long.MAX_VALUE - i, Long.MAX_VALUE - i, Long.MAX_VALUE - i);
+      }
+      state.batchKeepAlive(builder.build());
+
+      try (BatchKeepAliveEntry entry = serverState.getLog().get(1)) {
+        threadAssertTrue(entry.size() <= 1024 * 28);
+        threadAssertTrue(entry.getSessionCount() > 0);
+        threadAssertTrue(entry.getSessionCount() < 2048);
+      }
+    });
+  }
+
+  /**
+   * Tests that the leader resumes accepting transfers once a leadership transfer times out.
+   */
+  public void testLeaderTransferTimesOut() throws Throwable {
+    serverCtx.execute(() -> {
+      serverState.setTerm(1)
+          .setLeader(members.get(0).hashCode())
+          .setElectionTimeout(Duration.ofMillis(100));
+      try {
+        append(1, 1);
+      } catch (Throwable t) {
+        rethrow(t);
+      }
+
+      state.transfer(members.get(1)).whenComplete((result, error) -> {
+        threadAssertTrue(error instanceof IllegalStateException);
+        threadAssertEquals(error.getMessage(), "leadership transfer timed out");
+        threadAssertFalse(state.transfer(members.get(1)).isDone());
+        resume();
+      });
+    });
+
+    await(1000);
+  }
+
+  /**
+   * Tests that the leader's lease is held only while a majority of the cluster acknowledges its requests.
+   */
+  public void testLeaderLeaseRequiresAcknowledgement() throws Throwable {
+    CompletableFuture<AppendResponse> pending = new CompletableFuture<>();
+    AtomicBoolean acknowledge = new AtomicBoolean(true);
+    listen((member, request) -> acknowledge.get() ? succeed(request) : pending);
+
+    runOnServer(() -> {
+      serverState.setTerm(1).setElectionTimeout(Duration.ofMillis(200));
+      threadAssertFalse(state.isLeased());
+      state.open();
+    });
+
+    awaitCondition(state::isLeased);
+
+    acknowledge.set(false);
+    awaitCondition(() -> !state.isLeased());
+  }
+
+  /**
+   * Tests that the leader skips a member's conflicting term when the member rejects an append request.
+   */
+  public void testLeaderResetsIndexesToConflictTerm() throws Throwable {
+    // The first member's log conflicts in term 2, which the leader doesn't have, and the second member's log
+    // conflicts in term 1, which ends at index 3 in the leader's log.
+    listen((member, request) -> {
+      if (request.logIndex() != 6) {
+        return new CompletableFuture<>();
+      }
+      return CompletableFuture.completedFuture(AppendResponse.builder()
+        .withStatus(Response.Status.OK)
+        .withTerm(request.term())
+        .withSucceeded(false)
+        .withLogIndex(5)
+        .withConflictTerm(member.equals(members.get(1)) ? 2 : 1)
+        .withConflictIndex(3)
+        .build());
+    });
+
+    runOnServer(() -> {
+      append(3, 1);
+      append(3, 3);
+      serverState.setTerm(3);
+      state.open();
+    });
+
+    awaitCondition(() -> member(1).getMatchIndex() == 2 && member(1).getNextIndex() == 3
+      && member(2).getMatchIndex() == 3 && member(2).getNextIndex() == 4);
+  }
+
+  /**
+   * Tests that an entry the leader hasn't flushed is committed only once both followers in a three node cluster store it.
+   */
+  public void testThreeNodeCommitWithoutLeaderFlush() throws Throwable {
+    testCommitWithoutLeaderFlush(3);
+  }
+
+  /**
+   * Tests that an entry the leader hasn't flushed is committed only once three followers in a five node cluster store it.
+   */
+  public void testFiveNodeCommitWithoutLeaderFlush() throws Throwable {
+    testCommitWithoutLeaderFlush(5);
+  }
+
+  /**
+   * Tests that an entry the leader hasn't flushed is committed only once a majority of the cluster excluding the
+   * leader stores it.
+   */
+  private void testCommitWithoutLeaderFlush(int size) throws Throwable {
+    createState(size, true);
+    Followers followers = new Followers();
+    listen(followers::handle);
+
+    runOnServer(() -> {
+      serverState.setTerm(1);
+      state.open();
+    });
+    awaitCondition(() -> serverState.getCommitIndex() == 1);
+
+    // Hold all but a bare majority of the cluster including the leader, and append an entry without flushing it.
+    // Followers receive the entry in the next heartbeat.
+    int quorum = size / 2 + 1;
+    for (int i = quorum; i < size; i++) {
+      followers.hold(i);
+    }
+    runOnServer(() -> append(1, 1));
+
+    awaitCondition(() -> member(quorum - 1).getMatchIndex() == 2);
+    runOnServer(() -> threadAssertEquals(serverState.getCommitIndex(), 1L));
+
+    followers.release(quorum);
+    awaitCondition(() -> serverState.getCommitIndex() == 2);
+  }
+
+  /**
+   * Tests that a single node leader commits entries only once they've been flushed.
+   */
+  public void testSingleNodeCommitAfterFlush() throws Throwable {
+    createState(1, true);
+
+    runOnServer(() -> {
+      serverState.setTerm(1);
+      state.open();
+    });
+    awaitCondition(() -> serverState.getCommitIndex() == 1);
+
+    runOnServer(() -> {
+      serverState.getStateMachine()
+        .executor()
+        .context()
+        .sessions()
+        .registerSession(new ServerSession(1, serverState.getStateMachine().executor().context(), 1000));
+
+      state.command(CommandRequest.builder()
+        .withSession(1)
+        .withSequence(1)
+        .withCommand(new TestCommand("foo"))
+        .build());
+
+      // The flush is deferred until the server's event loop completes the current task.
+      threadAssertEquals(serverState.getLog().lastIndex(), 2L);
+      threadAssertEquals(serverState.getCommitIndex(), 1L);
+    });
+
+    awaitCondition(() -> serverState.getCommitIndex() == 2);
+  }
+
+  /**
+   * Tests that the leader only sends heartbeats to members that haven't acknowledged a request within the heartbeat interval.
+   */
+  public void testLeaderHeartbeatsIdleMembers() throws Throwable {
+    Map<Address, AtomicInteger> heartbeats = new ConcurrentHashMap<>();
+    listen((member, request) -> {
+      if (request.entries().isEmpty() && request.recordCount() == 0) {
+        heartbeats.computeIfAbsent(member, m -> new AtomicInteger()).incrementAndGet();
+      }
+      return succeed(request);
+    });
+
+    runOnServer(() -> {
+      serverState.setTerm(1).setHeartbeatInterval(Duration.ofMillis(100));
+      state.open();
+    });
+    awaitCondition(() -> serverState.getCommitIndex() == 1);
+
+    runOnServer(() -> serverState.getStateMachine()
+      .executor()
+      .context()
+      .sessions()
+      .registerSession(new ServerSession(1, serverState.getStateMachine().executor().context(), 60000)));
+
+    // Members that acknowledge a command more often than the heartbeat interval are never sent heartbeats.
+    int count = 0;
+    heartbeats.clear();
+    long endTime = System.currentTimeMillis() + 500;
+    while (System.currentTimeMillis() < endTime) {
+      CommandRequest request = CommandRequest.builder()
+        .withSession(1)
+        .withSequence(++count)
+        .withCommand(new TestCommand("foo"))
+        .build();
+      serverCtx.execute(() -> state.command(request)).get().get(1, TimeUnit.SECONDS);
+      Thread.sleep(20);
+    }
+    threadAssertTrue(heartbeats.isEmpty());
+
+    // Once members are idle, the leader sends them heartbeats.
+    awaitCondition(() -> heartbeats.size() == 2 && heartbeats.values().stream().allMatch(c -> c.get() >= 2));
+  }
+
+  /**
+   * Tests that the leader steps down when heartbeats fail to reach a majority of the cluster.
+   */
+  public void testLeaderStepsDownWhenPartitioned() throws Throwable {
+    AtomicBoolean partitioned = new AtomicBoolean();
+    AtomicInteger failures = new AtomicInteger();
+    listen((member, request) -> {
+      if (partitioned.get()) {
+        failures.incrementAndGet();
+        CompletableFuture<AppendResponse> future = new CompletableFuture<>();
+        future.completeExceptionally(new IllegalStateException("member partitioned"));
+        return future;
+      }
+      return succeed(request);
+    });
+
+    List<CopycatServer.State> states = Collections.synchronizedList(new ArrayList<>());
+    runOnServer(() -> {
+      serverState.setTerm(1).setElectionTimeout(Duration.ofMillis(200)).onStateChange(states::add);
+      state.open();
+    });
+    awaitCondition(() -> serverState.getCommitIndex() == 1);
+
+    // Heartbeats continue to be sent to members that fail to respond until the leader steps down.
+    partitioned.set(true);
+    awaitCondition(() -> !states.isEmpty());
+    threadAssertEquals(states.get(0), CopycatServer.State.FOLLOWER);
+    threadAssertTrue(failures.get() >= 2);
+  }
+
+  /**
+   * Tests that replication to a passive member catching up is throttled without delaying replication to active members.
+   */
+  public void testLeaderThrottlesCatchUpReplication() throws Throwable {
+    createState(3, false);
+    Address passive = new Address("localhost", 5003);
+    int entrySize = 1024;
+    int maxBatchEntries = 1024 * 28 / entrySize;
+    long bandwidth = 1024 * 64;
+
+    // The active members' logs are up to date with the leader's log, and the passive member's log is empty.
+    AtomicLong passiveIndex = new AtomicLong();
+    AtomicInteger maxPassiveEntries = new AtomicInteger();
+    Map<Address, AtomicLong> activeIndexes = new ConcurrentHashMap<>();
+    listen((member, request) -> append(activeIndexes.computeIfAbsent(member, m -> new AtomicLong(200)), request));
+    listen(Collections.singletonList(passive), (member, request) -> {
+      maxPassiveEntries.accumulateAndGet(request.entries().size(), Math::max);
+      return append(passiveIndex, request);
+    });
+
+    runOnServer(() -> {
+      for (int i = 0; i < 200; i++) {
+        try (TestEntry entry = serverState.getLog().create(TestEntry.class)) {
+          entry.setTerm(1).setTombstone(false).setPadding(entrySize);
+          serverState.getLog().append(entry);
+        }
+      }
+      serverState.setTerm(1).setCommitIndex(200).setCatchUpBandwidth(bandwidth);
+      serverState.getCluster().configure(1, members, Collections.singletonList(passive));
+      state.open();
+    });
+
+    // The active members receive the leader's no-op entry without waiting for the passive member to catch up.
+    long startTime = System.nanoTime();
+    awaitCondition(() -> member(1).getMatchIndex() == 201 && member(2).getMatchIndex() == 201);
+    threadAssertTrue(passiveIndex.get() < 200);
+
+    // The passive member receives no more than a full batch plus the bandwidth allowed since replication started.
+    Thread.sleep(1000);
+    long index = passiveIndex.get();
+    double elapsed = (System.nanoTime() - startTime) / 1_000_000_000d;
+    threadAssertTrue(index * entrySize <= 1024 * 28 + bandwidth * elapsed + entrySize);
+
+    // The passive member eventually catches up in batches no larger than the maximum batch size.
+    awaitCondition(() -> passiveIndex.get() >= 200);
+    threadAssertTrue(maxPassiveEntries.get() <= maxBatchEntries);
+  }
+
+  /**
+   * Tests that the leader assigns a passive member that is far behind to a follower and only sends it empty requests.
+   */
+  public void testLeaderDelegatesCatchUpReplication() throws Throwable {
+    Address passive = new Address("localhost", 5003);
+    Map<Address, AtomicLong> activeIndexes = new ConcurrentHashMap<>();
+    Map<Address, Boolean> sources = new ConcurrentHashMap<>();
+    AtomicLong passiveIndex = new AtomicLong();
+    AtomicInteger passiveEntries = new AtomicInteger();
+    AtomicInteger passiveRequests = new AtomicInteger();
+    listen((member, request) -> {
+      if (request.catchUpMembers().contains(passive.hashCode())) {
+        sources.put(member, true);
+      }
+      return append(activeIndexes.computeIfAbsent(member, m -> new AtomicLong(2000)), request);
+    });
+    listen(Collections.singletonList(passive), (member, request) -> {
+      passiveRequests.incrementAndGet();
+      passiveEntries.addAndGet(request.entries().size() + request.recordCount());
+      return append(passiveIndex, request);
+    });
+
+    openCatchUp(passive, 2000);
+
+    // Once the passive member is assigned to a follower, the leader continues to send it empty requests only.
+    awaitCondition(() -> !sources.isEmpty());
+    Thread.sleep(100);
+    int entries = passiveEntries.get();
+    int requests = passiveRequests.get();
+    Thread.sleep(500);
+    threadAssertEquals(sources.size(), 1);
+    threadAssertEquals(passiveEntries.get(), entries);
+    threadAssertTrue(passiveRequests.get() > requests);
+    threadAssertTrue(passiveIndex.get() < 1000);
+  }
+
+  /**
+   * Tests that the leader resumes replicating to a passive member once no follower can replicate to it.
+   */
+  public void testLeaderResumesCatchUpReplicationWhenSourceLost() throws Throwable {
+    Address passive = new Address("localhost", 5003);
+    Map<Address, AtomicLong> activeIndexes = new ConcurrentHashMap<>();
+    Map<Address, Boolean> lost = new ConcurrentHashMap<>();
+    AtomicLong passiveIndex = new AtomicLong();
+
+    // Followers are lost once the passive member is assigned to them.
+    listen((member, request) -> {
+      if (lost.containsKey(member)) {
+        CompletableFuture<AppendResponse> future = new CompletableFuture<>();
+        future.completeExceptionally(new IllegalStateException("member lost"));
+        return future;
+      } else if (request.catchUpMembers().contains(passive.hashCode())) {
+        lost.put(member, true);
+      }
+      return append(activeIndexes.computeIfAbsent(member, m -> new AtomicLong(2000)), request);
+    });
+    listen(Collections.singletonList(passive), (member, request) -> append(passiveIndex, request));
+
+    openCatchUp(passive, 2000);
+
+    awaitCondition(() -> passiveIndex.get() == 2001);
+    threadAssertEquals(lost.size(), 2);
+  }
+
+  /**
+   * Opens the leader with the given number of committed entries and a passive member with an empty log.
+   */
+  private void openCatchUp(Address passive, int entries) throws Throwable {
+    runOnServer(() -> {
+      append(entries, 1);
+      serverState.setTerm(1).setCommitIndex(entries).setElectionTimeout(Duration.ofSeconds(5));
+      serverState.getCluster().configure(1, members, Collections.singletonList(passive));
+      state.open();
+    });
+  }
 }
@@ -212,6 +212,8 @@ public class PassiveStateTest extends AbstractStateTest<PassiveState> {
       assertFalse(response.succeeded());
       assertEquals(response.term(), 2L);
       assertEquals(response.logIndex(), 1L);
+      assertEquals(response.conflictTerm(), 1L);
+      assertEquals(response.conflictIndex(), 1L);
     });
   }
 
@@ -335,6 +337,16 @@ public class PassiveStateTest extends AbstractStateTest<PassiveState> {
     });
   }
 
+  public void testCommandRedirectsToLeader() throws Throwable {
+    runOnServer(() -> {
+      serverState.setTerm(1).setLeader(members.get(1).hashCode());
+      CommandRequest request = CommandRequest.builder().withSession(1).withCommand(new TestCommand("test")).build();
+      CommandResponse response = state.command(request).get();
+      assertIllegalMemberStateError(response);
+      assertEquals(response.leader(), members.get(1));
+    });
+  }
+
   public void testJoinWithoutLeader() throws Throwable {
     runOnServer(() -> {
       JoinRequest request = JoinRequest.builder().withMember(members.get(0)).build();
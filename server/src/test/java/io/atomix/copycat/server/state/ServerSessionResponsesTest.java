@@ -0,0 +1,90 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.copycat.server.state;
+
+import org.testng.annotations.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.testng.Assert.*;
+
+/**
+ * Server session responses test.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+@Test
+public class ServerSessionResponsesTest {
+
+  /**
+   * Tests registering and clearing responses as the buffer grows and shrinks.
+   */
+  public void testRegisterAndClearResponses() {
+    ServerSessionResponses responses = new ServerSessionResponses(1024);
+    CompletableFuture<Void> future = new CompletableFuture<>();
+    for (long i = 1; i <= 100; i++) {
+      responses.register(i, "response" + i, i == 50 ? future : null);
+    }
+    assertEquals(responses.size(), 100);
+    for (long i = 1; i <= 100; i++) {
+      assertEquals(responses.getResponse(i), "response" + i);
+    }
+    assertSame(responses.getFuture(50), future);
+    assertNull(responses.getFuture(51));
+    assertNull(responses.getResponse(101));
+
+    responses.clear(90);
+    assertEquals(responses.size(), 10);
+    assertNull(responses.getResponse(50));
+    assertNull(responses.getFuture(50));
+    for (long i = 91; i <= 100; i++) {
+      assertEquals(responses.getResponse(i), "response" + i);
+    }
+
+    responses.register(101, "response101", null);
+    assertEquals(responses.getResponse(101), "response101");
+    assertFalse(responses.isEvicted(50));
+
+    // Responses for sequence numbers that were already cleared are ignored.
+    responses.register(90, "response90", null);
+    assertNull(responses.getResponse(90));
+  }
+
+  /**
+   * Tests that the oldest unacknowledged responses are evicted once the maximum size is reached.
+   */
+  public void testEvictResponses() {
+    ServerSessionResponses responses = new ServerSessionResponses(10);
+    for (long i = 1; i <= 25; i++) {
+      responses.register(i, i, null);
+    }
+    assertEquals(responses.size(), 10);
+    for (long i = 1; i <= 15; i++) {
+      assertNull(responses.getResponse(i));
+      assertTrue(responses.isEvicted(i));
+    }
+    for (long i = 16; i <= 25; i++) {
+      assertEquals(responses.getResponse(i), i);
+      assertFalse(responses.isEvicted(i));
+    }
+
+    responses.clear(20);
+    assertFalse(responses.isEvicted(15));
+    assertEquals(responses.size(), 5);
+    assertEquals(responses.getResponse(21), 21L);
+  }
+
+}
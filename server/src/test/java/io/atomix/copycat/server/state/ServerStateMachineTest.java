@@ -22,8 +22,12 @@ import io.atomix.catalyst.transport.Transport;
 import io.atomix.catalyst.util.concurrent.SingleThreadContext;
 import io.atomix.catalyst.util.concurrent.ThreadContext;
 import io.atomix.copycat.client.Command;
+import io.atomix.copycat.client.PartitionedCommand;
 import io.atomix.copycat.client.Query;
+import io.atomix.copycat.client.error.ApplicationException;
+import io.atomix.copycat.client.error.IllegalMemberStateException;
 import io.atomix.copycat.server.Commit;
+import io.atomix.copycat.server.PartitionedStateMachine;
 import io.atomix.copycat.server.StateMachine;
 import io.atomix.copycat.server.StateMachineExecutor;
 import io.atomix.copycat.server.storage.entry.*;
@@ -32,9 +36,13 @@ import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import java.time.Duration;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.atomic.AtomicLong;
 
 import static org.testng.Assert.*;
@@ -53,6 +61,7 @@ public class ServerStateMachineTest extends ConcurrentTestCase {
   private long timestamp;
   private AtomicLong sequence;
   private Set<Long> cleaned;
+  private AtomicLong scheduled = new AtomicLong();
 
   @BeforeMethod
   public void createStateMachine() {
@@ -113,6 +122,52 @@ public class ServerStateMachineTest extends ConcurrentTestCase {
     assertEquals(session.getTimestamp(), timestamp + 1000);
   }
 
+  /**
+   * Tests keeping many sessions alive with a single entry.
+   */
+  public void testSessionBatchKeepAlive() throws Throwable {
+    callerContext.execute(() -> {
+
+      RegisterEntry entry = new RegisterEntry()
+        .setIndex(1)
+        .setTerm(1)
+        .setTimestamp(timestamp)
+        .setTimeout(500)
+        .setClient(UUID.randomUUID());
+
+      stateMachine.apply(entry).whenComplete((result, error) -> {
+        threadAssertNull(error);
+        resume();
+      });
+    });
+
+    await();
+
+    ServerSession session = stateMachine.executor().context().sessions().getSession(1);
+    assertNotNull(session);
+
+    callerContext.execute(() -> {
+
+      BatchKeepAliveEntry entry = new BatchKeepAliveEntry()
+        .setIndex(2)
+        .setTerm(1)
+        .setTimestamp(timestamp + 1000)
+        .addSession(1, 0, 0)
+        .addSession(3, 0, 0);
+
+      stateMachine.apply(entry).whenComplete((result, error) -> {
+        threadAssertNull(error);
+        threadAssertEquals(((long[]) result).length, 1);
+        threadAssertEquals(((long[]) result)[0], 3L);
+        resume();
+      });
+    });
+
+    await();
+
+    assertEquals(session.getTimestamp(), timestamp + 1000);
+  }
+
   /**
    * Tests resetting session timeouts when a new leader is elected.
    */
@@ -293,6 +348,112 @@ public class ServerStateMachineTest extends ConcurrentTestCase {
     assertEquals(session.getTimestamp(), timestamp + 300);
   }
 
+  /**
+   * Tests applying partitioned commands in parallel.
+   */
+  public void testPartitionedCommands() throws Throwable {
+    stateMachine.close();
+    stateContext = new SingleThreadContext("state", new Serializer());
+    stateMachine = new ServerStateMachine(new TestPartitionedStateMachine(), new ServerStateMachineContext(new ConnectionManager(new LocalTransport(new LocalServerRegistry()).client()), new ServerSessionManager()), cleaned::add, stateContext);
+
+    callerContext.execute(() -> {
+
+      RegisterEntry entry = new RegisterEntry()
+        .setIndex(1)
+        .setTerm(1)
+        .setTimestamp(timestamp)
+        .setTimeout(500)
+        .setClient(UUID.randomUUID());
+
+      stateMachine.apply(entry).whenComplete((result, error) -> {
+        threadAssertNull(error);
+        resume();
+      });
+    });
+
+    await();
+
+    AtomicLong completed = new AtomicLong();
+    callerContext.execute(() -> {
+      for (int i = 1; i <= 100; i++) {
+        long index = i + 1;
+        Command<Long> command = i % 25 == 0 ? new TotalCommand() : new KeyCommand("key" + (i % 4));
+        long sequence = i;
+
+        CommandEntry entry = new CommandEntry()
+          .setIndex(index)
+          .setTerm(1)
+          .setSession(1)
+          .setSequence(i)
+          .setTimestamp(timestamp + i)
+          .setCommand(command);
+
+        stateMachine.apply(entry).whenComplete((result, error) -> {
+          threadAssertNull(error);
+          threadAssertEquals(completed.incrementAndGet(), index - 1);
+          if (command instanceof TotalCommand) {
+            threadAssertEquals(result, sequence);
+          }
+          resume();
+        });
+      }
+    });
+
+    await(10000, 100);
+
+    // Commits cleaned on partition threads are cleaned on the state machine thread, so wait for it to catch up.
+    stateContext.execute(this::resume);
+    await();
+
+    for (int i = 0; i < 4; i++) {
+      assertEquals(cleaned.contains((long) i + 2), true);
+    }
+  }
+
+  /**
+   * Tests that partitioned commands cannot schedule callbacks.
+   */
+  public void testPartitionedCommandCannotSchedule() throws Throwable {
+    stateMachine.close();
+    stateContext = new SingleThreadContext("state", new Serializer());
+    stateMachine = new ServerStateMachine(new TestPartitionedStateMachine(), new ServerStateMachineContext(new ConnectionManager(new LocalTransport(new LocalServerRegistry()).client()), new ServerSessionManager()), cleaned::add, stateContext);
+
+    callerContext.execute(() -> {
+
+      RegisterEntry entry = new RegisterEntry()
+        .setIndex(1)
+        .setTerm(1)
+        .setTimestamp(timestamp)
+        .setTimeout(500)
+        .setClient(UUID.randomUUID());
+
+      stateMachine.apply(entry).whenComplete((result, error) -> {
+        threadAssertNull(error);
+        resume();
+      });
+    });
+
+    await();
+
+    callerContext.execute(() -> {
+
+      CommandEntry entry = new CommandEntry()
+        .setIndex(2)
+        .setTerm(1)
+        .setSession(1)
+        .setSequence(1)
+        .setTimestamp(timestamp + 100)
+        .setCommand(new PartitionedScheduleCommand("key"));
+
+      stateMachine.apply(entry).whenComplete((result, error) -> {
+        threadAssertTrue(error instanceof ApplicationException && error.getCause() instanceof IllegalStateException);
+        resume();
+      });
+    });
+
+    await();
+  }
+
   /**
    * Tests serializing queries.
    */
@@ -364,6 +525,287 @@ public class ServerStateMachineTest extends ConcurrentTestCase {
     assertEquals(session.getTimestamp(), timestamp + 100);
   }
 
+  /**
+   * Tests that scheduled callbacks are executed once committed entries advance past their scheduled time.
+   */
+  public void testScheduledCallback() throws Throwable {
+    callerContext.execute(() -> {
+
+      RegisterEntry entry = new RegisterEntry()
+        .setIndex(1)
+        .setTerm(1)
+        .setTimestamp(timestamp)
+        .setTimeout(500)
+        .setClient(UUID.randomUUID());
+
+      stateMachine.apply(entry).whenComplete((result, error) -> {
+        threadAssertNull(error);
+        resume();
+      });
+    });
+
+    await();
+
+    long[] timestamps = {timestamp, timestamp + 50, timestamp + 101, timestamp + 150, timestamp + 202};
+    long[] expected = {0, 0, 1, 1, 2};
+    for (int i = 0; i < timestamps.length; i++) {
+      long index = i + 2;
+      long sequence = i + 1;
+      long time = timestamps[i];
+      long fired = expected[i];
+      callerContext.execute(() -> {
+
+        CommandEntry entry = new CommandEntry()
+          .setIndex(index)
+          .setTerm(1)
+          .setSession(1)
+          .setSequence(sequence)
+          .setTimestamp(time)
+          .setCommand(sequence == 1 ? new ScheduleCommand() : new TestCommand());
+
+        stateMachine.apply(entry).whenComplete((result, error) -> {
+          threadAssertNull(error);
+          threadAssertEquals(fired, scheduled.get());
+          resume();
+        });
+      });
+
+      await();
+    }
+  }
+
+  /**
+   * Tests applying a batch of entries.
+   */
+  public void testApplyBatch() throws Throwable {
+    callerContext.execute(() -> {
+
+      RegisterEntry entry = new RegisterEntry()
+        .setIndex(1)
+        .setTerm(1)
+        .setTimestamp(timestamp)
+        .setTimeout(500)
+        .setClient(UUID.randomUUID());
+
+      stateMachine.apply(entry).whenComplete((result, error) -> {
+        threadAssertNull(error);
+        resume();
+      });
+    });
+
+    await();
+
+    AtomicLong completed = new AtomicLong();
+    callerContext.execute(() -> {
+      stateMachine.applyBatch(() -> {
+        for (int i = 1; i <= 10; i++) {
+          long sequence = i;
+
+          CommandEntry entry = new CommandEntry()
+            .setIndex(i + 1)
+            .setTerm(1)
+            .setSession(1)
+            .setSequence(i)
+            .setTimestamp(timestamp + i)
+            .setCommand(new TestCommand());
+
+          stateMachine.apply(entry, true).whenComplete((result, error) -> {
+            threadAssertEquals(result, sequence);
+            threadAssertEquals(completed.incrementAndGet(), sequence);
+            resume();
+          });
+        }
+      }).whenComplete((result, error) -> {
+        threadAssertNull(error);
+        threadAssertEquals(completed.get(), 10L);
+        resume();
+      });
+
+      threadAssertEquals(stateMachine.getLastApplied(), 11L);
+    });
+
+    await(1000, 11);
+  }
+
+  /**
+   * Tests executing thread safe queries on the query executor.
+   */
+  public void testConcurrentQuery() throws Throwable {
+    callerContext.execute(() -> {
+
+      RegisterEntry entry = new RegisterEntry()
+        .setIndex(1)
+        .setTerm(1)
+        .setTimestamp(timestamp)
+        .setTimeout(500)
+        .setClient(UUID.randomUUID());
+
+      stateMachine.apply(entry).whenComplete((result, error) -> {
+        threadAssertNull(error);
+        resume();
+      });
+    });
+
+    await();
+
+    callerContext.execute(() -> {
+
+      CommandEntry command = new CommandEntry()
+        .setIndex(2)
+        .setTerm(1)
+        .setSession(1)
+        .setSequence(1)
+        .setTimestamp(timestamp + 100)
+        .setCommand(new TestCommand());
+
+      stateMachine.apply(command).whenComplete((result, error) -> {
+        threadAssertEquals(result, 1L);
+        resume();
+      });
+
+      QueryEntry query = new QueryEntry()
+        .setIndex(stateMachine.getLastApplied())
+        .setTerm(1)
+        .setSession(1)
+        .setTimestamp(timestamp + 200)
+        .setSequence(1)
+        .setVersion(2)
+        .setQuery(new ConcurrentQuery());
+
+      stateMachine.apply(query).whenComplete((result, error) -> {
+        threadAssertNull(error);
+        threadAssertTrue(((String) result).startsWith("copycat-server-query"));
+        threadAssertEquals(sequence.get(), 1L);
+        resume();
+      });
+    });
+
+    await(1000, 2);
+  }
+
+  /**
+   * Tests failing thread safe queries once the query executor has been shut down.
+   */
+  public void testConcurrentQueryAfterClose() throws Throwable {
+    callerContext.execute(() -> {
+
+      RegisterEntry entry = new RegisterEntry()
+        .setIndex(1)
+        .setTerm(1)
+        .setTimestamp(timestamp)
+        .setTimeout(500)
+        .setClient(UUID.randomUUID());
+
+      stateMachine.apply(entry).whenComplete((result, error) -> {
+        threadAssertNull(error);
+        resume();
+      });
+    });
+
+    await();
+
+    ((ExecutorService) stateMachine.executor().queryExecutor()).shutdown();
+
+    callerContext.execute(() -> {
+
+      QueryEntry query = new QueryEntry()
+        .setIndex(stateMachine.getLastApplied())
+        .setTerm(1)
+        .setSession(1)
+        .setTimestamp(timestamp + 200)
+        .setSequence(0)
+        .setVersion(1)
+        .setQuery(new ConcurrentQuery());
+
+      stateMachine.apply(query).whenComplete((result, error) -> {
+        threadAssertTrue(error instanceof IllegalMemberStateException);
+        resume();
+      });
+    });
+
+    await();
+  }
+
+  /**
+   * Tests dispatching commands to reflectively registered state machine methods.
+   */
+  public void testReflectiveCommandDispatch() throws Throwable {
+    stateMachine.close();
+    stateContext = new SingleThreadContext("state", new Serializer());
+    stateMachine = new ServerStateMachine(new ReflectiveStateMachine(), new ServerStateMachineContext(new ConnectionManager(new LocalTransport(new LocalServerRegistry()).client()), new ServerSessionManager()), cleaned::add, stateContext);
+
+    callerContext.execute(() -> {
+
+      RegisterEntry entry = new RegisterEntry()
+        .setIndex(1)
+        .setTerm(1)
+        .setTimestamp(timestamp)
+        .setTimeout(500)
+        .setClient(UUID.randomUUID());
+
+      stateMachine.apply(entry).whenComplete((result, error) -> {
+        threadAssertNull(error);
+        resume();
+      });
+    });
+
+    await();
+
+    callerContext.execute(() -> {
+
+      CommandEntry entry = new CommandEntry()
+        .setIndex(2)
+        .setTerm(1)
+        .setSession(1)
+        .setSequence(1)
+        .setTimestamp(timestamp + 100)
+        .setCommand(new TestCommand());
+
+      stateMachine.apply(entry).whenComplete((result, error) -> {
+        threadAssertEquals(result, 1L);
+        resume();
+      });
+    });
+
+    await();
+
+    callerContext.execute(() -> {
+
+      CommandEntry entry = new CommandEntry()
+        .setIndex(3)
+        .setTerm(1)
+        .setSession(1)
+        .setSequence(2)
+        .setTimestamp(timestamp + 200)
+        .setCommand(new SubCommand());
+
+      stateMachine.apply(entry).whenComplete((result, error) -> {
+        threadAssertEquals(result, 2L);
+        resume();
+      });
+    });
+
+    await();
+
+    callerContext.execute(() -> {
+
+      CommandEntry entry = new CommandEntry()
+        .setIndex(4)
+        .setTerm(1)
+        .setSession(1)
+        .setSequence(3)
+        .setTimestamp(timestamp + 300)
+        .setCommand(new EventCommand());
+
+      stateMachine.apply(entry).whenComplete((result, error) -> {
+        threadAssertTrue(error instanceof ApplicationException && error.getCause() instanceof IllegalArgumentException);
+        resume();
+      });
+    });
+
+    await();
+  }
+
   @AfterMethod
   public void closeStateMachine() {
     stateMachine.close();
@@ -380,6 +822,12 @@ public class ServerStateMachineTest extends ConcurrentTestCase {
       executor.register(TestCommand.class, this::testCommand);
       executor.register(TestQuery.class, this::testQuery);
       executor.register(EventCommand.class, this::eventCommand);
+      executor.registerConcurrent(ConcurrentQuery.class, this::concurrentQuery);
+      executor.register(ScheduleCommand.class, this::scheduleCommand);
+    }
+
+    private void scheduleCommand(Commit<ScheduleCommand> commit) {
+      executor().schedule(Duration.ofMillis(100), Duration.ofMillis(100), scheduled::incrementAndGet);
     }
 
     private long testCommand(Commit<TestCommand> commit) {
@@ -393,6 +841,30 @@ public class ServerStateMachineTest extends ConcurrentTestCase {
     private long testQuery(Commit<TestQuery> commit) {
       return sequence.incrementAndGet();
     }
+
+    private String concurrentQuery(Commit<ConcurrentQuery> commit) {
+      commit.close();
+      return Thread.currentThread().getName();
+    }
+  }
+
+  /**
+   * Reflective test state machine.
+   */
+  public static class ReflectiveStateMachine extends StateMachine {
+    private long sequence;
+
+    public long testCommand(Commit<TestCommand> commit) {
+      return ++sequence;
+    }
+
+    public long baseCommand(Commit<BaseCommand> commit) {
+      return ++sequence;
+    }
+
+    public void eventCommand(Commit<EventCommand> commit) {
+      throw new IllegalArgumentException();
+    }
   }
 
   /**
@@ -401,6 +873,18 @@ public class ServerStateMachineTest extends ConcurrentTestCase {
   private static class TestCommand implements Command<Long> {
   }
 
+  /**
+   * Base command.
+   */
+  private static class BaseCommand implements Command<Long> {
+  }
+
+  /**
+   * Base command subtype.
+   */
+  private static class SubCommand extends BaseCommand {
+  }
+
   /**
    * Event command.
    */
@@ -413,4 +897,93 @@ public class ServerStateMachineTest extends ConcurrentTestCase {
   private static class TestQuery implements Query<Long> {
   }
 
+  /**
+   * Schedule command.
+   */
+  private static class ScheduleCommand implements Command<Void> {
+  }
+
+  /**
+   * Concurrent test query.
+   */
+  private static class ConcurrentQuery implements Query<String> {
+  }
+
+  /**
+   * Partitioned test state machine.
+   */
+  private static class TestPartitionedStateMachine extends PartitionedStateMachine {
+    private final Map<String, Long> counts = new ConcurrentHashMap<>();
+
+    private TestPartitionedStateMachine() {
+      super(4);
+    }
+
+    @Override
+    protected void configure(StateMachineExecutor executor) {
+      executor.register(KeyCommand.class, this::key);
+      executor.register(TotalCommand.class, this::total);
+      executor.register(PartitionedScheduleCommand.class, this::schedule);
+    }
+
+    private long key(Commit<KeyCommand> commit) {
+      long count = counts.merge(commit.operation().key, 1L, Long::sum);
+      commit.clean();
+      return count;
+    }
+
+    private void schedule(Commit<PartitionedScheduleCommand> commit) {
+      try {
+        executor().schedule(Duration.ofSeconds(1), () -> {});
+      } finally {
+        commit.clean();
+      }
+    }
+
+    private long total(Commit<TotalCommand> commit) {
+      long total = counts.values().stream().mapToLong(Long::longValue).sum() + 1;
+      counts.merge("total", 1L, Long::sum);
+      commit.clean();
+      return total;
+    }
+  }
+
+  /**
+   * Partitioned key command.
+   */
+  private static class KeyCommand implements PartitionedCommand<Long> {
+    private final String key;
+
+    private KeyCommand(String key) {
+      this.key = key;
+    }
+
+    @Override
+    public Object partitionKey() {
+      return key;
+    }
+  }
+
+  /**
+   * Partitioned command that schedules a callback.
+   */
+  private static class PartitionedScheduleCommand implements PartitionedCommand<Void> {
+    private final String key;
+
+    private PartitionedScheduleCommand(String key) {
+      this.key = key;
+    }
+
+    @Override
+    public Object partitionKey() {
+      return key;
+    }
+  }
+
+  /**
+   * Non-partitioned total command.
+   */
+  private static class TotalCommand implements Command<Long> {
+  }
+
 }
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.copycat.server.state;
+
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.testng.Assert.*;
+
+/**
+ * Server timing wheel test.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+@Test
+public class ServerTimingWheelTest {
+
+  /**
+   * Tests that timers expire only once the wheel advances past their time.
+   */
+  public void testTimerExpiresAfterTime() {
+    ServerTimingWheel wheel = new ServerTimingWheel();
+    wheel.advance(1000, t -> fail());
+
+    List<ServerTimingWheel.Timer> expired = new ArrayList<>();
+    ServerTimingWheel.Timer timer = timer(1010);
+    wheel.schedule(timer);
+    assertEquals(wheel.size(), 1);
+
+    wheel.advance(1010, expired::add);
+    assertTrue(expired.isEmpty());
+    assertTrue(timer.isScheduled());
+
+    wheel.advance(1011, expired::add);
+    assertEquals(expired.size(), 1);
+    assertFalse(timer.isScheduled());
+    assertEquals(wheel.size(), 0);
+  }
+
+  /**
+   * Tests that cancelled timers never expire.
+   */
+  public void testCancelTimer() {
+    ServerTimingWheel wheel = new ServerTimingWheel();
+    wheel.advance(1000, t -> fail());
+    ServerTimingWheel.Timer timer = timer(1500);
+    wheel.schedule(timer);
+    wheel.cancel(timer);
+    assertEquals(wheel.size(), 0);
+    wheel.cancel(timer);
+    wheel.advance(100000, t -> fail());
+  }
+
+  /**
+   * Tests that timers in the past expire on the next advance.
+   */
+  public void testPastTimerExpiresOnNextAdvance() {
+    ServerTimingWheel wheel = new ServerTimingWheel();
+    wheel.advance(1000, t -> fail());
+    List<ServerTimingWheel.Timer> expired = new ArrayList<>();
+    wheel.schedule(timer(10));
+    wheel.advance(1001, expired::add);
+    assertEquals(expired.size(), 1);
+  }
+
+  /**
+   * Tests that timers at all levels of the wheel expire in time order against a sorted reference.
+   */
+  public void testTimersExpireInOrder() {
+    Random random = new Random(42);
+    ServerTimingWheel wheel = new ServerTimingWheel();
+    long start = 1_450_000_000_000L;
+    wheel.advance(start, t -> fail());
+
+    List<ServerTimingWheel.Timer> timers = new ArrayList<>();
+    for (int i = 0; i < 10000; i++) {
+      long delay;
+      switch (i % 5) {
+        case 0:
+          delay = random.nextInt(256);
+          break;
+        case 1:
+          delay = random.nextInt(1 << 16);
+          break;
+        case 2:
+          delay = random.nextInt(1 << 24);
+          break;
+        case 3:
+          delay = (long) (random.nextDouble() * (1L << 32));
+          break;
+        default:
+          delay = (1L << 32) + random.nextInt(1 << 30);
+          break;
+      }
+      ServerTimingWheel.Timer timer = timer(start + delay);
+      timers.add(timer);
+      wheel.schedule(timer);
+    }
+
+    // Cancel every tenth timer.
+    List<ServerTimingWheel.Timer> remaining = new ArrayList<>();
+    for (int i = 0; i < timers.size(); i++) {
+      if (i % 10 == 0) {
+        wheel.cancel(timers.get(i));
+      } else {
+        remaining.add(timers.get(i));
+      }
+    }
+    assertEquals(wheel.size(), remaining.size());
+
+    List<ServerTimingWheel.Timer> expired = new ArrayList<>();
+    long time = start;
+    while (wheel.size() > 0) {
+      long target = time + 1 + (long) (random.nextDouble() * (1L << (random.nextInt(33))));
+      int before = expired.size();
+      wheel.advance(target, expired::add);
+      for (int i = before; i < expired.size(); i++) {
+        assertTrue(expired.get(i).time < target);
+      }
+      for (ServerTimingWheel.Timer timer : remaining) {
+        if (timer.isScheduled()) {
+          assertTrue(timer.time >= target);
+        }
+      }
+      time = target;
+    }
+
+    assertEquals(expired.size(), remaining.size());
+    for (int i = 1; i < expired.size(); i++) {
+      assertTrue(expired.get(i - 1).time <= expired.get(i).time);
+    }
+  }
+
+  /**
+   * Tests that timers scheduled by an expiring timer's callback expire no earlier than the next millisecond.
+   */
+  public void testRescheduleFromCallback() {
+    ServerTimingWheel wheel = new ServerTimingWheel();
+    wheel.advance(1000, t -> fail());
+    ServerTimingWheel.Timer timer = timer(1000);
+    wheel.schedule(timer);
+
+    List<Long> times = new ArrayList<>();
+    wheel.advance(1005, t -> {
+      times.add(wheel.time());
+      t.time = 0;
+      wheel.schedule(t);
+    });
+    assertEquals(times.size(), 5);
+    assertTrue(timer.isScheduled());
+  }
+
+  /**
+   * Creates a timer for the given time.
+   */
+  private static ServerTimingWheel.Timer timer(long time) {
+    ServerTimingWheel.Timer timer = new ServerTimingWheel.Timer();
+    timer.time = time;
+    return timer;
+  }
+
+}
@@ -69,7 +69,8 @@ public abstract class AbstractLogTest {
     TestEntry entry = new TestEntry();
     entry.setPadding(entryPadding);
     serializer.writeObject(entry, buffer);
-    return (int) buffer.position() + Short.BYTES + Long.BYTES;
+    // Record headers are a 16-bit length followed by a varint offset, and test segment offsets always fit in one byte.
+    return (int) buffer.position() + Short.BYTES + Byte.BYTES;
   }
 
   @BeforeMethod
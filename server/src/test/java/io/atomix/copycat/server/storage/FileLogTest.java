@@ -94,6 +94,40 @@ public class FileLogTest extends LogTest {
     }
   }
 
+  /**
+   * Tests recovery of entry terms after compaction.
+   */
+  public void testRecoverTermsAfterCompact() {
+    int entries = entriesPerSegment * 5;
+    for (int i = 1; i <= entries; i++) {
+      try (TestEntry entry = log.create(TestEntry.class)) {
+        entry.setTerm((i - 1) / 4 + 1).setPadding(entryPadding);
+        log.append(entry);
+      }
+    }
+
+    for (long i = 1; i <= entries; i++) {
+      if (i % 3 == 0) {
+        log.clean(i);
+      }
+    }
+
+    log.commit(entries).compactor().minorIndex(entries).compact().join();
+    log.close();
+
+    try (Log log = createLog()) {
+      for (int i = 1; i <= entries; i++) {
+        try (Entry entry = log.get(i)) {
+          if (entry != null) {
+            assertEquals(log.term(i), (i - 1) / 4 + 1);
+          } else {
+            assertTrue(log.term(i) == 0 || log.term(i) == (i - 1) / 4 + 1);
+          }
+        }
+      }
+    }
+  }
+
   /**
    * Tests recovering from an inconsistent disk.
    */
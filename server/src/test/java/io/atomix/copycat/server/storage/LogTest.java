@@ -23,11 +23,17 @@ import static org.testng.Assert.assertTrue;
 
 import java.io.File;
 import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 
 import org.testng.annotations.Test;
 
+import io.atomix.catalyst.buffer.Buffer;
+import io.atomix.catalyst.buffer.DirectBuffer;
+import io.atomix.catalyst.buffer.HeapBuffer;
 import io.atomix.catalyst.serializer.Serializer;
 import io.atomix.catalyst.serializer.ServiceLoaderTypeResolver;
+import io.atomix.copycat.server.util.Varints;
 
 /**
  * Log test.
@@ -210,6 +216,53 @@ public abstract class LogTest extends AbstractLogTest {
     assertCompacted(entriesPerSegment + 1, entriesPerSegment * 2);
   }
 
+  /**
+   * Tests {@link Log#copyTo(long, long, io.atomix.catalyst.buffer.BufferOutput)} from sealed segments.
+   */
+  public void testCopyTo() {
+    appendEntries(entriesPerSegment * 3);
+    Buffer buffer = HeapBuffer.allocate();
+
+    // Entries aren't copied until all entries in the segment have been committed.
+    assertEquals(log.copyTo(1, Long.MAX_VALUE, buffer), 0);
+
+    // Entries in memory segments are stored in the platform byte order and are never copied.
+    log.commit(entriesPerSegment * 3);
+    if (storageLevel() == StorageLevel.MEMORY) {
+      assertEquals(log.copyTo(1, Long.MAX_VALUE, buffer), 0);
+      return;
+    }
+
+    assertEquals(log.copyTo(1, Long.MAX_VALUE, buffer), entriesPerSegment);
+    try (Buffer records = copy(buffer)) {
+      for (long i = 1; i <= entriesPerSegment; i++) {
+        assertEquals(Varints.readUnsignedLong(records), i);
+        try (TestEntry entry = log.serializer().readObject(records); TestEntry expected = log.get(i)) {
+          assertEquals(entry.getTerm(), expected.getTerm());
+          assertEquals(entry.getPadding(), expected.getPadding());
+        }
+      }
+      assertFalse(records.hasRemaining());
+    }
+
+    // Copying stops before the next entry would exceed the maximum size.
+    int length = entrySize() - Short.BYTES - Byte.BYTES;
+    assertEquals(log.copyTo(1, length, buffer.clear()), 1);
+    assertEquals(buffer.position(), Byte.BYTES + length);
+
+    // Entries in the segment currently being written are never copied.
+    assertEquals(log.copyTo(entriesPerSegment * 2 + 1, Long.MAX_VALUE, buffer.clear()), 0);
+  }
+
+  /**
+   * Copies the bytes written to the given heap buffer to a big-endian direct buffer.
+   */
+  private Buffer copy(Buffer buffer) {
+    byte[] bytes = new byte[(int) buffer.position()];
+    buffer.flip().read(bytes);
+    return DirectBuffer.allocate(bytes.length).write(bytes).flip();
+  }
+
   /**
    * Tests {@link Log#isClosed()}.
    */
@@ -377,6 +430,42 @@ public abstract class LogTest extends AbstractLogTest {
     assertNull(log.commit(105).get(105));
   }
 
+  /**
+   * Tests looking up entry terms after appending, truncating and skipping entries.
+   */
+  public void testTerm() throws Throwable {
+    for (int i = 1; i <= 30; i++) {
+      try (TestEntry entry = log.create(TestEntry.class)) {
+        entry.setTerm((i - 1) / 7 + 1).setPadding(entryPadding);
+        log.append(entry);
+      }
+    }
+
+    assertEquals(log.term(0), 0);
+    assertEquals(log.term(31), 0);
+    for (int i = 1; i <= 30; i++) {
+      assertEquals(log.term(i), (i - 1) / 7 + 1);
+    }
+    assertEquals(log.firstIndexOfTerm(2), 8);
+    assertEquals(log.lastIndexOfTerm(2), 14);
+    assertEquals(log.lastIndexOfTerm(5), 30);
+    assertEquals(log.firstIndexOfTerm(6), 0);
+
+    log.truncate(10);
+    assertEquals(log.term(10), 2);
+    assertEquals(log.term(11), 0);
+
+    try (TestEntry entry = log.create(TestEntry.class)) {
+      entry.setTerm(6).setPadding(entryPadding);
+      log.append(entry);
+    }
+    assertEquals(log.term(8), 2);
+    assertEquals(log.term(11), 6);
+
+    log.skip(5);
+    assertEquals(log.term(16), 0);
+  }
+
   /**
    * Tests emptying the log.
    */
@@ -391,4 +480,23 @@ public abstract class LogTest extends AbstractLogTest {
     assertEquals(log.firstIndex(), 1);
     assertEquals(log.lastIndex(), 10);
   }
+
+  /**
+   * Tests that logs sharing a compaction executor don't shut it down when closed.
+   */
+  public void testSharedCompactionExecutor() {
+    ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    try {
+      Log log = tempStorageBuilder().withDirectory(new File(String.format("target/test-logs/%s-shared", logId)))
+        .withStorageLevel(storageLevel())
+        .withCompactionExecutor(executor)
+        .withSerializer(new Serializer(new ServiceLoaderTypeResolver()))
+        .build()
+        .open("copycat");
+      log.close();
+      assertFalse(executor.isShutdown());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
 }
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.copycat.server.util;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+/**
+ * Latency histogram test.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+@Test
+public class LatencyHistogramTest {
+
+  /**
+   * Tests that an empty histogram reports zero latencies.
+   */
+  public void testEmptyHistogram() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    assertEquals(histogram.count(), 0);
+    assertEquals(histogram.max(), 0);
+    assertEquals(histogram.percentile(.99), 0);
+  }
+
+  /**
+   * Tests that small values are recorded exactly.
+   */
+  public void testSmallValuesAreExact() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 1; i <= 10; i++) {
+      histogram.record(i);
+    }
+    assertEquals(histogram.count(), 10);
+    assertEquals(histogram.percentile(.5), 5);
+    assertEquals(histogram.percentile(1), 10);
+    assertEquals(histogram.max(), 10);
+  }
+
+  /**
+   * Tests that percentiles of large values are within the histogram's precision.
+   */
+  public void testPercentilePrecision() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (long i = 1; i <= 100000; i++) {
+      histogram.record(i * 1000);
+    }
+    assertEquals(histogram.count(), 100000);
+    assertEquals(histogram.max(), 100000000);
+    assertWithin(histogram.percentile(.5), 50000000);
+    assertWithin(histogram.percentile(.99), 99000000);
+    assertWithin(histogram.percentile(.999), 99900000);
+  }
+
+  /**
+   * Asserts that a value is within the histogram's relative error of the expected value.
+   */
+  private static void assertWithin(long actual, long expected) {
+    assertTrue(Math.abs(actual - expected) <= expected * 0.04, actual + " is not within 4% of " + expected);
+  }
+
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.copycat.server.util;
+
+import io.atomix.catalyst.buffer.Buffer;
+import io.atomix.catalyst.buffer.HeapBuffer;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+/**
+ * Variable-length integer encoding test.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+@Test
+public class VarintsTest {
+  private static final long[] VALUES = {0, 1, 127, 128, 16383, 16384, Integer.MAX_VALUE, Long.MAX_VALUE, -1, -64, -65, Long.MIN_VALUE};
+
+  /**
+   * Tests that unsigned values are sized, written and read consistently.
+   */
+  public void testUnsignedLong() {
+    for (long value : VALUES) {
+      Buffer buffer = HeapBuffer.allocate(16);
+      Varints.writeUnsignedLong(buffer, value);
+      assertEquals(buffer.position(), Varints.size(value));
+      assertEquals(Varints.readUnsignedLong(buffer, 0), value);
+      assertEquals(Varints.readUnsignedLong(buffer.flip()), value);
+    }
+  }
+
+  /**
+   * Tests that small values are written in a single byte.
+   */
+  public void testSmallValuesUseOneByte() {
+    assertEquals(Varints.size(0), 1);
+    assertEquals(Varints.size(127), 1);
+    assertEquals(Varints.size(128), 2);
+    assertEquals(Varints.size(Long.MAX_VALUE), 9);
+    assertEquals(Varints.size(-1), 10);
+  }
+
+  /**
+   * Tests that signed values round trip and small negative values remain small.
+   */
+  public void testSignedLong() {
+    for (long value : VALUES) {
+      Buffer buffer = HeapBuffer.allocate(16);
+      Varints.writeLong(buffer, value);
+      assertEquals(Varints.readLong(buffer.flip()), value);
+    }
+
+    Buffer buffer = HeapBuffer.allocate(16);
+    Varints.writeLong(buffer, -64);
+    assertEquals(buffer.position(), 1);
+  }
+
+}
@@ -15,13 +15,16 @@
  */
 package io.atomix.copycat.test;
 
-import io.atomix.catalyst.transport.Address;
-import io.atomix.catalyst.transport.LocalServerRegistry;
-import io.atomix.catalyst.transport.LocalTransport;
+import io.atomix.catalyst.transport.*;
+import io.atomix.catalyst.util.Listener;
 import io.atomix.copycat.client.Command;
 import io.atomix.copycat.client.CopycatClient;
 import io.atomix.copycat.client.Query;
+import io.atomix.copycat.client.response.BatchKeepAliveResponse;
+import io.atomix.copycat.client.response.Response;
+import io.atomix.copycat.client.session.MultiplexedSession;
 import io.atomix.copycat.client.session.Session;
+import io.atomix.copycat.client.session.SessionMultiplexer;
 import io.atomix.copycat.server.Commit;
 import io.atomix.copycat.server.CopycatServer;
 import io.atomix.copycat.server.RaftServer;
@@ -33,12 +36,17 @@ import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 /**
  * Copycat cluster test.
@@ -116,6 +124,23 @@ public class ClusterTest extends ConcurrentTestCase {
     await(10000);
   }
 
+  /**
+   * Tests transferring leadership from the leader to a follower.
+   */
+  public void testTransferLeadership() throws Throwable {
+    List<CopycatServer> servers = createServers(3);
+    CopycatServer leader = servers.stream().filter(s -> s.state() == CopycatServer.State.LEADER).findFirst().get();
+    CopycatServer follower = servers.stream().filter(s -> s.state() == CopycatServer.State.FOLLOWER).findFirst().get();
+    Address address = members.get(servers.indexOf(follower));
+    follower.onStateChange(state -> {
+      if (state == CopycatServer.State.LEADER)
+        resume();
+    });
+    leader.transferLeadership(address).thenRun(this::resume);
+    await(10000, 2);
+    threadAssertEquals(follower.leader(), address);
+  }
+
   /**
    * Tests scaling the cluster from 1 node to 3 nodes and back.
    */
@@ -142,6 +167,80 @@ public class ClusterTest extends ConcurrentTestCase {
     threadAssertTrue(client.session().isOpen());
   }
 
+  /**
+   * Tests hosting many sessions on a single session multiplexer.
+   */
+  public void testSessionMultiplexer() throws Throwable {
+    createServers(3);
+
+    // Count successful batched keep-alives to ensure the sessions are kept alive by the multiplexer.
+    AtomicInteger keepAlives = new AtomicInteger();
+    Transport transport = new KeepAliveListenerTransport(new LocalTransport(registry), () -> {
+      if (keepAlives.incrementAndGet() == 2) {
+        resume();
+      }
+    });
+
+    SessionMultiplexer multiplexer = SessionMultiplexer.builder(members).withTransport(transport).build();
+    multiplexer.open().join();
+
+    MultiplexedSession session1 = multiplexer.createSession().join();
+    MultiplexedSession session2 = multiplexer.createSession().join();
+    threadAssertFalse(session1.id() == session2.id());
+
+    session1.onEvent("test", message -> {
+      threadAssertEquals(message, "foo");
+      resume();
+    });
+    session2.onEvent("test", message -> {
+      threadAssertEquals(message, "bar");
+      resume();
+    });
+
+    session1.submit(new TestEvent("foo", true, Command.ConsistencyLevel.LINEARIZABLE)).thenAccept(result -> {
+      threadAssertEquals(result, "foo");
+      resume();
+    });
+    session2.submit(new TestEvent("bar", true, Command.ConsistencyLevel.LINEARIZABLE)).thenAccept(result -> {
+      threadAssertEquals(result, "bar");
+      resume();
+    });
+    await(10000, 4);
+
+    // Ensure the batched keep-alives keep both sessions open.
+    await(10000);
+    threadAssertTrue(session1.isOpen());
+    threadAssertTrue(session2.isOpen());
+
+    multiplexer.close().join();
+    threadAssertTrue(session1.isClosed());
+    threadAssertTrue(session2.isClosed());
+  }
+
+  /**
+   * Tests registering server metrics with the platform MBean server.
+   */
+  public void testServerMetricsMBean() throws Throwable {
+    CopycatServer server = createServers(1).get(0);
+    Address address = members.get(0);
+
+    MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+    ObjectName name = new ObjectName(String.format("io.atomix.copycat:type=Server,address=%s", ObjectName.quote(address.host() + ":" + address.port())));
+    threadAssertTrue(mbeanServer.isRegistered(name));
+    threadAssertEquals(mbeanServer.getAttribute(name, "State"), "LEADER");
+
+    long commitCount = (long) mbeanServer.getAttribute(name, "CommitCount");
+
+    CopycatClient client = createClient();
+    submit(client, 0, 10);
+    await(10000);
+
+    threadAssertTrue((long) mbeanServer.getAttribute(name, "CommitCount") >= commitCount + 10);
+
+    server.close().join();
+    threadAssertFalse(mbeanServer.isRegistered(name));
+  }
+
   /**
    * Tests submitting a command.
    */
@@ -1177,4 +1276,79 @@ public class ClusterTest extends ConcurrentTestCase {
   public static class TestExpire implements Command<Void> {
   }
 
+  /**
+   * Transport that notifies a listener of successful batched keep-alive responses received by clients.
+   */
+  private static class KeepAliveListenerTransport implements Transport {
+    private final Transport transport;
+    private final Runnable listener;
+
+    private KeepAliveListenerTransport(Transport transport, Runnable listener) {
+      this.transport = transport;
+      this.listener = listener;
+    }
+
+    @Override
+    public Client client() {
+      Client client = transport.client();
+      return new Client() {
+        @Override
+        public CompletableFuture<Connection> connect(Address address) {
+          return client.connect(address).thenApply(KeepAliveListenerConnection::new);
+        }
+
+        @Override
+        public CompletableFuture<Void> close() {
+          return client.close();
+        }
+      };
+    }
+
+    @Override
+    public Server server() {
+      return transport.server();
+    }
+
+    /**
+     * Connection that notifies the listener of successful batched keep-alive responses.
+     */
+    private class KeepAliveListenerConnection implements Connection {
+      private final Connection connection;
+
+      private KeepAliveListenerConnection(Connection connection) {
+        this.connection = connection;
+      }
+
+      @Override
+      public <T, U> CompletableFuture<U> send(T request) {
+        return connection.<T, U>send(request).whenComplete((response, error) -> {
+          if (response instanceof BatchKeepAliveResponse && ((BatchKeepAliveResponse) response).status() == Response.Status.OK) {
+            listener.run();
+          }
+        });
+      }
+
+      @Override
+      public <T, U> Connection handler(Class<T> type, MessageHandler<T, U> handler) {
+        connection.handler(type, handler);
+        return this;
+      }
+
+      @Override
+      public Listener<Throwable> exceptionListener(Consumer<Throwable> listener) {
+        return connection.exceptionListener(listener);
+      }
+
+      @Override
+      public Listener<Connection> closeListener(Consumer<Connection> listener) {
+        return connection.closeListener(c -> listener.accept(this));
+      }
+
+      @Override
+      public CompletableFuture<Void> close() {
+        return connection.close();
+      }
+    }
+  }
+
 }